@@ -0,0 +1,116 @@
+package backtest;
+
+import java.lang.reflect.Constructor;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import exchange.ExchangeAPI;
+import logic.DealingLogicBase;
+import notification.SlackNotifier;
+
+/**
+ * 記録データをSimulatedExchangeに再生し、設定のロジックをそのまま動かす。
+ * 本番では市場データと執行判断の段に分けて実行する毎秒の処理(onSecond)を、
+ * 記録データの時刻が1秒進むごとに同じスレッドで呼ぶので、待ち時間なしでCPUの速さで再生できる。
+ */
+public class BacktestEngine {
+
+	private final Map<String, Object> SETTINGS;
+
+	private final Map<String, Object> BACKTEST_PARAM;
+
+	// 損益曲線を記録する間隔
+	private final long EQUITY_INTERVAL_MSEC;
+
+	// これより長く約定がない場合は途中の秒のonSecondを呼ばない(記録の欠損期間を飛ばす)
+	private final long MAX_GAP_SECONDS;
+
+	@SuppressWarnings("unchecked")
+	public BacktestEngine(Map<String, Object> settings) {
+		this.SETTINGS = settings;
+		this.BACKTEST_PARAM = (Map<String, Object>) settings.get("backtest");
+		this.EQUITY_INTERVAL_MSEC = (long) (param(BACKTEST_PARAM, "equityIntervalSec", 60) * 1000);
+		this.MAX_GAP_SECONDS = (long) param(BACKTEST_PARAM, "maxGapSeconds", 3600);
+	}
+
+	private static double param(Map<String, Object> param, String key, double defaultValue) {
+		if (param == null || param.get(key) == null) {
+			return defaultValue;
+		}
+		return ((Number) param.get(key)).doubleValue();
+	}
+
+	public BacktestReport run(TickData ticks) throws Exception {
+		if (ticks.size() == 0) {
+			throw new IllegalArgumentException("再生する約定データがありません。");
+		}
+		long startNanos = System.nanoTime();
+		Map<String, Object> settings = backtestSettings(SETTINGS);
+		BacktestReport report = new BacktestReport(param(BACKTEST_PARAM, "initialCollateral", 1000000));
+		SimulatedExchange exchange = new SimulatedExchange(BACKTEST_PARAM, settings, report, ticks.getTime(0));
+		SimulatedClock clock = exchange.getSimulatedClock();
+		exchange.onTick(ticks.getTime(0), ticks.getPrice(0), ticks.getSize(0));
+		try {
+			@SuppressWarnings("unchecked")
+			Map<String, Object> paramMap = (Map<String, Object>) settings.get("common");
+			DealingLogicBase logic = createLogic((String) paramMap.get("logicClass"), exchange,
+					SlackNotifier.getDisabledInstance(), paramMap, settings);
+			logic.initialize();
+			long second = Math.floorDiv(ticks.getTime(0), 1000);
+			long nextEquityMillis = ticks.getTime(0);
+			int n = ticks.size();
+			for (int i = 1; i < n; i++) {
+				long time = ticks.getTime(i);
+				long tickSecond = Math.floorDiv(time, 1000);
+				if (tickSecond > second) {
+					if (tickSecond - second > MAX_GAP_SECONDS) {
+						second = tickSecond - 1;
+					}
+					// 約定を反映する前に、経過した秒ごとの処理を行う(本番で秒が変わった直後に動くのと同じ)
+					while (second < tickSecond) {
+						second++;
+						long millis = second * 1000;
+						clock.setMillis(millis);
+						logic.onSecond(LocalDateTime.now(clock));
+						boolean record = millis >= nextEquityMillis;
+						if (record) {
+							nextEquityMillis = millis + EQUITY_INTERVAL_MSEC;
+						}
+						report.updateEquity(millis, exchange.getEquity(), record);
+					}
+				}
+				exchange.onTick(time, ticks.getPrice(i), ticks.getSize(i));
+			}
+			report.updateEquity(clock.millis(), exchange.getEquity(), true);
+		} finally {
+			exchange.close();
+		}
+		report.finish(ticks.size(), System.nanoTime() - startNanos);
+		return report;
+	}
+
+	/**
+	 * 本番用の設定からバックテスト用の設定を作る(Realtime APIは使わない)
+	 */
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> backtestSettings(Map<String, Object> settings) {
+		Map<String, Object> copy = new HashMap<>(settings);
+		Map<String, Object> realtime = new HashMap<>();
+		if (settings.get("realtime") != null) {
+			realtime.putAll((Map<String, Object>) settings.get("realtime"));
+		}
+		realtime.put("enabled", false);
+		copy.put("realtime", realtime);
+		return copy;
+	}
+
+	private static DealingLogicBase createLogic(String logicClass, ExchangeAPI exchange, SlackNotifier notifier,
+			Map<String, Object> paramMap, Map<String, Object> settings) throws Exception {
+		@SuppressWarnings("unchecked")
+		Class<? extends DealingLogicBase> clazz = (Class<? extends DealingLogicBase>) Class.forName(logicClass);
+		Constructor<? extends DealingLogicBase> constructor = clazz.getDeclaredConstructor(ExchangeAPI.class,
+				SlackNotifier.class, Map.class, Map.class);
+		return constructor.newInstance(exchange, notifier, paramMap, settings);
+	}
+}
@@ -0,0 +1,61 @@
+package backtest;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.yaml.snakeyaml.Yaml;
+
+/**
+ * バックテストの起動
+ *
+ * 実行方法:
+ * java -cp ... backtest.BacktestMain 記録データ 形式(OHLCV|PRICE_DIRECTION|TICK|STORE) [出力先ディレクトリ] [設定ファイル]
+ * 設定ファイルを省略した場合はクラスパスのbot_settings.ymlを使う(backtestセクションで初期証拠金、スプレッド、手数料を指定する)。
+ */
+public class BacktestMain {
+
+	static {
+		// ロガーの初期化前にバックテスト用のログ設定に切り替える
+		if (System.getProperty("log4j2.configurationFile") == null
+				&& System.getProperty("log4j.configurationFile") == null) {
+			System.setProperty("log4j2.configurationFile", "log4j2-backtest.xml");
+		}
+	}
+
+	private static Logger LOGGER = LogManager.getLogger(BacktestMain.class);
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("usage: BacktestMain data format(OHLCV|PRICE_DIRECTION|TICK|STORE) [outputDir] [settings]");
+			System.exit(1);
+		}
+		Path data = Paths.get(args[0]);
+		RecordedDataReader.FormatEnum format = RecordedDataReader.FormatEnum.valueOf(args[1]);
+		Path output = Paths.get(args.length > 2 ? args[2] : "backtest-result");
+		Map<String, Object> settings = loadSettings(args.length > 3 ? Paths.get(args[3]) : null);
+
+		TickData ticks = RecordedDataReader.read(data, format);
+		LOGGER.info("記録データ読込:" + ticks.size() + "件 " + data);
+		BacktestReport report = new BacktestEngine(settings).run(ticks);
+		report.writeCsv(output);
+		LOGGER.info("バックテスト結果 " + report);
+		LOGGER.info("出力先:" + output.toAbsolutePath());
+		// ロジックが起動したスレッドが残っていても終了する
+		System.exit(0);
+	}
+
+	static Map<String, Object> loadSettings(Path path) throws Exception {
+		try (InputStream in = path != null ? Files.newInputStream(path)
+				: ClassLoader.getSystemResourceAsStream("bot_settings.yml")) {
+			if (in == null) {
+				throw new IllegalStateException("bot_settings.yml がクラスパスにありません。");
+			}
+			return new Yaml().<Map<String, Object>>load(in);
+		}
+	}
+}
@@ -0,0 +1,230 @@
+package backtest;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import model.BuySellEnum;
+import model.FixedPoint;
+
+/**
+ * バックテストの結果(損益曲線、約定一覧、ドローダウン)
+ */
+public class BacktestReport {
+
+	private final double INITIAL_COLLATERAL;
+
+	// 損益曲線(一定間隔で記録した評価額)
+	private long[] equityTimes = new long[1024];
+
+	private double[] equities = new double[1024];
+
+	private int equityCount = 0;
+
+	// 約定一覧
+	private long[] tradeTimes = new long[256];
+
+	private byte[] tradeSides = new byte[256];
+
+	// 1e-8 BTC単位
+	private long[] tradeSizes = new long[256];
+
+	private double[] tradePrices = new double[256];
+
+	private double[] tradeFees = new double[256];
+
+	private double[] tradeRealizedPnls = new double[256];
+
+	private int tradeCount = 0;
+
+	private double peakEquity;
+
+	private double maxDrawdown = 0;
+
+	private double maxDrawdownRatio = 0;
+
+	private double finalEquity;
+
+	private long tickCount = 0;
+
+	private long elapsedNanos = 0;
+
+	public BacktestReport(double initialCollateral) {
+		this.INITIAL_COLLATERAL = initialCollateral;
+		this.peakEquity = initialCollateral;
+		this.finalEquity = initialCollateral;
+	}
+
+	/**
+	 * 評価額を反映する(ドローダウンは毎回、損益曲線はrecordがtrueの時だけ記録する)
+	 */
+	public void updateEquity(long timeMillis, double equity, boolean record) {
+		finalEquity = equity;
+		if (equity > peakEquity) {
+			peakEquity = equity;
+		} else {
+			double drawdown = peakEquity - equity;
+			if (drawdown > maxDrawdown) {
+				maxDrawdown = drawdown;
+			}
+			double ratio = peakEquity > 0 ? drawdown / peakEquity : 0;
+			if (ratio > maxDrawdownRatio) {
+				maxDrawdownRatio = ratio;
+			}
+		}
+		if (record) {
+			if (equityCount == equityTimes.length) {
+				equityTimes = Arrays.copyOf(equityTimes, equityCount * 2);
+				equities = Arrays.copyOf(equities, equityCount * 2);
+			}
+			equityTimes[equityCount] = timeMillis;
+			equities[equityCount] = equity;
+			equityCount++;
+		}
+	}
+
+	synchronized void recordTrade(long timeMillis, BuySellEnum side, long size, double price, double fee,
+			double realizedPnl) {
+		if (tradeCount == tradeTimes.length) {
+			int capacity = tradeCount * 2;
+			tradeTimes = Arrays.copyOf(tradeTimes, capacity);
+			tradeSides = Arrays.copyOf(tradeSides, capacity);
+			tradeSizes = Arrays.copyOf(tradeSizes, capacity);
+			tradePrices = Arrays.copyOf(tradePrices, capacity);
+			tradeFees = Arrays.copyOf(tradeFees, capacity);
+			tradeRealizedPnls = Arrays.copyOf(tradeRealizedPnls, capacity);
+		}
+		tradeTimes[tradeCount] = timeMillis;
+		tradeSides[tradeCount] = (byte) side.ordinal();
+		tradeSizes[tradeCount] = size;
+		tradePrices[tradeCount] = price;
+		tradeFees[tradeCount] = fee;
+		tradeRealizedPnls[tradeCount] = realizedPnl;
+		tradeCount++;
+	}
+
+	void finish(long tickCount, long elapsedNanos) {
+		this.tickCount = tickCount;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	public double getInitialCollateral() {
+		return INITIAL_COLLATERAL;
+	}
+
+	public double getFinalEquity() {
+		return finalEquity;
+	}
+
+	public double getTotalPnl() {
+		return finalEquity - INITIAL_COLLATERAL;
+	}
+
+	public double getMaxDrawdown() {
+		return maxDrawdown;
+	}
+
+	public double getMaxDrawdownRatio() {
+		return maxDrawdownRatio;
+	}
+
+	public synchronized int getTradeCount() {
+		return tradeCount;
+	}
+
+	public synchronized double getTradeRealizedPnl(int index) {
+		return tradeRealizedPnls[index];
+	}
+
+	public synchronized double getTradePrice(int index) {
+		return tradePrices[index];
+	}
+
+	public synchronized BuySellEnum getTradeSide(int index) {
+		return BuySellEnum.values()[tradeSides[index]];
+	}
+
+	/**
+	 * @return 決済を伴う約定のうち、実現損益がプラスだった割合
+	 */
+	public synchronized double getWinRate() {
+		int closes = 0;
+		int wins = 0;
+		for (int i = 0; i < tradeCount; i++) {
+			if (tradeRealizedPnls[i] != 0) {
+				closes++;
+				if (tradeRealizedPnls[i] > 0) {
+					wins++;
+				}
+			}
+		}
+		return closes > 0 ? (double) wins / closes : 0;
+	}
+
+	public synchronized double getTotalFee() {
+		double total = 0;
+		for (int i = 0; i < tradeCount; i++) {
+			total += tradeFees[i];
+		}
+		return total;
+	}
+
+	public int getEquityCount() {
+		return equityCount;
+	}
+
+	public long getEquityTime(int index) {
+		return equityTimes[index];
+	}
+
+	public double getEquity(int index) {
+		return equities[index];
+	}
+
+	public long getTickCount() {
+		return tickCount;
+	}
+
+	/**
+	 * @return 1秒あたりに再生した約定数
+	 */
+	public double getTicksPerSecond() {
+		return elapsedNanos > 0 ? tickCount * 1e9 / elapsedNanos : 0;
+	}
+
+	/**
+	 * 損益曲線(equity.csv)と約定一覧(trades.csv)を出力する
+	 */
+	public void writeCsv(Path dir) throws IOException {
+		Files.createDirectories(dir);
+		try (BufferedWriter writer = Files.newBufferedWriter(dir.resolve("equity.csv"), StandardCharsets.UTF_8)) {
+			writer.write("time,equity\n");
+			for (int i = 0; i < equityCount; i++) {
+				writer.write(equityTimes[i] + "," + equities[i] + "\n");
+			}
+		}
+		synchronized (this) {
+			try (BufferedWriter writer = Files.newBufferedWriter(dir.resolve("trades.csv"),
+					StandardCharsets.UTF_8)) {
+				writer.write("time,side,size,price,fee,realizedPnl\n");
+				for (int i = 0; i < tradeCount; i++) {
+					writer.write(tradeTimes[i] + "," + BuySellEnum.values()[tradeSides[i]] + ","
+							+ FixedPoint.formatSize(tradeSizes[i]) + "," + tradePrices[i] + "," + tradeFees[i] + ","
+							+ tradeRealizedPnls[i] + "\n");
+				}
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "pnl:" + String.format("%.0f", getTotalPnl()) + " finalEquity:" + String.format("%.0f", finalEquity)
+				+ " maxDrawdown:" + String.format("%.0f", maxDrawdown) + " maxDrawdownRatio:"
+				+ String.format("%.4f", maxDrawdownRatio) + " trades:" + getTradeCount() + " winRate:"
+				+ String.format("%.4f", getWinRate()) + " fee:" + String.format("%.0f", getTotalFee()) + " ticks:"
+				+ tickCount + " ticksPerSec:" + String.format("%.0f", getTicksPerSecond());
+	}
+}
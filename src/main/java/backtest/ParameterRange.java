@@ -0,0 +1,63 @@
+package backtest;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 探索するパラメータの候補値
+ */
+public class ParameterRange {
+
+	private final String NAME;
+
+	private final double[] VALUES;
+
+	public ParameterRange(String name, double[] values) {
+		if (values.length == 0) {
+			throw new IllegalArgumentException("候補値がありません。name:" + name);
+		}
+		this.NAME = name;
+		this.VALUES = values;
+	}
+
+	/**
+	 * 設定から作る({min, max, step}または{values: [...]})
+	 */
+	@SuppressWarnings("unchecked")
+	public static ParameterRange of(String name, Map<String, Object> rangeParam) {
+		if (rangeParam.get("values") != null) {
+			List<Number> list = (List<Number>) rangeParam.get("values");
+			double[] values = new double[list.size()];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = list.get(i).doubleValue();
+			}
+			return new ParameterRange(name, values);
+		}
+		double min = ((Number) rangeParam.get("min")).doubleValue();
+		double max = ((Number) rangeParam.get("max")).doubleValue();
+		double step = ((Number) rangeParam.get("step")).doubleValue();
+		if (step <= 0 || max < min) {
+			throw new IllegalArgumentException("範囲が不正です。name:" + name + " " + rangeParam);
+		}
+		// 刻みの誤差で最大値が漏れないよう少し余裕を持たせる
+		int count = (int) Math.floor((max - min) / step + 1e-9) + 1;
+		double[] values = new double[count];
+		for (int i = 0; i < count; i++) {
+			// 0.1刻み等で誤差が出ないよう丸める
+			values[i] = Math.round((min + step * i) * 1e8) / 1e8;
+		}
+		return new ParameterRange(name, values);
+	}
+
+	public String getName() {
+		return NAME;
+	}
+
+	public int size() {
+		return VALUES.length;
+	}
+
+	public double getValue(int index) {
+		return VALUES[index];
+	}
+}
@@ -0,0 +1,501 @@
+package backtest;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * パラメータを変えながらバックテストを並列に繰り返し、成績順に並べる。
+ * 記録データは1つだけ読み込んで全ての試行で共有する(再生中は読むだけなのでスレッド間で共有できる)。
+ * 結果は1件終わるごとにsweep_results.csvに追記するので、中断しても同じ出力先で再実行すれば続きから動く。
+ *
+ * 実行方法:
+ * java -cp ... backtest.ParameterSweep 記録データ 形式(OHLCV|PRICE_DIRECTION|TICK|STORE) [出力先ディレクトリ] [設定ファイル]
+ * 探索範囲などは設定ファイルのsweepセクションで指定する。
+ */
+public class ParameterSweep {
+
+	static {
+		// ロガーの初期化前にバックテスト用のログ設定に切り替える
+		if (System.getProperty("log4j2.configurationFile") == null
+				&& System.getProperty("log4j.configurationFile") == null) {
+			System.setProperty("log4j2.configurationFile", "log4j2-backtest.xml");
+		}
+	}
+
+	public enum ModeEnum {
+		// 全ての組み合わせ
+		GRID,
+		// 組み合わせから無作為に選んだsamples件
+		RANDOM,
+		// 期間を区切って学習期間で最良のパラメータを選び、直後の検証期間で評価する
+		WALK_FORWARD
+	}
+
+	public enum RankByEnum {
+		PNL,
+		// 損益/最大ドローダウン
+		PNL_DRAWDOWN
+	}
+
+	static final String RESULT_FILE = "sweep_results.csv";
+
+	static final String RANKING_FILE = "sweep_ranking.csv";
+
+	private static final String PHASE_ALL = "ALL";
+
+	private static final String PHASE_TRAIN = "TRAIN";
+
+	private static final String PHASE_TEST = "TEST";
+
+	private final Map<String, Object> SETTINGS;
+
+	private final List<ParameterRange> RANGES = new ArrayList<>();
+
+	private final ModeEnum MODE;
+
+	// WALK_FORWARDの学習期間の探索方法(GRIDかRANDOM)
+	private final ModeEnum TRAIN_MODE;
+
+	private final RankByEnum RANK_BY;
+
+	private final int SAMPLES;
+
+	private final long SEED;
+
+	private final int PARALLELISM;
+
+	private final int FOLDS;
+
+	// 学習期間の長さ(検証期間の何倍か)
+	private final int TRAIN_SEGMENTS;
+
+	private static Logger LOGGER = LogManager.getLogger(ParameterSweep.class);
+
+	@SuppressWarnings("unchecked")
+	public ParameterSweep(Map<String, Object> settings) {
+		this.SETTINGS = settings;
+		Map<String, Object> sweepParam = (Map<String, Object>) settings.get("sweep");
+		if (sweepParam == null) {
+			sweepParam = new HashMap<>();
+		}
+		this.MODE = ModeEnum.valueOf(String.valueOf(param(sweepParam, "mode", "GRID")));
+		this.TRAIN_MODE = ModeEnum.valueOf(String.valueOf(param(sweepParam, "trainMode", "GRID")));
+		this.RANK_BY = RankByEnum.valueOf(String.valueOf(param(sweepParam, "rankBy", "PNL")));
+		this.SAMPLES = ((Number) param(sweepParam, "samples", 100)).intValue();
+		this.SEED = ((Number) param(sweepParam, "seed", 1)).longValue();
+		int parallelism = ((Number) param(sweepParam, "parallelism", 0)).intValue();
+		this.PARALLELISM = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+		this.FOLDS = ((Number) param(sweepParam, "folds", 4)).intValue();
+		this.TRAIN_SEGMENTS = ((Number) param(sweepParam, "trainSegments", 3)).intValue();
+		if (TRAIN_MODE == ModeEnum.WALK_FORWARD) {
+			throw new IllegalArgumentException("trainModeにはGRIDかRANDOMを指定してください。");
+		}
+		Map<String, Object> parameters = (Map<String, Object>) sweepParam.get("parameters");
+		if (parameters != null) {
+			for (Map.Entry<String, Object> entry : parameters.entrySet()) {
+				RANGES.add(ParameterRange.of(entry.getKey(), (Map<String, Object>) entry.getValue()));
+			}
+		}
+	}
+
+	private static Object param(Map<String, Object> param, String key, Object defaultValue) {
+		Object value = param.get(key);
+		return value != null ? value : defaultValue;
+	}
+
+	/**
+	 * @param output 結果の出力先(既に結果がある場合は済んだ試行を飛ばす)
+	 * @return 成績順の結果(WALK_FORWARDの場合は検証期間の結果)
+	 */
+	public List<Result> run(TickData ticks, Path output) throws Exception {
+		Files.createDirectories(output);
+		Path resultFile = output.resolve(RESULT_FILE);
+		Map<String, Result> done = readResults(resultFile);
+		if (!done.isEmpty()) {
+			LOGGER.info("前回の結果を読み込みました。" + done.size() + "件は実行しません。");
+		}
+		List<double[]> combinations = MODE == ModeEnum.WALK_FORWARD ? combinations(TRAIN_MODE) : combinations(MODE);
+		LOGGER.info("探索開始 mode:" + MODE + " 組み合わせ:" + combinations.size() + " 並列数:" + PARALLELISM);
+		ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+		try (BufferedWriter writer = openResultWriter(resultFile)) {
+			List<Result> ranked;
+			if (MODE == ModeEnum.WALK_FORWARD) {
+				ranked = walkForward(pool, writer, ticks, combinations, done);
+			} else {
+				ranked = runAll(pool, writer, ticks, 0, PHASE_ALL, combinations, done);
+			}
+			ranked.sort(rankOrder());
+			writeRanking(output.resolve(RANKING_FILE), ranked);
+			return ranked;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private List<Result> walkForward(ForkJoinPool pool, BufferedWriter writer, TickData ticks,
+			List<double[]> combinations, Map<String, Result> done) throws Exception {
+		long begin = ticks.getTime(0);
+		long span = ticks.getTime(ticks.size() - 1) + 1 - begin;
+		long segment = span / (FOLDS + TRAIN_SEGMENTS);
+		if (segment <= 0) {
+			throw new IllegalArgumentException("記録データの期間が短すぎます。");
+		}
+		List<Result> tests = new ArrayList<>();
+		double testPnl = 0;
+		for (int fold = 0; fold < FOLDS; fold++) {
+			long trainBegin = begin + segment * fold;
+			long testBegin = trainBegin + segment * TRAIN_SEGMENTS;
+			long testEnd = fold == FOLDS - 1 ? Long.MAX_VALUE : testBegin + segment;
+			TickData train = ticks.slice(ticks.indexOf(trainBegin), ticks.indexOf(testBegin));
+			TickData test = ticks.slice(ticks.indexOf(testBegin), ticks.indexOf(testEnd));
+			if (train.size() == 0 || test.size() == 0) {
+				LOGGER.info("約定がない期間を飛ばします。fold:" + fold);
+				continue;
+			}
+			List<Result> trained = runAll(pool, writer, train, fold, PHASE_TRAIN, combinations, done);
+			trained.sort(rankOrder());
+			Result best = trained.get(0);
+			Result result = runAll(pool, writer, test, fold, PHASE_TEST,
+					Collections.singletonList(best.getValues()), done).get(0);
+			LOGGER.info("fold:" + fold + " 学習期間の最良:" + best + " 検証期間:" + result);
+			tests.add(result);
+			testPnl += result.getPnl();
+		}
+		LOGGER.info("検証期間の損益合計:" + Math.round(testPnl) + " (fold数:" + tests.size() + ")");
+		return tests;
+	}
+
+	/**
+	 * 組み合わせを並列に実行する(済んでいるものは前回の結果を使う)
+	 */
+	private List<Result> runAll(ForkJoinPool pool, BufferedWriter writer, TickData ticks, int fold, String phase,
+			List<double[]> combinations, Map<String, Result> done) {
+		List<Result> results = new ArrayList<>();
+		List<ForkJoinTask<Result>> tasks = new ArrayList<>();
+		for (double[] values : combinations) {
+			Result previous = done.get(key(fold, phase, values));
+			if (previous != null) {
+				results.add(previous);
+				continue;
+			}
+			tasks.add(pool.submit(() -> {
+				Result result = runOne(ticks, fold, phase, values);
+				append(writer, result);
+				return result;
+			}));
+		}
+		for (ForkJoinTask<Result> task : tasks) {
+			results.add(task.join());
+		}
+		return results;
+	}
+
+	private Result runOne(TickData ticks, int fold, String phase, double[] values) {
+		try {
+			BacktestReport report = new BacktestEngine(apply(values)).run(ticks);
+			return new Result(fold, phase, values, report.getTotalPnl(), report.getMaxDrawdown(),
+					report.getMaxDrawdownRatio(), report.getTradeCount(), report.getWinRate());
+		} catch (Exception e) {
+			// 1件の失敗で探索全体を止めない(損益NaNで記録し、順位は最下位)
+			LOGGER.info("バックテストに失敗しました。" + key(fold, phase, values));
+			e.printStackTrace();
+			return new Result(fold, phase, values, Double.NaN, Double.NaN, Double.NaN, 0, 0);
+		}
+	}
+
+	/**
+	 * パラメータを差し替えた設定を作る(commonにあるキーはcommon、それ以外はlogicを書き換える)
+	 */
+	@SuppressWarnings("unchecked")
+	Map<String, Object> apply(double[] values) {
+		Map<String, Object> settings = new HashMap<>(SETTINGS);
+		Map<String, Object> common = new HashMap<>((Map<String, Object>) SETTINGS.get("common"));
+		Map<String, Object> logic = new HashMap<>();
+		if (SETTINGS.get("logic") != null) {
+			logic.putAll((Map<String, Object>) SETTINGS.get("logic"));
+		}
+		for (int i = 0; i < RANGES.size(); i++) {
+			String name = RANGES.get(i).getName();
+			if (common.containsKey(name)) {
+				common.put(name, values[i]);
+			} else {
+				logic.put(name, values[i]);
+			}
+		}
+		settings.put("common", common);
+		settings.put("logic", logic);
+		return settings;
+	}
+
+	/**
+	 * 試す組み合わせを作る(RANDOMはseedで決まるので再実行しても同じ組み合わせになる)
+	 */
+	List<double[]> combinations(ModeEnum mode) {
+		long total = 1;
+		for (ParameterRange range : RANGES) {
+			total *= range.size();
+		}
+		List<Long> indexes = new ArrayList<>();
+		if (mode == ModeEnum.RANDOM && SAMPLES < total) {
+			Random random = new Random(SEED);
+			Set<Long> chosen = new HashSet<>();
+			while (indexes.size() < SAMPLES) {
+				long index = (long) (random.nextDouble() * total);
+				if (chosen.add(index)) {
+					indexes.add(index);
+				}
+			}
+		} else {
+			for (long index = 0; index < total; index++) {
+				indexes.add(index);
+			}
+		}
+		List<double[]> combinations = new ArrayList<>(indexes.size());
+		for (long index : indexes) {
+			double[] values = new double[RANGES.size()];
+			long rest = index;
+			for (int i = RANGES.size() - 1; i >= 0; i--) {
+				ParameterRange range = RANGES.get(i);
+				values[i] = range.getValue((int) (rest % range.size()));
+				rest /= range.size();
+			}
+			combinations.add(values);
+		}
+		return combinations;
+	}
+
+	private Comparator<Result> rankOrder() {
+		return (a, b) -> {
+			double scoreA = score(a);
+			double scoreB = score(b);
+			// NaNは最下位
+			if (Double.isNaN(scoreA) || Double.isNaN(scoreB)) {
+				return Boolean.compare(Double.isNaN(scoreA), Double.isNaN(scoreB));
+			}
+			return Double.compare(scoreB, scoreA);
+		};
+	}
+
+	double score(Result result) {
+		if (RANK_BY == RankByEnum.PNL_DRAWDOWN && result.getMaxDrawdown() > 0) {
+			return result.getPnl() / result.getMaxDrawdown();
+		}
+		return result.getPnl();
+	}
+
+	private String key(int fold, String phase, double[] values) {
+		StringBuilder sb = new StringBuilder().append(fold).append(',').append(phase);
+		for (double value : values) {
+			sb.append(',').append(value);
+		}
+		return sb.toString();
+	}
+
+	private String header() {
+		StringBuilder sb = new StringBuilder("fold,phase");
+		for (ParameterRange range : RANGES) {
+			sb.append(',').append(range.getName());
+		}
+		return sb.append(",pnl,maxDrawdown,maxDrawdownRatio,trades,winRate").toString();
+	}
+
+	private BufferedWriter openResultWriter(Path resultFile) throws IOException {
+		boolean exists = Files.exists(resultFile) && Files.size(resultFile) > 0;
+		BufferedWriter writer = Files.newBufferedWriter(resultFile, StandardCharsets.UTF_8,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		if (!exists) {
+			writer.write(header());
+			writer.newLine();
+			writer.flush();
+		}
+		return writer;
+	}
+
+	private void append(BufferedWriter writer, Result result) {
+		String line = key(result.getFold(), result.getPhase(), result.getValues()) + "," + result.getPnl() + ","
+				+ result.getMaxDrawdown() + "," + result.getMaxDrawdownRatio() + "," + result.getTrades() + ","
+				+ result.getWinRate();
+		synchronized (writer) {
+			try {
+				writer.write(line);
+				writer.newLine();
+				// 中断しても済んだ分は残す
+				writer.flush();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * 前回の結果を読み込む(パラメータの並びが違う場合は使わない)
+	 */
+	private Map<String, Result> readResults(Path resultFile) throws IOException {
+		Map<String, Result> results = new LinkedHashMap<>();
+		if (!Files.exists(resultFile)) {
+			return results;
+		}
+		List<String> lines = Files.readAllLines(resultFile, StandardCharsets.UTF_8);
+		if (lines.isEmpty()) {
+			return results;
+		}
+		if (!lines.get(0).equals(header())) {
+			throw new IllegalStateException("出力先の" + RESULT_FILE + "は別のパラメータの結果です。" + resultFile);
+		}
+		int n = RANGES.size();
+		for (int i = 1; i < lines.size(); i++) {
+			String[] columns = lines.get(i).split(",");
+			// 書き込み途中で中断した行は捨てる
+			if (columns.length != n + 7) {
+				continue;
+			}
+			double[] values = new double[n];
+			for (int j = 0; j < n; j++) {
+				values[j] = Double.parseDouble(columns[j + 2]);
+			}
+			Result result = new Result(Integer.parseInt(columns[0]), columns[1], values,
+					Double.parseDouble(columns[n + 2]), Double.parseDouble(columns[n + 3]),
+					Double.parseDouble(columns[n + 4]), Integer.parseInt(columns[n + 5]),
+					Double.parseDouble(columns[n + 6]));
+			results.put(key(result.getFold(), result.getPhase(), values), result);
+		}
+		return results;
+	}
+
+	private void writeRanking(Path rankingFile, List<Result> ranked) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(rankingFile, StandardCharsets.UTF_8)) {
+			writer.write("rank," + header() + ",score");
+			writer.newLine();
+			for (int i = 0; i < ranked.size(); i++) {
+				Result result = ranked.get(i);
+				writer.write((i + 1) + "," + key(result.getFold(), result.getPhase(), result.getValues()) + ","
+						+ result.getPnl() + "," + result.getMaxDrawdown() + "," + result.getMaxDrawdownRatio() + ","
+						+ result.getTrades() + "," + result.getWinRate() + "," + score(result));
+				writer.newLine();
+			}
+		}
+		for (int i = 0; i < Math.min(10, ranked.size()); i++) {
+			LOGGER.info((i + 1) + "位 " + ranked.get(i));
+		}
+	}
+
+	public List<ParameterRange> getRanges() {
+		return RANGES;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("usage: ParameterSweep data format(OHLCV|PRICE_DIRECTION|TICK|STORE) [outputDir] [settings]");
+			System.exit(1);
+		}
+		Path data = Paths.get(args[0]);
+		RecordedDataReader.FormatEnum format = RecordedDataReader.FormatEnum.valueOf(args[1]);
+		Path output = Paths.get(args.length > 2 ? args[2] : "sweep-result");
+		Map<String, Object> settings = BacktestMain.loadSettings(args.length > 3 ? Paths.get(args[3]) : null);
+
+		TickData ticks = RecordedDataReader.read(data, format);
+		LOGGER.info("記録データ読込:" + ticks.size() + "件 " + data);
+		long start = System.currentTimeMillis();
+		new ParameterSweep(settings).run(ticks, output);
+		LOGGER.info("探索終了 所要時間:" + (System.currentTimeMillis() - start) + "ms 出力先:" + output.toAbsolutePath());
+		// ロジックが起動したスレッドが残っていても終了する
+		System.exit(0);
+	}
+
+	/**
+	 * 1回分のバックテストの成績
+	 */
+	public static class Result {
+
+		private final int fold;
+
+		private final String phase;
+
+		private final double[] values;
+
+		private final double pnl;
+
+		private final double maxDrawdown;
+
+		private final double maxDrawdownRatio;
+
+		private final int trades;
+
+		private final double winRate;
+
+		Result(int fold, String phase, double[] values, double pnl, double maxDrawdown, double maxDrawdownRatio,
+				int trades, double winRate) {
+			this.fold = fold;
+			this.phase = phase;
+			this.values = values;
+			this.pnl = pnl;
+			this.maxDrawdown = maxDrawdown;
+			this.maxDrawdownRatio = maxDrawdownRatio;
+			this.trades = trades;
+			this.winRate = winRate;
+		}
+
+		public int getFold() {
+			return fold;
+		}
+
+		public String getPhase() {
+			return phase;
+		}
+
+		public double[] getValues() {
+			return values;
+		}
+
+		public double getPnl() {
+			return pnl;
+		}
+
+		public double getMaxDrawdown() {
+			return maxDrawdown;
+		}
+
+		public double getMaxDrawdownRatio() {
+			return maxDrawdownRatio;
+		}
+
+		public int getTrades() {
+			return trades;
+		}
+
+		public double getWinRate() {
+			return winRate;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder("[");
+			for (int i = 0; i < values.length; i++) {
+				sb.append(i > 0 ? ", " : "").append(values[i]);
+			}
+			return sb.append("] 損益:").append(Math.round(pnl)).append(" 最大DD:").append(Math.round(maxDrawdown))
+					.append(" 取引数:").append(trades).append(" 勝率:").append(String.format("%.1f%%", winRate * 100))
+					.toString();
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package backtest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import model.FixedPoint;
+import store.SeriesEnum;
+import store.TickCursor;
+import store.TickStoreReader;
+
+/**
+ * 記録データを読み込んでTickDataにする。
+ * <ul>
+ * <li>OHLCV: ohlcv.logの形式(確定時刻[秒],open,high,low,close,volume)。1本の足を4つの約定に展開する</li>
+ * <li>PRICE_DIRECTION: price_direction.logの形式(時刻[秒],約定価格,変動方向)</li>
+ * <li>TICK: 時刻[ミリ秒],約定価格,数量</li>
+ * <li>STORE: MarketDataRecorderで記録したディレクトリ(約定の系列を読む)</li>
+ * </ul>
+ */
+public class RecordedDataReader {
+
+	public enum FormatEnum {
+		OHLCV, PRICE_DIRECTION, TICK, STORE
+	}
+
+	private RecordedDataReader() {
+	}
+
+	public static TickData read(Path path, FormatEnum format) throws IOException {
+		if (format == FormatEnum.STORE) {
+			return readStore(path, Long.MIN_VALUE, Long.MAX_VALUE);
+		}
+		TickData ticks = new TickData((int) Math.min(Integer.MAX_VALUE / 4, Files.size(path) / 16));
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty()) {
+					continue;
+				}
+				switch (format) {
+				case OHLCV:
+					addOhlcv(ticks, line);
+					break;
+				case PRICE_DIRECTION:
+					ticks.add(parseLong(line, 0) * 1000, (int) parseLong(line, 1), 0);
+					break;
+				default:
+					ticks.add(parseLong(line, 0), (int) parseLong(line, 1), parseSize(line, 2));
+					break;
+				}
+			}
+		}
+		return ticks;
+	}
+
+	/**
+	 * 記録したディレクトリからfromMillis以上toMillis未満の約定を読む
+	 */
+	public static TickData readStore(Path directory, long fromMillis, long toMillis) throws IOException {
+		TickData ticks = new TickData(1 << 16);
+		TickCursor cursor = new TickStoreReader(directory).cursor(SeriesEnum.EXECUTION, fromMillis, toMillis);
+		while (cursor.next()) {
+			ticks.add(cursor.getTime(), (int) cursor.getValue(0), cursor.getValue(1));
+		}
+		return ticks;
+	}
+
+	/**
+	 * 足を始値、高値(安値)、安値(高値)、終値の順の約定に展開する(陽線なら安値が先)
+	 */
+	private static void addOhlcv(TickData ticks, String line) {
+		long close = parseLong(line, 0) * 1000;
+		long open = close - 60000;
+		int o = (int) parseLong(line, 1);
+		int h = (int) parseLong(line, 2);
+		int l = (int) parseLong(line, 3);
+		int c = (int) parseLong(line, 4);
+		long size = parseSize(line, 5) / 4;
+		boolean up = c >= o;
+		ticks.add(open, o, size);
+		ticks.add(open + 15000, up ? l : h, size);
+		ticks.add(open + 30000, up ? h : l, size);
+		ticks.add(close - 1, c, size);
+	}
+
+	/**
+	 * index番目の列を整数として読む(小数部は切り捨て。列を切り出す文字列は作らない)
+	 */
+	static long parseLong(String line, int index) {
+		int start = columnStart(line, index);
+		long value = 0;
+		boolean negative = false;
+		int i = start;
+		if (i < line.length() && line.charAt(i) == '-') {
+			negative = true;
+			i++;
+		}
+		for (; i < line.length(); i++) {
+			char ch = line.charAt(i);
+			if (ch < '0' || ch > '9') {
+				break;
+			}
+			value = value * 10 + (ch - '0');
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * index番目の列を数量(1e-8 BTC単位)として読む
+	 */
+	static long parseSize(String line, int index) {
+		int start = columnStart(line, index);
+		if (start >= line.length()) {
+			return 0;
+		}
+		int end = line.indexOf(',', start);
+		return FixedPoint.parseSize(line.substring(start, end < 0 ? line.length() : end).trim());
+	}
+
+	private static int columnStart(String line, int index) {
+		int start = 0;
+		for (int i = 0; i < index; i++) {
+			start = line.indexOf(',', start) + 1;
+			if (start == 0) {
+				return line.length();
+			}
+		}
+		return start;
+	}
+}
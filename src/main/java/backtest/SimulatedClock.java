@@ -0,0 +1,44 @@
+package backtest;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * バックテスト用の時計(記録データの時刻を返す)
+ */
+public class SimulatedClock extends Clock {
+
+	private final ZoneId ZONE;
+
+	private volatile long millis;
+
+	public SimulatedClock(ZoneId zone, long millis) {
+		this.ZONE = zone;
+		this.millis = millis;
+	}
+
+	public void setMillis(long millis) {
+		this.millis = millis;
+	}
+
+	@Override
+	public long millis() {
+		return millis;
+	}
+
+	@Override
+	public ZoneId getZone() {
+		return ZONE;
+	}
+
+	@Override
+	public Clock withZone(ZoneId zone) {
+		return new SimulatedClock(zone, millis);
+	}
+
+	@Override
+	public Instant instant() {
+		return Instant.ofEpochMilli(millis);
+	}
+}
@@ -0,0 +1,518 @@
+package backtest;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import exchange.ExchangeAPI;
+import exchange.HealthMonitor;
+import exchange.OrderTracker;
+import exchange.PositionBook;
+import exchange.RateLimiter;
+import exchange.RequestMetrics;
+import model.BalanceResponse;
+import model.BoardResponse;
+import model.BuySellEnum;
+import model.ChildOrderDetailResponse;
+import model.ChildOrderResponse;
+import model.CollateralResponse;
+import model.ConditionTypeEnum;
+import model.ExecutionResponse;
+import model.FixedPoint;
+import model.HealthResponse;
+import model.NetPosition;
+import model.OrderTypeEnum;
+import model.ParentOrderMethodEnum;
+import model.ParentOrderParameter;
+import model.ParentOrderResponse;
+import model.PositionResponse;
+
+/**
+ * バックテスト用の取引所。
+ * 最後に再生した約定価格をMidとし、スプレッド片側分不利な価格で約定させる。
+ * 成行は即時、指値と逆指値(親注文の各注文も含む)は約定を再生するたびに判定して約定させる。
+ * 建玉は差金決済(FX_BTC_JPY)として1つに合算し、実現損益と手数料を証拠金に反映する。
+ */
+public class SimulatedExchange implements ExchangeAPI {
+
+	private final SimulatedClock CLOCK;
+
+	private final double INITIAL_COLLATERAL;
+
+	private final double SPREAD_PERCENTAGE;
+
+	private final double FEE_RATE;
+
+	private final BacktestReport REPORT;
+
+	private final HealthMonitor HEALTH_MONITOR;
+
+	private final PositionBook POSITION_BOOK;
+
+	private final OrderTracker ORDER_TRACKER;
+
+	private final RequestMetrics METRICS = new RequestMetrics();
+
+	private final RateLimiter RATE_LIMITER = new RateLimiter(null);
+
+	private final HealthResponse HEALTH = new HealthResponse();
+
+	private final Map<String, ChildOrderDetailResponse> CHILD_ORDERS = new HashMap<>();
+
+	// 約定待ちの指値の子注文
+	private final List<ChildOrderDetailResponse> RESTING_ORDERS = new ArrayList<>();
+
+	// 執行中の親注文
+	private final List<SimulatedParentOrder> PARENT_ORDERS = new ArrayList<>();
+
+	private long lastPrice = -1;
+
+	// 建玉(1e-8 BTC単位、買いが正)
+	private final NetPosition POSITION = new NetPosition();
+
+	private double realizedPnl = 0;
+
+	private double fee = 0;
+
+	private long orderSequence = 0;
+
+	public SimulatedExchange(Map<String, Object> backtestParam, Map<String, Object> settings, BacktestReport report,
+			long startMillis) {
+		this.CLOCK = new SimulatedClock(ZoneId.of(stringParam(backtestParam, "zone", "Asia/Tokyo")), startMillis);
+		this.INITIAL_COLLATERAL = param(backtestParam, "initialCollateral", 1000000);
+		this.SPREAD_PERCENTAGE = param(backtestParam, "spreadPercentage", 0.01);
+		this.FEE_RATE = param(backtestParam, "feeRate", 0);
+		this.REPORT = report;
+		this.HEALTH.setStatus("NORMAL");
+		@SuppressWarnings("unchecked")
+		Map<String, Object> healthParam = (Map<String, Object>) settings.get("health");
+		@SuppressWarnings("unchecked")
+		Map<String, Object> positionParam = (Map<String, Object>) settings.get("position");
+		this.HEALTH_MONITOR = new HealthMonitor(this::getHealthAsync, healthParam);
+		this.POSITION_BOOK = new PositionBook(this::getPositionsAsync, positionParam);
+		// 約定は発注時点で確定しているので待たずに確認する
+		Map<String, Object> trackerParam = new HashMap<>();
+		trackerParam.put("initialPollMsec", 0);
+		this.ORDER_TRACKER = new OrderTracker(this::getChildOrdersAsync, trackerParam);
+		this.ORDER_TRACKER.setFillListener(fill -> {
+			if (fill.isFilled()) {
+				POSITION_BOOK.applyFill(fill.getSide(), fill.getFilledSize());
+			}
+		});
+	}
+
+	private static double param(Map<String, Object> param, String key, double defaultValue) {
+		if (param == null || param.get(key) == null) {
+			return defaultValue;
+		}
+		return ((Number) param.get(key)).doubleValue();
+	}
+
+	private static String stringParam(Map<String, Object> param, String key, String defaultValue) {
+		if (param == null || param.get(key) == null) {
+			return defaultValue;
+		}
+		return (String) param.get(key);
+	}
+
+	/**
+	 * 約定を1件再生する(時計を進め、約定待ちの注文を判定する)
+	 */
+	public synchronized void onTick(long timeMillis, long price, long size) {
+		CLOCK.setMillis(timeMillis);
+		lastPrice = price;
+		if (!RESTING_ORDERS.isEmpty()) {
+			matchRestingOrders();
+		}
+		if (!PARENT_ORDERS.isEmpty()) {
+			matchParentOrders();
+		}
+	}
+
+	/**
+	 * 約定なしで時計だけ進める
+	 */
+	public void setTime(long timeMillis) {
+		CLOCK.setMillis(timeMillis);
+	}
+
+	private long bid() {
+		return (long) (lastPrice * (1 - SPREAD_PERCENTAGE / 200));
+	}
+
+	private long ask() {
+		return (long) (lastPrice * (1 + SPREAD_PERCENTAGE / 200));
+	}
+
+	/**
+	 * 約定させて建玉、実現損益、手数料に反映する
+	 */
+	private void fill(BuySellEnum side, long size, double price) {
+		double tradeRealized = POSITION.apply(side, size, price);
+		double tradeFee = price * size / FixedPoint.SIZE_SCALE * FEE_RATE;
+		realizedPnl += tradeRealized;
+		fee += tradeFee;
+		REPORT.recordTrade(CLOCK.millis(), side, size, price, tradeFee, tradeRealized);
+	}
+
+	private String nextId(String prefix) {
+		orderSequence++;
+		return prefix + CLOCK.millis() + "-" + orderSequence;
+	}
+
+	/**
+	 * @return 評価額(証拠金+評価損益)
+	 */
+	public synchronized double getEquity() {
+		return INITIAL_COLLATERAL + realizedPnl - fee + openPnl();
+	}
+
+	private double openPnl() {
+		return POSITION.getOpenPnl(lastPrice);
+	}
+
+	public double getInitialCollateral() {
+		return INITIAL_COLLATERAL;
+	}
+
+	/**
+	 * @return 建玉(1e-8 BTC単位、買いが正)
+	 */
+	public synchronized long getPositionSize() {
+		return POSITION.getUnits();
+	}
+
+	/**
+	 * 約定追跡のスレッドを停止する(バックテスト終了時に呼ぶ)
+	 */
+	public void close() {
+		ORDER_TRACKER.close();
+		POSITION_BOOK.stop();
+		HEALTH_MONITOR.stop();
+	}
+
+	public SimulatedClock getSimulatedClock() {
+		return CLOCK;
+	}
+
+	@Override
+	public Clock getClock() {
+		return CLOCK;
+	}
+
+	@Override
+	public boolean isRealTimeClock() {
+		// SimulatedClockは記録データの時刻を返す
+		return false;
+	}
+
+	@Override
+	public synchronized BoardResponse getBoard() {
+		if (lastPrice <= 0) {
+			return null;
+		}
+		BoardResponse board = new BoardResponse();
+		board.setMidPrice(lastPrice);
+		return board;
+	}
+
+	@Override
+	public BalanceResponse[] getBalance() {
+		return new BalanceResponse[0];
+	}
+
+	@Override
+	public synchronized ChildOrderResponse sendChildOrder(BuySellEnum side, long price, long size,
+			OrderTypeEnum orderType) {
+		if (lastPrice <= 0 || size <= 0) {
+			return null;
+		}
+		ChildOrderDetailResponse order = new ChildOrderDetailResponse();
+		order.setChildOrderAcceptanceId(nextId("SIMCO"));
+		order.setProductCode("FX_BTC_JPY");
+		order.setSide(side.toString());
+		order.setChildOrderType(orderType.toString());
+		order.setPrice(price);
+		order.setSize(size);
+		order.setOutstandingSize(size);
+		order.setChildOrderState("ACTIVE");
+		CHILD_ORDERS.put(order.getChildOrderAcceptanceId(), order);
+		if (orderType == OrderTypeEnum.MARKET) {
+			executeChildOrder(order, side == BuySellEnum.BUY ? ask() : bid());
+		} else if (side == BuySellEnum.BUY ? ask() <= price : bid() >= price) {
+			// 板にぶつかる指値は即時約定(約定価格は相手方の価格)
+			executeChildOrder(order, side == BuySellEnum.BUY ? ask() : bid());
+		} else {
+			RESTING_ORDERS.add(order);
+		}
+		ChildOrderResponse response = new ChildOrderResponse();
+		response.setChildOrderAcceptanceId(order.getChildOrderAcceptanceId());
+		// 本番同様に約定を追跡する(約定が確定した時点で手元の建玉に反映される)
+		ORDER_TRACKER.track(response.getChildOrderAcceptanceId(), side, size);
+		return response;
+	}
+
+	private void executeChildOrder(ChildOrderDetailResponse order, long price) {
+		fill(BuySellEnum.valueOf(order.getSide()), order.getSize(), price);
+		order.setAveragePrice(price);
+		order.setExecutedSize(order.getSize());
+		order.setOutstandingSize(0);
+		order.setChildOrderState("COMPLETED");
+	}
+
+	private void matchRestingOrders() {
+		Iterator<ChildOrderDetailResponse> it = RESTING_ORDERS.iterator();
+		while (it.hasNext()) {
+			ChildOrderDetailResponse order = it.next();
+			boolean buy = order.getSide().equals("BUY");
+			if (buy ? ask() <= order.getPrice() : bid() >= order.getPrice()) {
+				executeChildOrder(order, order.getPrice());
+				it.remove();
+			}
+		}
+	}
+
+	@Override
+	public synchronized ParentOrderResponse sendParentOrder(ParentOrderMethodEnum orderMethod, int minuteToExpire,
+			ParentOrderParameter... parameters) {
+		if (lastPrice <= 0 || parameters.length == 0) {
+			return null;
+		}
+		SimulatedParentOrder order = new SimulatedParentOrder(nextId("SIMPO"), orderMethod, parameters,
+				CLOCK.millis() + minuteToExpire * 60000L);
+		PARENT_ORDERS.add(order);
+		// 成行等、すぐに執行できる注文はここで約定させる
+		matchParentOrders();
+		// 親注文の約定はOrderTrackerで追跡していないので、建玉を突き合わせて反映する
+		POSITION_BOOK.scheduleReconcile();
+		ParentOrderResponse response = new ParentOrderResponse();
+		response.setParentOrderAcceptanceId(order.id);
+		return response;
+	}
+
+	@Override
+	public synchronized boolean cancelParentOrder(String parentOrderAcceptanceId) {
+		Iterator<SimulatedParentOrder> it = PARENT_ORDERS.iterator();
+		while (it.hasNext()) {
+			if (it.next().id.equals(parentOrderAcceptanceId)) {
+				it.remove();
+				return true;
+			}
+		}
+		// 約定済み、取消済み、存在しない注文は取り消せない
+		return false;
+	}
+
+	private void matchParentOrders() {
+		Iterator<SimulatedParentOrder> it = PARENT_ORDERS.iterator();
+		while (it.hasNext()) {
+			SimulatedParentOrder order = it.next();
+			if (CLOCK.millis() > order.expireMillis || order.match()) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * @return 執行できればtrue
+	 */
+	private boolean tryExecute(ParentOrderParameter parameter) {
+		BuySellEnum side = parameter.getSide();
+		boolean buy = side == BuySellEnum.BUY;
+		ConditionTypeEnum condition = parameter.getConditionType();
+		switch (condition) {
+		case MARKET:
+			fill(side, parameter.getSize(), buy ? ask() : bid());
+			return true;
+		case LIMIT:
+			if (buy ? ask() <= parameter.getPrice() : bid() >= parameter.getPrice()) {
+				fill(side, parameter.getSize(), parameter.getPrice());
+				return true;
+			}
+			return false;
+		case STOP:
+		case STOP_LIMIT:
+			// ストップリミットはトリガー到達時に成行として扱う
+			if (buy ? ask() >= parameter.getTriggerPrice() : bid() <= parameter.getTriggerPrice()) {
+				fill(side, parameter.getSize(), buy ? ask() : bid());
+				return true;
+			}
+			return false;
+		default:
+			// トレール注文は再現しない
+			return false;
+		}
+	}
+
+	/**
+	 * 執行中の親注文
+	 */
+	private class SimulatedParentOrder {
+
+		private final String id;
+
+		private final ParentOrderMethodEnum method;
+
+		private final ParentOrderParameter[] parameters;
+
+		private final long expireMillis;
+
+		// IFD、IFDOCOで最初の注文が約定済みならtrue
+		private boolean triggered = false;
+
+		private SimulatedParentOrder(String id, ParentOrderMethodEnum method, ParentOrderParameter[] parameters,
+				long expireMillis) {
+			this.id = id;
+			this.method = method;
+			this.parameters = parameters;
+			this.expireMillis = expireMillis;
+		}
+
+		/**
+		 * @return 全ての執行が終わればtrue
+		 */
+		private boolean match() {
+			switch (method) {
+			case SIMPLE:
+				return tryExecute(parameters[0]);
+			case OCO:
+				return tryExecute(parameters[0]) || tryExecute(parameters[1]);
+			case IFD:
+				if (!triggered) {
+					triggered = tryExecute(parameters[0]);
+					if (!triggered) {
+						return false;
+					}
+				}
+				return tryExecute(parameters[1]);
+			default:
+				// IFDOCO
+				if (!triggered) {
+					triggered = tryExecute(parameters[0]);
+					if (!triggered) {
+						return false;
+					}
+				}
+				return tryExecute(parameters[1]) || tryExecute(parameters[2]);
+			}
+		}
+	}
+
+	@Override
+	public synchronized PositionResponse[] getPositions() {
+		PositionResponse[] positions = NetPosition.toPositions(POSITION.getUnits(), POSITION.getAveragePrice());
+		for (PositionResponse response : positions) {
+			response.setPnl(Math.round(openPnl()));
+		}
+		return positions;
+	}
+
+	@Override
+	public synchronized CollateralResponse getCollateral() {
+		CollateralResponse response = new CollateralResponse();
+		response.setCollateral((long) (INITIAL_COLLATERAL + realizedPnl - fee));
+		response.setOpenPositionPnl((long) openPnl());
+		return response;
+	}
+
+	@Override
+	public HealthResponse getHealth() {
+		return HEALTH;
+	}
+
+	@Override
+	public synchronized ExecutionResponse[] getExecutions() {
+		if (lastPrice <= 0) {
+			return new ExecutionResponse[0];
+		}
+		ExecutionResponse execution = new ExecutionResponse();
+		execution.setPrice(lastPrice);
+		execution.setSize(0);
+		return new ExecutionResponse[] { execution };
+	}
+
+	@Override
+	public CompletableFuture<BoardResponse> getBoardAsync() {
+		return CompletableFuture.completedFuture(getBoard());
+	}
+
+	@Override
+	public CompletableFuture<ChildOrderResponse> sendChildOrderAsync(BuySellEnum side, long price, long size,
+			OrderTypeEnum orderType) {
+		return CompletableFuture.completedFuture(sendChildOrder(side, price, size, orderType));
+	}
+
+	@Override
+	public synchronized CompletableFuture<ChildOrderDetailResponse[]> getChildOrdersAsync(String acceptanceId) {
+		ChildOrderDetailResponse order = CHILD_ORDERS.get(acceptanceId);
+		return CompletableFuture.completedFuture(
+				order != null ? new ChildOrderDetailResponse[] { order } : new ChildOrderDetailResponse[0]);
+	}
+
+	@Override
+	public CompletableFuture<ParentOrderResponse> sendParentOrderAsync(ParentOrderMethodEnum orderMethod,
+			int minuteToExpire, ParentOrderParameter... parameters) {
+		return CompletableFuture.completedFuture(sendParentOrder(orderMethod, minuteToExpire, parameters));
+	}
+
+	@Override
+	public CompletableFuture<Boolean> cancelParentOrderAsync(String parentOrderAcceptanceId) {
+		return CompletableFuture.completedFuture(cancelParentOrder(parentOrderAcceptanceId));
+	}
+
+	@Override
+	public CompletableFuture<PositionResponse[]> getPositionsAsync() {
+		return CompletableFuture.completedFuture(getPositions());
+	}
+
+	@Override
+	public CompletableFuture<CollateralResponse> getCollateralAsync() {
+		return CompletableFuture.completedFuture(getCollateral());
+	}
+
+	@Override
+	public CompletableFuture<HealthResponse> getHealthAsync() {
+		return CompletableFuture.completedFuture(HEALTH);
+	}
+
+	@Override
+	public RequestMetrics getRequestMetrics() {
+		return METRICS;
+	}
+
+	@Override
+	public RateLimiter getRateLimiter() {
+		return RATE_LIMITER;
+	}
+
+	@Override
+	public HealthMonitor getHealthMonitor() {
+		return HEALTH_MONITOR;
+	}
+
+	@Override
+	public PositionBook getPositionBook() {
+		return POSITION_BOOK;
+	}
+
+	@Override
+	public OrderTracker getOrderTracker() {
+		return ORDER_TRACKER;
+	}
+
+	@Override
+	public boolean isHealthy() {
+		return true;
+	}
+
+	@Override
+	public boolean isMaintenanceTime(LocalDateTime now) {
+		return HEALTH_MONITOR.isMaintenanceTime(now);
+	}
+}
@@ -0,0 +1,103 @@
+package backtest;
+
+import java.util.Arrays;
+
+/**
+ * 再生する約定データ(時刻順)。時刻、価格、数量をそれぞれプリミティブ配列で保持する。
+ */
+public class TickData {
+
+	private long[] times;
+
+	private int[] prices;
+
+	// 1e-8 BTC単位
+	private long[] sizes;
+
+	private int size = 0;
+
+	// sliceで作った場合の元データ上の開始位置
+	private final int offset;
+
+	private final boolean view;
+
+	public TickData(int initialCapacity) {
+		int capacity = Math.max(16, initialCapacity);
+		this.times = new long[capacity];
+		this.prices = new int[capacity];
+		this.sizes = new long[capacity];
+		this.offset = 0;
+		this.view = false;
+	}
+
+	private TickData(TickData source, int from, int to) {
+		this.times = source.times;
+		this.prices = source.prices;
+		this.sizes = source.sizes;
+		this.offset = source.offset + from;
+		this.size = to - from;
+		this.view = true;
+	}
+
+	/**
+	 * 一部の期間を切り出す(配列は共有するのでコピーしない。切り出したデータには追加できない)
+	 */
+	public TickData slice(int from, int to) {
+		if (from < 0 || to > size || from > to) {
+			throw new IndexOutOfBoundsException("from:" + from + " to:" + to + " size:" + size);
+		}
+		return new TickData(this, from, to);
+	}
+
+	/**
+	 * @return timeMillis以降の最初の約定の位置(なければsize)
+	 */
+	public int indexOf(long timeMillis) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (times[offset + mid] < timeMillis) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	public void add(long timeMillis, int price, long size) {
+		if (view) {
+			throw new UnsupportedOperationException("sliceで切り出したデータには追加できません。");
+		}
+		if (this.size == times.length) {
+			int capacity = times.length * 2;
+			times = Arrays.copyOf(times, capacity);
+			prices = Arrays.copyOf(prices, capacity);
+			sizes = Arrays.copyOf(sizes, capacity);
+		}
+		times[this.size] = timeMillis;
+		prices[this.size] = price;
+		sizes[this.size] = size;
+		this.size++;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long getTime(int index) {
+		return times[offset + index];
+	}
+
+	public int getPrice(int index) {
+		return prices[offset + index];
+	}
+
+	/**
+	 * @return 数量(1e-8 BTC単位)
+	 */
+	public long getSize(int index) {
+		return sizes[offset + index];
+	}
+}
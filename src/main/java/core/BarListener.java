@@ -0,0 +1,16 @@
+package core;
+
+/**
+ * 足の確定通知を受け取る
+ */
+public interface BarListener {
+
+	/**
+	 * 足が確定した時に、確定した足ごとに古い順に呼ばれる。
+	 * 約定のなかった期間を埋めた足でも1本ずつ呼ばれる。
+	 * 約定を渡したスレッドで呼ばれるので、時間のかかる処理はしないこと。
+	 *
+	 * @param bar 確定した足の値の写し(通知の間は他のスレッドが足を確定させても変わらない。保持しないこと)
+	 */
+	void onBarClose(TimeframeEnum timeframe, ClosedBar bar);
+}
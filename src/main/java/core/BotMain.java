@@ -9,8 +9,11 @@ import org.apache.logging.log4j.Logger;
 import org.yaml.snakeyaml.Yaml;
 
 import exchange.BitFlyerAPIWrapper;
+import exchange.ExchangeAPI;
 import logic.DealingLogicBase;
 import notification.SlackNotifier;
+import store.MarketDataRecorder;
+import strategy.StrategyHost;
 
 public class BotMain {
 
@@ -33,6 +36,8 @@ public class BotMain {
 			Thread.setDefaultUncaughtExceptionHandler((Thread t, Throwable e) -> {
 				LOGGER.error("例外発生！", e);
 				notifier.sendMessage("例外発生！ " + e);
+				// 通知は非同期で送るので、送信し終わるまで少し待ってから終了する
+				notifier.flush(5000);
 				System.exit(1);
 			});
 		}
@@ -45,6 +50,15 @@ public class BotMain {
 		paramMap.forEach((k, v) -> sb.append(" " + k + ":" + v));
 		LOGGER.info(sb.toString());
 
+		// 市場データの記録(設定で有効な場合のみ)
+		MarketDataRecorder.startIfEnabled(settings);
+
+		// strategiesセクションがあれば複数のロジックを同じ取引所APIで動かす
+		if (StrategyHost.isEnabled(settings)) {
+			new StrategyHost(wrapper, notifier, settings).start();
+			return;
+		}
+
 		// ロジックのインスタンス取得
 		DealingLogicBase logic = getLogic((String) paramMap.get("logicClass"), wrapper, notifier, paramMap, settings);
 		LOGGER.info("ロジック開始します…:" + logic.getClass().getSimpleName());
@@ -58,12 +72,12 @@ public class BotMain {
 		return yaml.<Map<String, Object>>load(reader);
 	}
 
-	private static DealingLogicBase getLogic(String logicClass, BitFlyerAPIWrapper wrapper, SlackNotifier notifier,
+	private static DealingLogicBase getLogic(String logicClass, ExchangeAPI wrapper, SlackNotifier notifier,
 			Map<String, Object> paramMap, Map<String, Object> settings) throws Throwable {
 		@SuppressWarnings("unchecked")
 		Class<? extends DealingLogicBase> clazz = (Class<? extends DealingLogicBase>) Class.forName(logicClass);
 		@SuppressWarnings({ "rawtypes" })
-		Constructor constructor = clazz.getDeclaredConstructor(BitFlyerAPIWrapper.class, SlackNotifier.class, Map.class,
+		Constructor constructor = clazz.getDeclaredConstructor(ExchangeAPI.class, SlackNotifier.class, Map.class,
 				Map.class);
 		return (DealingLogicBase) constructor.newInstance(wrapper, notifier, paramMap, settings);
 	}
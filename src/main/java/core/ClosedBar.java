@@ -0,0 +1,77 @@
+package core;
+
+/**
+ * BarListenerに渡す確定した足の値(OHLCVAggregatorがロックを持ったまま写したもの)。
+ * 期間ごとに1つを使い回すので、通知の後まで保持しないこと(必要な値は取り出しておく)。
+ */
+public class ClosedBar {
+
+	private long openTime;
+
+	private long open;
+
+	private long high;
+
+	private long low;
+
+	private long close;
+
+	private double volume;
+
+	private double vwap;
+
+	private int tradeCount;
+
+	void set(long openTime, long open, long high, long low, long close, double volume, double vwap,
+			int tradeCount) {
+		this.openTime = openTime;
+		this.open = open;
+		this.high = high;
+		this.low = low;
+		this.close = close;
+		this.volume = volume;
+		this.vwap = vwap;
+		this.tradeCount = tradeCount;
+	}
+
+	public long getOpenTime() {
+		return openTime;
+	}
+
+	public long getOpen() {
+		return open;
+	}
+
+	public long getHigh() {
+		return high;
+	}
+
+	public long getLow() {
+		return low;
+	}
+
+	public long getClose() {
+		return close;
+	}
+
+	public double getVolume() {
+		return volume;
+	}
+
+	/**
+	 * @return 出来高加重平均価格(出来高がなければ終値)
+	 */
+	public double getVwap() {
+		return vwap;
+	}
+
+	public int getTradeCount() {
+		return tradeCount;
+	}
+
+	@Override
+	public String toString() {
+		return "open:" + open + " high:" + high + " low:" + low + " close:" + close + " volume:" + volume + " vwap:"
+				+ vwap + " count:" + tradeCount;
+	}
+}
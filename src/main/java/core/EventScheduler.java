@@ -0,0 +1,141 @@
+package core;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import core.HashedTimingWheel.Timeout;
+
+/**
+ * 全ロジックの定期処理と期限の処理を1つのスレッドで管理する。
+ * 時刻はHashedTimingWheelで管理し、期限が来た処理はロジックごとのレーン(1スレッドのExecutor)に渡して実行する。
+ * <ul>
+ * <li>一定間隔の処理は時計の区切り(1秒なら毎秒0ミリ秒)に揃え、次の期限は前の期限に間隔を足して決める(処理が遅れてもずれていかない)</li>
+ * <li>レーンの処理が1秒以上かかっても、その間の秒の処理はレーンに積まれて順に実行される(秒を飛ばさない)</li>
+ * <li>レーンのexecuteはスケジューラのスレッドで呼ばれるので、待たずに戻ること(待つと全ロジックの期限が遅れる)</li>
+ * <li>処理が登録されていない間はスレッドを止めておく</li>
+ * </ul>
+ */
+public class EventScheduler {
+
+	private final Clock CLOCK;
+
+	private final long TICK_MSEC;
+
+	private final HashedTimingWheel WHEEL;
+
+	private Thread thread;
+
+	private static EventScheduler INSTANCE;
+
+	private static Logger LOGGER = LogManager.getLogger(EventScheduler.class);
+
+	public EventScheduler(Clock clock, Map<String, Object> schedulerParam) {
+		this.CLOCK = clock;
+		this.TICK_MSEC = param(schedulerParam, "tickMsec", 50);
+		// 刻みを時計の区切りに揃える(刻みが1000の約数なら毎秒0ミリ秒が刻みの境目になり、遅れずに実行される)
+		long now = clock.millis();
+		this.WHEEL = new HashedTimingWheel(TICK_MSEC, (int) param(schedulerParam, "wheelSize", 512),
+				now - Math.floorMod(now, TICK_MSEC));
+	}
+
+	public static synchronized EventScheduler getInstance(Map<String, Object> settings) {
+		if (INSTANCE == null) {
+			@SuppressWarnings("unchecked")
+			Map<String, Object> schedulerParam = (Map<String, Object>) settings.get("scheduler");
+			INSTANCE = new EventScheduler(Clock.systemDefaultZone(), schedulerParam);
+		}
+		return INSTANCE;
+	}
+
+	private static long param(Map<String, Object> param, String key, long defaultValue) {
+		if (param == null || param.get(key) == null) {
+			return defaultValue;
+		}
+		return ((Number) param.get(key)).longValue();
+	}
+
+	/**
+	 * ロジックの処理を順に実行するレーンを作る(レーン内の処理は同時に実行されない)
+	 */
+	public static ExecutorService newLane(String name) {
+		return Executors.newSingleThreadExecutor(r -> new Thread(r, name));
+	}
+
+	/**
+	 * 時計の区切りに揃えてperiodMsecごとにtaskをlaneで実行する。
+	 * taskには期限の時刻が渡される(実行が遅れても、何時何分何秒の処理かは変わらない)。
+	 */
+	public Timeout scheduleAtFixedRate(long periodMsec, Consumer<LocalDateTime> task, Executor lane) {
+		long now = CLOCK.millis();
+		long first = now - Math.floorMod(now, periodMsec) + periodMsec;
+		Timeout timeout = WHEEL.scheduleAtFixedRate(first, periodMsec,
+				deadline -> lane.execute(() -> task.accept(toLocalDateTime(deadline))));
+		start();
+		return timeout;
+	}
+
+	/**
+	 * deadlineになったらtaskをlaneで実行する
+	 */
+	public Timeout schedule(LocalDateTime deadline, Runnable task, Executor lane) {
+		long deadlineMillis = deadline.atZone(CLOCK.getZone()).toInstant().toEpochMilli();
+		Timeout timeout = WHEEL.schedule(deadlineMillis, ignored -> lane.execute(task));
+		start();
+		return timeout;
+	}
+
+	/**
+	 * @return 実行待ちの処理の数
+	 */
+	public int size() {
+		return WHEEL.size();
+	}
+
+	private LocalDateTime toLocalDateTime(long epochMillis) {
+		return Instant.ofEpochMilli(epochMillis).atZone(CLOCK.getZone()).toLocalDateTime();
+	}
+
+	/**
+	 * 時刻を進めるスレッドを開始する(登録済みなら止まっているスレッドを起こす)
+	 */
+	private synchronized void start() {
+		if (thread == null) {
+			thread = new Thread(this::run, "schedulerThread");
+			thread.setDaemon(true);
+			thread.start();
+			LOGGER.info("EventScheduler started. tickMsec:" + TICK_MSEC);
+		} else {
+			LockSupport.unpark(thread);
+		}
+	}
+
+	private void run() {
+		while (true) {
+			try {
+				WHEEL.advance(CLOCK.millis());
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+			if (WHEEL.size() == 0) {
+				// 登録されるまで止めておく
+				LockSupport.park(this);
+				continue;
+			}
+			long waitMsec = WHEEL.nextTickMillis() - CLOCK.millis();
+			if (waitMsec > 0) {
+				LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(waitMsec));
+			}
+		}
+	}
+}
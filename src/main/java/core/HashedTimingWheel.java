@@ -0,0 +1,201 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+
+/**
+ * 期限付きの処理を刻み幅ごとのバケット(リング)に振り分けて保持するタイマー。
+ * 登録と取消はO(1)で、期限切れの判定はadvanceで進めた刻みのバケットだけを見る。
+ * <ul>
+ * <li>schedule、cancelはどのスレッドからでも呼べる(登録は次のadvanceでバケットに移す)</li>
+ * <li>advanceは1つのスレッドからだけ呼ぶ(期限切れの処理もそのスレッドで実行される)</li>
+ * </ul>
+ * 期限切れの処理には、登録した期限(エポックミリ秒)が渡される。
+ */
+public class HashedTimingWheel {
+
+	private final long TICK_MSEC;
+
+	private final long START_MILLIS;
+
+	private final int MASK;
+
+	// 刻みごとのバケット(刻み & MASKの位置)
+	private final List<List<Timeout>> BUCKETS;
+
+	// scheduleされてまだバケットに移していないもの
+	private final Queue<Timeout> PENDING = new ConcurrentLinkedQueue<>();
+
+	// 期限切れ、取消になっていないものの数
+	private final AtomicInteger SIZE = new AtomicInteger();
+
+	// 次に処理する刻み(START_MILLISからの刻み数)
+	private long currentTick = 0;
+
+	/**
+	 * @param wheelSize バケットの数(2のべき乗に切り上げる)
+	 * @param startMillis 刻みの基準時刻
+	 */
+	public HashedTimingWheel(long tickMsec, int wheelSize, long startMillis) {
+		if (tickMsec <= 0 || wheelSize <= 0) {
+			throw new IllegalArgumentException("tickMsec:" + tickMsec + " wheelSize:" + wheelSize);
+		}
+		this.TICK_MSEC = tickMsec;
+		this.START_MILLIS = startMillis;
+		int size = Integer.highestOneBit(wheelSize);
+		if (size < wheelSize) {
+			size <<= 1;
+		}
+		this.MASK = size - 1;
+		this.BUCKETS = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			BUCKETS.add(new ArrayList<>());
+		}
+	}
+
+	/**
+	 * deadlineMillisを含む刻みの終わりを過ぎた最初のadvanceでtaskを実行する(刻みの境目の期限なら遅れない)
+	 */
+	public Timeout schedule(long deadlineMillis, LongConsumer task) {
+		return scheduleAtFixedRate(deadlineMillis, 0, task);
+	}
+
+	/**
+	 * firstDeadlineMillisから、periodMsecごとにtaskを実行する。
+	 * 次の期限は前の期限にperiodMsecを足して決めるので、処理が遅れても期限はずれていかない。
+	 *
+	 * @param periodMsec 0なら1回だけ実行する
+	 */
+	public Timeout scheduleAtFixedRate(long firstDeadlineMillis, long periodMsec, LongConsumer task) {
+		Timeout timeout = new Timeout(firstDeadlineMillis, periodMsec, task);
+		SIZE.incrementAndGet();
+		PENDING.add(timeout);
+		return timeout;
+	}
+
+	/**
+	 * nowMillisまでの刻みを処理し、期限切れの処理を実行する
+	 *
+	 * @return 実行した処理の数
+	 */
+	public int advance(long nowMillis) {
+		long targetTick = Math.floorDiv(nowMillis - START_MILLIS, TICK_MSEC);
+		int expired = 0;
+		while (currentTick <= targetTick) {
+			transferPending();
+			expired += expireBucket(BUCKETS.get((int) (currentTick & MASK)), nowMillis);
+			currentTick++;
+		}
+		return expired;
+	}
+
+	/**
+	 * @return 次の刻みの時刻(これより前にadvanceしても何も実行されない)
+	 */
+	public long nextTickMillis() {
+		return START_MILLIS + currentTick * TICK_MSEC;
+	}
+
+	/**
+	 * @return 実行待ちの処理の数
+	 */
+	public int size() {
+		return SIZE.get();
+	}
+
+	private void transferPending() {
+		Timeout timeout;
+		while ((timeout = PENDING.poll()) != null) {
+			if (timeout.cancelled) {
+				continue;
+			}
+			// 期限を含む刻み(切り上げ)のバケットに入れる。過ぎていれば今の刻みで実行する
+			long ticks = Math.max(-Math.floorDiv(START_MILLIS - timeout.deadlineMillis, TICK_MSEC), currentTick);
+			timeout.remainingRounds = (ticks - currentTick) / BUCKETS.size();
+			BUCKETS.get((int) (ticks & MASK)).add(timeout);
+		}
+	}
+
+	private int expireBucket(List<Timeout> bucket, long nowMillis) {
+		int expired = 0;
+		int kept = 0;
+		for (int i = 0; i < bucket.size(); i++) {
+			Timeout timeout = bucket.get(i);
+			if (timeout.cancelled) {
+				continue;
+			}
+			if (timeout.remainingRounds > 0 || timeout.deadlineMillis > nowMillis) {
+				if (timeout.remainingRounds > 0) {
+					timeout.remainingRounds--;
+				}
+				bucket.set(kept++, timeout);
+				continue;
+			}
+			expired++;
+			try {
+				timeout.TASK.accept(timeout.deadlineMillis);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+			if (timeout.PERIOD_MSEC > 0 && !timeout.cancelled) {
+				timeout.deadlineMillis += timeout.PERIOD_MSEC;
+				PENDING.add(timeout);
+			} else {
+				timeout.cancel();
+			}
+		}
+		bucket.subList(kept, bucket.size()).clear();
+		return expired;
+	}
+
+	/**
+	 * 登録した処理(cancelで取り消せる)
+	 */
+	public class Timeout {
+
+		private final long PERIOD_MSEC;
+
+		private final LongConsumer TASK;
+
+		private volatile long deadlineMillis;
+
+		private volatile boolean cancelled;
+
+		// あと何周したら期限か
+		private long remainingRounds;
+
+		private Timeout(long deadlineMillis, long periodMsec, LongConsumer task) {
+			this.deadlineMillis = deadlineMillis;
+			this.PERIOD_MSEC = periodMsec;
+			this.TASK = task;
+		}
+
+		/**
+		 * @return 次の期限(エポックミリ秒)
+		 */
+		public long getDeadlineMillis() {
+			return deadlineMillis;
+		}
+
+		/**
+		 * 実行前なら取り消す(繰り返しの場合は以降の実行を止める)
+		 */
+		public synchronized void cancel() {
+			if (!cancelled) {
+				cancelled = true;
+				SIZE.decrementAndGet();
+			}
+		}
+
+		/**
+		 * @return 取り消したか、1回だけの処理を実行し終わっていればtrue
+		 */
+		public boolean isDone() {
+			return cancelled;
+		}
+	}
+}
@@ -0,0 +1,317 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 約定から複数の期間の足を同時に作成する。
+ * 作成中の足はOHLCVUtilのlong[4]で保持し、確定した足は期間ごとに固定長のプリミティブ配列(リングバッファ)に書き込む。
+ * 足を確定させても新しいオブジェクトは生成しない。
+ * 約定のない期間は、前の足の終値で出来高0の足として確定させる。
+ */
+public class OHLCVAggregator {
+
+	private static final TimeframeEnum[] TIMEFRAMES = TimeframeEnum.values();
+
+	private final int CAPACITY;
+
+	// 作成中の足(期間ごと)
+	private final long[][] current = new long[TIMEFRAMES.length][4];
+
+	private final long[] currentOpenTime = new long[TIMEFRAMES.length];
+
+	private final double[] currentVolume = new double[TIMEFRAMES.length];
+
+	private final double[] currentNotional = new double[TIMEFRAMES.length];
+
+	private final int[] currentCount = new int[TIMEFRAMES.length];
+
+	// 作成中の足があればtrue
+	private final boolean[] started = new boolean[TIMEFRAMES.length];
+
+	// 確定した足(期間ごとのリングバッファ)
+	private final long[][] openTimes;
+
+	private final long[][] opens;
+
+	private final long[][] highs;
+
+	private final long[][] lows;
+
+	private final long[][] closes;
+
+	private final double[][] volumes;
+
+	private final double[][] vwaps;
+
+	private final int[][] tradeCounts;
+
+	// 次に書き込む位置
+	private final int[] heads = new int[TIMEFRAMES.length];
+
+	// 確定した足の数(CAPACITYで頭打ち)
+	private final int[] sizes = new int[TIMEFRAMES.length];
+
+	// 確定させた足の累計と、そのうち通知した数
+	private final long[] closedCount = new long[TIMEFRAMES.length];
+
+	private final long[] notifiedCount = new long[TIMEFRAMES.length];
+
+	// 通知する足の写し(期間ごとに使い回す。NOTIFY_LOCKSを持つスレッドだけが書き込む)
+	private final ClosedBar[] notifying = new ClosedBar[TIMEFRAMES.length];
+
+	// 期間ごとに通知するスレッドを1つにする(onTradeとonTimeが別のスレッドから呼ばれても古い順に通知する)
+	private final Object[] NOTIFY_LOCKS = new Object[TIMEFRAMES.length];
+
+	// 期間ごとのリスナー(TimeframeEnumのordinal順)
+	private final List<List<BarListener>> listeners = new ArrayList<>(TIMEFRAMES.length);
+
+	public OHLCVAggregator(Map<String, Object> ohlcvParam) {
+		this(ohlcvParam != null && ohlcvParam.get("capacity") != null
+				? ((Number) ohlcvParam.get("capacity")).intValue()
+				: 1440);
+	}
+
+	public OHLCVAggregator(int capacity) {
+		this.CAPACITY = capacity;
+		int n = TIMEFRAMES.length;
+		this.openTimes = new long[n][capacity];
+		this.opens = new long[n][capacity];
+		this.highs = new long[n][capacity];
+		this.lows = new long[n][capacity];
+		this.closes = new long[n][capacity];
+		this.volumes = new double[n][capacity];
+		this.vwaps = new double[n][capacity];
+		this.tradeCounts = new int[n][capacity];
+		for (int i = 0; i < n; i++) {
+			listeners.add(new CopyOnWriteArrayList<>());
+			notifying[i] = new ClosedBar();
+			NOTIFY_LOCKS[i] = new Object();
+		}
+	}
+
+	public void addListener(TimeframeEnum timeframe, BarListener listener) {
+		listeners.get(timeframe.ordinal()).add(listener);
+	}
+
+	public void removeListener(TimeframeEnum timeframe, BarListener listener) {
+		listeners.get(timeframe.ordinal()).remove(listener);
+	}
+
+	/**
+	 * 約定を反映する
+	 *
+	 * @param size 出来高がない場合(Midで代用する場合など)は0
+	 */
+	public void onTrade(long timeMillis, long price, double size) {
+		for (TimeframeEnum timeframe : TIMEFRAMES) {
+			int i = timeframe.ordinal();
+			synchronized (this) {
+				advance(timeframe, timeMillis);
+				long[] ohlcv = current[i];
+				if (!started[i]) {
+					started[i] = true;
+					currentOpenTime[i] = timeframe.getOpenTime(timeMillis);
+				}
+				if (currentCount[i] == 0) {
+					// 期間の最初の約定で始値を決める
+					OHLCVUtil.setOpen(ohlcv, price);
+					OHLCVUtil.setHigh(ohlcv, price);
+					OHLCVUtil.setLow(ohlcv, price);
+				} else {
+					OHLCVUtil.replaceHighAndLow(ohlcv, price);
+				}
+				OHLCVUtil.setClose(ohlcv, price);
+				currentVolume[i] += size;
+				currentNotional[i] += price * size;
+				currentCount[i]++;
+			}
+			notifyClosed(timeframe);
+		}
+	}
+
+	/**
+	 * 期間が終わった足を確定させる(約定がなくても足を確定させるため定期的に呼ぶ)
+	 */
+	public void onTime(long timeMillis) {
+		for (TimeframeEnum timeframe : TIMEFRAMES) {
+			synchronized (this) {
+				advance(timeframe, timeMillis);
+			}
+			notifyClosed(timeframe);
+		}
+	}
+
+	/**
+	 * timeMillisより前に終わった期間の足を確定させる
+	 */
+	private void advance(TimeframeEnum timeframe, long timeMillis) {
+		int i = timeframe.ordinal();
+		if (!started[i]) {
+			return;
+		}
+		long openTime = timeframe.getOpenTime(timeMillis);
+		if (currentOpenTime[i] >= openTime) {
+			return;
+		}
+		closeCurrent(i);
+		long periods = (openTime - currentOpenTime[i]) / timeframe.getMillis();
+		if (periods > 1) {
+			// 約定のなかった期間は前の足の終値で埋める(バッファに入りきらない分は省略)
+			long close = OHLCVUtil.getClose(current[i]);
+			long firstGap = currentOpenTime[i] + timeframe.getMillis();
+			long gaps = Math.min(periods - 1, CAPACITY);
+			long gapStart = openTime - gaps * timeframe.getMillis();
+			for (long t = Math.max(firstGap, gapStart); t < openTime; t += timeframe.getMillis()) {
+				write(i, t, close, close, close, close, 0, close, 0);
+			}
+		}
+		// 約定があるまでは前の足の終値で埋めておく
+		long close = OHLCVUtil.getClose(current[i]);
+		currentOpenTime[i] = openTime;
+		OHLCVUtil.setOpen(current[i], close);
+		OHLCVUtil.setHigh(current[i], close);
+		OHLCVUtil.setLow(current[i], close);
+		currentVolume[i] = 0;
+		currentNotional[i] = 0;
+		currentCount[i] = 0;
+	}
+
+	private void closeCurrent(int i) {
+		long[] ohlcv = current[i];
+		double vwap = currentVolume[i] > 0 ? currentNotional[i] / currentVolume[i] : OHLCVUtil.getClose(ohlcv);
+		write(i, currentOpenTime[i], OHLCVUtil.getOpen(ohlcv), OHLCVUtil.getHigh(ohlcv), OHLCVUtil.getLow(ohlcv),
+				OHLCVUtil.getClose(ohlcv), currentVolume[i], vwap, currentCount[i]);
+	}
+
+	private void write(int i, long openTime, long open, long high, long low, long close, double volume, double vwap,
+			int count) {
+		int head = heads[i];
+		openTimes[i][head] = openTime;
+		opens[i][head] = open;
+		highs[i][head] = high;
+		lows[i][head] = low;
+		closes[i][head] = close;
+		volumes[i][head] = volume;
+		vwaps[i][head] = vwap;
+		tradeCounts[i][head] = count;
+		heads[i] = (head + 1) % CAPACITY;
+		if (sizes[i] < CAPACITY) {
+			sizes[i]++;
+		}
+		closedCount[i]++;
+	}
+
+	/**
+	 * 確定した足をリスナーに通知する(ロックの外で呼ぶ)。
+	 * 足の値はロックを持ったまま写してから渡すので、通知中に他のスレッドが足を確定させても変わらない。
+	 */
+	private void notifyClosed(TimeframeEnum timeframe) {
+		int i = timeframe.ordinal();
+		synchronized (NOTIFY_LOCKS[i]) {
+			ClosedBar bar = notifying[i];
+			// 埋めた足も含めて、確定した足ごとに古い順に通知する(指標が足を飛ばさないように)
+			while (copyNextClosed(i, bar)) {
+				for (BarListener listener : listeners.get(i)) {
+					listener.onBarClose(timeframe, bar);
+				}
+			}
+		}
+	}
+
+	/**
+	 * まだ通知していない一番古い確定足をbarに写す
+	 *
+	 * @return 通知する足がなければfalse
+	 */
+	private synchronized boolean copyNextClosed(int i, ClosedBar bar) {
+		long closed = closedCount[i];
+		// バッファから溢れた足は参照できないので通知しない
+		long next = Math.max(notifiedCount[i], closed - sizes[i]);
+		if (next >= closed) {
+			notifiedCount[i] = closed;
+			return false;
+		}
+		int index = Math.floorMod(heads[i] - (int) (closed - next), CAPACITY);
+		bar.set(openTimes[i][index], opens[i][index], highs[i][index], lows[i][index], closes[i][index],
+				volumes[i][index], vwaps[i][index], tradeCounts[i][index]);
+		notifiedCount[i] = next + 1;
+		return true;
+	}
+
+	/**
+	 * @return 確定した足の数
+	 */
+	public synchronized int getBarCount(TimeframeEnum timeframe) {
+		return sizes[timeframe.ordinal()];
+	}
+
+	public int getCapacity() {
+		return CAPACITY;
+	}
+
+	/**
+	 * @param ago 0が最新の確定足
+	 * @return リングバッファ上の位置
+	 */
+	private int index(TimeframeEnum timeframe, int ago) {
+		int i = timeframe.ordinal();
+		if (ago < 0 || ago >= sizes[i]) {
+			throw new IndexOutOfBoundsException("ago:" + ago + " size:" + sizes[i]);
+		}
+		return Math.floorMod(heads[i] - 1 - ago, CAPACITY);
+	}
+
+	public synchronized long getOpenTime(TimeframeEnum timeframe, int ago) {
+		return openTimes[timeframe.ordinal()][index(timeframe, ago)];
+	}
+
+	public synchronized long getOpen(TimeframeEnum timeframe, int ago) {
+		return opens[timeframe.ordinal()][index(timeframe, ago)];
+	}
+
+	public synchronized long getHigh(TimeframeEnum timeframe, int ago) {
+		return highs[timeframe.ordinal()][index(timeframe, ago)];
+	}
+
+	public synchronized long getLow(TimeframeEnum timeframe, int ago) {
+		return lows[timeframe.ordinal()][index(timeframe, ago)];
+	}
+
+	public synchronized long getClose(TimeframeEnum timeframe, int ago) {
+		return closes[timeframe.ordinal()][index(timeframe, ago)];
+	}
+
+	public synchronized double getVolume(TimeframeEnum timeframe, int ago) {
+		return volumes[timeframe.ordinal()][index(timeframe, ago)];
+	}
+
+	/**
+	 * @return 出来高加重平均価格(出来高がなければ終値)
+	 */
+	public synchronized double getVwap(TimeframeEnum timeframe, int ago) {
+		return vwaps[timeframe.ordinal()][index(timeframe, ago)];
+	}
+
+	public synchronized int getTradeCount(TimeframeEnum timeframe, int ago) {
+		return tradeCounts[timeframe.ordinal()][index(timeframe, ago)];
+	}
+
+	/**
+	 * @return 作成中の足の終値(まだ約定がなければ-1)
+	 */
+	public synchronized long getCurrentClose(TimeframeEnum timeframe) {
+		int i = timeframe.ordinal();
+		return started[i] ? OHLCVUtil.getClose(current[i]) : -1;
+	}
+
+	public synchronized String toString(TimeframeEnum timeframe, int ago) {
+		int index = index(timeframe, ago);
+		int i = timeframe.ordinal();
+		return "open:" + opens[i][index] + " high:" + highs[i][index] + " low:" + lows[i][index] + " close:"
+				+ closes[i][index] + " volume:" + volumes[i][index] + " vwap:" + vwaps[i][index] + " count:"
+				+ tradeCounts[i][index];
+	}
+}
@@ -2,63 +2,63 @@ package core;
 
 public class OHLCVUtil {
 
-	public static int[] setOpen(int[] ohlcv, int open) {
+	public static long[] setOpen(long[] ohlcv, long open) {
 		ohlcv[0] = open;
 		return ohlcv;
 	}
 
-	public static int[] setHigh(int[] ohlcv, int high) {
+	public static long[] setHigh(long[] ohlcv, long high) {
 		ohlcv[1] = high;
 		return ohlcv;
 	}
 
-	public static int[] setLow(int[] ohlcv, int low) {
+	public static long[] setLow(long[] ohlcv, long low) {
 		ohlcv[2] = low;
 		return ohlcv;
 	}
 
-	public static int[] setClose(int[] ohlcv, int close) {
+	public static long[] setClose(long[] ohlcv, long close) {
 		ohlcv[3] = close;
 		return ohlcv;
 	}
 
-	public static int getOpen(int[] ohlcv) {
+	public static long getOpen(long[] ohlcv) {
 		return ohlcv[0];
 	}
 
-	public static int getHigh(int[] ohlcv) {
+	public static long getHigh(long[] ohlcv) {
 		return ohlcv[1];
 	}
 
-	public static int getLow(int[] ohlcv) {
+	public static long getLow(long[] ohlcv) {
 		return ohlcv[2];
 	}
 
-	public static int getClose(int[] ohlcv) {
+	public static long getClose(long[] ohlcv) {
 		return ohlcv[3];
 	}
 
-	public static int[] replaceHigh(int[] ohlcv, int price) {
-		int currentHigh = getHigh(ohlcv);
+	public static long[] replaceHigh(long[] ohlcv, long price) {
+		long currentHigh = getHigh(ohlcv);
 		if (price > currentHigh) {
 			return setHigh(ohlcv, price);
 		}
 		return ohlcv;
 	}
 
-	public static int[] replaceLow(int[] ohlcv, int price) {
-		int currentLow = getLow(ohlcv);
+	public static long[] replaceLow(long[] ohlcv, long price) {
+		long currentLow = getLow(ohlcv);
 		if (price < currentLow) {
 			return setLow(ohlcv, price);
 		}
 		return ohlcv;
 	}
 
-	public static int[] replaceHighAndLow(int[] ohlcv, int price) {
+	public static long[] replaceHighAndLow(long[] ohlcv, long price) {
 		return replaceHigh(replaceLow(ohlcv, price), price);
 	}
 
-	public static String toString(int[] ohlcv) {
+	public static String toString(long[] ohlcv) {
 		return "open:" + getOpen(ohlcv) + " high:" + getHigh(ohlcv) + " low:" + getLow(ohlcv) + " close:"
 				+ getClose(ohlcv);
 	}
@@ -0,0 +1,342 @@
+package core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * 事前に確保したイベントのリングバッファと、それを処理する1つのスレッドからなるパイプラインの段。
+ * <ul>
+ * <li>書き込むスレッドは1つだけ(claimでスロットを取り、値を書いてpublishする)。イベントは使い回すので生成しない</li>
+ * <li>処理するスレッドも1つだけで、イベントは書き込んだ順に処理される</li>
+ * <li>リングが一杯ならclaimは空くまで待つ(イベントを捨てない)。待てない書き込み側はtryClaimを使う</li>
+ * <li>開始前はリングの大きさまで書き込める(開始後に順に処理する)。それを超えたclaimは待たずに例外にする</li>
+ * <li>処理中に例外が出たら段を止め、スレッドが例外で終了した場合と同じように未捕捉例外のハンドラに渡す</li>
+ * <li>止まった段へのclaimは例外、tryClaimはnullにする。処理されずに残ったイベントは破棄のハンドラに渡す</li>
+ * </ul>
+ * キューの深さと、書き込みから処理開始までの待ち時間、処理時間を計測する。
+ */
+public class PipelineStage<E> {
+
+	/**
+	 * イベントを処理する(段のスレッドから呼ばれる)
+	 */
+	public interface Handler<E> {
+		void onEvent(E event) throws Exception;
+	}
+
+	private final String NAME;
+
+	private final E[] SLOTS;
+
+	// スロットごとのpublishした時刻
+	private final long[] PUBLISHED_NANOS;
+
+	private final int MASK;
+
+	private final Handler<E> HANDLER;
+
+	// 処理されずに残ったイベントを受け取る(注文の応答待ちを例外で完了させるなど。なければnull)
+	private final BiConsumer<E, Exception> ABANDON_HANDLER;
+
+	// publish済みの最後の番号(書き込むスレッドだけが更新する)
+	private final AtomicLong PUBLISHED = new AtomicLong(-1);
+
+	// 処理済みの最後の番号(段のスレッドだけが更新する)
+	private final AtomicLong CONSUMED = new AtomicLong(-1);
+
+	// claimした番号(書き込むスレッドだけが使う)
+	private long claimed = -1;
+
+	private volatile boolean running;
+
+	// 段のスレッドがイベント待ちで止まっていればtrue
+	private volatile boolean waiting;
+
+	// 開始前はnull
+	private volatile Thread thread;
+
+	// 段が止まった理由(止まるまではnull)
+	private volatile Exception failure;
+
+	// 止まった後、破棄のハンドラに渡し終えた最後の番号
+	private final AtomicLong ABANDONED = new AtomicLong(-1);
+
+	// 以下は計測値(それぞれ1つのスレッドだけが更新する)
+	private volatile long maxDepth;
+
+	// tryClaimでリングが一杯だった回数
+	private volatile long dropped;
+
+	private volatile long totalWaitNanos;
+
+	private volatile long maxWaitNanos;
+
+	private volatile long totalHandleNanos;
+
+	private volatile long maxHandleNanos;
+
+	private static Logger LOGGER = LogManager.getLogger(PipelineStage.class);
+
+	/**
+	 * @param capacity リングの大きさ(2のべき乗に切り上げる)
+	 * @param factory リングに並べるイベントを作る(最初に全て作っておく)
+	 */
+	public PipelineStage(String name, int capacity, Supplier<E> factory, Handler<E> handler) {
+		this(name, capacity, factory, handler, null);
+	}
+
+	/**
+	 * @param abandonHandler 段が止まって処理されなかったイベントと止まった理由を受け取る
+	 */
+	@SuppressWarnings("unchecked")
+	public PipelineStage(String name, int capacity, Supplier<E> factory, Handler<E> handler,
+			BiConsumer<E, Exception> abandonHandler) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity:" + capacity);
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		this.NAME = name;
+		this.SLOTS = (E[]) new Object[size];
+		for (int i = 0; i < size; i++) {
+			SLOTS[i] = factory.get();
+		}
+		this.PUBLISHED_NANOS = new long[size];
+		this.MASK = size - 1;
+		this.HANDLER = handler;
+		this.ABANDON_HANDLER = abandonHandler;
+	}
+
+	/**
+	 * 段のスレッドを開始する(複数回呼ばれても1度だけ開始)
+	 */
+	public synchronized void start() {
+		if (thread != null) {
+			return;
+		}
+		running = true;
+		thread = new Thread(this::run, NAME);
+		thread.start();
+	}
+
+	public synchronized void stop() {
+		running = false;
+		if (thread != null) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * @return 呼び出したのがこの段のスレッドならtrue
+	 */
+	public boolean isCurrentThread() {
+		return Thread.currentThread() == thread;
+	}
+
+	/**
+	 * 次に書き込むイベントを取る(リングが一杯なら空くまで待つ)。値を書いたらpublishする。
+	 *
+	 * @throws IllegalStateException 段が止まっている、または開始前にリングが一杯になった場合
+	 */
+	public E claim() {
+		long next = claimed + 1;
+		while (true) {
+			if (isStopped()) {
+				throw new IllegalStateException(NAME + "は停止しています。");
+			}
+			if (next - CONSUMED.get() <= SLOTS.length) {
+				break;
+			}
+			if (thread == null) {
+				// 開始前は空くことがないので待たない
+				throw new IllegalStateException(NAME + "は開始前でリングが一杯です。");
+			}
+			LockSupport.parkNanos(this, 100_000);
+		}
+		claimed = next;
+		return SLOTS[(int) (next & MASK)];
+	}
+
+	/**
+	 * 空きがあれば次に書き込むイベントを取る(待たない)。値を書いたらpublishする。
+	 *
+	 * @return リングが一杯ならnull
+	 */
+	public E tryClaim() {
+		long next = claimed + 1;
+		if (isStopped() || next - CONSUMED.get() > SLOTS.length) {
+			dropped++;
+			return null;
+		}
+		claimed = next;
+		return SLOTS[(int) (next & MASK)];
+	}
+
+	/**
+	 * claimしたイベントを処理できる状態にする
+	 */
+	public void publish() {
+		long sequence = claimed;
+		PUBLISHED_NANOS[(int) (sequence & MASK)] = System.nanoTime();
+		PUBLISHED.set(sequence);
+		long depth = sequence - CONSUMED.get();
+		if (depth > maxDepth) {
+			maxDepth = depth;
+		}
+		if (waiting) {
+			LockSupport.unpark(thread);
+		}
+		if (failure != null) {
+			// 止まる直前にclaimしたイベントは段のスレッドが処理しないので、ここで破棄する
+			abandonPending();
+		}
+	}
+
+	/**
+	 * @return 開始した後に止まっていればtrue(startでrunningを立ててからthreadを設定する)
+	 */
+	private boolean isStopped() {
+		return thread != null && !running;
+	}
+
+	private void run() {
+		long consumed = CONSUMED.get();
+		while (running) {
+			long available = PUBLISHED.get();
+			if (available <= consumed) {
+				// 待つことを知らせてから確認し直す(publishとの間で起こし損ねないように)
+				waiting = true;
+				if (PUBLISHED.get() <= consumed && running) {
+					LockSupport.park(this);
+				}
+				waiting = false;
+				continue;
+			}
+			while (consumed < available) {
+				long sequence = consumed + 1;
+				int index = (int) (sequence & MASK);
+				long startNanos = System.nanoTime();
+				try {
+					HANDLER.onEvent(SLOTS[index]);
+				} catch (Exception e) {
+					halt(consumed, e);
+					LOGGER.info(NAME + "で例外が発生したので処理を停止します。" + e.getMessage());
+					// ロジックは例外で処理を止めるので、スレッドが例外で終了した場合と同じ通知にする(BotMainでは通知して終了する)
+					Thread current = Thread.currentThread();
+					current.getUncaughtExceptionHandler().uncaughtException(current, e);
+					return;
+				}
+				long endNanos = System.nanoTime();
+				record(startNanos - PUBLISHED_NANOS[index], endNanos - startNanos);
+				consumed = sequence;
+				CONSUMED.set(sequence);
+			}
+		}
+		halt(consumed, new IllegalStateException(NAME + "は停止しています。"));
+	}
+
+	/**
+	 * 段を止め、consumedより後のイベントを破棄のハンドラに渡す
+	 */
+	private void halt(long consumed, Exception cause) {
+		ABANDONED.set(consumed);
+		failure = cause;
+		running = false;
+		abandonPending();
+	}
+
+	/**
+	 * publish済みで処理されていないイベントを1度ずつ破棄のハンドラに渡す(段のスレッドと書き込むスレッドの両方から呼ばれる)
+	 */
+	private void abandonPending() {
+		long sequence;
+		while ((sequence = ABANDONED.get()) < PUBLISHED.get()) {
+			if (!ABANDONED.compareAndSet(sequence, sequence + 1) || ABANDON_HANDLER == null) {
+				continue;
+			}
+			try {
+				ABANDON_HANDLER.accept(SLOTS[(int) ((sequence + 1) & MASK)], failure);
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private void record(long waitNanos, long handleNanos) {
+		totalWaitNanos += waitNanos;
+		if (waitNanos > maxWaitNanos) {
+			maxWaitNanos = waitNanos;
+		}
+		totalHandleNanos += handleNanos;
+		if (handleNanos > maxHandleNanos) {
+			maxHandleNanos = handleNanos;
+		}
+	}
+
+	public String getName() {
+		return NAME;
+	}
+
+	/**
+	 * @return publishされてまだ処理し終わっていないイベントの数
+	 */
+	public long getDepth() {
+		return PUBLISHED.get() - CONSUMED.get();
+	}
+
+	public long getMaxDepth() {
+		return maxDepth;
+	}
+
+	public long getDropped() {
+		return dropped;
+	}
+
+	public long getProcessed() {
+		return CONSUMED.get() + 1;
+	}
+
+	/**
+	 * @return publishから処理開始までの平均待ち時間(ミリ秒)
+	 */
+	public double getAverageWaitMsec() {
+		long processed = getProcessed();
+		return processed == 0 ? 0 : totalWaitNanos / (double) processed / 1000000;
+	}
+
+	public double getMaxWaitMsec() {
+		return maxWaitNanos / 1000000.0;
+	}
+
+	/**
+	 * @return 1イベントの平均処理時間(ミリ秒)
+	 */
+	public double getAverageHandleMsec() {
+		long processed = getProcessed();
+		return processed == 0 ? 0 : totalHandleNanos / (double) processed / 1000000;
+	}
+
+	public double getMaxHandleMsec() {
+		return maxHandleNanos / 1000000.0;
+	}
+
+	@Override
+	public String toString() {
+		return "[" + NAME + "] processed:" + getProcessed() + " depth:" + getDepth() + " maxDepth:" + getMaxDepth()
+				+ " dropped:" + getDropped() + " wait avg:" + String.format("%.2f", getAverageWaitMsec()) + "ms max:"
+				+ String.format("%.2f", getMaxWaitMsec()) + "ms handle avg:"
+				+ String.format("%.2f", getAverageHandleMsec()) + "ms max:"
+				+ String.format("%.2f", getMaxHandleMsec()) + "ms" + (running ? "" : " stopped");
+	}
+}
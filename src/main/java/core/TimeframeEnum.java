@@ -0,0 +1,25 @@
+package core;
+
+/**
+ * 足の期間
+ */
+public enum TimeframeEnum {
+	S1(1000L), M1(60 * 1000L), M5(5 * 60 * 1000L), M15(15 * 60 * 1000L), H1(60 * 60 * 1000L);
+
+	private final long millis;
+
+	private TimeframeEnum(long millis) {
+		this.millis = millis;
+	}
+
+	public long getMillis() {
+		return millis;
+	}
+
+	/**
+	 * @return 指定時刻を含む足の開始時刻
+	 */
+	public long getOpenTime(long timeMillis) {
+		return timeMillis - Math.floorMod(timeMillis, millis);
+	}
+}
@@ -4,52 +4,33 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpRequest.BodyPublishers;
-import java.net.http.HttpResponse;
-import java.net.http.HttpResponse.BodyHandler;
-import java.nio.charset.StandardCharsets;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.Map;
-
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import model.BalanceResponse;
 import model.BoardResponse;
 import model.BuySellEnum;
+import model.ChildOrderDetailResponse;
 import model.ChildOrderResponse;
 import model.CollateralResponse;
 import model.ExecutionResponse;
 import model.HealthResponse;
 import model.OrderTypeEnum;
+import model.ParentOrderMethodEnum;
+import model.ParentOrderParameter;
+import model.ParentOrderResponse;
 import model.PositionResponse;
 
-public class BitFlyerAPIWrapper {
+public class BitFlyerAPIWrapper implements ExchangeAPI {
 
 	private final String ENDPOINT = "https://api.bitflyer.com";
 
-	private final String GETBOARD_API = "/v1/getboard?product_code=FX_BTC_JPY";
-
-	private final String GETBALANCE_API = "/v1/me/getbalance";
-
-	private final String SENDCHILDORDER_API = "/v1/me/sendchildorder";
-
-	private final String GETPOSITIONS_API = "/v1/me/getpositions?product_code=FX_BTC_JPY";
-
-	private final String GETCOLLATERAL_API = "/v1/me/getcollateral";
-
-	private final String GETHEALTH_API = "/v1/gethealth?product_code=FX_BTC_JPY";
-
-	private final String GETEXECUTIONS_API = "/v1/getexecutions?product_code=FX_BTC_JPY&count=1";
-
 	private final String ACCESS_KEY_HEADER = "ACCESS-KEY";
 
 	private final String ACCESS_TIMESTAMP_HEADER = "ACCESS-TIMESTAMP";
@@ -60,28 +41,63 @@ public class BitFlyerAPIWrapper {
 
 	private final String APPLICATION_JSON = "application/json";
 
-	private final int RETRY_COUNT = 50;
-
-	private final int RETRY_INTERVAL_MSEC = 100;
-
 	private final String API_KEY;
 
-	private final String API_SECRET;
+	private final RequestSigner SIGNER;
 
 	private final HttpClient CLIENT = HttpClient.newBuilder().build();
 
-	private final LocalTime MAINTENANCE_BEGIN_TIME = LocalTime.of(3, 57, 29);
+	private final RequestExecutor EXECUTOR;
 
-	private final LocalTime MAINTENANCE_END_TIME = LocalTime.of(4, 12, 31);
+	private final HealthMonitor HEALTH_MONITOR;
+
+	private final PositionBook POSITION_BOOK;
+
+	private final OrderTracker ORDER_TRACKER;
+
+	// 板と証拠金は複数のロジックから同時に取得されるので、1回の取得にまとめて短い間使い回す
+	private final CoalescingCache<BoardResponse> BOARD_CACHE;
+
+	private final CoalescingCache<CollateralResponse> COLLATERAL_CACHE;
 
 	private static BitFlyerAPIWrapper INSTANCE;
 
 	private static Logger LOGGER = LogManager.getLogger(BitFlyerAPIWrapper.class);
 
-	private BitFlyerAPIWrapper(String apiKey, String apiSecret) {
+	private BitFlyerAPIWrapper(String apiKey, String apiSecret, Map<String, Object> executorParam,
+			Map<String, Object> rateLimitParam, Map<String, Object> healthParam, Map<String, Object> positionParam,
+			Map<String, Object> trackerParam, Map<String, Object> coalescingParam) {
 		super();
 		this.API_KEY = apiKey;
-		this.API_SECRET = apiSecret;
+		this.SIGNER = new RequestSigner(apiSecret);
+		this.EXECUTOR = new RequestExecutor(CLIENT, executorParam, new RateLimiter(rateLimitParam));
+		this.HEALTH_MONITOR = new HealthMonitor(this::getHealthAsync, healthParam);
+		this.POSITION_BOOK = new PositionBook(this::getPositionsAsync, positionParam);
+		this.ORDER_TRACKER = new OrderTracker(this::getChildOrdersAsync, trackerParam);
+		this.BOARD_CACHE = new CoalescingCache<>(EndpointEnum.GETBOARD,
+				() -> RequestExecutor.orNull(EXECUTOR.executeAsync(EndpointEnum.GETBOARD,
+						() -> createPublicRequest(EndpointEnum.GETBOARD), ResponseDecoder.BOARD)),
+				EXECUTOR.getMetrics(), CoalescingCache.maxAgeParam(coalescingParam, EndpointEnum.GETBOARD, 200));
+		this.COLLATERAL_CACHE = new CoalescingCache<>(EndpointEnum.GETCOLLATERAL,
+				() -> RequestExecutor.orNull(EXECUTOR.executeAsync(EndpointEnum.GETCOLLATERAL,
+						() -> createPrivateRequest(EndpointEnum.GETCOLLATERAL, ""), ResponseDecoder.COLLATERAL)),
+				EXECUTOR.getMetrics(),
+				CoalescingCache.maxAgeParam(coalescingParam, EndpointEnum.GETCOLLATERAL, 200));
+		// 約定が確定したら手元の建玉に反映し、約定前の証拠金を使わないようにする
+		this.ORDER_TRACKER.setFillListener(fill -> {
+			if (fill.isFilled()) {
+				// 反映後に取引所の建玉と突き合わせる(確認を打ち切った注文の残りの約定もそこで反映される)
+				POSITION_BOOK.applyFill(fill.getChildOrderAcceptanceId(), fill.getSide(), fill.getFilledSize());
+				COLLATERAL_CACHE.invalidate();
+				return;
+			}
+			POSITION_BOOK.orderFinished(fill.getChildOrderAcceptanceId());
+			if (!fill.isConfirmed()) {
+				// 約定したか分からないので、取引所の建玉と突き合わせる
+				POSITION_BOOK.scheduleReconcile();
+				COLLATERAL_CACHE.invalidate();
+			}
+		});
 	}
 
 	public static BitFlyerAPIWrapper getInstance(Map<String, Object> settings) {
@@ -93,269 +109,266 @@ public class BitFlyerAPIWrapper {
 			sb.append("ExchangeParams");
 			exchangeParam.forEach((k, v) -> sb.append(" " + k + ":" + v));
 			LOGGER.info(sb.toString());
-			INSTANCE = new BitFlyerAPIWrapper(exchangeParam.get("apiKey"), exchangeParam.get("secret"));
+			@SuppressWarnings("unchecked")
+			Map<String, Object> executorParam = (Map<String, Object>) settings.get("requestExecutor");
+			@SuppressWarnings("unchecked")
+			Map<String, Object> rateLimitParam = (Map<String, Object>) settings.get("rateLimit");
+			@SuppressWarnings("unchecked")
+			Map<String, Object> healthParam = (Map<String, Object>) settings.get("health");
+			@SuppressWarnings("unchecked")
+			Map<String, Object> positionParam = (Map<String, Object>) settings.get("position");
+			@SuppressWarnings("unchecked")
+			Map<String, Object> trackerParam = (Map<String, Object>) settings.get("orderTracker");
+			@SuppressWarnings("unchecked")
+			Map<String, Object> coalescingParam = (Map<String, Object>) settings.get("coalescing");
+			INSTANCE = new BitFlyerAPIWrapper(exchangeParam.get("apiKey"), exchangeParam.get("secret"),
+					executorParam, rateLimitParam, healthParam, positionParam, trackerParam, coalescingParam);
 		}
 		return INSTANCE;
 	}
 
+	@Override
 	public BoardResponse getBoard() {
-		BoardResponse boardResponse = null;
-		String responseBody = null;
-		try {
-			HttpRequest request = HttpRequest.newBuilder(URI.create(ENDPOINT + GETBOARD_API)).build();
-
-			BodyHandler<String> bodyHandler = HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8);
-			HttpResponse<String> response = CLIENT.send(request, bodyHandler);
-			responseBody = response.body();
-
-			ObjectMapper mapper = new ObjectMapper();
-			boardResponse = mapper.readValue(responseBody, BoardResponse.class);
-		} catch (JsonProcessingException e) {
-			e.printStackTrace();
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-		return boardResponse;
+		return BOARD_CACHE.get().join();
 	}
 
+	@Override
 	public BalanceResponse[] getBalance() {
-		BalanceResponse[] balanceResponses = null;
-		for (int i = 0; i < RETRY_COUNT; i++) {
-
-			String timestamp = String.valueOf(System.currentTimeMillis());
-			String sign = createSign(timestamp, "GET", GETBALANCE_API, "");
-			try {
-				HttpRequest request = HttpRequest.newBuilder(URI.create(ENDPOINT + GETBALANCE_API))
-						.headers(ACCESS_KEY_HEADER, API_KEY, ACCESS_TIMESTAMP_HEADER, timestamp, ACCESS_SIGN_HEADER,
-								sign, CONTENT_TYPE_HEADER, APPLICATION_JSON)
-						.GET().build();
-
-				BodyHandler<String> bodyHandler = HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8);
-				HttpResponse<String> response = CLIENT.send(request, bodyHandler);
-				int status = response.statusCode();
-				if (status >= 500) {
-					// 500番台ならリトライ
-					LOGGER.info("[getbalance]try retry...");
-					Thread.sleep(RETRY_INTERVAL_MSEC);
-					continue;
-				}
-				String responseBody = response.body();
-
-				ObjectMapper mapper = new ObjectMapper();
-				balanceResponses = mapper.readValue(responseBody, BalanceResponse[].class);
-				break;
-			} catch (JsonProcessingException e) {
-				e.printStackTrace();
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
-		}
-		return balanceResponses;
-	}
-
-	public ChildOrderResponse sendChildOrder(BuySellEnum side, int price, double size, OrderTypeEnum orderType) {
-		ChildOrderResponse childOrderResponse = null;
-		StringBuilder sb = new StringBuilder(256);
-		sb.append("{");
-		sb.append("\"product_code\": \"FX_BTC_JPY\", ");
-		sb.append("\"child_order_type\": \"" + orderType.name() + "\", ");
-		sb.append("\"side\": \"" + side + "\", ");
-		if (orderType == OrderTypeEnum.LIMIT) {
-			sb.append("\"price\": " + price + ", ");
-		}
-		sb.append("\"size\": " + size + ", ");
-		sb.append("}");
-		String body = sb.toString();
-		for (int i = 0; i < RETRY_COUNT; i++) {
-			String timestamp = String.valueOf(System.currentTimeMillis());
-			String sign = createSign(timestamp, "POST", SENDCHILDORDER_API, body);
-			try {
-				HttpRequest request = HttpRequest.newBuilder(URI.create(ENDPOINT + SENDCHILDORDER_API))
-						.headers(ACCESS_KEY_HEADER, API_KEY, ACCESS_TIMESTAMP_HEADER, timestamp, ACCESS_SIGN_HEADER,
-								sign, CONTENT_TYPE_HEADER, APPLICATION_JSON)
-						.POST(BodyPublishers.ofString(body)).build();
-
-				BodyHandler<String> bodyHandler = HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8);
-				HttpResponse<String> response = CLIENT.send(request, bodyHandler);
-				int status = response.statusCode();
-				if (status >= 500) {
-					// 500番台ならリトライ
-					LOGGER.info("[sendchildorder]try retry...");
-					Thread.sleep(RETRY_INTERVAL_MSEC);
-					continue;
-				}
-				String responseBody = response.body();
-
-				ObjectMapper mapper = new ObjectMapper();
-				childOrderResponse = mapper.readValue(responseBody, ChildOrderResponse.class);
-				break;
-			} catch (JsonProcessingException e) {
-				e.printStackTrace();
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
-		}
-		return childOrderResponse;
+		return EXECUTOR.execute(EndpointEnum.GETBALANCE, () -> createPrivateRequest(EndpointEnum.GETBALANCE, ""),
+				ResponseDecoder.BALANCES);
+	}
+
+	@Override
+	public ChildOrderResponse sendChildOrder(BuySellEnum side, long price, long size, OrderTypeEnum orderType) {
+		byte[] body = ChildOrderEncoder.encode(side, price, size, orderType);
+		ChildOrderResponse response = EXECUTOR.execute(EndpointEnum.SENDCHILDORDER,
+				() -> createPrivateRequest(EndpointEnum.SENDCHILDORDER, body), ResponseDecoder.CHILD_ORDER);
+		return onChildOrderAccepted(response, side, size, orderType);
+	}
+
+	@Override
+	public ParentOrderResponse sendParentOrder(ParentOrderMethodEnum orderMethod, int minuteToExpire,
+			ParentOrderParameter... parameters) {
+		return sendParentOrderAsync(orderMethod, minuteToExpire, parameters).join();
 	}
 
+	/**
+	 * 親注文を取り消す(約定済み、取消済みの注文は取り消せない)
+	 *
+	 * @return 取消が受け付けられればtrue
+	 */
+	@Override
+	public boolean cancelParentOrder(String parentOrderAcceptanceId) {
+		return cancelParentOrderAsync(parentOrderAcceptanceId).join();
+	}
+
+	@Override
 	public PositionResponse[] getPositions() {
-		PositionResponse[] positionResponses = null;
-		for (int i = 0; i < RETRY_COUNT; i++) {
-			String timestamp = String.valueOf(System.currentTimeMillis());
-			String sign = createSign(timestamp, "GET", GETPOSITIONS_API, "");
-			try {
-				HttpRequest request = HttpRequest.newBuilder(URI.create(ENDPOINT + GETPOSITIONS_API))
-						.headers(ACCESS_KEY_HEADER, API_KEY, ACCESS_TIMESTAMP_HEADER, timestamp, ACCESS_SIGN_HEADER,
-								sign, CONTENT_TYPE_HEADER, APPLICATION_JSON)
-						.GET().build();
-
-				BodyHandler<String> bodyHandler = HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8);
-				HttpResponse<String> response = CLIENT.send(request, bodyHandler);
-				int status = response.statusCode();
-				if (status >= 500) {
-					// 500番台ならリトライ
-					LOGGER.info("[getpositions]try retry...");
-					Thread.sleep(RETRY_INTERVAL_MSEC);
-					continue;
-				}
-				String responseBody = response.body();
-
-				ObjectMapper mapper = new ObjectMapper();
-				positionResponses = mapper.readValue(responseBody, PositionResponse[].class);
-				break;
-			} catch (JsonProcessingException e) {
-				e.printStackTrace();
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
-		}
-		return positionResponses;
+		return EXECUTOR.execute(EndpointEnum.GETPOSITIONS, () -> createPrivateRequest(EndpointEnum.GETPOSITIONS, ""),
+				ResponseDecoder.POSITIONS);
 	}
 
+	@Override
 	public CollateralResponse getCollateral() {
-		CollateralResponse collateralResponse = null;
-		for (int i = 0; i < RETRY_COUNT; i++) {
-			String timestamp = String.valueOf(System.currentTimeMillis());
-			String sign = createSign(timestamp, "GET", GETCOLLATERAL_API, "");
-			try {
-				HttpRequest request = HttpRequest.newBuilder(URI.create(ENDPOINT + GETCOLLATERAL_API))
-						.headers(ACCESS_KEY_HEADER, API_KEY, ACCESS_TIMESTAMP_HEADER, timestamp, ACCESS_SIGN_HEADER,
-								sign, CONTENT_TYPE_HEADER, APPLICATION_JSON)
-						.GET().build();
-
-				BodyHandler<String> bodyHandler = HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8);
-				HttpResponse<String> response = CLIENT.send(request, bodyHandler);
-				int status = response.statusCode();
-				if (status >= 500) {
-					// 500番台ならリトライ
-					LOGGER.info("[getcollateral]try retry...");
-					Thread.sleep(RETRY_INTERVAL_MSEC);
-					continue;
-				}
-				String responseBody = response.body();
-
-				ObjectMapper mapper = new ObjectMapper();
-				collateralResponse = mapper.readValue(responseBody, CollateralResponse.class);
-				break;
-			} catch (JsonProcessingException e) {
-				e.printStackTrace();
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
-		}
-		return collateralResponse;
+		return COLLATERAL_CACHE.get().join();
 	}
 
+	@Override
 	public HealthResponse getHealth() {
-		HealthResponse healthResponse = null;
-		String responseBody = null;
-		for (int i = 0; i < RETRY_COUNT; i++) {
-			try {
-				HttpRequest request = HttpRequest.newBuilder(URI.create(ENDPOINT + GETHEALTH_API)).build();
-
-				BodyHandler<String> bodyHandler = HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8);
-				HttpResponse<String> response = CLIENT.send(request, bodyHandler);
-				int status = response.statusCode();
-				if (status >= 500) {
-					// 500番台ならリトライ
-					LOGGER.info("[gethealth]try retry...");
-					Thread.sleep(RETRY_INTERVAL_MSEC);
-					continue;
-				}
-				responseBody = response.body();
-
-				ObjectMapper mapper = new ObjectMapper();
-				healthResponse = mapper.readValue(responseBody, HealthResponse.class);
-				break;
-			} catch (JsonProcessingException e) {
-				e.printStackTrace();
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
-		}
-		return healthResponse;
+		return EXECUTOR.execute(EndpointEnum.GETHEALTH, () -> createPublicRequest(EndpointEnum.GETHEALTH),
+				ResponseDecoder.HEALTH);
 	}
 
+	@Override
 	public ExecutionResponse[] getExecutions() {
-		ExecutionResponse[] executionResponses = null;
-		String responseBody = null;
-		for (int i = 0; i < RETRY_COUNT; i++) {
-			try {
-				HttpRequest request = HttpRequest.newBuilder(URI.create(ENDPOINT + GETEXECUTIONS_API)).build();
-
-				BodyHandler<String> bodyHandler = HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8);
-				HttpResponse<String> response = CLIENT.send(request, bodyHandler);
-				int status = response.statusCode();
-				if (status >= 500) {
-					// 500番台ならリトライ
-					LOGGER.info("[getexecutions]try retry...");
-					Thread.sleep(RETRY_INTERVAL_MSEC);
-					continue;
-				}
-				responseBody = response.body();
-
-				ObjectMapper mapper = new ObjectMapper();
-				executionResponses = mapper.readValue(responseBody, ExecutionResponse[].class);
-				break;
-			} catch (JsonProcessingException e) {
-				e.printStackTrace();
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
+		return EXECUTOR.execute(EndpointEnum.GETEXECUTIONS, () -> createPublicRequest(EndpointEnum.GETEXECUTIONS),
+				ResponseDecoder.EXECUTIONS);
+	}
+
+	// 非同期版は最終的に失敗した場合nullで完了する
+
+	@Override
+	public CompletableFuture<BoardResponse> getBoardAsync() {
+		return BOARD_CACHE.get();
+	}
+
+	@Override
+	public CompletableFuture<ChildOrderResponse> sendChildOrderAsync(BuySellEnum side, long price, long size,
+			OrderTypeEnum orderType) {
+		byte[] body = ChildOrderEncoder.encode(side, price, size, orderType);
+		return RequestExecutor.<ChildOrderResponse>orNull(EXECUTOR.executeAsync(EndpointEnum.SENDCHILDORDER,
+				() -> createPrivateRequest(EndpointEnum.SENDCHILDORDER, body), ResponseDecoder.CHILD_ORDER))
+				.thenApply(response -> onChildOrderAccepted(response, side, size, orderType));
+	}
+
+	/**
+	 * 注文が受け付けられたら約定の追跡を開始する(約定が確定した時点で手元の建玉に反映される)
+	 */
+	private ChildOrderResponse onChildOrderAccepted(ChildOrderResponse response, BuySellEnum side, long size,
+			OrderTypeEnum orderType) {
+		if (response != null && response.getChildOrderAcceptanceId() != null) {
+			// 約定の確定前に突き合わせた建玉に約定が含まれていれば、確定時に二重に加算しないようにする
+			POSITION_BOOK.orderAccepted(response.getChildOrderAcceptanceId());
+			ORDER_TRACKER.track(response.getChildOrderAcceptanceId(), side, size);
 		}
-		return executionResponses;
+		return response;
 	}
 
-	public boolean isHealthy() {
-		HealthResponse response = getHealth();
-		String status = response.getStatus();
-		return status.equals("NORMAL") || status.equals("BUSY") || status.equals("VERY BUSY");
-	}
-
-	private String createSign(String timestamp, String method, String path, String body) {
-		String plaintext = timestamp + method + path + body;
-		SecretKeySpec sk = new SecretKeySpec(API_SECRET.getBytes(), "HmacSHA256");
-		Mac mac;
-		try {
-			mac = Mac.getInstance("HmacSHA256");
-			mac.init(sk);
-			byte[] mac_bytes = mac.doFinal(plaintext.getBytes());
-			StringBuilder sb = new StringBuilder(2 * mac_bytes.length);
-			for (byte b : mac_bytes) {
-				sb.append(String.format("%02x", b & 0xff));
-			}
-			return sb.toString();
-		} catch (NoSuchAlgorithmException e) {
-			e.printStackTrace();
-		} catch (InvalidKeyException e) {
-			e.printStackTrace();
+	@Override
+	public CompletableFuture<ChildOrderDetailResponse[]> getChildOrdersAsync(String acceptanceId) {
+		String query = "&child_order_acceptance_id=" + acceptanceId;
+		return RequestExecutor.orNull(EXECUTOR.executeAsync(EndpointEnum.GETCHILDORDERS,
+				() -> createPrivateRequest(EndpointEnum.GETCHILDORDERS, query, ""), ResponseDecoder.CHILD_ORDERS));
+	}
+
+	@Override
+	public CompletableFuture<ParentOrderResponse> sendParentOrderAsync(ParentOrderMethodEnum orderMethod,
+			int minuteToExpire, ParentOrderParameter... parameters) {
+		byte[] body = ParentOrderEncoder.encode(orderMethod, minuteToExpire, parameters);
+		return RequestExecutor.<ParentOrderResponse>orNull(EXECUTOR.executeAsync(EndpointEnum.SENDPARENTORDER,
+				() -> createPrivateRequest(EndpointEnum.SENDPARENTORDER, body), ResponseDecoder.PARENT_ORDER))
+				.thenApply(response -> {
+					if (response != null && response.getParentOrderAcceptanceId() != null) {
+						// 親注文の約定はOrderTrackerで追跡していないので、反映を待って建玉を突き合わせ、証拠金を取り直させる
+						POSITION_BOOK.scheduleReconcile();
+						COLLATERAL_CACHE.invalidate();
+					}
+					return response;
+				});
+	}
+
+	@Override
+	public CompletableFuture<Boolean> cancelParentOrderAsync(String parentOrderAcceptanceId) {
+		byte[] body = ParentOrderEncoder.encodeCancel(parentOrderAcceptanceId);
+		return EXECUTOR.executeAsync(EndpointEnum.CANCELPARENTORDER,
+				() -> createPrivateRequest(EndpointEnum.CANCELPARENTORDER, body), ResponseDecoder.TREE)
+				.handle((response, e) -> {
+					if (e != null) {
+						LOGGER.info(e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+						return false;
+					}
+					// 取消までに約定した分があれば建玉に反映させる
+					POSITION_BOOK.scheduleReconcile();
+					return true;
+				});
+	}
+
+	@Override
+	public CompletableFuture<PositionResponse[]> getPositionsAsync() {
+		return RequestExecutor.orNull(EXECUTOR.executeAsync(EndpointEnum.GETPOSITIONS,
+				() -> createPrivateRequest(EndpointEnum.GETPOSITIONS, ""), ResponseDecoder.POSITIONS));
+	}
+
+	@Override
+	public CompletableFuture<CollateralResponse> getCollateralAsync() {
+		return COLLATERAL_CACHE.get();
+	}
+
+	@Override
+	public CompletableFuture<HealthResponse> getHealthAsync() {
+		return RequestExecutor.orNull(EXECUTOR.executeAsync(EndpointEnum.GETHEALTH,
+				() -> createPublicRequest(EndpointEnum.GETHEALTH), ResponseDecoder.HEALTH));
+	}
+
+	/**
+	 * @return APIごとのリクエスト数、リトライ数、レイテンシ等
+	 */
+	@Override
+	public RequestMetrics getRequestMetrics() {
+		return EXECUTOR.getMetrics();
+	}
+
+	/**
+	 * @return レート制限の残り枠と優先度ごとの待ち・見送り回数
+	 */
+	@Override
+	public RateLimiter getRateLimiter() {
+		return EXECUTOR.getRateLimiter();
+	}
+
+	/**
+	 * @return バックグラウンドで更新している取引所の状態
+	 */
+	@Override
+	public HealthMonitor getHealthMonitor() {
+		return HEALTH_MONITOR;
+	}
+
+	/**
+	 * @return 手元で維持している建玉
+	 */
+	@Override
+	public PositionBook getPositionBook() {
+		return POSITION_BOOK;
+	}
+
+	/**
+	 * @return 注文の約定を追跡する
+	 */
+	@Override
+	public OrderTracker getOrderTracker() {
+		return ORDER_TRACKER;
+	}
+
+	private HttpRequest createPublicRequest(EndpointEnum endpoint) {
+		return HttpRequest.newBuilder(URI.create(ENDPOINT + endpoint.getPath()))
+				.timeout(Duration.ofMillis(endpoint.getTimeoutMsec())).build();
+	}
+
+	private HttpRequest createPrivateRequest(EndpointEnum endpoint, String body) {
+		return createPrivateRequest(endpoint, "", body);
+	}
+
+	/**
+	 * @param query パスに追加するクエリ文字列(署名対象に含める)
+	 */
+	private HttpRequest createPrivateRequest(EndpointEnum endpoint, String query, String body) {
+		String path = endpoint.getPath() + query;
+		String timestamp = String.valueOf(System.currentTimeMillis());
+		String sign = SIGNER.sign(timestamp, endpoint.getMethod(), path, body);
+		HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(ENDPOINT + path))
+				.timeout(Duration.ofMillis(endpoint.getTimeoutMsec()))
+				.headers(ACCESS_KEY_HEADER, API_KEY, ACCESS_TIMESTAMP_HEADER, timestamp, ACCESS_SIGN_HEADER, sign,
+						CONTENT_TYPE_HEADER, APPLICATION_JSON);
+		if (endpoint.getMethod().equals("POST")) {
+			builder.POST(BodyPublishers.ofString(body));
+		} else {
+			builder.GET();
 		}
-		return null;
+		return builder.build();
+	}
+
+	/**
+	 * エンコード済みのボディで発注する(リトライでは同じバイト列を署名し直して使う)
+	 */
+	private HttpRequest createPrivateRequest(EndpointEnum endpoint, byte[] body) {
+		String path = endpoint.getPath();
+		String timestamp = String.valueOf(System.currentTimeMillis());
+		String sign = SIGNER.sign(timestamp, endpoint.getMethod(), path, body, 0, body.length);
+		return HttpRequest.newBuilder(URI.create(ENDPOINT + path)).timeout(Duration.ofMillis(endpoint.getTimeoutMsec()))
+				.headers(ACCESS_KEY_HEADER, API_KEY, ACCESS_TIMESTAMP_HEADER, timestamp, ACCESS_SIGN_HEADER, sign,
+						CONTENT_TYPE_HEADER, APPLICATION_JSON)
+				.POST(BodyPublishers.ofByteArray(body)).build();
+	}
+
+	@Override
+	public boolean isHealthy() {
+		return HealthMonitor.isHealthyStatus(HEALTH_MONITOR.getStatus(true));
 	}
 
+	@Override
 	public boolean isMaintenanceTime(LocalDateTime now) {
-		LocalTime nowTime = now.toLocalTime();
-		return nowTime.isAfter(MAINTENANCE_BEGIN_TIME) && nowTime.isBefore(MAINTENANCE_END_TIME);
+		return HEALTH_MONITOR.isMaintenanceTime(now);
+	}
+
+	@Override
+	public Clock getClock() {
+		return Clock.systemDefaultZone();
+	}
+
+	@Override
+	public boolean isRealTimeClock() {
+		return true;
 	}
 
 }
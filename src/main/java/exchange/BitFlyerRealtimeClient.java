@@ -0,0 +1,351 @@
+package exchange;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import model.BoardResponse;
+import model.ExecutionResponse;
+import model.TickerResponse;
+
+/**
+ * bitFlyer Realtime API(JSON-RPC 2.0 over WebSocket)のクライアント。
+ * 板(スナップショット/差分)、約定、Tickerを購読し、受信した順にリスナーへ通知する。
+ * 板はLocalOrderBookに反映してから通知する。
+ * 切断時は自動で再接続し、購読し直す。
+ */
+public class BitFlyerRealtimeClient {
+
+	public static final String BOARD_SNAPSHOT_CHANNEL = "lightning_board_snapshot_FX_BTC_JPY";
+
+	public static final String BOARD_CHANNEL = "lightning_board_FX_BTC_JPY";
+
+	public static final String EXECUTIONS_CHANNEL = "lightning_executions_FX_BTC_JPY";
+
+	public static final String TICKER_CHANNEL = "lightning_ticker_FX_BTC_JPY";
+
+	private final List<String> CHANNELS = Arrays.asList(BOARD_SNAPSHOT_CHANNEL, BOARD_CHANNEL, EXECUTIONS_CHANNEL,
+			TICKER_CHANNEL);
+
+	private final String DEFAULT_ENDPOINT = "wss://ws.lightstream.bitflyer.com/json-rpc";
+
+	private final int MAX_RECONNECT_INTERVAL_MSEC = 30000;
+
+	private final URI ENDPOINT;
+
+	private final int RECONNECT_INTERVAL_MSEC;
+
+	private final int STALE_MSEC;
+
+	private final HttpClient CLIENT = HttpClient.newBuilder().build();
+
+	private final List<RealtimeListener> LISTENERS = new CopyOnWriteArrayList<>();
+
+	private final ScheduledExecutorService RECONNECT_EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "realtimeReconnectThread");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private final AtomicInteger RPC_ID = new AtomicInteger();
+
+	// 板スナップショット/差分から維持する板(スナップショット受信毎に突き合わせる)
+	private final LocalOrderBook ORDER_BOOK = new LocalOrderBook();
+
+	private volatile WebSocket webSocket;
+
+	private volatile boolean running = false;
+
+	private volatile long lastReceivedMillis = 0;
+
+	private volatile int reconnectCount = 0;
+
+	private int currentReconnectInterval;
+
+	// stopで取り消す無通信の確認と再接続の予約(executorはstop後のstartでも使うので止めない)
+	private ScheduledFuture<?> staleCheck;
+
+	private ScheduledFuture<?> pendingReconnect;
+
+	private static BitFlyerRealtimeClient INSTANCE;
+
+	private static Logger LOGGER = LogManager.getLogger(BitFlyerRealtimeClient.class);
+
+	private BitFlyerRealtimeClient(Map<String, Object> realtimeParam) {
+		super();
+		Object endpoint = realtimeParam.get("endpoint");
+		this.ENDPOINT = URI.create(endpoint != null ? (String) endpoint : DEFAULT_ENDPOINT);
+		Object reconnectInterval = realtimeParam.get("reconnectIntervalMsec");
+		this.RECONNECT_INTERVAL_MSEC = reconnectInterval != null ? ((Number) reconnectInterval).intValue() : 1000;
+		Object staleMsec = realtimeParam.get("staleMsec");
+		this.STALE_MSEC = staleMsec != null ? ((Number) staleMsec).intValue() : 5000;
+		this.currentReconnectInterval = RECONNECT_INTERVAL_MSEC;
+	}
+
+	public static synchronized BitFlyerRealtimeClient getInstance(Map<String, Object> settings) {
+		if (INSTANCE == null) {
+			@SuppressWarnings("unchecked")
+			Map<String, Object> realtimeParam = (Map<String, Object>) settings.get("realtime");
+			// パラメータ出力
+			StringBuilder sb = new StringBuilder();
+			sb.append("RealtimeParams");
+			realtimeParam.forEach((k, v) -> sb.append(" " + k + ":" + v));
+			LOGGER.info(sb.toString());
+			INSTANCE = new BitFlyerRealtimeClient(realtimeParam);
+		}
+		return INSTANCE;
+	}
+
+	/**
+	 * @return 設定でRealtime APIの利用が有効になっているか(無効ならRESTのポーリングで動作する)
+	 */
+	public static boolean isEnabled(Map<String, Object> settings) {
+		@SuppressWarnings("unchecked")
+		Map<String, Object> realtimeParam = (Map<String, Object>) settings.get("realtime");
+		return realtimeParam != null && Boolean.TRUE.equals(realtimeParam.get("enabled"));
+	}
+
+	public void addListener(RealtimeListener listener) {
+		LISTENERS.add(listener);
+	}
+
+	public void removeListener(RealtimeListener listener) {
+		LISTENERS.remove(listener);
+	}
+
+	public synchronized void start() {
+		if (running) {
+			return;
+		}
+		running = true;
+		connect();
+		// 無通信が続く場合は切断されたとみなして再接続する
+		staleCheck = RECONNECT_EXECUTOR.scheduleWithFixedDelay(this::checkStale, STALE_MSEC, STALE_MSEC,
+				TimeUnit.MILLISECONDS);
+	}
+
+	public synchronized void stop() {
+		running = false;
+		WebSocket ws = this.webSocket;
+		if (ws != null) {
+			ws.abort();
+		}
+		if (staleCheck != null) {
+			staleCheck.cancel(false);
+			staleCheck = null;
+		}
+		if (pendingReconnect != null) {
+			pendingReconnect.cancel(false);
+			pendingReconnect = null;
+		}
+	}
+
+	/**
+	 * @return 接続中かつ最後の受信からSTALE_MSEC以内であればtrue
+	 */
+	public boolean isActive() {
+		return webSocket != null && System.currentTimeMillis() - lastReceivedMillis <= STALE_MSEC;
+	}
+
+	public int getReconnectCount() {
+		return reconnectCount;
+	}
+
+	public LocalOrderBook getOrderBook() {
+		return ORDER_BOOK;
+	}
+
+	private void connect() {
+		if (!running) {
+			return;
+		}
+		LOGGER.info("Realtime APIに接続します。endpoint:" + ENDPOINT);
+		CLIENT.newWebSocketBuilder().buildAsync(ENDPOINT, new SocketListener()).whenComplete((ws, e) -> {
+			if (e != null) {
+				LOGGER.info("Realtime APIへの接続に失敗しました。" + e);
+				scheduleReconnect();
+			}
+		});
+	}
+
+	private void scheduleReconnect() {
+		if (!running) {
+			return;
+		}
+		synchronized (this) {
+			if (!running) {
+				return;
+			}
+			int interval = currentReconnectInterval;
+			// 失敗が続く場合は間隔を倍々に延ばす
+			currentReconnectInterval = Math.min(currentReconnectInterval * 2, MAX_RECONNECT_INTERVAL_MSEC);
+			LOGGER.info("Realtime APIに" + interval + "ms後に再接続します。");
+			pendingReconnect = RECONNECT_EXECUTOR.schedule(this::connect, interval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void checkStale() {
+		WebSocket ws = this.webSocket;
+		if (running && ws != null && System.currentTimeMillis() - lastReceivedMillis > STALE_MSEC) {
+			LOGGER.info("Realtime APIからの受信が途絶えたため切断します。");
+			// abortするとonErrorは呼ばれないため、ここで再接続まで行う
+			disconnected(ws);
+			ws.abort();
+		}
+	}
+
+	private void subscribe(WebSocket ws) {
+		// 送信中に次の送信はできないので順番につなげる
+		CompletableFuture<WebSocket> future = CompletableFuture.completedFuture(ws);
+		for (String channel : CHANNELS) {
+			String message = "{\"jsonrpc\":\"2.0\",\"method\":\"subscribe\",\"params\":{\"channel\":\"" + channel
+					+ "\"},\"id\":" + RPC_ID.incrementAndGet() + "}";
+			future = future.thenCompose(w -> w.sendText(message, true));
+		}
+		future.whenComplete((w, e) -> {
+			if (e != null) {
+				LOGGER.info("Realtime APIの購読に失敗しました。" + e);
+			}
+		});
+	}
+
+	private void connected(WebSocket ws) {
+		this.webSocket = ws;
+		this.lastReceivedMillis = System.currentTimeMillis();
+		synchronized (this) {
+			currentReconnectInterval = RECONNECT_INTERVAL_MSEC;
+		}
+		subscribe(ws);
+		LOGGER.info("Realtime APIに接続し、購読を開始しました。");
+		for (RealtimeListener listener : LISTENERS) {
+			listener.onConnected();
+		}
+	}
+
+	private void disconnected(WebSocket ws) {
+		synchronized (this) {
+			if (this.webSocket != ws) {
+				// 既に処理済み
+				return;
+			}
+			this.webSocket = null;
+			reconnectCount++;
+		}
+		// 取りこぼした差分があるかもしれないので、次のスナップショットまで板は使わない
+		ORDER_BOOK.clear();
+		for (RealtimeListener listener : LISTENERS) {
+			listener.onDisconnected();
+		}
+		scheduleReconnect();
+	}
+
+	private void dispatch(String text) {
+		try {
+			JsonNode root = ResponseDecoder.decodeTree(text);
+			if (!"channelMessage".equals(root.path("method").asText())) {
+				// 購読結果などは無視する
+				return;
+			}
+			JsonNode params = root.path("params");
+			String channel = params.path("channel").asText();
+			JsonNode message = params.path("message");
+			switch (channel) {
+			case BOARD_SNAPSHOT_CHANNEL: {
+				BoardResponse board = ResponseDecoder.decode(ResponseDecoder.BOARD, message);
+				ORDER_BOOK.reconcile(board);
+				for (RealtimeListener listener : LISTENERS) {
+					listener.onBoardSnapshot(board);
+				}
+				break;
+			}
+			case BOARD_CHANNEL: {
+				BoardResponse board = ResponseDecoder.decode(ResponseDecoder.BOARD, message);
+				ORDER_BOOK.applyDiff(board);
+				for (RealtimeListener listener : LISTENERS) {
+					listener.onBoardDiff(board);
+				}
+				break;
+			}
+			case EXECUTIONS_CHANNEL: {
+				ExecutionResponse[] executions = ResponseDecoder.decode(ResponseDecoder.EXECUTIONS, message);
+				for (RealtimeListener listener : LISTENERS) {
+					listener.onExecutions(executions);
+				}
+				break;
+			}
+			case TICKER_CHANNEL: {
+				TickerResponse ticker = ResponseDecoder.decode(ResponseDecoder.TICKER, message);
+				for (RealtimeListener listener : LISTENERS) {
+					listener.onTicker(ticker);
+				}
+				break;
+			}
+			default:
+				break;
+			}
+		} catch (Exception e) {
+			LOGGER.info("Realtime APIの受信メッセージの処理に失敗しました。" + e);
+		}
+	}
+
+	private class SocketListener implements WebSocket.Listener {
+
+		private final StringBuilder BUFFER = new StringBuilder(4096);
+
+		@Override
+		public void onOpen(WebSocket ws) {
+			connected(ws);
+			ws.request(1);
+		}
+
+		@Override
+		public CompletionStage<?> onText(WebSocket ws, CharSequence data, boolean last) {
+			lastReceivedMillis = System.currentTimeMillis();
+			BUFFER.append(data);
+			if (last) {
+				String text = BUFFER.toString();
+				BUFFER.setLength(0);
+				dispatch(text);
+			}
+			ws.request(1);
+			return null;
+		}
+
+		@Override
+		public CompletionStage<?> onPing(WebSocket ws, ByteBuffer message) {
+			lastReceivedMillis = System.currentTimeMillis();
+			ws.request(1);
+			return null;
+		}
+
+		@Override
+		public CompletionStage<?> onClose(WebSocket ws, int statusCode, String reason) {
+			LOGGER.info("Realtime APIから切断されました。status:" + statusCode + " reason:" + reason);
+			disconnected(ws);
+			return CompletableFuture.completedFuture(null);
+		}
+
+		@Override
+		public void onError(WebSocket ws, Throwable error) {
+			LOGGER.info("Realtime APIでエラーが発生しました。" + error);
+			disconnected(ws);
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package exchange;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import model.BuySellEnum;
+import model.FixedPoint;
+import model.OrderTypeEnum;
+
+/**
+ * 子注文のリクエストボディ(JSON)をバイト列に直接書き込む。
+ * 注文種別と売買の組み合わせごとに固定部分を事前にバイト列にしておき、価格と数量だけを数字として書き込む。
+ * 書き込んだバイト列はそのまま署名とリクエストボディに使う(Stringを経由しない)。
+ */
+public class ChildOrderEncoder {
+
+	// ボディの最大長(固定部分 + 価格 + 数量の桁数に余裕を持たせた値)
+	public static final int MAX_LENGTH = 160;
+
+	// [注文種別][売買]ごとの先頭部分
+	private static final byte[][][] HEADS = new byte[OrderTypeEnum.values().length][BuySellEnum.values().length][];
+
+	private static final byte[] PRICE_KEY = ascii("\"price\":");
+
+	private static final byte[] SIZE_KEY = ascii("\"size\":");
+
+	private static final long[] POWERS_OF_TEN = { 1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L,
+			10_000_000L, 100_000_000L };
+
+	private static final int SIZE_DECIMALS = 8;
+
+	private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[MAX_LENGTH]);
+
+	static {
+		for (OrderTypeEnum orderType : OrderTypeEnum.values()) {
+			for (BuySellEnum side : BuySellEnum.values()) {
+				HEADS[orderType.ordinal()][side.ordinal()] = ascii("{\"product_code\":\"FX_BTC_JPY\","
+						+ "\"child_order_type\":\"" + orderType.name() + "\",\"side\":\"" + side.name() + "\",");
+			}
+		}
+	}
+
+	private ChildOrderEncoder() {
+	}
+
+	private static byte[] ascii(String text) {
+		return text.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * bufferのoffsetからボディを書き込む(bufferにはMAX_LENGTH以上の空きが必要)
+	 *
+	 * @param size 数量(1e-8 BTC単位)
+	 * @return 書き込み後の位置
+	 */
+	public static int encode(byte[] buffer, int offset, BuySellEnum side, long price, long size,
+			OrderTypeEnum orderType) {
+		byte[] head = HEADS[orderType.ordinal()][side.ordinal()];
+		System.arraycopy(head, 0, buffer, offset, head.length);
+		int position = offset + head.length;
+		if (orderType == OrderTypeEnum.LIMIT) {
+			System.arraycopy(PRICE_KEY, 0, buffer, position, PRICE_KEY.length);
+			position = writeLong(buffer, position + PRICE_KEY.length, price);
+			buffer[position++] = ',';
+		}
+		System.arraycopy(SIZE_KEY, 0, buffer, position, SIZE_KEY.length);
+		position = writeSize(buffer, position + SIZE_KEY.length, size);
+		buffer[position++] = '}';
+		return position;
+	}
+
+	/**
+	 * スレッドごとの作業用バッファに書き込み、必要な長さだけのバイト列にする。
+	 * リトライしても同じバイト列を使い回すので、生成するのは注文1回につき1つだけになる。
+	 */
+	public static byte[] encode(BuySellEnum side, long price, long size, OrderTypeEnum orderType) {
+		byte[] buffer = BUFFER.get();
+		int length = encode(buffer, 0, side, price, size, orderType);
+		return Arrays.copyOf(buffer, length);
+	}
+
+	/**
+	 * 整数を10進数で書き込む
+	 *
+	 * @return 書き込み後の位置
+	 */
+	static int writeLong(byte[] buffer, int offset, long value) {
+		if (value < 0) {
+			buffer[offset++] = '-';
+			if (value == Long.MIN_VALUE) {
+				throw new IllegalArgumentException("書き込めない値です:" + value);
+			}
+			value = -value;
+		}
+		int digits = 1;
+		for (long rest = value / 10; rest > 0; rest /= 10) {
+			digits++;
+		}
+		int end = offset + digits;
+		for (int i = end - 1; i >= offset; i--) {
+			buffer[i] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+		return end;
+	}
+
+	/**
+	 * 数量を末尾の0を省いた10進数で書き込む(FixedPoint.formatSizeと同じ表記)
+	 *
+	 * @return 書き込み後の位置
+	 */
+	static int writeSize(byte[] buffer, int offset, long size) {
+		if (size < 0) {
+			buffer[offset++] = '-';
+			size = -size;
+		}
+		int position = writeLong(buffer, offset, size / FixedPoint.SIZE_SCALE);
+		long fraction = size % FixedPoint.SIZE_SCALE;
+		if (fraction == 0) {
+			return position;
+		}
+		buffer[position++] = '.';
+		int digits = SIZE_DECIMALS;
+		while (fraction % 10 == 0) {
+			fraction /= 10;
+			digits--;
+		}
+		for (int d = digits - 1; d >= 0; d--) {
+			buffer[position++] = (byte) ('0' + fraction / POWERS_OF_TEN[d] % 10);
+		}
+		return position;
+	}
+}
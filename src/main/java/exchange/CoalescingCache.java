@@ -0,0 +1,128 @@
+package exchange;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * 同じGETを同時に要求された場合に1回の取得にまとめ、取得した値を短い間だけ使い回す。
+ * <ul>
+ * <li>取得から鮮度の期間内なら、保持している値で完了済みのFutureを返す(ヒット)</li>
+ * <li>取得中なら、その取得のFutureを返す(相乗り)</li>
+ * <li>それ以外は取得を開始する(ミス)</li>
+ * </ul>
+ * 取得に失敗した値(null)は保持しない。
+ * invalidateすると世代が変わり、それより前に始めた取得の結果は保持せず、以降の要求はその取得に相乗りしない。
+ */
+public class CoalescingCache<T> {
+
+	private final EndpointEnum ENDPOINT;
+
+	private final Supplier<CompletableFuture<T>> FETCHER;
+
+	private final RequestMetrics METRICS;
+
+	private final long MAX_AGE_NANOS;
+
+	// invalidateのたびに増やす
+	private final AtomicLong GENERATION = new AtomicLong();
+
+	private volatile Snapshot<T> snapshot = new Snapshot<>(null, 0, 0);
+
+	private final AtomicReference<CompletableFuture<T>> IN_FLIGHT = new AtomicReference<>();
+
+	/**
+	 * @param maxAgeMsec 取得した値を使い回す期間(0なら使い回さず、同時の要求をまとめるだけ)
+	 */
+	public CoalescingCache(EndpointEnum endpoint, Supplier<CompletableFuture<T>> fetcher, RequestMetrics metrics,
+			long maxAgeMsec) {
+		this.ENDPOINT = endpoint;
+		this.FETCHER = fetcher;
+		this.METRICS = metrics;
+		this.MAX_AGE_NANOS = TimeUnit.MILLISECONDS.toNanos(maxAgeMsec);
+	}
+
+	/**
+	 * @return coalescingセクションの"エンドポイント名MaxAgeMsec"(未設定ならdefaultValue)
+	 */
+	public static long maxAgeParam(Map<String, Object> coalescingParam, EndpointEnum endpoint, long defaultValue) {
+		String key = endpoint.getApiName() + "MaxAgeMsec";
+		if (coalescingParam == null || coalescingParam.get(key) == null) {
+			return defaultValue;
+		}
+		return ((Number) coalescingParam.get(key)).longValue();
+	}
+
+	public CompletableFuture<T> get() {
+		long generation = GENERATION.get();
+		Snapshot<T> current = snapshot;
+		if (current.value != null && current.generation == generation
+				&& System.nanoTime() - current.fetchedNanos <= MAX_AGE_NANOS) {
+			METRICS.recordCacheHit(ENDPOINT);
+			return CompletableFuture.completedFuture(current.value);
+		}
+		CompletableFuture<T> created = new CompletableFuture<>();
+		while (!IN_FLIGHT.compareAndSet(null, created)) {
+			CompletableFuture<T> inFlight = IN_FLIGHT.get();
+			if (inFlight != null) {
+				METRICS.recordCoalesced(ENDPOINT);
+				return inFlight;
+			}
+		}
+		long requestedNanos = System.nanoTime();
+		CompletableFuture<T> fetched;
+		try {
+			fetched = FETCHER.get();
+		} catch (RuntimeException e) {
+			IN_FLIGHT.compareAndSet(created, null);
+			created.completeExceptionally(e);
+			return created;
+		}
+		fetched.whenComplete((value, e) -> {
+			// 取得中にinvalidateされていれば、取得した値は古いかもしれないので保持しない
+			if (e == null && value != null && GENERATION.get() == generation) {
+				// 取得を開始した時刻を基準にする(応答待ちの間も値は古くなっている)
+				snapshot = new Snapshot<>(value, requestedNanos, generation);
+			}
+			// invalidateで外されていれば、後から始めた取得を消さないようにする
+			IN_FLIGHT.compareAndSet(created, null);
+			if (e != null) {
+				created.completeExceptionally(e);
+			} else {
+				created.complete(value);
+			}
+		});
+		return created;
+	}
+
+	/**
+	 * 保持している値を捨て、取得中のものからも外す(約定などで値が変わったことが分かっている場合に使う)。
+	 * 取得中の要求にはその取得の結果が返るが、以降の要求は取り直す。
+	 */
+	public void invalidate() {
+		GENERATION.incrementAndGet();
+		snapshot = new Snapshot<>(null, 0, 0);
+		IN_FLIGHT.set(null);
+	}
+
+	/**
+	 * 取得した値と取得を開始した時刻、世代の組(まとめて差し替えるのでvolatileの参照1つで読める)
+	 */
+	private static class Snapshot<T> {
+
+		private final T value;
+
+		private final long fetchedNanos;
+
+		private final long generation;
+
+		private Snapshot(T value, long fetchedNanos, long generation) {
+			this.value = value;
+			this.fetchedNanos = fetchedNanos;
+			this.generation = generation;
+		}
+	}
+}
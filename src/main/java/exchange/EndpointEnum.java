@@ -0,0 +1,87 @@
+package exchange;
+
+/**
+ * APIのエンドポイントごとの設定
+ */
+public enum EndpointEnum {
+	GETBOARD("getboard", "GET", "/v1/getboard?product_code=FX_BTC_JPY", false, true, 3000,
+			RequestPriorityEnum.LOW),
+	GETBALANCE("getbalance", "GET", "/v1/me/getbalance", true, true, 3000, RequestPriorityEnum.LOW),
+	// 注文は重複すると困るので、サーバに届いていないことが確実な場合以外はリトライしない
+	SENDCHILDORDER("sendchildorder", "POST", "/v1/me/sendchildorder", true, false, 5000,
+			RequestPriorityEnum.HIGH),
+	// 親注文も重複すると困るので子注文と同じ扱い
+	SENDPARENTORDER("sendparentorder", "POST", "/v1/me/sendparentorder", true, false, 5000,
+			RequestPriorityEnum.HIGH),
+	// 取消は複数回送っても結果が変わらない
+	CANCELPARENTORDER("cancelparentorder", "POST", "/v1/me/cancelparentorder", true, true, 5000,
+			RequestPriorityEnum.HIGH),
+	GETPOSITIONS("getpositions", "GET", "/v1/me/getpositions?product_code=FX_BTC_JPY", true, true, 3000,
+			RequestPriorityEnum.NORMAL),
+	GETCOLLATERAL("getcollateral", "GET", "/v1/me/getcollateral", true, true, 3000, RequestPriorityEnum.NORMAL),
+	GETHEALTH("gethealth", "GET", "/v1/gethealth?product_code=FX_BTC_JPY", false, true, 2000,
+			RequestPriorityEnum.NORMAL),
+	GETCHILDORDERS("getchildorders", "GET", "/v1/me/getchildorders?product_code=FX_BTC_JPY", true, true, 3000,
+			RequestPriorityEnum.NORMAL),
+	GETEXECUTIONS("getexecutions", "GET", "/v1/getexecutions?product_code=FX_BTC_JPY&count=1", false, true, 2000,
+			RequestPriorityEnum.LOW);
+
+	private final String apiName;
+
+	private final String method;
+
+	private final String path;
+
+	private final boolean privateApi;
+
+	private final boolean idempotent;
+
+	private final int timeoutMsec;
+
+	private final RequestPriorityEnum priority;
+
+	private EndpointEnum(String apiName, String method, String path, boolean privateApi, boolean idempotent,
+			int timeoutMsec, RequestPriorityEnum priority) {
+		this.apiName = apiName;
+		this.method = method;
+		this.path = path;
+		this.privateApi = privateApi;
+		this.idempotent = idempotent;
+		this.timeoutMsec = timeoutMsec;
+		this.priority = priority;
+	}
+
+	public String getApiName() {
+		return apiName;
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * @return 署名が必要なAPIならtrue
+	 */
+	public boolean isPrivateApi() {
+		return privateApi;
+	}
+
+	/**
+	 * @return 同じリクエストを複数回送っても結果が変わらないAPIならtrue
+	 */
+	public boolean isIdempotent() {
+		return idempotent;
+	}
+
+	public int getTimeoutMsec() {
+		return timeoutMsec;
+	}
+
+	public RequestPriorityEnum getPriority() {
+		return priority;
+	}
+}
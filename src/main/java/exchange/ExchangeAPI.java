@@ -0,0 +1,102 @@
+package exchange;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+
+import model.BalanceResponse;
+import model.BoardResponse;
+import model.BuySellEnum;
+import model.ChildOrderDetailResponse;
+import model.ChildOrderResponse;
+import model.CollateralResponse;
+import model.ExecutionResponse;
+import model.HealthResponse;
+import model.OrderTypeEnum;
+import model.ParentOrderMethodEnum;
+import model.ParentOrderParameter;
+import model.ParentOrderResponse;
+import model.PositionResponse;
+
+/**
+ * ロジックから使う取引所のAPI(本番はBitFlyerAPIWrapper、バックテストはSimulatedExchange)
+ */
+public interface ExchangeAPI {
+
+	BoardResponse getBoard();
+
+	BalanceResponse[] getBalance();
+
+	ChildOrderResponse sendChildOrder(BuySellEnum side, long price, long size, OrderTypeEnum orderType);
+
+	ParentOrderResponse sendParentOrder(ParentOrderMethodEnum orderMethod, int minuteToExpire,
+			ParentOrderParameter... parameters);
+
+	/**
+	 * 親注文を取り消す(約定済み、取消済みの注文は取り消せない)
+	 *
+	 * @return 取消が受け付けられればtrue
+	 */
+	boolean cancelParentOrder(String parentOrderAcceptanceId);
+
+	PositionResponse[] getPositions();
+
+	CollateralResponse getCollateral();
+
+	HealthResponse getHealth();
+
+	ExecutionResponse[] getExecutions();
+
+	// 非同期版は最終的に失敗した場合nullで完了する
+
+	CompletableFuture<BoardResponse> getBoardAsync();
+
+	CompletableFuture<ChildOrderResponse> sendChildOrderAsync(BuySellEnum side, long price, long size,
+			OrderTypeEnum orderType);
+
+	CompletableFuture<ChildOrderDetailResponse[]> getChildOrdersAsync(String acceptanceId);
+
+	CompletableFuture<ParentOrderResponse> sendParentOrderAsync(ParentOrderMethodEnum orderMethod, int minuteToExpire,
+			ParentOrderParameter... parameters);
+
+	/**
+	 * @return 取消が受け付けられればtrue(失敗した場合もfalseで完了する)
+	 */
+	CompletableFuture<Boolean> cancelParentOrderAsync(String parentOrderAcceptanceId);
+
+	CompletableFuture<PositionResponse[]> getPositionsAsync();
+
+	CompletableFuture<CollateralResponse> getCollateralAsync();
+
+	CompletableFuture<HealthResponse> getHealthAsync();
+
+	/**
+	 * @return APIごとのリクエスト数、リトライ数、レイテンシ等
+	 */
+	RequestMetrics getRequestMetrics();
+
+	/**
+	 * @return レート制限の残り枠と優先度ごとの待ち・見送り回数
+	 */
+	RateLimiter getRateLimiter();
+
+	HealthMonitor getHealthMonitor();
+
+	PositionBook getPositionBook();
+
+	OrderTracker getOrderTracker();
+
+	boolean isHealthy();
+
+	boolean isMaintenanceTime(LocalDateTime now);
+
+	/**
+	 * @return ロジックが現在時刻の取得に使う時計(バックテストでは記録データの時刻を返す)
+	 */
+	Clock getClock();
+
+	/**
+	 * @return getClockの時計が実時間で進むならtrue(バックテストの時計は記録データの時刻で、処理を待っても進まない)
+	 */
+	boolean isRealTimeClock();
+}
@@ -0,0 +1,169 @@
+package exchange;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import model.HealthResponse;
+
+/**
+ * 取引所の状態をバックグラウンドで定期的に取得し、メモリ上に保持する。
+ * 発注経路では保持している値を読むだけで、取得から時間が経ちすぎている場合のみ同期で取得し直す。
+ */
+public class HealthMonitor {
+
+	private final LocalTime MAINTENANCE_BEGIN_TIME = LocalTime.of(3, 57, 29);
+
+	private final LocalTime MAINTENANCE_END_TIME = LocalTime.of(4, 12, 31);
+
+	private final Supplier<CompletableFuture<HealthResponse>> FETCHER;
+
+	private final long REFRESH_INTERVAL_MSEC;
+
+	// これより古い値は使わない
+	private final long MAX_AGE_NANOS;
+
+	private volatile Cached cached = new Cached(null, 0);
+
+	private ScheduledExecutorService scheduler;
+
+	private static Logger LOGGER = LogManager.getLogger(HealthMonitor.class);
+
+	public HealthMonitor(Supplier<CompletableFuture<HealthResponse>> fetcher, Map<String, Object> healthParam) {
+		this.FETCHER = fetcher;
+		this.REFRESH_INTERVAL_MSEC = param(healthParam, "refreshIntervalMsec", 3000);
+		this.MAX_AGE_NANOS = TimeUnit.MILLISECONDS.toNanos(param(healthParam, "maxAgeMsec", 10000));
+	}
+
+	private static long param(Map<String, Object> param, String key, long defaultValue) {
+		if (param == null || param.get(key) == null) {
+			return defaultValue;
+		}
+		return ((Number) param.get(key)).longValue();
+	}
+
+	/**
+	 * バックグラウンドでの定期取得を開始する(複数回呼ばれても1度だけ開始)
+	 */
+	public synchronized void start() {
+		if (scheduler != null) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "healthMonitorThread");
+			t.setDaemon(true);
+			return t;
+		});
+		scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				refresh().join();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}, 0, REFRESH_INTERVAL_MSEC, TimeUnit.MILLISECONDS);
+	}
+
+	public synchronized void stop() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+
+	/**
+	 * 取引所の状態を取得し直す(取得に失敗した場合は保持している値を変えない)
+	 */
+	public CompletableFuture<HealthResponse> refresh() {
+		return FETCHER.get().thenApply(response -> {
+			if (response != null && response.getStatus() != null) {
+				cached = new Cached(response, System.nanoTime());
+			} else {
+				LOGGER.info("取引所の状態の取得に失敗しました。");
+			}
+			return response;
+		});
+	}
+
+	/**
+	 * @return 保持している取引所の状態(古すぎる場合はnull)
+	 */
+	public HealthResponse getHealth() {
+		Cached current = cached;
+		return isFresh(current) ? current.response : null;
+	}
+
+	/**
+	 * @param refreshIfStale 保持している値が古すぎる場合に同期で取得し直すならtrue
+	 * @return 取引所の状態(取得できなければnull)
+	 */
+	public String getStatus(boolean refreshIfStale) {
+		HealthResponse response = refreshIfStale ? getHealthOrRefresh().join() : getHealth();
+		return response != null ? response.getStatus() : null;
+	}
+
+	/**
+	 * @return 保持している値が新しければそれで完了済み、古ければ取得し直すFuture
+	 */
+	public CompletableFuture<HealthResponse> getHealthOrRefresh() {
+		HealthResponse response = getHealth();
+		if (response != null) {
+			return CompletableFuture.completedFuture(response);
+		}
+		return refresh();
+	}
+
+	/**
+	 * @param now メンテナンス時間の判定に使う現在時刻(ロジックの時計の時刻を渡す)
+	 * @return 取引所の状態が正常かつメンテナンス時間外ならtrue
+	 */
+	public boolean isHealthy(boolean refreshIfStale, LocalDateTime now) {
+		return isHealthyStatus(getStatus(refreshIfStale)) && !isMaintenanceTime(now);
+	}
+
+	public static boolean isHealthyStatus(String status) {
+		return status != null && (status.equals("NORMAL") || status.equals("BUSY") || status.equals("VERY BUSY"));
+	}
+
+	public boolean isMaintenanceTime(LocalDateTime now) {
+		LocalTime nowTime = now.toLocalTime();
+		return nowTime.isAfter(MAINTENANCE_BEGIN_TIME) && nowTime.isBefore(MAINTENANCE_END_TIME);
+	}
+
+	/**
+	 * @return 最後に取得してからの経過時間(一度も取得していなければ-1)
+	 */
+	public long getAgeMsec() {
+		Cached current = cached;
+		if (current.response == null) {
+			return -1;
+		}
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - current.fetchedNanos);
+	}
+
+	private boolean isFresh(Cached current) {
+		return current.response != null && System.nanoTime() - current.fetchedNanos <= MAX_AGE_NANOS;
+	}
+
+	/**
+	 * 取得した状態と取得時刻の組(まとめて差し替えるのでvolatileの参照1つで読める)
+	 */
+	private static class Cached {
+
+		private final HealthResponse response;
+
+		private final long fetchedNanos;
+
+		private Cached(HealthResponse response, long fetchedNanos) {
+			this.response = response;
+			this.fetchedNanos = fetchedNanos;
+		}
+	}
+}
@@ -0,0 +1,354 @@
+package exchange;
+
+import java.util.Arrays;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import model.BoardResponse;
+import model.BuySellEnum;
+import model.PriceSize;
+
+/**
+ * 板スナップショットと差分から手元で維持する板。
+ * 価格(円)と数量(1e-8 BTC単位)をソート済みのプリミティブ配列で保持し、差分はその場で反映する。
+ * Bidは価格の降順、Askは価格の昇順に並べるので、最良気配は常に先頭にある。
+ */
+public class LocalOrderBook {
+
+	private static final int INITIAL_CAPACITY = 8192;
+
+	private long[] bidPrices = new long[INITIAL_CAPACITY];
+
+	private long[] bidSizes = new long[INITIAL_CAPACITY];
+
+	// 先頭からの累積数量(bidCumulativeValid未満の位置まで計算済み)
+	private long[] bidCumulative = new long[INITIAL_CAPACITY];
+
+	private int bidCount = 0;
+
+	private int bidCumulativeValid = 0;
+
+	private long[] askPrices = new long[INITIAL_CAPACITY];
+
+	private long[] askSizes = new long[INITIAL_CAPACITY];
+
+	private long[] askCumulative = new long[INITIAL_CAPACITY];
+
+	private int askCount = 0;
+
+	private int askCumulativeValid = 0;
+
+	// スナップショットを一度でも反映していればtrue
+	private boolean ready = false;
+
+	private long updateCount = 0;
+
+	private long reconcileCount = 0;
+
+	private long driftCount = 0;
+
+	private long lastSnapshotMillis = 0;
+
+	private static Logger LOGGER = LogManager.getLogger(LocalOrderBook.class);
+
+	/**
+	 * スナップショットで板を置き換える
+	 */
+	public synchronized void applySnapshot(BoardResponse snapshot) {
+		bidCount = 0;
+		askCount = 0;
+		bidCumulativeValid = 0;
+		askCumulativeValid = 0;
+		applyLevels(snapshot);
+		ready = true;
+		lastSnapshotMillis = System.currentTimeMillis();
+	}
+
+	/**
+	 * 差分を反映する(数量0はその価格の削除)。スナップショット反映前の差分は無視する。
+	 */
+	public synchronized void applyDiff(BoardResponse diff) {
+		if (!ready) {
+			return;
+		}
+		applyLevels(diff);
+	}
+
+	/**
+	 * スナップショットと手元の板を突き合わせ、ズレていればスナップショットで置き換える
+	 *
+	 * @return ズレていた価格の数
+	 */
+	public synchronized int reconcile(BoardResponse snapshot) {
+		if (!ready) {
+			applySnapshot(snapshot);
+			return 0;
+		}
+		int mismatch = countMismatch(BuySellEnum.BUY, snapshot.getBids(), bidCount)
+				+ countMismatch(BuySellEnum.SELL, snapshot.getAsks(), askCount);
+		reconcileCount++;
+		if (mismatch > 0) {
+			driftCount++;
+			LOGGER.info("板のズレを検出したのでスナップショットで置き換えます。ズレ:" + mismatch + " 件");
+		}
+		applySnapshot(snapshot);
+		return mismatch;
+	}
+
+	/**
+	 * 切断時などに板を破棄する(次のスナップショットまでisReadyはfalse)
+	 */
+	public synchronized void clear() {
+		bidCount = 0;
+		askCount = 0;
+		bidCumulativeValid = 0;
+		askCumulativeValid = 0;
+		ready = false;
+	}
+
+	public synchronized boolean isReady() {
+		return ready && bidCount > 0 && askCount > 0;
+	}
+
+	/**
+	 * @return 最良買気配(なければ-1)
+	 */
+	public synchronized long getBestBid() {
+		return bidCount > 0 ? bidPrices[0] : -1;
+	}
+
+	/**
+	 * @return 最良売気配(なければ-1)
+	 */
+	public synchronized long getBestAsk() {
+		return askCount > 0 ? askPrices[0] : -1;
+	}
+
+	/**
+	 * @return 仲値(どちらかの気配がなければ-1)
+	 */
+	public synchronized double getMidPrice() {
+		if (bidCount == 0 || askCount == 0) {
+			return -1;
+		}
+		return (bidPrices[0] + askPrices[0]) / 2.0;
+	}
+
+	public synchronized int getDepth(BuySellEnum side) {
+		return side == BuySellEnum.BUY ? bidCount : askCount;
+	}
+
+	/**
+	 * @return 最良気配から数えてlevel番目(0始まり)の価格(なければ-1)
+	 */
+	public synchronized long getPriceAt(BuySellEnum side, int level) {
+		if (side == BuySellEnum.BUY) {
+			return level < bidCount ? bidPrices[level] : -1;
+		}
+		return level < askCount ? askPrices[level] : -1;
+	}
+
+	/**
+	 * @return 最良気配から数えてlevel番目(0始まり)の数量(なければ0)
+	 */
+	public synchronized long getSizeAt(BuySellEnum side, int level) {
+		if (side == BuySellEnum.BUY) {
+			return level < bidCount ? bidSizes[level] : 0;
+		}
+		return level < askCount ? askSizes[level] : 0;
+	}
+
+	/**
+	 * @return 指定価格の数量(なければ0)
+	 */
+	public synchronized long getSizeOfPrice(BuySellEnum side, long price) {
+		if (side == BuySellEnum.BUY) {
+			int index = search(bidPrices, bidCount, price, true);
+			return index >= 0 ? bidSizes[index] : 0;
+		}
+		int index = search(askPrices, askCount, price, false);
+		return index >= 0 ? askSizes[index] : 0;
+	}
+
+	/**
+	 * @return 最良気配からlevels段分の累積数量
+	 */
+	public synchronized long getCumulativeSize(BuySellEnum side, int levels) {
+		if (levels <= 0) {
+			return 0;
+		}
+		if (side == BuySellEnum.BUY) {
+			int last = Math.min(levels, bidCount) - 1;
+			if (last < 0) {
+				return 0;
+			}
+			if (last >= bidCumulativeValid) {
+				bidCumulativeValid = accumulate(bidSizes, bidCumulative, bidCumulativeValid, bidCount);
+			}
+			return bidCumulative[last];
+		}
+		int last = Math.min(levels, askCount) - 1;
+		if (last < 0) {
+			return 0;
+		}
+		if (last >= askCumulativeValid) {
+			askCumulativeValid = accumulate(askSizes, askCumulative, askCumulativeValid, askCount);
+		}
+		return askCumulative[last];
+	}
+
+	public synchronized long getUpdateCount() {
+		return updateCount;
+	}
+
+	public synchronized long getReconcileCount() {
+		return reconcileCount;
+	}
+
+	/**
+	 * @return 突き合わせでズレを検出した回数
+	 */
+	public synchronized long getDriftCount() {
+		return driftCount;
+	}
+
+	public synchronized long getLastSnapshotMillis() {
+		return lastSnapshotMillis;
+	}
+
+	/**
+	 * 1価格分の更新。数量0はその価格の削除。
+	 */
+	public synchronized void update(BuySellEnum side, long price, long size) {
+		updateCount++;
+		if (side == BuySellEnum.BUY) {
+			int index = search(bidPrices, bidCount, price, true);
+			if (index >= 0) {
+				if (size <= 0) {
+					remove(bidPrices, bidSizes, index, bidCount);
+					bidCount--;
+				} else {
+					bidSizes[index] = size;
+				}
+				bidCumulativeValid = Math.min(bidCumulativeValid, index);
+			} else if (size > 0) {
+				int insertion = -index - 1;
+				ensureBidCapacity(bidCount + 1);
+				insert(bidPrices, bidSizes, insertion, bidCount, price, size);
+				bidCount++;
+				bidCumulativeValid = Math.min(bidCumulativeValid, insertion);
+			}
+		} else {
+			int index = search(askPrices, askCount, price, false);
+			if (index >= 0) {
+				if (size <= 0) {
+					remove(askPrices, askSizes, index, askCount);
+					askCount--;
+				} else {
+					askSizes[index] = size;
+				}
+				askCumulativeValid = Math.min(askCumulativeValid, index);
+			} else if (size > 0) {
+				int insertion = -index - 1;
+				ensureAskCapacity(askCount + 1);
+				insert(askPrices, askSizes, insertion, askCount, price, size);
+				askCount++;
+				askCumulativeValid = Math.min(askCumulativeValid, insertion);
+			}
+		}
+	}
+
+	private void applyLevels(BoardResponse board) {
+		PriceSize[] bids = board.getBids();
+		if (bids != null) {
+			for (PriceSize bid : bids) {
+				update(BuySellEnum.BUY, bid.getPrice(), bid.getSize());
+			}
+		}
+		PriceSize[] asks = board.getAsks();
+		if (asks != null) {
+			for (PriceSize ask : asks) {
+				update(BuySellEnum.SELL, ask.getPrice(), ask.getSize());
+			}
+		}
+	}
+
+	private int countMismatch(BuySellEnum side, PriceSize[] levels, int localCount) {
+		int mismatch = 0;
+		int count = 0;
+		if (levels != null) {
+			for (PriceSize level : levels) {
+				if (level.getSize() <= 0) {
+					continue;
+				}
+				count++;
+				if (getSizeOfPrice(side, level.getPrice()) != level.getSize()) {
+					mismatch++;
+				}
+			}
+		}
+		// 手元にだけある価格もズレとして数える
+		return mismatch + Math.max(0, localCount - count);
+	}
+
+	/**
+	 * 二分探索。見つかればその位置、なければ-(挿入位置)-1を返す。
+	 */
+	private static int search(long[] prices, int count, long price, boolean descending) {
+		int low = 0;
+		int high = count - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			long midPrice = prices[mid];
+			if (midPrice == price) {
+				return mid;
+			}
+			if (descending ? midPrice > price : midPrice < price) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return -(low + 1);
+	}
+
+	private static void insert(long[] prices, long[] sizes, int index, int count, long price, long size) {
+		System.arraycopy(prices, index, prices, index + 1, count - index);
+		System.arraycopy(sizes, index, sizes, index + 1, count - index);
+		prices[index] = price;
+		sizes[index] = size;
+	}
+
+	private static void remove(long[] prices, long[] sizes, int index, int count) {
+		System.arraycopy(prices, index + 1, prices, index, count - index - 1);
+		System.arraycopy(sizes, index + 1, sizes, index, count - index - 1);
+	}
+
+	private static int accumulate(long[] sizes, long[] cumulative, int from, int count) {
+		long sum = from > 0 ? cumulative[from - 1] : 0;
+		for (int i = from; i < count; i++) {
+			sum += sizes[i];
+			cumulative[i] = sum;
+		}
+		return count;
+	}
+
+	private void ensureBidCapacity(int capacity) {
+		if (capacity > bidPrices.length) {
+			int newLength = bidPrices.length * 2;
+			bidPrices = Arrays.copyOf(bidPrices, newLength);
+			bidSizes = Arrays.copyOf(bidSizes, newLength);
+			bidCumulative = Arrays.copyOf(bidCumulative, newLength);
+		}
+	}
+
+	private void ensureAskCapacity(int capacity) {
+		if (capacity > askPrices.length) {
+			int newLength = askPrices.length * 2;
+			askPrices = Arrays.copyOf(askPrices, newLength);
+			askSizes = Arrays.copyOf(askSizes, newLength);
+			askCumulative = Arrays.copyOf(askCumulative, newLength);
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package exchange;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import model.BuySellEnum;
+import model.ChildOrderDetailResponse;
+import model.OrderFill;
+
+/**
+ * 受け付けられた注文をchild_order_acceptance_idで追跡し、
+ * 約定(または取消、失効)が確定したら平均約定価格と約定数量でFutureを完了する。
+ * 注文の状態はgetchildordersをポーリングして確認する(間隔は最初短く、徐々に延ばす)。
+ * 追跡元のOrderTrackerを指定した場合はポーリングせず、追跡元の同じ注文の結果を使う。
+ */
+public class OrderTracker {
+
+	private final Function<String, CompletableFuture<ChildOrderDetailResponse[]>> FETCHER;
+
+	// 結果を使う追跡元(nullなら自分でポーリングする)
+	private final OrderTracker SOURCE;
+
+	private final long INITIAL_POLL_MSEC;
+
+	private final long MAX_POLL_MSEC;
+
+	private final long TIMEOUT_MSEC;
+
+	// 完了後もしばらく結果を保持する時間(後からawaitしても同じ結果を返すため)
+	private final long RETAIN_MSEC;
+
+	private final Map<String, CompletableFuture<OrderFill>> TRACKING = new ConcurrentHashMap<>();
+
+	private final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "orderTrackerThread");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private volatile Consumer<OrderFill> fillListener;
+
+	private static Logger LOGGER = LogManager.getLogger(OrderTracker.class);
+
+	public OrderTracker(Function<String, CompletableFuture<ChildOrderDetailResponse[]>> fetcher,
+			Map<String, Object> trackerParam) {
+		this.FETCHER = fetcher;
+		this.SOURCE = null;
+		this.INITIAL_POLL_MSEC = param(trackerParam, "initialPollMsec", 100);
+		this.MAX_POLL_MSEC = param(trackerParam, "maxPollMsec", 1000);
+		this.TIMEOUT_MSEC = param(trackerParam, "timeoutMsec", 10000);
+		this.RETAIN_MSEC = param(trackerParam, "retainMsec", 60000);
+	}
+
+	/**
+	 * sourceが追跡している注文の結果を使う(getchildordersはsourceのポーリングだけになる)。
+	 * リスナーはこのOrderTrackerのものが呼ばれる。
+	 */
+	public OrderTracker(OrderTracker source) {
+		this.FETCHER = null;
+		this.SOURCE = source;
+		this.INITIAL_POLL_MSEC = source.INITIAL_POLL_MSEC;
+		this.MAX_POLL_MSEC = source.MAX_POLL_MSEC;
+		this.TIMEOUT_MSEC = source.TIMEOUT_MSEC;
+		this.RETAIN_MSEC = source.RETAIN_MSEC;
+	}
+
+	private static long param(Map<String, Object> param, String key, long defaultValue) {
+		if (param == null || param.get(key) == null) {
+			return defaultValue;
+		}
+		return ((Number) param.get(key)).longValue();
+	}
+
+	/**
+	 * 約定結果が確定した時に呼ばれるリスナーを設定する
+	 */
+	public void setFillListener(Consumer<OrderFill> fillListener) {
+		this.fillListener = fillListener;
+	}
+
+	/**
+	 * 注文の追跡を開始する(追跡中なら同じFutureを返す)
+	 */
+	public CompletableFuture<OrderFill> track(String acceptanceId, BuySellEnum side, long size) {
+		return TRACKING.computeIfAbsent(acceptanceId, id -> {
+			CompletableFuture<OrderFill> future = new CompletableFuture<>();
+			if (SOURCE != null) {
+				// 追跡元で追跡中なら同じ結果を待つ
+				SOURCE.track(id, side, size).whenComplete((fill, e) -> {
+					if (e != null) {
+						future.completeExceptionally(e);
+					} else {
+						complete(fill, future);
+					}
+				});
+			} else {
+				long start = System.nanoTime();
+				SCHEDULER.schedule(() -> poll(id, side, size, start, INITIAL_POLL_MSEC, null, future),
+						INITIAL_POLL_MSEC, TimeUnit.MILLISECONDS);
+			}
+			future.whenComplete((fill, e) -> SCHEDULER.schedule(() -> TRACKING.remove(id, future), RETAIN_MSEC,
+					TimeUnit.MILLISECONDS));
+			return future;
+		});
+	}
+
+	/**
+	 * @return 追跡中(または完了直後)の注文のFuture(なければnull)
+	 */
+	public CompletableFuture<OrderFill> get(String acceptanceId) {
+		return TRACKING.get(acceptanceId);
+	}
+
+	public int getTrackingCount() {
+		return TRACKING.size();
+	}
+
+	/**
+	 * ポーリング用のスレッドを停止する(以降は追跡できない。使い捨てる場合に使う)
+	 */
+	public void close() {
+		SCHEDULER.shutdownNow();
+	}
+
+	private void poll(String acceptanceId, BuySellEnum side, long size, long start, long interval,
+			ChildOrderDetailResponse last, CompletableFuture<OrderFill> future) {
+		FETCHER.apply(acceptanceId).whenComplete((orders, e) -> {
+			// 取得に失敗した場合や、まだ注文一覧に出てこない場合は前回の状態を使う
+			ChildOrderDetailResponse order = e == null && orders != null && orders.length > 0 ? orders[0] : last;
+			long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			if (order != null && isFinished(order)) {
+				complete(toFill(acceptanceId, side, size, order, false, elapsed), future);
+				return;
+			}
+			if (elapsed >= TIMEOUT_MSEC) {
+				OrderFill fill = toFill(acceptanceId, side, size, order, true, elapsed);
+				LOGGER.info("注文の約定確認を打ち切りました。" + fill);
+				complete(fill, future);
+				return;
+			}
+			long next = Math.min(MAX_POLL_MSEC, interval * 2);
+			SCHEDULER.schedule(() -> poll(acceptanceId, side, size, start, next, order, future), interval,
+					TimeUnit.MILLISECONDS);
+		});
+	}
+
+	/**
+	 * リスナーに通知してからFutureを完了する(Futureの完了を待っている側からは、リスナーでの反映が済んでいるように見える)
+	 */
+	private void complete(OrderFill fill, CompletableFuture<OrderFill> future) {
+		if (fillListener != null) {
+			try {
+				fillListener.accept(fill);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+		future.complete(fill);
+	}
+
+	/**
+	 * @return 注文の状態が確定していればtrue(全量約定、取消、失効、拒否)
+	 */
+	private static boolean isFinished(ChildOrderDetailResponse order) {
+		String state = order.getChildOrderState();
+		return state != null && !state.equals("ACTIVE");
+	}
+
+	private static OrderFill toFill(String acceptanceId, BuySellEnum side, long size, ChildOrderDetailResponse order,
+			boolean timedOut, long elapsed) {
+		if (order == null) {
+			return new OrderFill(acceptanceId, side, size, 0, 0, null, timedOut, elapsed);
+		}
+		return new OrderFill(acceptanceId, side, size, order.getExecutedSize(), order.getAveragePrice(),
+				order.getChildOrderState(), timedOut, elapsed);
+	}
+}
@@ -0,0 +1,146 @@
+package exchange;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import model.BuySellEnum;
+import model.ConditionTypeEnum;
+import model.ParentOrderMethodEnum;
+import model.ParentOrderParameter;
+
+/**
+ * 親注文と親注文の取消のリクエストボディ(JSON)をバイト列に直接書き込む。
+ * ChildOrderEncoderと同じく固定部分を事前にバイト列にしておき、数字と受付IDだけを書き込む。
+ */
+public class ParentOrderEncoder {
+
+	// 1つの親注文に含められる注文の数(IFDOCOの3つ)
+	public static final int MAX_PARAMETERS = 3;
+
+	// ボディの最大長(固定部分 + 注文3つ分の価格、トリガー価格、数量の桁数に余裕を持たせた値)
+	public static final int MAX_LENGTH = 640;
+
+	// 受付IDの最大長
+	private static final int MAX_ID_LENGTH = 64;
+
+	// 注文方法ごとの先頭部分
+	private static final byte[][] METHOD_HEADS = new byte[ParentOrderMethodEnum.values().length][];
+
+	private static final byte[] PARAMETERS_KEY = ascii(",\"time_in_force\":\"GTC\",\"parameters\":[");
+
+	// [執行条件][売買]ごとの各注文の先頭部分
+	private static final byte[][][] PARAMETER_HEADS = new byte[ConditionTypeEnum.values().length][BuySellEnum
+			.values().length][];
+
+	private static final byte[] PRICE_KEY = ascii("\"price\":");
+
+	private static final byte[] TRIGGER_PRICE_KEY = ascii("\"trigger_price\":");
+
+	private static final byte[] SIZE_KEY = ascii("\"size\":");
+
+	private static final byte[] CANCEL_HEAD = ascii(
+			"{\"product_code\":\"FX_BTC_JPY\",\"parent_order_acceptance_id\":\"");
+
+	private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[MAX_LENGTH]);
+
+	static {
+		for (ParentOrderMethodEnum method : ParentOrderMethodEnum.values()) {
+			METHOD_HEADS[method.ordinal()] = ascii(
+					"{\"order_method\":\"" + method.name() + "\",\"minute_to_expire\":");
+		}
+		for (ConditionTypeEnum condition : ConditionTypeEnum.values()) {
+			for (BuySellEnum side : BuySellEnum.values()) {
+				PARAMETER_HEADS[condition.ordinal()][side.ordinal()] = ascii("{\"product_code\":\"FX_BTC_JPY\","
+						+ "\"condition_type\":\"" + condition.name() + "\",\"side\":\"" + side.name() + "\",");
+			}
+		}
+	}
+
+	private ParentOrderEncoder() {
+	}
+
+	private static byte[] ascii(String text) {
+		return text.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * bufferのoffsetから親注文のボディを書き込む(bufferにはMAX_LENGTH以上の空きが必要)
+	 *
+	 * @return 書き込み後の位置
+	 */
+	public static int encode(byte[] buffer, int offset, ParentOrderMethodEnum orderMethod, int minuteToExpire,
+			ParentOrderParameter... parameters) {
+		if (parameters.length == 0 || parameters.length > MAX_PARAMETERS) {
+			throw new IllegalArgumentException("親注文の注文数が不正です:" + parameters.length);
+		}
+		byte[] head = METHOD_HEADS[orderMethod.ordinal()];
+		System.arraycopy(head, 0, buffer, offset, head.length);
+		int position = ChildOrderEncoder.writeLong(buffer, offset + head.length, minuteToExpire);
+		System.arraycopy(PARAMETERS_KEY, 0, buffer, position, PARAMETERS_KEY.length);
+		position += PARAMETERS_KEY.length;
+		for (int i = 0; i < parameters.length; i++) {
+			if (i > 0) {
+				buffer[position++] = ',';
+			}
+			position = encodeParameter(buffer, position, parameters[i]);
+		}
+		buffer[position++] = ']';
+		buffer[position++] = '}';
+		return position;
+	}
+
+	private static int encodeParameter(byte[] buffer, int offset, ParentOrderParameter parameter) {
+		ConditionTypeEnum condition = parameter.getConditionType();
+		byte[] head = PARAMETER_HEADS[condition.ordinal()][parameter.getSide().ordinal()];
+		System.arraycopy(head, 0, buffer, offset, head.length);
+		int position = offset + head.length;
+		if (condition == ConditionTypeEnum.LIMIT || condition == ConditionTypeEnum.STOP_LIMIT) {
+			System.arraycopy(PRICE_KEY, 0, buffer, position, PRICE_KEY.length);
+			position = ChildOrderEncoder.writeLong(buffer, position + PRICE_KEY.length, parameter.getPrice());
+			buffer[position++] = ',';
+		}
+		if (condition == ConditionTypeEnum.STOP || condition == ConditionTypeEnum.STOP_LIMIT) {
+			System.arraycopy(TRIGGER_PRICE_KEY, 0, buffer, position, TRIGGER_PRICE_KEY.length);
+			position = ChildOrderEncoder.writeLong(buffer, position + TRIGGER_PRICE_KEY.length,
+					parameter.getTriggerPrice());
+			buffer[position++] = ',';
+		}
+		System.arraycopy(SIZE_KEY, 0, buffer, position, SIZE_KEY.length);
+		position = ChildOrderEncoder.writeSize(buffer, position + SIZE_KEY.length, parameter.getSize());
+		buffer[position++] = '}';
+		return position;
+	}
+
+	/**
+	 * スレッドごとの作業用バッファに書き込み、必要な長さだけのバイト列にする
+	 */
+	public static byte[] encode(ParentOrderMethodEnum orderMethod, int minuteToExpire,
+			ParentOrderParameter... parameters) {
+		byte[] buffer = BUFFER.get();
+		int length = encode(buffer, 0, orderMethod, minuteToExpire, parameters);
+		return Arrays.copyOf(buffer, length);
+	}
+
+	/**
+	 * 親注文の取消のボディを作る(受付IDは英数字と記号のみで、エスケープが必要な文字は受け付けない)
+	 */
+	public static byte[] encodeCancel(String parentOrderAcceptanceId) {
+		int length = parentOrderAcceptanceId.length();
+		if (length == 0 || length > MAX_ID_LENGTH) {
+			throw new IllegalArgumentException("受付IDが不正です:" + parentOrderAcceptanceId);
+		}
+		byte[] body = new byte[CANCEL_HEAD.length + length + 2];
+		System.arraycopy(CANCEL_HEAD, 0, body, 0, CANCEL_HEAD.length);
+		int position = CANCEL_HEAD.length;
+		for (int i = 0; i < length; i++) {
+			char c = parentOrderAcceptanceId.charAt(i);
+			if (c <= ' ' || c >= 0x7f || c == '"' || c == '\\') {
+				throw new IllegalArgumentException("受付IDが不正です:" + parentOrderAcceptanceId);
+			}
+			body[position++] = (byte) c;
+		}
+		body[position++] = '"';
+		body[position] = '}';
+		return body;
+	}
+}
@@ -0,0 +1,278 @@
+package exchange;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import model.BuySellEnum;
+import model.FixedPoint;
+import model.NetPosition;
+import model.PositionResponse;
+
+/**
+ * 手元で維持する建玉。
+ * 自分の注文の約定で更新し、バックグラウンドで定期的にgetpositionsと突き合わせる。
+ * FX_BTC_JPYの建玉は売買で相殺されるので、ネットの数量(1e-8BTC単位の整数)だけを保持する。
+ * 受付後に取得を開始したgetpositionsで置き換えた注文は、その約定が既に含まれているとみなして約定を加算しない
+ * (加算しなかった分が取引所に未反映だった場合は、約定の反映後の突き合わせで合わせる)。
+ */
+public class PositionBook {
+
+	private final Supplier<CompletableFuture<PositionResponse[]>> FETCHER;
+
+	private final long RECONCILE_INTERVAL_MSEC;
+
+	// 発注後、建玉が取引所に反映されるのを待ってから突き合わせるまでの時間
+	private final long SETTLE_MSEC;
+
+	// 買いが正、売りが負
+	private long netUnits = 0;
+
+	private boolean ready = false;
+
+	// 最後に手元で更新した時刻(これより前に取得を開始したgetpositionsの結果では上書きしない)
+	private long lastLocalUpdateNanos = 0;
+
+	// 受付済みで約定の確定を待っている注文(受付IDと受付時刻)
+	private final Map<String, Long> UNCONFIRMED = new HashMap<>();
+
+	// UNCONFIRMEDのうち、受付後に取得を開始した建玉で置き換えた注文
+	private final Set<String> REFLECTED = new HashSet<>();
+
+	private long fillCount = 0;
+
+	// 突き合わせで反映済みとみなして加算しなかった約定の数
+	private long skippedFillCount = 0;
+
+	private long reconcileCount = 0;
+
+	private long driftCount = 0;
+
+	private ScheduledExecutorService scheduler;
+
+	private static Logger LOGGER = LogManager.getLogger(PositionBook.class);
+
+	public PositionBook(Supplier<CompletableFuture<PositionResponse[]>> fetcher, Map<String, Object> positionParam) {
+		this.FETCHER = fetcher;
+		this.RECONCILE_INTERVAL_MSEC = param(positionParam, "reconcileIntervalMsec", 60000);
+		this.SETTLE_MSEC = param(positionParam, "settleMsec", 3000);
+	}
+
+	private static long param(Map<String, Object> param, String key, long defaultValue) {
+		if (param == null || param.get(key) == null) {
+			return defaultValue;
+		}
+		return ((Number) param.get(key)).longValue();
+	}
+
+	/**
+	 * 定期的な突き合わせを開始する(複数回呼ばれても1度だけ開始)
+	 */
+	public synchronized void start() {
+		if (scheduler != null) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "positionBookThread");
+			t.setDaemon(true);
+			return t;
+		});
+		scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				refresh().join();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}, 0, RECONCILE_INTERVAL_MSEC, TimeUnit.MILLISECONDS);
+	}
+
+	public synchronized void stop() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+
+	/**
+	 * getpositionsを取得して突き合わせる
+	 *
+	 * @return 取得に成功すればtrue
+	 */
+	public CompletableFuture<Boolean> refresh() {
+		long requestedNanos = System.nanoTime();
+		return FETCHER.get().thenApply(positions -> {
+			if (positions == null) {
+				LOGGER.info("建玉の取得に失敗したので突き合わせをスキップします。");
+				return false;
+			}
+			reconcile(positions, requestedNanos);
+			return true;
+		});
+	}
+
+	/**
+	 * 取得した建玉と突き合わせ、ズレていれば取得した値に合わせる。
+	 * 取得開始より後に手元で更新していれば、取得した値の方が古いので何もしない。
+	 *
+	 * @return 手元の値を置き換えたらtrue
+	 */
+	public synchronized boolean reconcile(PositionResponse[] positions, long requestedNanos) {
+		if (ready && requestedNanos - lastLocalUpdateNanos < 0) {
+			return false;
+		}
+		long units = NetPosition.sumUnits(positions);
+		if (ready) {
+			reconcileCount++;
+			if (units != netUnits) {
+				driftCount++;
+				LOGGER.info("建玉のズレを検出したので取得した値に合わせます。手元:" + FixedPoint.formatSize(netUnits) + " 取引所:"
+						+ FixedPoint.formatSize(units));
+			}
+		}
+		netUnits = units;
+		ready = true;
+		for (Map.Entry<String, Long> entry : UNCONFIRMED.entrySet()) {
+			if (requestedNanos - entry.getValue() > 0) {
+				REFLECTED.add(entry.getKey());
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 手元で正しい値が分かっている場合(ストラテジーの台帳から求める建玉など)に、その値で置き換える(ズレとして数えない)
+	 *
+	 * @param units ネットの数量(1e-8 BTC単位、買いが正)
+	 */
+	public synchronized void replace(long units) {
+		netUnits = units;
+		ready = true;
+		lastLocalUpdateNanos = System.nanoTime();
+		fillCount++;
+	}
+
+	/**
+	 * 注文の受付を記録する(約定の確定前に突き合わせた建玉に、その約定が含まれるかを判定するため)
+	 */
+	public synchronized void orderAccepted(String acceptanceId) {
+		UNCONFIRMED.put(acceptanceId, System.nanoTime());
+	}
+
+	/**
+	 * 約定しなかった注文の記録を消す(注文の追跡を終えたら、約定がなくても呼ぶ)
+	 */
+	public synchronized void orderFinished(String acceptanceId) {
+		UNCONFIRMED.remove(acceptanceId);
+		REFLECTED.remove(acceptanceId);
+	}
+
+	/**
+	 * 受付を記録した注文の約定を反映する。
+	 * 受付後に取得を開始した建玉で置き換えていれば、約定は含まれているとみなして加算しない。
+	 *
+	 * @param size 約定数量(1e-8 BTC単位)
+	 */
+	public void applyFill(String acceptanceId, BuySellEnum side, long size) {
+		synchronized (this) {
+			UNCONFIRMED.remove(acceptanceId);
+			if (REFLECTED.remove(acceptanceId)) {
+				skippedFillCount++;
+				LOGGER.info("約定は突き合わせた建玉に反映済みなので加算しません。id:" + acceptanceId + " side:" + side + " size:"
+						+ FixedPoint.formatSize(size));
+				fillCount++;
+			} else {
+				applyFillLocked(side, size);
+			}
+		}
+		scheduleReconcile();
+	}
+
+	/**
+	 * 自分の注文の約定を反映する
+	 *
+	 * @param size 約定数量(1e-8 BTC単位)
+	 */
+	public void applyFill(BuySellEnum side, long size) {
+		synchronized (this) {
+			applyFillLocked(side, size);
+		}
+		scheduleReconcile();
+	}
+
+	private void applyFillLocked(BuySellEnum side, long size) {
+		netUnits += side == BuySellEnum.BUY ? size : -size;
+		lastLocalUpdateNanos = System.nanoTime();
+		fillCount++;
+	}
+
+	/**
+	 * 発注後、取引所に反映されるのを待って突き合わせる(親注文など約定を追跡していない注文の後に使う)
+	 */
+	public synchronized void scheduleReconcile() {
+		if (scheduler == null) {
+			return;
+		}
+		scheduler.schedule(() -> {
+			try {
+				refresh().join();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}, SETTLE_MSEC, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @return 一度でも取引所の建玉と突き合わせていればtrue(falseの間は使わない)
+	 */
+	public synchronized boolean isReady() {
+		return ready;
+	}
+
+	/**
+	 * @return 指定した側の建玉数量(1e-8 BTC単位。反対側の建玉なら0)
+	 */
+	public synchronized long getPositionTotalSize(BuySellEnum side) {
+		if (side == BuySellEnum.BUY) {
+			return netUnits > 0 ? netUnits : 0;
+		}
+		return netUnits < 0 ? -netUnits : 0;
+	}
+
+	public synchronized long getFillCount() {
+		return fillCount;
+	}
+
+	/**
+	 * @return 突き合わせた建玉に反映済みとみなして加算しなかった約定の数
+	 */
+	public synchronized long getSkippedFillCount() {
+		return skippedFillCount;
+	}
+
+	/**
+	 * @return 約定の確定を待っている注文の数
+	 */
+	public synchronized int getUnconfirmedCount() {
+		return UNCONFIRMED.size();
+	}
+
+	public synchronized long getReconcileCount() {
+		return reconcileCount;
+	}
+
+	/**
+	 * @return 突き合わせでズレを検出した回数
+	 */
+	public synchronized long getDriftCount() {
+		return driftCount;
+	}
+}
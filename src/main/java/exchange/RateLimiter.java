@@ -0,0 +1,159 @@
+package exchange;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * APIのレート制限を超えないためのトークンバケット。
+ * bitFlyerの制限(既定は5分間に500回)に合わせて枠が回復する。
+ * 発注(HIGH)のために一定数の枠を予約しておき、NORMALは予約分を使えない。
+ * LOWは残り枠が閾値を下回ったら回復するまで待たせ、待ち時間が長すぎる場合は諦める。
+ */
+public class RateLimiter {
+
+	private final double CAPACITY;
+
+	private final double REFILL_PER_NANO;
+
+	// HIGH専用に残しておく枠
+	private final double HIGH_RESERVE;
+
+	// LOWはこれより多く残っている時だけ使える
+	private final double LOW_THRESHOLD;
+
+	// LOWを待たせる上限。これより長く待つ必要がある場合は諦める
+	private final long MAX_DEFER_MSEC;
+
+	private final LongAdder[] GRANTED = create();
+
+	private final LongAdder[] DEFERRED = create();
+
+	private final LongAdder[] SHED = create();
+
+	private double tokens;
+
+	private long lastRefillNanos = System.nanoTime();
+
+	// 取引所から通知された残り回数(未取得なら-1)
+	private int exchangeRemaining = -1;
+
+	public RateLimiter(Map<String, Object> rateLimitParam) {
+		this.CAPACITY = param(rateLimitParam, "capacity", 500);
+		double periodSec = param(rateLimitParam, "periodSec", 300);
+		this.REFILL_PER_NANO = CAPACITY / (periodSec * 1_000_000_000d);
+		this.HIGH_RESERVE = param(rateLimitParam, "highReserve", 50);
+		this.LOW_THRESHOLD = CAPACITY * param(rateLimitParam, "lowThresholdRatio", 0.3);
+		this.MAX_DEFER_MSEC = (long) param(rateLimitParam, "maxDeferMsec", 2000);
+		this.tokens = CAPACITY;
+	}
+
+	private static double param(Map<String, Object> param, String key, double defaultValue) {
+		if (param == null || param.get(key) == null) {
+			return defaultValue;
+		}
+		return ((Number) param.get(key)).doubleValue();
+	}
+
+	private static LongAdder[] create() {
+		LongAdder[] adders = new LongAdder[RequestPriorityEnum.values().length];
+		for (int i = 0; i < adders.length; i++) {
+			adders[i] = new LongAdder();
+		}
+		return adders;
+	}
+
+	/**
+	 * 枠を1つ取得する。
+	 *
+	 * @return 取得できたら0、取得できなければ枠が回復するまでの待ち時間(msec)、諦める場合は-1
+	 */
+	public synchronized long tryAcquire(RequestPriorityEnum priority) {
+		refill(System.nanoTime());
+		double floor = floor(priority);
+		if (tokens - 1 >= floor) {
+			tokens -= 1;
+			GRANTED[priority.ordinal()].increment();
+			return 0;
+		}
+		long waitMsec = (long) Math.ceil((floor + 1 - tokens) / REFILL_PER_NANO / 1_000_000d);
+		if (priority == RequestPriorityEnum.LOW && waitMsec > MAX_DEFER_MSEC) {
+			SHED[priority.ordinal()].increment();
+			return -1;
+		}
+		DEFERRED[priority.ordinal()].increment();
+		return Math.max(1, waitMsec);
+	}
+
+	private double floor(RequestPriorityEnum priority) {
+		switch (priority) {
+		case HIGH:
+			return 0;
+		case NORMAL:
+			return HIGH_RESERVE;
+		default:
+			return Math.max(HIGH_RESERVE, LOW_THRESHOLD);
+		}
+	}
+
+	private void refill(long now) {
+		tokens = Math.min(CAPACITY, tokens + (now - lastRefillNanos) * REFILL_PER_NANO);
+		lastRefillNanos = now;
+	}
+
+	/**
+	 * 取引所から通知された残り回数を反映する(手元の見積もりより少なければそちらに合わせる)
+	 */
+	public synchronized void observeRemaining(int remaining) {
+		exchangeRemaining = remaining;
+		refill(System.nanoTime());
+		tokens = Math.min(tokens, remaining);
+	}
+
+	/**
+	 * 429を受け取った場合は枠を使い切ったものとして扱う
+	 */
+	public synchronized void observeLimited() {
+		refill(System.nanoTime());
+		tokens = 0;
+	}
+
+	public synchronized double getAvailableTokens() {
+		refill(System.nanoTime());
+		return tokens;
+	}
+
+	/**
+	 * @return 枠の使用率(0〜1)
+	 */
+	public double getUtilization() {
+		return 1 - getAvailableTokens() / CAPACITY;
+	}
+
+	public synchronized int getExchangeRemaining() {
+		return exchangeRemaining;
+	}
+
+	public long getGranted(RequestPriorityEnum priority) {
+		return GRANTED[priority.ordinal()].sum();
+	}
+
+	public long getDeferred(RequestPriorityEnum priority) {
+		return DEFERRED[priority.ordinal()].sum();
+	}
+
+	public long getShed(RequestPriorityEnum priority) {
+		return SHED[priority.ordinal()].sum();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("utilization:").append(String.format("%.2f", getUtilization()));
+		sb.append(" exchangeRemaining:").append(getExchangeRemaining());
+		for (RequestPriorityEnum priority : RequestPriorityEnum.values()) {
+			sb.append(" ").append(priority).append("[granted:").append(getGranted(priority)).append(" deferred:")
+					.append(getDeferred(priority)).append(" shed:").append(getShed(priority)).append("]");
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,29 @@
+package exchange;
+
+import model.BoardResponse;
+import model.ExecutionResponse;
+import model.TickerResponse;
+
+/**
+ * Realtime APIから受信したイベントの通知先
+ */
+public interface RealtimeListener {
+
+	default void onBoardSnapshot(BoardResponse snapshot) {
+	}
+
+	default void onBoardDiff(BoardResponse diff) {
+	}
+
+	default void onExecutions(ExecutionResponse[] executions) {
+	}
+
+	default void onTicker(TickerResponse ticker) {
+	}
+
+	default void onConnected() {
+	}
+
+	default void onDisconnected() {
+	}
+}
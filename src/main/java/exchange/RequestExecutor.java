@@ -0,0 +1,266 @@
+package exchange;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * 全APIリクエストの送信とリトライをまとめて行う。
+ * <ul>
+ * <li>エンドポイントごとのタイムアウト(リクエスト作成時にEndpointEnumの値を設定する)</li>
+ * <li>ジッター付きの指数バックオフ</li>
+ * <li>全エンドポイント共通のリトライ予算(障害時にリトライでAPIを叩き続けないため)。
+ * 発注、取消(HIGH)のために一定量を予約しておき、NORMAL、LOWのリトライは予約分を使えない</li>
+ * <li>冪等でないAPI(発注)は、サーバに届いていないことが確実な場合のみリトライ</li>
+ * <li>送信前にRateLimiterの枠を取得する(取得できなければ待つか諦める)</li>
+ * </ul>
+ */
+public class RequestExecutor {
+
+	private final HttpClient CLIENT;
+
+	private final int MAX_ATTEMPTS;
+
+	private final long BASE_BACKOFF_MSEC;
+
+	private final long MAX_BACKOFF_MSEC;
+
+	// リトライ予算の上限。リトライ1回で1消費し、成功1回でBUDGET_REFILL_PER_SUCCESS回復する
+	private final double BUDGET_MAX;
+
+	private final double BUDGET_REFILL_PER_SUCCESS;
+
+	// HIGH専用に残しておくリトライ予算(相場情報の取得の失敗が続いても発注、取消のリトライはできるようにする)
+	private final double BUDGET_HIGH_RESERVE;
+
+	private final RequestMetrics METRICS = new RequestMetrics();
+
+	private final RateLimiter LIMITER;
+
+	private double budget;
+
+	private static final String RATE_LIMIT_REMAINING_HEADER = "X-RateLimit-Remaining";
+
+	private static Logger LOGGER = LogManager.getLogger(RequestExecutor.class);
+
+	public RequestExecutor(HttpClient client, Map<String, Object> executorParam) {
+		this(client, executorParam, new RateLimiter(null));
+	}
+
+	public RequestExecutor(HttpClient client, Map<String, Object> executorParam, RateLimiter limiter) {
+		this.CLIENT = client;
+		this.LIMITER = limiter;
+		this.MAX_ATTEMPTS = intParam(executorParam, "maxAttempts", 6);
+		this.BASE_BACKOFF_MSEC = intParam(executorParam, "baseBackoffMsec", 100);
+		this.MAX_BACKOFF_MSEC = intParam(executorParam, "maxBackoffMsec", 5000);
+		this.BUDGET_MAX = intParam(executorParam, "retryBudget", 30);
+		this.BUDGET_REFILL_PER_SUCCESS = doubleParam(executorParam, "retryBudgetRefillPerSuccess", 0.2);
+		this.BUDGET_HIGH_RESERVE = Math.min(BUDGET_MAX, doubleParam(executorParam, "retryBudgetHighReserve", 10));
+		this.budget = BUDGET_MAX;
+	}
+
+	private static int intParam(Map<String, Object> param, String key, int defaultValue) {
+		if (param == null || param.get(key) == null) {
+			return defaultValue;
+		}
+		return ((Number) param.get(key)).intValue();
+	}
+
+	private static double doubleParam(Map<String, Object> param, String key, double defaultValue) {
+		if (param == null || param.get(key) == null) {
+			return defaultValue;
+		}
+		return ((Number) param.get(key)).doubleValue();
+	}
+
+	public RequestMetrics getMetrics() {
+		return METRICS;
+	}
+
+	public RateLimiter getRateLimiter() {
+		return LIMITER;
+	}
+
+	/**
+	 * @return 残りのリトライ予算
+	 */
+	public synchronized double getRemainingBudget() {
+		return budget;
+	}
+
+	/**
+	 * 同期でリクエストを実行する。
+	 *
+	 * @return デコードしたレスポンス(失敗した場合はnull)
+	 */
+	public <T> T execute(EndpointEnum endpoint, Supplier<HttpRequest> requestSupplier, ObjectReader reader) {
+		try {
+			return this.<T>executeAsync(endpoint, requestSupplier, reader).join();
+		} catch (CompletionException e) {
+			LOGGER.info(e.getCause().getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * 非同期でリクエストを実行する。最終的に失敗した場合はRequestFailedExceptionで完了する。
+	 * requestSupplierはリトライの度に呼ばれる(タイムスタンプと署名を作り直すため)。
+	 */
+	public <T> CompletableFuture<T> executeAsync(EndpointEnum endpoint, Supplier<HttpRequest> requestSupplier,
+			ObjectReader reader) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		attempt(endpoint, requestSupplier, reader, 0, result);
+		return result;
+	}
+
+	private <T> void attempt(EndpointEnum endpoint, Supplier<HttpRequest> requestSupplier, ObjectReader reader,
+			int attempt, CompletableFuture<T> result) {
+		long waitMsec = LIMITER.tryAcquire(endpoint.getPriority());
+		if (waitMsec < 0) {
+			fail(endpoint, -1, "レート制限の残り枠が少ないため送信を見送りました", null, result);
+			return;
+		}
+		if (waitMsec > 0) {
+			CompletableFuture.delayedExecutor(waitMsec, TimeUnit.MILLISECONDS)
+					.execute(() -> attempt(endpoint, requestSupplier, reader, attempt, result));
+			return;
+		}
+		METRICS.recordRequest(endpoint);
+		long start = System.nanoTime();
+		HttpRequest request;
+		try {
+			request = requestSupplier.get();
+		} catch (Exception e) {
+			METRICS.recordFailure(endpoint);
+			result.completeExceptionally(new RequestFailedException(endpoint, -1, "リクエスト作成失敗", e));
+			return;
+		}
+		CLIENT.sendAsync(request, BodyHandlers.ofByteArray()).whenComplete((response, e) -> {
+			boolean retryable;
+			String reason;
+			Throwable cause = null;
+			int status = -1;
+			if (e == null) {
+				status = response.statusCode();
+				response.headers().firstValue(RATE_LIMIT_REMAINING_HEADER).ifPresent(remaining -> {
+					try {
+						LIMITER.observeRemaining(Integer.parseInt(remaining.trim()));
+					} catch (NumberFormatException e1) {
+						LOGGER.info("[" + endpoint.getApiName() + "]invalid " + RATE_LIMIT_REMAINING_HEADER + ":"
+								+ remaining);
+					}
+				});
+				if (status < 300) {
+					try {
+						// 取消APIなどはレスポンスボディが空なのでnullで完了する
+						T value = response.body().length == 0 ? null
+								: ResponseDecoder.decode(reader, response.body());
+						METRICS.recordSuccess(endpoint, System.nanoTime() - start);
+						refillBudget();
+						result.complete(value);
+						return;
+					} catch (IOException e1) {
+						// 冪等でないAPIは処理されている可能性があるのでリトライしない
+						retryable = endpoint.isIdempotent();
+						reason = "レスポンスのデコード失敗";
+						cause = e1;
+					}
+				} else if (status == 429) {
+					// レート制限超過は処理されていないのでリトライしてよい
+					LIMITER.observeLimited();
+					retryable = true;
+					reason = "status:" + status;
+				} else if (status >= 500) {
+					retryable = endpoint.isIdempotent();
+					reason = "status:" + status;
+				} else {
+					// 400番台はリトライしても結果が変わらない
+					retryable = false;
+					reason = "status:" + status + " body:" + new String(response.body(), StandardCharsets.UTF_8);
+				}
+			} else {
+				cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+				if (cause instanceof HttpTimeoutException) {
+					METRICS.recordTimeout(endpoint);
+				}
+				// 接続できていなければサーバには届いていないので、冪等でなくてもリトライしてよい
+				retryable = endpoint.isIdempotent() || cause instanceof ConnectException
+						|| cause instanceof HttpConnectTimeoutException;
+				reason = cause.toString();
+			}
+			if (!retryable || attempt + 1 >= MAX_ATTEMPTS) {
+				fail(endpoint, status, reason + " attempt:" + (attempt + 1), cause, result);
+				return;
+			}
+			if (!withdrawBudget(endpoint.getPriority())) {
+				METRICS.recordBudgetExhausted(endpoint);
+				fail(endpoint, status, reason + " リトライ予算切れ", cause, result);
+				return;
+			}
+			METRICS.recordRetry(endpoint);
+			long backoff = backoffMsec(attempt);
+			LOGGER.info("[" + endpoint.getApiName() + "]try retry... " + reason + " backoff:" + backoff + "ms");
+			CompletableFuture.delayedExecutor(backoff, TimeUnit.MILLISECONDS)
+					.execute(() -> attempt(endpoint, requestSupplier, reader, attempt + 1, result));
+		});
+	}
+
+	private <T> void fail(EndpointEnum endpoint, int status, String reason, Throwable cause,
+			CompletableFuture<T> result) {
+		METRICS.recordFailure(endpoint);
+		result.completeExceptionally(new RequestFailedException(endpoint, status, reason, cause));
+	}
+
+	/**
+	 * @return attempt回目の失敗後の待ち時間(0からmin(上限, 基準*2^attempt)の一様乱数 = Full Jitter)
+	 */
+	long backoffMsec(int attempt) {
+		long ceiling = Math.min(MAX_BACKOFF_MSEC, BASE_BACKOFF_MSEC << Math.min(attempt, 20));
+		return ThreadLocalRandom.current().nextLong(ceiling + 1);
+	}
+
+	/**
+	 * リトライ予算を1消費する(HIGH以外は予約分を残す)
+	 *
+	 * @return 消費できればtrue
+	 */
+	private synchronized boolean withdrawBudget(RequestPriorityEnum priority) {
+		double floor = priority == RequestPriorityEnum.HIGH ? 0 : BUDGET_HIGH_RESERVE;
+		if (budget - 1 < floor) {
+			return false;
+		}
+		budget -= 1;
+		return true;
+	}
+
+	private synchronized void refillBudget() {
+		budget = Math.min(BUDGET_MAX, budget + BUDGET_REFILL_PER_SUCCESS);
+	}
+
+	/**
+	 * @return 失敗した場合にnullで完了するFuture(呼び出し元でnullチェックする従来の使い方向け)
+	 */
+	public static <T> CompletableFuture<T> orNull(CompletableFuture<T> future) {
+		return future.exceptionally(e -> {
+			LOGGER.info((e instanceof CompletionException && e.getCause() != null ? e.getCause() : e).getMessage());
+			return null;
+		});
+	}
+
+}
@@ -0,0 +1,30 @@
+package exchange;
+
+/**
+ * RequestExecutorでリクエストが最終的に失敗した場合の例外
+ */
+public class RequestFailedException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final EndpointEnum endpoint;
+
+	private final int statusCode;
+
+	public RequestFailedException(EndpointEnum endpoint, int statusCode, String message, Throwable cause) {
+		super("[" + endpoint.getApiName() + "]" + message, cause);
+		this.endpoint = endpoint;
+		this.statusCode = statusCode;
+	}
+
+	public EndpointEnum getEndpoint() {
+		return endpoint;
+	}
+
+	/**
+	 * @return HTTPステータス(レスポンスを受け取れなかった場合は-1)
+	 */
+	public int getStatusCode() {
+		return statusCode;
+	}
+}
@@ -0,0 +1,168 @@
+package exchange;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * RequestExecutorのエンドポイントごとのカウンタ
+ */
+public class RequestMetrics {
+
+	private final LongAdder[] REQUESTS = create();
+
+	private final LongAdder[] SUCCESSES = create();
+
+	private final LongAdder[] FAILURES = create();
+
+	private final LongAdder[] RETRIES = create();
+
+	private final LongAdder[] TIMEOUTS = create();
+
+	// リトライ予算切れでリトライを諦めた回数
+	private final LongAdder[] BUDGET_EXHAUSTED = create();
+
+	// CoalescingCacheが保持している値を返した回数
+	private final LongAdder[] CACHE_HITS = create();
+
+	// CoalescingCacheが取得中のリクエストにまとめた回数
+	private final LongAdder[] COALESCED = create();
+
+	private final LongAdder[] LATENCY_NANOS = create();
+
+	private final AtomicLong[] MAX_LATENCY_NANOS = new AtomicLong[EndpointEnum.values().length];
+
+	public RequestMetrics() {
+		for (int i = 0; i < MAX_LATENCY_NANOS.length; i++) {
+			MAX_LATENCY_NANOS[i] = new AtomicLong();
+		}
+	}
+
+	private static LongAdder[] create() {
+		LongAdder[] adders = new LongAdder[EndpointEnum.values().length];
+		for (int i = 0; i < adders.length; i++) {
+			adders[i] = new LongAdder();
+		}
+		return adders;
+	}
+
+	void recordRequest(EndpointEnum endpoint) {
+		REQUESTS[endpoint.ordinal()].increment();
+	}
+
+	void recordSuccess(EndpointEnum endpoint, long latencyNanos) {
+		SUCCESSES[endpoint.ordinal()].increment();
+		LATENCY_NANOS[endpoint.ordinal()].add(latencyNanos);
+		MAX_LATENCY_NANOS[endpoint.ordinal()].accumulateAndGet(latencyNanos, Math::max);
+	}
+
+	void recordFailure(EndpointEnum endpoint) {
+		FAILURES[endpoint.ordinal()].increment();
+	}
+
+	void recordRetry(EndpointEnum endpoint) {
+		RETRIES[endpoint.ordinal()].increment();
+	}
+
+	void recordTimeout(EndpointEnum endpoint) {
+		TIMEOUTS[endpoint.ordinal()].increment();
+	}
+
+	void recordBudgetExhausted(EndpointEnum endpoint) {
+		BUDGET_EXHAUSTED[endpoint.ordinal()].increment();
+	}
+
+	void recordCacheHit(EndpointEnum endpoint) {
+		CACHE_HITS[endpoint.ordinal()].increment();
+	}
+
+	void recordCoalesced(EndpointEnum endpoint) {
+		COALESCED[endpoint.ordinal()].increment();
+	}
+
+	public long getRequests(EndpointEnum endpoint) {
+		return REQUESTS[endpoint.ordinal()].sum();
+	}
+
+	public long getSuccesses(EndpointEnum endpoint) {
+		return SUCCESSES[endpoint.ordinal()].sum();
+	}
+
+	public long getFailures(EndpointEnum endpoint) {
+		return FAILURES[endpoint.ordinal()].sum();
+	}
+
+	public long getRetries(EndpointEnum endpoint) {
+		return RETRIES[endpoint.ordinal()].sum();
+	}
+
+	public long getTimeouts(EndpointEnum endpoint) {
+		return TIMEOUTS[endpoint.ordinal()].sum();
+	}
+
+	public long getBudgetExhausted(EndpointEnum endpoint) {
+		return BUDGET_EXHAUSTED[endpoint.ordinal()].sum();
+	}
+
+	public long getCacheHits(EndpointEnum endpoint) {
+		return CACHE_HITS[endpoint.ordinal()].sum();
+	}
+
+	public long getCoalesced(EndpointEnum endpoint) {
+		return COALESCED[endpoint.ordinal()].sum();
+	}
+
+	/**
+	 * @return 成功したリクエストの平均応答時間(ミリ秒)
+	 */
+	public double getAverageLatencyMsec(EndpointEnum endpoint) {
+		long successes = getSuccesses(endpoint);
+		return successes == 0 ? 0 : LATENCY_NANOS[endpoint.ordinal()].sum() / (double) successes / 1000000;
+	}
+
+	public double getMaxLatencyMsec(EndpointEnum endpoint) {
+		return MAX_LATENCY_NANOS[endpoint.ordinal()].get() / 1000000.0;
+	}
+
+	/**
+	 * @return "エンドポイント名.項目名"をキーにしたカウンタの一覧
+	 */
+	public Map<String, Number> snapshot() {
+		Map<String, Number> map = new LinkedHashMap<>();
+		for (EndpointEnum endpoint : EndpointEnum.values()) {
+			String name = endpoint.getApiName();
+			map.put(name + ".requests", getRequests(endpoint));
+			map.put(name + ".successes", getSuccesses(endpoint));
+			map.put(name + ".failures", getFailures(endpoint));
+			map.put(name + ".retries", getRetries(endpoint));
+			map.put(name + ".timeouts", getTimeouts(endpoint));
+			map.put(name + ".budgetExhausted", getBudgetExhausted(endpoint));
+			map.put(name + ".cacheHits", getCacheHits(endpoint));
+			map.put(name + ".coalesced", getCoalesced(endpoint));
+			map.put(name + ".avgLatencyMsec", getAverageLatencyMsec(endpoint));
+			map.put(name + ".maxLatencyMsec", getMaxLatencyMsec(endpoint));
+		}
+		return map;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("RequestMetrics");
+		for (EndpointEnum endpoint : EndpointEnum.values()) {
+			if (getRequests(endpoint) == 0) {
+				continue;
+			}
+			sb.append(" [").append(endpoint.getApiName()).append("] req:").append(getRequests(endpoint))
+					.append(" ok:").append(getSuccesses(endpoint)).append(" ng:").append(getFailures(endpoint))
+					.append(" retry:").append(getRetries(endpoint)).append(" timeout:")
+					.append(getTimeouts(endpoint)).append(" budgetOut:").append(getBudgetExhausted(endpoint))
+					.append(" hit:").append(getCacheHits(endpoint)).append(" coalesced:")
+					.append(getCoalesced(endpoint))
+					.append(" avg:").append(String.format("%.1f", getAverageLatencyMsec(endpoint))).append("ms")
+					.append(" max:").append(String.format("%.1f", getMaxLatencyMsec(endpoint))).append("ms");
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,13 @@
+package exchange;
+
+/**
+ * レート制限の優先度
+ */
+public enum RequestPriorityEnum {
+	// 発注。予約分の枠も使える
+	HIGH,
+	// 発注判断に使う建玉、証拠金、取引所の状態
+	NORMAL,
+	// 定期的な相場情報の取得。残り枠が少ない時は待たせるか諦める
+	LOW
+}
@@ -0,0 +1,134 @@
+package exchange;
+
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Private APIの署名(HMAC-SHA256)。
+ * 初期化済みのMacと作業用バッファをスレッドごとに保持し、署名の度にMacの生成、初期化をしない。
+ * 署名対象はバッファに直接書き込み、16進文字列への変換は変換表で行う。
+ * ボディはエンコード済みのバイト列もそのまま署名できる(ChildOrderEncoder)。
+ * 生成されるのは戻り値のStringだけになる。
+ */
+public class RequestSigner {
+
+	private static final String ALGORITHM = "HmacSHA256";
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final SecretKeySpec KEY;
+
+	private final ThreadLocal<Mac> MAC;
+
+	private final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+	public RequestSigner(String secret) {
+		this.KEY = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+		this.MAC = ThreadLocal.withInitial(() -> {
+			try {
+				Mac mac = Mac.getInstance(ALGORITHM);
+				mac.init(KEY);
+				return mac;
+			} catch (NoSuchAlgorithmException | InvalidKeyException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+
+	/**
+	 * @return timestamp + method + path + body の署名(16進小文字)
+	 */
+	public String sign(CharSequence timestamp, CharSequence method, CharSequence path, CharSequence body) {
+		Mac mac = MAC.get();
+		Buffers buffers = BUFFERS.get();
+		int length = 0;
+		length = buffers.append(length, timestamp);
+		length = buffers.append(length, method);
+		length = buffers.append(length, path);
+		length = buffers.append(length, body);
+		return finish(mac, buffers, length);
+	}
+
+	/**
+	 * @return timestamp + method + path + body の署名(bodyはエンコード済みのバイト列)
+	 */
+	public String sign(CharSequence timestamp, CharSequence method, CharSequence path, byte[] body, int offset,
+			int bodyLength) {
+		Mac mac = MAC.get();
+		Buffers buffers = BUFFERS.get();
+		int length = 0;
+		length = buffers.append(length, timestamp);
+		length = buffers.append(length, method);
+		length = buffers.append(length, path);
+		buffers.ensureCapacity(length + bodyLength);
+		System.arraycopy(body, offset, buffers.plain, length, bodyLength);
+		return finish(mac, buffers, length + bodyLength);
+	}
+
+	private static String finish(Mac mac, Buffers buffers, int length) {
+		mac.update(buffers.plain, 0, length);
+		try {
+			// doFinalでMacはリセットされるので、次の署名にそのまま使える
+			mac.doFinal(buffers.digest, 0);
+		} catch (ShortBufferException e) {
+			throw new IllegalStateException(e);
+		}
+		char[] hex = buffers.hex;
+		byte[] digest = buffers.digest;
+		for (int i = 0; i < digest.length; i++) {
+			hex[i * 2] = HEX[(digest[i] >> 4) & 0x0f];
+			hex[i * 2 + 1] = HEX[digest[i] & 0x0f];
+		}
+		return new String(hex);
+	}
+
+	/**
+	 * スレッドごとの作業用バッファ
+	 */
+	private static class Buffers {
+
+		private byte[] plain = new byte[1024];
+
+		private final byte[] digest = new byte[32];
+
+		private final char[] hex = new char[64];
+
+		/**
+		 * plainのoffsetからtextを書き込む
+		 *
+		 * @return 書き込み後の長さ
+		 */
+		private int append(int offset, CharSequence text) {
+			if (text == null) {
+				return offset;
+			}
+			int length = text.length();
+			ensureCapacity(offset + length);
+			for (int i = 0; i < length; i++) {
+				char c = text.charAt(i);
+				if (c >= 0x80) {
+					// ASCII以外が含まれる場合はUTF-8で変換し直す
+					byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+					ensureCapacity(offset + bytes.length);
+					System.arraycopy(bytes, 0, plain, offset, bytes.length);
+					return offset + bytes.length;
+				}
+				plain[offset + i] = (byte) c;
+			}
+			return offset + length;
+		}
+
+		private void ensureCapacity(int capacity) {
+			if (capacity > plain.length) {
+				byte[] newPlain = new byte[Math.max(capacity, plain.length * 2)];
+				System.arraycopy(plain, 0, newPlain, 0, plain.length);
+				plain = newPlain;
+			}
+		}
+	}
+}
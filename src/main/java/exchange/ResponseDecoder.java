@@ -0,0 +1,68 @@
+package exchange;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import model.BalanceResponse;
+import model.BoardResponse;
+import model.ChildOrderDetailResponse;
+import model.ChildOrderResponse;
+import model.CollateralResponse;
+import model.ExecutionResponse;
+import model.HealthResponse;
+import model.ParentOrderResponse;
+import model.PositionResponse;
+import model.TickerResponse;
+
+/**
+ * APIレスポンスのデコード。
+ * ObjectMapperは生成コストが高いので共有し、型ごとのObjectReaderも事前に解決しておく。
+ * ObjectReaderはイミュータブルなので複数スレッドから同時に使ってよい。
+ * レスポンスはStringを経由せず、受信したバイト列から直接パースする。
+ */
+public class ResponseDecoder {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper()
+			.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+	public static final ObjectReader BOARD = MAPPER.readerFor(BoardResponse.class);
+
+	public static final ObjectReader BALANCES = MAPPER.readerFor(BalanceResponse[].class);
+
+	public static final ObjectReader CHILD_ORDER = MAPPER.readerFor(ChildOrderResponse.class);
+
+	public static final ObjectReader CHILD_ORDERS = MAPPER.readerFor(ChildOrderDetailResponse[].class);
+
+	public static final ObjectReader PARENT_ORDER = MAPPER.readerFor(ParentOrderResponse.class);
+
+	public static final ObjectReader POSITIONS = MAPPER.readerFor(PositionResponse[].class);
+
+	public static final ObjectReader COLLATERAL = MAPPER.readerFor(CollateralResponse.class);
+
+	public static final ObjectReader HEALTH = MAPPER.readerFor(HealthResponse.class);
+
+	public static final ObjectReader EXECUTIONS = MAPPER.readerFor(ExecutionResponse[].class);
+
+	public static final ObjectReader TICKER = MAPPER.readerFor(TickerResponse.class);
+
+	public static final ObjectReader TREE = MAPPER.readerFor(JsonNode.class);
+
+	private ResponseDecoder() {
+	}
+
+	public static <T> T decode(ObjectReader reader, byte[] body) throws IOException {
+		return reader.readValue(body);
+	}
+
+	public static <T> T decode(ObjectReader reader, JsonNode node) throws IOException {
+		return reader.readValue(node);
+	}
+
+	public static JsonNode decodeTree(String text) throws IOException {
+		return TREE.readTree(text);
+	}
+}
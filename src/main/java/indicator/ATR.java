@@ -0,0 +1,57 @@
+package indicator;
+
+/**
+ * ATR(Wilderの平滑化。最初の期間分は単純平均を初期値とする)
+ */
+public class ATR implements Indicator {
+
+	private final int PERIOD;
+
+	private double lastClose = Double.NaN;
+
+	private int count = 0;
+
+	private volatile double value = Double.NaN;
+
+	public ATR(int period) {
+		if (period <= 0) {
+			throw new IllegalArgumentException("period must be positive:" + period);
+		}
+		this.PERIOD = period;
+	}
+
+	/**
+	 * 確定した足で更新する
+	 */
+	public void update(double high, double low, double close) {
+		// 真の値幅(前の足の終値との差も含める)
+		double trueRange = high - low;
+		if (!Double.isNaN(lastClose)) {
+			trueRange = Math.max(trueRange, Math.max(Math.abs(high - lastClose), Math.abs(low - lastClose)));
+		}
+		lastClose = close;
+		if (count < PERIOD) {
+			count++;
+			value = count == 1 ? trueRange : value + (trueRange - value) / count;
+		} else {
+			value = (value * (PERIOD - 1) + trueRange) / PERIOD;
+		}
+	}
+
+	@Override
+	public double getValue() {
+		return value;
+	}
+
+	@Override
+	public boolean isReady() {
+		return count >= PERIOD;
+	}
+
+	@Override
+	public void reset() {
+		lastClose = Double.NaN;
+		count = 0;
+		value = Double.NaN;
+	}
+}
@@ -0,0 +1,34 @@
+package indicator;
+
+import core.OHLCVAggregator;
+import core.TimeframeEnum;
+
+/**
+ * 指標をOHLCVAggregatorの足の確定で更新させる
+ */
+public class BarBinder {
+
+	private BarBinder() {
+	}
+
+	/**
+	 * 確定した足の終値で更新する
+	 */
+	public static void bindClose(OHLCVAggregator aggregator, TimeframeEnum timeframe, PriceIndicator indicator) {
+		aggregator.addListener(timeframe, (tf, bar) -> indicator.update(bar.getClose()));
+	}
+
+	/**
+	 * 確定した足の高値、安値、終値で更新する
+	 */
+	public static void bindBar(OHLCVAggregator aggregator, TimeframeEnum timeframe, ATR indicator) {
+		aggregator.addListener(timeframe, (tf, bar) -> indicator.update(bar.getHigh(), bar.getLow(), bar.getClose()));
+	}
+
+	/**
+	 * 確定した足のVWAPと出来高で更新する
+	 */
+	public static void bindVolume(OHLCVAggregator aggregator, TimeframeEnum timeframe, VWAP indicator) {
+		aggregator.addListener(timeframe, (tf, bar) -> indicator.update(bar.getVwap(), bar.getVolume()));
+	}
+}
@@ -0,0 +1,96 @@
+package indicator;
+
+/**
+ * ボリンジャーバンド(値は中心線、標準偏差は母標準偏差)
+ */
+public class BollingerBands implements PriceIndicator {
+
+	private final int PERIOD;
+
+	private final double WIDTH;
+
+	private final double[] values;
+
+	private int head = 0;
+
+	private int count = 0;
+
+	private double sum = 0;
+
+	private double sumSq = 0;
+
+	private volatile double middle = Double.NaN;
+
+	private volatile double stdDev = Double.NaN;
+
+	/**
+	 * @param width 標準偏差の何倍をバンドにするか
+	 */
+	public BollingerBands(int period, double width) {
+		if (period <= 0) {
+			throw new IllegalArgumentException("period must be positive:" + period);
+		}
+		this.PERIOD = period;
+		this.WIDTH = width;
+		this.values = new double[period];
+	}
+
+	@Override
+	public void update(double v) {
+		if (count == PERIOD) {
+			double old = values[head];
+			sum -= old;
+			sumSq -= old * old;
+		} else {
+			count++;
+		}
+		values[head] = v;
+		sum += v;
+		sumSq += v * v;
+		head = head + 1 == PERIOD ? 0 : head + 1;
+		if (head == 0) {
+			// 加減算の誤差が溜まらないよう、一巡ごとに合計を計算し直す
+			sum = 0;
+			sumSq = 0;
+			for (int i = 0; i < count; i++) {
+				sum += values[i];
+				sumSq += values[i] * values[i];
+			}
+		}
+		double mean = sum / count;
+		middle = mean;
+		stdDev = Math.sqrt(Math.max(0, sumSq / count - mean * mean));
+	}
+
+	@Override
+	public double getValue() {
+		return middle;
+	}
+
+	public double getStdDev() {
+		return stdDev;
+	}
+
+	public double getUpper() {
+		return middle + WIDTH * stdDev;
+	}
+
+	public double getLower() {
+		return middle - WIDTH * stdDev;
+	}
+
+	@Override
+	public boolean isReady() {
+		return count == PERIOD;
+	}
+
+	@Override
+	public void reset() {
+		head = 0;
+		count = 0;
+		sum = 0;
+		sumSq = 0;
+		middle = Double.NaN;
+		stdDev = Double.NaN;
+	}
+}
@@ -0,0 +1,41 @@
+package indicator;
+
+/**
+ * 指標の値を別の指標に渡して組み合わせる(例:RSIのEMA)。
+ * 元の指標の値が揃ってから次の指標を更新する。
+ */
+public class ChainedIndicator implements PriceIndicator {
+
+	private final PriceIndicator SOURCE;
+
+	private final PriceIndicator TARGET;
+
+	public ChainedIndicator(PriceIndicator source, PriceIndicator target) {
+		this.SOURCE = source;
+		this.TARGET = target;
+	}
+
+	@Override
+	public void update(double value) {
+		SOURCE.update(value);
+		if (SOURCE.isReady()) {
+			TARGET.update(SOURCE.getValue());
+		}
+	}
+
+	@Override
+	public double getValue() {
+		return TARGET.getValue();
+	}
+
+	@Override
+	public boolean isReady() {
+		return TARGET.isReady();
+	}
+
+	@Override
+	public void reset() {
+		SOURCE.reset();
+		TARGET.reset();
+	}
+}
@@ -0,0 +1,53 @@
+package indicator;
+
+/**
+ * 指数移動平均(最初の期間分は単純平均を初期値とする)
+ */
+public class EMA implements PriceIndicator {
+
+	private final int PERIOD;
+
+	private final double ALPHA;
+
+	private int count = 0;
+
+	private double sum = 0;
+
+	private volatile double value = Double.NaN;
+
+	public EMA(int period) {
+		if (period <= 0) {
+			throw new IllegalArgumentException("period must be positive:" + period);
+		}
+		this.PERIOD = period;
+		this.ALPHA = 2.0 / (period + 1);
+	}
+
+	@Override
+	public void update(double v) {
+		if (count < PERIOD) {
+			count++;
+			sum += v;
+			value = sum / count;
+		} else {
+			value = value + ALPHA * (v - value);
+		}
+	}
+
+	@Override
+	public double getValue() {
+		return value;
+	}
+
+	@Override
+	public boolean isReady() {
+		return count >= PERIOD;
+	}
+
+	@Override
+	public void reset() {
+		count = 0;
+		sum = 0;
+		value = Double.NaN;
+	}
+}
@@ -0,0 +1,19 @@
+package indicator;
+
+/**
+ * 逐次計算するテクニカル指標
+ */
+public interface Indicator {
+
+	/**
+	 * @return 現在の値(isReadyがfalseの間は途中経過)
+	 */
+	double getValue();
+
+	/**
+	 * @return 期間分の値が揃っていればtrue
+	 */
+	boolean isReady();
+
+	void reset();
+}
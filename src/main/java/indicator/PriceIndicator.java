@@ -0,0 +1,9 @@
+package indicator;
+
+/**
+ * 1つの値(価格や他の指標の値)で更新する指標
+ */
+public interface PriceIndicator extends Indicator {
+
+	void update(double value);
+}
@@ -0,0 +1,67 @@
+package indicator;
+
+/**
+ * RSI(Wilderの平滑化。最初の期間分は単純平均を初期値とする)
+ */
+public class RSI implements PriceIndicator {
+
+	private final int PERIOD;
+
+	private double last = Double.NaN;
+
+	// 値動きの回数
+	private int count = 0;
+
+	private double averageGain = 0;
+
+	private double averageLoss = 0;
+
+	private volatile double value = Double.NaN;
+
+	public RSI(int period) {
+		if (period <= 0) {
+			throw new IllegalArgumentException("period must be positive:" + period);
+		}
+		this.PERIOD = period;
+	}
+
+	@Override
+	public void update(double v) {
+		if (Double.isNaN(last)) {
+			last = v;
+			return;
+		}
+		double change = v - last;
+		last = v;
+		double gain = change > 0 ? change : 0;
+		double loss = change < 0 ? -change : 0;
+		if (count < PERIOD) {
+			count++;
+			averageGain += (gain - averageGain) / count;
+			averageLoss += (loss - averageLoss) / count;
+		} else {
+			averageGain = (averageGain * (PERIOD - 1) + gain) / PERIOD;
+			averageLoss = (averageLoss * (PERIOD - 1) + loss) / PERIOD;
+		}
+		value = averageLoss == 0 ? (averageGain == 0 ? 50 : 100) : 100 - 100 / (1 + averageGain / averageLoss);
+	}
+
+	@Override
+	public double getValue() {
+		return value;
+	}
+
+	@Override
+	public boolean isReady() {
+		return count >= PERIOD;
+	}
+
+	@Override
+	public void reset() {
+		last = Double.NaN;
+		count = 0;
+		averageGain = 0;
+		averageLoss = 0;
+		value = Double.NaN;
+	}
+}
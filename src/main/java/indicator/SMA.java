@@ -0,0 +1,65 @@
+package indicator;
+
+/**
+ * 単純移動平均
+ */
+public class SMA implements PriceIndicator {
+
+	private final int PERIOD;
+
+	private final double[] values;
+
+	private int head = 0;
+
+	private int count = 0;
+
+	private double sum = 0;
+
+	private volatile double value = Double.NaN;
+
+	public SMA(int period) {
+		if (period <= 0) {
+			throw new IllegalArgumentException("period must be positive:" + period);
+		}
+		this.PERIOD = period;
+		this.values = new double[period];
+	}
+
+	@Override
+	public void update(double v) {
+		if (count == PERIOD) {
+			sum -= values[head];
+		} else {
+			count++;
+		}
+		values[head] = v;
+		sum += v;
+		head = head + 1 == PERIOD ? 0 : head + 1;
+		if (head == 0) {
+			// 加減算の誤差が溜まらないよう、一巡ごとに合計を計算し直す
+			sum = 0;
+			for (int i = 0; i < count; i++) {
+				sum += values[i];
+			}
+		}
+		value = sum / count;
+	}
+
+	@Override
+	public double getValue() {
+		return value;
+	}
+
+	@Override
+	public boolean isReady() {
+		return count == PERIOD;
+	}
+
+	@Override
+	public void reset() {
+		head = 0;
+		count = 0;
+		sum = 0;
+		value = Double.NaN;
+	}
+}
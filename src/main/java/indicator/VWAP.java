@@ -0,0 +1,43 @@
+package indicator;
+
+/**
+ * 出来高加重平均価格(resetするまで累積する)
+ */
+public class VWAP implements Indicator {
+
+	private double volume = 0;
+
+	private double notional = 0;
+
+	private volatile double value = Double.NaN;
+
+	public void update(double price, double size) {
+		if (size <= 0) {
+			return;
+		}
+		volume += size;
+		notional += price * size;
+		value = notional / volume;
+	}
+
+	public double getVolume() {
+		return volume;
+	}
+
+	@Override
+	public double getValue() {
+		return value;
+	}
+
+	@Override
+	public boolean isReady() {
+		return volume > 0;
+	}
+
+	@Override
+	public void reset() {
+		volume = 0;
+		notional = 0;
+		value = Double.NaN;
+	}
+}
@@ -1,156 +1,572 @@
 package logic;
 
-import java.math.BigDecimal;
+import java.time.Clock;
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import exchange.BitFlyerAPIWrapper;
+import core.EventScheduler;
+import core.HashedTimingWheel.Timeout;
+import core.OHLCVAggregator;
+import core.TimeframeEnum;
+import exchange.BitFlyerRealtimeClient;
+import exchange.ExchangeAPI;
+import exchange.PositionBook;
+import exchange.RealtimeListener;
+import indicator.ATR;
+import indicator.BarBinder;
 import model.BoardResponse;
 import model.BuySellEnum;
 import model.ChildOrderResponse;
 import model.CollateralResponse;
+import model.ExecutionResponse;
+import model.FixedPoint;
+import model.HealthResponse;
+import model.OrderFill;
 import model.OrderTypeEnum;
 import model.PositionResponse;
 import notification.SlackNotifier;
 
-public class DealingLogicBase {
+public class DealingLogicBase implements RealtimeListener {
 
-	protected final BitFlyerAPIWrapper WRAPPER;
+	protected final ExchangeAPI WRAPPER;
 	protected final SlackNotifier NOTIFIER;
+	// 現在時刻はこの時計から取得する(バックテストでは記録データの時刻になる)
+	protected final Clock CLOCK;
+	// CLOCKが実時間で進むならtrue(取引所側が時計と合わせて決める)
+	private final boolean REAL_TIME_CLOCK;
+	// Realtime APIを使わない(RESTでポーリングする)場合はnull
+	protected final BitFlyerRealtimeClient REALTIME;
 	protected final Logger LOGGER = LogManager.getLogger(getClass());
-	protected volatile int collateral = -1;
-	protected volatile int openPl = 0;
+	// 約定から作成する足(各期間の足の確定はaddListenerで購読する)
+	protected final OHLCVAggregator OHLCV;
+	// 分足のATR(値幅をATRの倍率で決める場合に使う)
+	protected final ATR ATR_M1;
+	// 毎秒の処理、定期通知、期限の処理の時刻を管理する(全ロジックで共有)
+	protected final EventScheduler SCHEDULER;
+	// 毎秒の処理と発注を段に分けて実行する(startSecondTimerで作成する。バックテストではnull)
+	private volatile TradingPipeline pipeline;
+	private final Map<String, Object> PIPELINE_PARAM;
+	protected volatile long collateral = -1;
+	protected volatile long openPl = 0;
+	protected volatile long realtimeExecutionPrice = -1;
+	// 発注から約定までを段で待たずに処理している間はtrue(執行判断の段だけが使う)
+	private boolean orderInFlight;
+	// 発注中に期限が来た処理(発注が終わったら実行する)
+	private final ArrayDeque<Runnable> DEFERRED = new ArrayDeque<>();
 
-	public DealingLogicBase(BitFlyerAPIWrapper wrapper, SlackNotifier notifier, Map<String, Object> paramMap,
+	@SuppressWarnings("unchecked")
+	public DealingLogicBase(ExchangeAPI wrapper, SlackNotifier notifier, Map<String, Object> paramMap,
 			Map<String, Object> settings) {
 		super();
 		this.WRAPPER = wrapper;
 		this.NOTIFIER = notifier;
+		this.CLOCK = wrapper.getClock();
+		this.REAL_TIME_CLOCK = wrapper.isRealTimeClock();
+		this.OHLCV = new OHLCVAggregator((Map<String, Object>) settings.get("ohlcv"));
+		this.ATR_M1 = new ATR((int) logicParam((Map<String, Object>) settings.get("logic"), "atrPeriod", 14));
+		BarBinder.bindBar(OHLCV, TimeframeEnum.M1, ATR_M1);
+		this.SCHEDULER = EventScheduler.getInstance(settings);
+		this.PIPELINE_PARAM = (Map<String, Object>) settings.get("pipeline");
+		if (BitFlyerRealtimeClient.isEnabled(settings)) {
+			this.REALTIME = BitFlyerRealtimeClient.getInstance(settings);
+			this.REALTIME.addListener(this);
+		} else {
+			this.REALTIME = null;
+		}
 	}
 
 	public void execute() {
-		// Overrideする
+		if (REALTIME != null) {
+			// Realtime APIの購読開始
+			REALTIME.start();
+		}
+		// 取引所の状態の定期取得開始
+		WRAPPER.getHealthMonitor().start();
+		// 建玉の定期突き合わせ開始
+		WRAPPER.getPositionBook().start();
 	}
 
-	protected void startPeriodicalNotifyThread(int intervalMin) {
-		Thread t = new Thread(() -> {
-			while (true) {
-				try {
-					Thread.sleep(intervalMin * 60 * 1000);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
-				resetCollateral();
-				outputCurrentStatusSlack();
+	/**
+	 * 執行判断を始める前の初期化(Overrideする)。
+	 * 本番ではexecuteから、バックテストでは記録データの再生前に呼ばれる。
+	 */
+	public void initialize() {
+	}
+
+	/**
+	 * 毎秒の処理。価格を取得して足を更新し(sampleMarket)、その価格で執行判断する(judgeSecond)。
+	 * バックテストでは記録データの時刻が1秒進むごとに呼ばれる。
+	 * 本番ではstartSecondTimerで開始したパイプラインが、2つを別々の段(スレッド)で実行する。
+	 */
+	public void onSecond(LocalDateTime now) {
+		judgeSecond(now, sampleMarket(now));
+	}
+
+	/**
+	 * 毎秒の価格取得と足の更新(Overrideする)。本番では市場データの段から呼ばれる。
+	 *
+	 * @return 執行判断に使う価格(取得できなければ-1)
+	 */
+	protected long sampleMarket(LocalDateTime now) {
+		return -1;
+	}
+
+	/**
+	 * 毎秒の執行判断(Overrideする)。本番では執行判断の段から呼ばれる。
+	 * nowは何秒の処理か(0ミリ秒)を表し、前の秒の処理が遅れて実際の時刻より前になることもある。
+	 *
+	 * @param price sampleMarketで取得した価格
+	 */
+	protected void judgeSecond(LocalDateTime now, long price) {
+	}
+
+	/**
+	 * パイプラインを開始し、毎秒0ミリ秒に市場データの段へ秒を渡すタイマーを開始する
+	 *
+	 * @param name 執行判断の段のスレッド名
+	 */
+	protected void startSecondTimer(String name) {
+		TradingPipeline pipeline = new TradingPipeline(this, name, PIPELINE_PARAM);
+		pipeline.start();
+		this.pipeline = pipeline;
+		// 秒を渡すだけなのでスケジューラのスレッドで実行する
+		SCHEDULER.scheduleAtFixedRate(1000, pipeline::publishSecond, Runnable::run);
+	}
+
+	/**
+	 * deadlineになったらtaskを執行判断の段で実行する(judgeSecondと同時には実行されない)
+	 *
+	 * @return 取消用(パイプラインがなければ登録せずnull)
+	 */
+	protected Timeout scheduleDeadline(LocalDateTime deadline, Runnable task) {
+		TradingPipeline pipeline = this.pipeline;
+		if (pipeline == null) {
+			return null;
+		}
+		return SCHEDULER.schedule(deadline, () -> pipeline.publishTask(() -> runWhenIdle(task)), Runnable::run);
+	}
+
+	/**
+	 * 発注中でなければtaskを実行し、発注中なら発注が終わるまで保留する(執行判断の段から呼ぶ)
+	 */
+	private void runWhenIdle(Runnable task) {
+		if (orderInFlight) {
+			DEFERRED.add(task);
+		} else {
+			task.run();
+		}
+	}
+
+	/**
+	 * 発注から約定までの処理を始める(執行判断の段から呼ぶ)。
+	 * endOrderまでは毎秒の判断を行わず、期限の処理は保留する(段で待っていた時と同じく、発注の途中で次の判断をしない)。
+	 */
+	protected void beginOrder() {
+		orderInFlight = true;
+	}
+
+	/**
+	 * 発注から約定までの処理を終え、保留していた期限の処理を実行する(執行判断の段から呼ぶ)
+	 */
+	protected void endOrder() {
+		orderInFlight = false;
+		Runnable task;
+		while (!orderInFlight && (task = DEFERRED.poll()) != null) {
+			task.run();
+		}
+	}
+
+	/**
+	 * @return 発注から約定までの処理中ならtrue
+	 */
+	boolean isOrderInFlight() {
+		return orderInFlight;
+	}
+
+	/**
+	 * futureが完了したら、結果をactionに渡して執行判断の段で実行する(段のスレッドでは待たない)。
+	 * futureが例外で完了した場合は段で例外を投げ直す(待っていた時と同じくロジックを止める)。
+	 * パイプラインがなければ(バックテスト、初期化)完了を待ってそのまま実行する。
+	 * 既に完了していれば(保持値だけで揃った場合など)段を経由せずにそのまま実行する(執行判断の段から呼ぶ)。
+	 */
+	protected <T> void continueOnStrategy(CompletableFuture<T> future, Consumer<T> action) {
+		if (this.pipeline == null || future.isDone()) {
+			action.accept(join(future));
+			return;
+		}
+		future.whenComplete((value, e) -> runOnStrategy(() -> {
+			if (e != null) {
+				throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
 			}
-		}, "notifyThread");
-		t.start();
+			action.accept(value);
+		}));
+	}
+
+	/**
+	 * taskを執行判断の段で実行する(通信の完了時など、どのスレッドからも呼べる)。
+	 * パイプラインがなければ(バックテストなど)呼び出したスレッドでそのまま実行する。
+	 */
+	protected void runOnStrategy(Runnable task) {
+		TradingPipeline pipeline = this.pipeline;
+		if (pipeline == null) {
+			task.run();
+			return;
+		}
+		// 市場データの段に書き込むのはスケジューラのスレッドだけなので、スケジューラを経由して渡す
+		SCHEDULER.schedule(now(), () -> pipeline.publishTask(task), Runnable::run);
+	}
+
+	protected LocalDateTime now() {
+		return LocalDateTime.now(CLOCK);
+	}
+
+	@Override
+	public void onExecutions(ExecutionResponse[] executions) {
+		if (executions.length > 0) {
+			this.realtimeExecutionPrice = executions[executions.length - 1].getPrice();
+		}
+		// 約定日時のパースを避けるため受信時刻で足に振り分ける
+		long now = CLOCK.millis();
+		for (ExecutionResponse execution : executions) {
+			OHLCV.onTrade(now, execution.getPrice(), FixedPoint.toDouble(execution.getSize()));
+		}
+	}
+
+	/**
+	 * @return Realtime APIで受信した値を利用できる状態か(falseならRESTで取得する)
+	 */
+	protected boolean isRealtimeActive() {
+		return REALTIME != null && REALTIME.isActive();
+	}
+
+	/**
+	 * 省略可能なロジックパラメータを取得する
+	 */
+	protected static double logicParam(Map<String, ?> logicParam, String key, double defaultValue) {
+		if (logicParam == null || logicParam.get(key) == null) {
+			return defaultValue;
+		}
+		return ((Number) logicParam.get(key)).doubleValue();
+	}
+
+	/**
+	 * 基準価格からの値幅を計算する
+	 *
+	 * @param atrMultiplier 0より大きく、ATRが計算済みならATR×倍率を値幅とする(それ以外は基準価格×割合)
+	 */
+	protected long priceRange(long basePrice, double percentage, double atrMultiplier) {
+		if (atrMultiplier > 0 && ATR_M1.isReady()) {
+			return (long) (ATR_M1.getValue() * atrMultiplier);
+		}
+		return (long) (basePrice * percentage / 100);
+	}
+
+	/**
+	 * intervalMin分ごとに状態を通知するタイマーを開始する(毎秒の処理を止めないよう別のレーンで実行する)
+	 */
+	protected void startPeriodicalNotifyTimer(int intervalMin) {
+		SCHEDULER.scheduleAtFixedRate(TimeUnit.MINUTES.toMillis(intervalMin), now -> {
+			resetCollateral();
+			outputCurrentStatusSlack();
+			LOGGER.info("RequestMetrics " + WRAPPER.getRequestMetrics());
+			LOGGER.info("RateLimiter " + WRAPPER.getRateLimiter());
+			if (pipeline != null) {
+				LOGGER.info("Pipeline " + pipeline);
+			}
+			LOGGER.info("SlackNotifier queueDepth:" + NOTIFIER.getQueueDepth() + " dropped:"
+					+ NOTIFIER.getDroppedCount() + " sent:" + NOTIFIER.getSentCount() + " batches:"
+					+ NOTIFIER.getBatchCount());
+		}, EventScheduler.newLane("notifyThread"));
 	}
 
 	protected void outputCurrentStatusSlack() {
 		// Overrideする
 	}
 
-	protected int getMidPrice() {
+	protected long getMidPrice() {
+		if (isRealtimeActive()) {
+			// 手元で維持している板から計算する(板が未構築なら-1が返るのでRESTで取得)
+			double bookMid = REALTIME.getOrderBook().getMidPrice();
+			if (bookMid > 0) {
+				return (long) bookMid;
+			}
+		}
 		BoardResponse board = WRAPPER.getBoard();
 		if (board == null) {
 			LOGGER.info("Board Response is null.");
 			NOTIFIER.sendMessage("板情報の取得に失敗しました。");
 			return -1;
 		}
-		return (int) board.getMidPrice();
+		return (long) board.getMidPrice();
 	}
 
+	/**
+	 * 建玉をスクエアにし、約定を待つ(初期化など執行判断の段以外から使う)
+	 */
 	protected void positionClear() {
-		double longPositionSize = getPositionTotalSize(BuySellEnum.BUY);
-		if (longPositionSize != 0) {
-			LOGGER.info("ロングポジションをスクエアにします。数量：" + longPositionSize);
-			NOTIFIER.sendMessage("ロングポジションをスクエアにします。数量：" + longPositionSize);
-			int mid = getMidPrice();
+		join(positionClearAsync());
+	}
+
+	/**
+	 * 建玉をスクエアにする。建玉の取得、発注、約定待ちはFutureで繋ぎ、呼び出したスレッドでは待たない。
+	 *
+	 * @return 約定(または約定待ちの打ち切り)で完了する。建玉か板情報が取得できなければ例外で完了する
+	 */
+	protected CompletableFuture<Void> positionClearAsync() {
+		return fetchPreTradeSnapshotAsync().thenCompose(snapshot -> {
+			long longPositionSize = snapshot.getPositionTotalSize(BuySellEnum.BUY);
+			long shortPositionSize = snapshot.getPositionTotalSize(BuySellEnum.SELL);
+			if (!snapshot.isComplete()) {
+				// 建玉が分からなければ処理停止
+				throw new IllegalStateException("建玉または証拠金の取得に失敗したのでポジションクリアに失敗しました。");
+			}
+			if (longPositionSize == 0 && shortPositionSize == 0) {
+				return CompletableFuture.completedFuture(null);
+			}
+			long mid = snapshot.getMid();
 			if (mid == -1) {
 				// 板情報が取れなければ処理停止
 				throw new IllegalStateException("板情報取得に失敗したのでポジションクリアに失敗しました。");
 			}
-			// 広めに価格を決定(Midから1%引く)
-			int orderPrice = (int) (mid - mid * 0.01);
-			// リトライありで売発注
-			orderWithRetry(BuySellEnum.SELL, orderPrice, longPositionSize, OrderTypeEnum.MARKET);
-		} else {
-			double shortPositionSize = getPositionTotalSize(BuySellEnum.SELL);
-			if (shortPositionSize != 0) {
-				LOGGER.info("ショートポジションをスクエアにします。数量：" + shortPositionSize);
-				NOTIFIER.sendMessage("ショートポジションをスクエアにします。数量：" + shortPositionSize);
-				int mid = getMidPrice();
-				if (mid == -1) {
-					// 板情報が取れなければ処理停止
-					throw new IllegalStateException("板情報取得に失敗したのでポジションクリアに失敗しました。");
-				}
+			BuySellEnum side;
+			long size;
+			long orderPrice;
+			if (longPositionSize != 0) {
+				LOGGER.info("ロングポジションをスクエアにします。数量：" + FixedPoint.formatSize(longPositionSize));
+				NOTIFIER.sendMessage("ロングポジションをスクエアにします。数量：" + FixedPoint.formatSize(longPositionSize));
+				side = BuySellEnum.SELL;
+				size = longPositionSize;
+				// 広めに価格を決定(Midから1%引く)
+				orderPrice = (long) (mid - mid * 0.01);
+			} else {
+				LOGGER.info("ショートポジションをスクエアにします。数量：" + FixedPoint.formatSize(shortPositionSize));
+				NOTIFIER.sendMessage("ショートポジションをスクエアにします。数量：" + FixedPoint.formatSize(shortPositionSize));
+				side = BuySellEnum.BUY;
+				size = shortPositionSize;
 				// 広めに価格を決定(Midに1%乗せる)
-				int orderPrice = (int) (mid + mid * 0.01);
-				// リトライありで買発注
-				orderWithRetry(BuySellEnum.BUY, orderPrice, shortPositionSize, OrderTypeEnum.MARKET);
+				orderPrice = (long) (mid + mid * 0.01);
 			}
+			// リトライありで発注し、約定を待つ
+			return orderWithRetryAsync(side, orderPrice, size, OrderTypeEnum.MARKET)
+					.thenCompose(response -> awaitFillAsync(side, size, response)).thenApply(fill -> null);
+		});
+	}
+
+	/**
+	 * 発注判断に必要な建玉、取引所の状態、Mid、証拠金を揃える。
+	 * 手元の値や新しい保持値があるものは取得せず、古いものだけを並列で取得する(全て揃っていれば完了済みで返す)。
+	 */
+	protected CompletableFuture<PreTradeSnapshot> fetchPreTradeSnapshotAsync() {
+		// 建玉は手元で維持していれば取得しない
+		PositionBook positionBook = WRAPPER.getPositionBook();
+		boolean positionBookReady = positionBook.isReady();
+		CompletableFuture<PositionResponse[]> positions = positionBookReady
+				? CompletableFuture.completedFuture(null)
+				: WRAPPER.getPositionsAsync();
+		// 取引所の状態は保持している値が新しければ取得しない
+		CompletableFuture<HealthResponse> health = WRAPPER.getHealthMonitor().getHealthOrRefresh();
+		CompletableFuture<CollateralResponse> collateral = collateralOrLastKnown();
+		CompletableFuture<Long> mid;
+		double bookMid = isRealtimeActive() ? REALTIME.getOrderBook().getMidPrice() : -1;
+		if (bookMid > 0) {
+			// 手元の板が使えればMidは取得しない
+			mid = CompletableFuture.completedFuture((long) bookMid);
+		} else {
+			mid = WRAPPER.getBoardAsync().thenApply(board -> board != null ? (long) board.getMidPrice() : -1L);
 		}
+		// 全て揃ったら組み立てる(失敗したものはnullまたは-1で完了している)
+		return CompletableFuture.allOf(positions, health, collateral, mid).thenApply(ignored -> {
+			PreTradeSnapshot snapshot;
+			if (positionBookReady) {
+				snapshot = new PreTradeSnapshot(positionBook.getPositionTotalSize(BuySellEnum.BUY),
+						positionBook.getPositionTotalSize(BuySellEnum.SELL), health.join(), mid.join(),
+						collateral.join());
+			} else {
+				snapshot = new PreTradeSnapshot(positions.join(), health.join(), mid.join(), collateral.join());
+			}
+			if (snapshot.getCollateral() != -1) {
+				this.collateral = snapshot.getCollateral();
+				this.openPl = snapshot.getOpenPl();
+			}
+			return snapshot;
+		});
+	}
+
+	/**
+	 * 証拠金は保持している値が新しければそれを使う。古ければ取り直すが、前回の値があれば取得を待たずに前回の値で発注数量を決める
+	 * (約定のたびに保持値は捨てられるので、待つと毎回の発注が証拠金の往復1回分遅れる)。
+	 *
+	 * @return 証拠金(前回の値もなく取得にも失敗した場合はnull)
+	 */
+	private CompletableFuture<CollateralResponse> collateralOrLastKnown() {
+		CompletableFuture<CollateralResponse> fetched = WRAPPER.getCollateralAsync();
+		long lastCollateral = this.collateral;
+		if (fetched.isDone() || lastCollateral == -1) {
+			return fetched;
+		}
+		// 取得できたら次の発注から使う
+		fetched.thenAccept(response -> {
+			if (response != null) {
+				this.collateral = response.getCollateral();
+				this.openPl = response.getOpenPositionPnl();
+			}
+		});
+		CollateralResponse lastKnown = new CollateralResponse();
+		lastKnown.setCollateral(lastCollateral);
+		lastKnown.setOpenPositionPnl(this.openPl);
+		return CompletableFuture.completedFuture(lastKnown);
+	}
+
+	/**
+	 * @return 取引所の状態が正常かつメンテナンス時間外ならtrue
+	 */
+	protected boolean isHealthy(PreTradeSnapshot snapshot) {
+		return snapshot.isExchangeHealthy() && !isMaintenanceTime();
 	}
 
-	protected ChildOrderResponse order(BuySellEnum side, int price, double size, OrderTypeEnum orderType) {
+	protected ChildOrderResponse order(BuySellEnum side, long price, long size, OrderTypeEnum orderType) {
 		if (!isHealthy()) {
 			String status = getHealthStatus();
 			LOGGER.info("取引所の状態が通常ではない、、またはメンテナンス時間のため、発注をスキップします。side:" + side + "ステータス：" + status);
 			NOTIFIER.sendMessage("取引所の状態が通常ではない、、またはメンテナンス時間のため、発注をスキップします。side:" + side + "ステータス：" + status);
 			return null;
 		}
-		ChildOrderResponse response = WRAPPER.sendChildOrder(side, price, size, orderType);
-		LOGGER.info("[order] side:" + side + " price:" + price + " size:" + size + " orderType:" + orderType + " id:"
-				+ (response != null ? response.getChildOrderAcceptanceId() : "null"));
-		NOTIFIER.sendMessage("[order] side:" + side + " price:" + price + " size:" + size + " orderType:" + orderType
-				+ " id:" + (response != null ? response.getChildOrderAcceptanceId() : "null"));
-		return response;
-	}
-
-	protected ChildOrderResponse orderWithRetry(BuySellEnum side, int price, double size, OrderTypeEnum orderType) {
-		boolean healthy = isHealthy();
-		if (!healthy) {
-			for (int i = 0; i < 20; i++) {
-				// 1分待つ
-				try {
-					Thread.sleep(60000);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
-				healthy = isHealthy();
-				if (healthy) {
-					break;
-				}
+		return sendOrderAsync(side, price, size, orderType).join();
+	}
+
+	/**
+	 * 取引所の状態確認なしで発注する(確認済みの場合に使う)。
+	 * 本番の執行判断の段からは、発注前チェックと発注の段を通して発注する。
+	 */
+	protected CompletableFuture<ChildOrderResponse> sendOrderAsync(BuySellEnum side, long price, long size,
+			OrderTypeEnum orderType) {
+		TradingPipeline pipeline = this.pipeline;
+		if (pipeline != null) {
+			CompletableFuture<ChildOrderResponse> result = pipeline.submitOrder(side, price, size, orderType);
+			if (result != null) {
+				return result;
 			}
 		}
-		if (!healthy) {
+		return sendChildOrder(side, price, size, orderType);
+	}
+
+	/**
+	 * 取引所に子注文を送り、結果を通知する
+	 */
+	CompletableFuture<ChildOrderResponse> sendChildOrder(BuySellEnum side, long price, long size,
+			OrderTypeEnum orderType) {
+		return WRAPPER.sendChildOrderAsync(side, price, size, orderType).thenApply(response -> {
+			String message = "[order] side:" + side + " price:" + price + " size:" + FixedPoint.formatSize(size)
+					+ " orderType:" + orderType + " id:"
+					+ (response != null ? response.getChildOrderAcceptanceId() : "null");
+			LOGGER.info(message);
+			NOTIFIER.sendMessage(message);
+			return response;
+		});
+	}
+
+	/**
+	 * 受け付けられた注文の約定を追跡する
+	 *
+	 * @return 約定結果で完了する(注文が受け付けられていなければnullで完了する)
+	 */
+	protected CompletableFuture<OrderFill> awaitFillAsync(BuySellEnum side, long size, ChildOrderResponse response) {
+		if (response == null || response.getChildOrderAcceptanceId() == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+		return WRAPPER.getOrderTracker().track(response.getChildOrderAcceptanceId(), side, size).thenApply(fill -> {
+			LOGGER.info("[fill] " + fill);
+			return fill;
+		});
+	}
+
+	/**
+	 * 取引所の状態が正常になるのを待って発注する(待つ間も執行判断の段は止めない)
+	 *
+	 * @return 注文の応答で完了する。正常にならないまま待ち切った場合は例外で完了する
+	 */
+	protected CompletableFuture<ChildOrderResponse> orderWithRetryAsync(BuySellEnum side, long price, long size,
+			OrderTypeEnum orderType) {
+		if (!isHealthy() && !isRealTimeClock()) {
+			// バックテストでは待っても時計が進まないので、待たずに発注しない
+			LOGGER.info("取引所の状態が異常またはメンテナンス時間のため発注しません。side:" + side + " price:" + price + " size:"
+					+ FixedPoint.formatSize(size) + " 時刻:" + now());
+			return CompletableFuture.completedFuture(null);
+		}
+		// 本番では発注の段を通す(結果の通知も発注の段で行う)
+		return awaitHealthy(20).thenCompose(ignored -> sendOrderAsync(side, price, size, orderType));
+	}
+
+	/**
+	 * 取引所の状態が正常になるまで1分ごとに確認する
+	 *
+	 * @param retry 残りの確認回数
+	 * @return 正常なら完了する。正常にならないまま確認し切った場合は例外で完了する
+	 */
+	private CompletableFuture<Void> awaitHealthy(int retry) {
+		CompletableFuture<Void> result = new CompletableFuture<>();
+		if (isHealthy()) {
+			result.complete(null);
+		} else if (retry <= 0) {
 			// リトライしても正常にならない場合は例外送出
-			throw new IllegalStateException("取引所の状態が異常な状態が続いています。ステータス:" + getHealthStatus());
+			result.completeExceptionally(
+					new IllegalStateException("取引所の状態が異常な状態が続いています。ステータス:" + getHealthStatus()));
+		} else {
+			// 1分後に確認し直す(状態の取得で通信することがあるので、スケジューラのスレッドでは確認しない)
+			SCHEDULER.schedule(now().plusMinutes(1), () -> awaitHealthy(retry - 1).whenComplete((v, e) -> {
+				if (e != null) {
+					result.completeExceptionally(e);
+				} else {
+					result.complete(null);
+				}
+			}), ForkJoinPool.commonPool());
 		}
-		ChildOrderResponse response = WRAPPER.sendChildOrder(side, price, size, orderType);
-		LOGGER.info("[order] side:" + side + " price:" + price + " size:" + size + " orderType:" + orderType + " id:"
-				+ (response != null ? response.getChildOrderAcceptanceId() : "null"));
-		NOTIFIER.sendMessage("[order] side:" + side + " price:" + price + " size:" + size + " orderType:" + orderType
-				+ " id:" + (response != null ? response.getChildOrderAcceptanceId() : "null"));
-		return response;
+		return result;
 	}
 
-	protected double getPositionTotalSize(BuySellEnum side) {
+	/**
+	 * futureの完了を待つ(執行判断の段以外から使う)。例外で完了した場合は元の例外を投げる
+	 */
+	protected static <T> T join(CompletableFuture<T> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * @return 指定した側の建玉数量(1e-8 BTC単位)
+	 */
+	protected long getPositionTotalSize(BuySellEnum side) {
+		PositionBook positionBook = WRAPPER.getPositionBook();
+		if (positionBook.isReady()) {
+			// 手元で維持している建玉を使う
+			return positionBook.getPositionTotalSize(side);
+		}
 		PositionResponse[] responses = WRAPPER.getPositions();
-		BigDecimal size = BigDecimal.ZERO;
+		long size = 0;
 		String sideStr = side == BuySellEnum.BUY ? "BUY" : "SELL";
 		for (PositionResponse response : responses) {
 			if (response.getProductCode().equals("FX_BTC_JPY")) {
 				if (response.getSide().equals(sideStr)) {
-					size = size.add(new BigDecimal(response.getSize()));
+					size += response.getSize();
 				}
 			}
 		}
-		return size.doubleValue();
+		return size;
 	}
 
 	protected void resetCollateral() {
@@ -160,16 +576,22 @@ public class DealingLogicBase {
 	}
 
 	protected String getHealthStatus() {
-		return WRAPPER.getHealth().getStatus();
+		return WRAPPER.getHealthMonitor().getStatus(true);
 	}
 
 	protected boolean isHealthy() {
-		return WRAPPER.isHealthy() && !isMaintenanceTime();
+		return WRAPPER.getHealthMonitor().isHealthy(true, now());
+	}
+
+	/**
+	 * @return 時計が実時間で進むならtrue(バックテストの時計は記録データの時刻で、処理を待っても進まない)
+	 */
+	protected boolean isRealTimeClock() {
+		return REAL_TIME_CLOCK;
 	}
 
 	protected boolean isMaintenanceTime() {
-		LocalDateTime now = LocalDateTime.now();
-		return WRAPPER.isMaintenanceTime(now);
+		return WRAPPER.isMaintenanceTime(now());
 	}
 
 }
@@ -0,0 +1,109 @@
+package logic;
+
+import exchange.HealthMonitor;
+import model.BuySellEnum;
+import model.CollateralResponse;
+import model.HealthResponse;
+import model.PositionResponse;
+
+/**
+ * 発注前に並列で取得した建玉、取引所の状態、Mid、証拠金をまとめたもの
+ */
+public class PreTradeSnapshot {
+
+	private final boolean complete;
+
+	// 1e-8 BTC単位
+	private final long longSize;
+
+	private final long shortSize;
+
+	private final String healthStatus;
+
+	private final long mid;
+
+	private final long collateral;
+
+	private final long openPl;
+
+	public PreTradeSnapshot(PositionResponse[] positions, HealthResponse health, long mid,
+			CollateralResponse collateral) {
+		long longSize = 0;
+		long shortSize = 0;
+		if (positions != null) {
+			for (PositionResponse position : positions) {
+				if (position.getProductCode().equals("FX_BTC_JPY")) {
+					if (position.getSide().equals("BUY")) {
+						longSize += position.getSize();
+					} else {
+						shortSize += position.getSize();
+					}
+				}
+			}
+		}
+		this.complete = positions != null && collateral != null;
+		this.longSize = longSize;
+		this.shortSize = shortSize;
+		this.healthStatus = health != null ? health.getStatus() : null;
+		this.mid = mid;
+		this.collateral = collateral != null ? collateral.getCollateral() : -1;
+		this.openPl = collateral != null ? collateral.getOpenPositionPnl() : 0;
+	}
+
+	/**
+	 * 手元で維持している建玉を使う場合
+	 */
+	public PreTradeSnapshot(long longSize, long shortSize, HealthResponse health, long mid,
+			CollateralResponse collateral) {
+		this.complete = collateral != null;
+		this.longSize = longSize;
+		this.shortSize = shortSize;
+		this.healthStatus = health != null ? health.getStatus() : null;
+		this.mid = mid;
+		this.collateral = collateral != null ? collateral.getCollateral() : -1;
+		this.openPl = collateral != null ? collateral.getOpenPositionPnl() : 0;
+	}
+
+	/**
+	 * @return 建玉と証拠金が取得できていればtrue(falseの場合は発注判断に使わない)
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * @return 指定した側の建玉数量(1e-8 BTC単位)
+	 */
+	public long getPositionTotalSize(BuySellEnum side) {
+		return side == BuySellEnum.BUY ? longSize : shortSize;
+	}
+
+	/**
+	 * @return 取引所の状態(取得に失敗した場合はnull)
+	 */
+	public String getHealthStatus() {
+		return healthStatus;
+	}
+
+	public boolean isExchangeHealthy() {
+		return HealthMonitor.isHealthyStatus(healthStatus);
+	}
+
+	/**
+	 * @return Mid(取得に失敗した場合は-1)
+	 */
+	public long getMid() {
+		return mid;
+	}
+
+	/**
+	 * @return 証拠金評価額(取得に失敗した場合は-1)
+	 */
+	public long getCollateral() {
+		return collateral;
+	}
+
+	public long getOpenPl() {
+		return openPl;
+	}
+}
@@ -0,0 +1,109 @@
+package logic;
+
+import model.DirectionEnum;
+
+/**
+ * 直近N件の約定価格と変動方向を保持する固定長のウィンドウ。
+ * 追加と押し出しの際に上昇/下降/変化なしの回数を更新するので、判定時に全件を走査しない。
+ * 価格と方向はプリミティブ配列のリングバッファに保持し、追加時にオブジェクトを生成しない。
+ */
+public class PriceDirectionWindow {
+
+	private static final DirectionEnum[] DIRECTIONS = DirectionEnum.values();
+
+	private final int CAPACITY;
+
+	private final long[] prices;
+
+	// DirectionEnumのordinal
+	private final byte[] directions;
+
+	// 各方向の件数(DirectionEnumのordinal順)
+	private final int[] counts = new int[DIRECTIONS.length];
+
+	// 最も古い要素の位置
+	private int head = 0;
+
+	private int size = 0;
+
+	public PriceDirectionWindow(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive:" + capacity);
+		}
+		this.CAPACITY = capacity;
+		this.prices = new long[capacity];
+		this.directions = new byte[capacity];
+	}
+
+	/**
+	 * 追加する(満杯なら最も古い要素を押し出す)
+	 */
+	public void add(long price, DirectionEnum direction) {
+		int tail;
+		if (size == CAPACITY) {
+			// 最も古い要素を押し出して同じ位置に書き込む
+			tail = head;
+			counts[directions[tail]]--;
+			head = head + 1 == CAPACITY ? 0 : head + 1;
+		} else {
+			tail = head + size;
+			if (tail >= CAPACITY) {
+				tail -= CAPACITY;
+			}
+			size++;
+		}
+		prices[tail] = price;
+		directions[tail] = (byte) direction.ordinal();
+		counts[direction.ordinal()]++;
+	}
+
+	public boolean isFull() {
+		return size == CAPACITY;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		head = 0;
+		size = 0;
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = 0;
+		}
+	}
+
+	/**
+	 * @return 最も古い価格(空なら-1)
+	 */
+	public long getFirstPrice() {
+		return size == 0 ? -1 : prices[head];
+	}
+
+	/**
+	 * @return 最も新しい価格(空なら-1)
+	 */
+	public long getLastPrice() {
+		if (size == 0) {
+			return -1;
+		}
+		int last = head + size - 1;
+		return prices[last >= CAPACITY ? last - CAPACITY : last];
+	}
+
+	public int getCount(DirectionEnum direction) {
+		return counts[direction.ordinal()];
+	}
+
+	public int getUpCount() {
+		return counts[DirectionEnum.UP.ordinal()];
+	}
+
+	public int getDownCount() {
+		return counts[DirectionEnum.DOWN.ordinal()];
+	}
+
+	public int getStayCount() {
+		return counts[DirectionEnum.STAY.ordinal()];
+	}
+}
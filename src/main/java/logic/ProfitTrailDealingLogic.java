@@ -2,45 +2,61 @@ package logic;
 
 import java.time.LocalDateTime;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import core.OHLCVUtil;
-import exchange.BitFlyerAPIWrapper;
+import core.TimeframeEnum;
+import exchange.ExchangeAPI;
 import model.BuySellEnum;
 import model.ChildOrderResponse;
+import model.FixedPoint;
+import model.OrderFill;
 import model.OrderTypeEnum;
 import notification.SlackNotifier;
 
 public class ProfitTrailDealingLogic extends DealingLogicBase {
+	// これ未満のドテン分は発注しない(0.01 BTC)
+	private static final long MIN_DOTEN_SIZE = 1_000_000L;
 
 	private final double LEVERAGE;
 	private final double LOSS_CUT_PERCENTAGE;
 	private final boolean POSITION_CLEAR;
 	private final BuySellEnum FIRST_TRADE;
+	// trueならドテン分と新規分を合算した1つの注文で発注する
+	private final boolean NETTED_DOTEN;
 	private final double TRAIL_PERCENTAGE;
+	// 0より大きければトレール幅、ロスカット幅を分足ATRの倍率で決める
+	private final double ATR_TRAIL_MULTIPLIER;
+	private final double ATR_LOSS_CUT_MULTIPLIER;
 	private final Map<String, Double> LOGIC_PARAM;
 	private final double SPREAD;
 	private final int INTERVAL;
-	private volatile int trailLine = -1;
-	private volatile int lossCutLine = -1;
+	private volatile long trailLine = -1;
+	private volatile long lossCutLine = -1;
 	private volatile boolean trailing = false;
-	private volatile int entry = -1;
+	private volatile long entry = -1;
 	private volatile BuySellEnum side;
-	private volatile double size;
-	private volatile int mid = -1;
+	// 1e-8 BTC単位
+	private volatile long size;
+	private volatile long mid = -1;
+	// 分足が確定して執行判断待ちならtrue
+	private volatile boolean judgePending = false;
+	// 前の秒に取得したMid(初期化の後は市場データの段だけが使う)
+	private long lastMid = -1;
 
 	private static Logger OHLCV_LOGGER = LogManager.getLogger("ohlcv_logger");
 
 	@SuppressWarnings("unchecked")
-	public ProfitTrailDealingLogic(BitFlyerAPIWrapper wrapper, SlackNotifier notifier, Map<String, Object> paramMap,
+	public ProfitTrailDealingLogic(ExchangeAPI wrapper, SlackNotifier notifier, Map<String, Object> paramMap,
 			Map<String, Object> settings) {
 		super(wrapper, notifier, paramMap, settings);
 		this.LEVERAGE = (Double) (paramMap.get("leverage"));
 		this.LOSS_CUT_PERCENTAGE = (Double) (paramMap.get("lossCutPercentage"));
 		this.POSITION_CLEAR = (Boolean) (paramMap.get("positionClear"));
 		this.FIRST_TRADE = BuySellEnum.valueOf((String) (paramMap.get("firstTrade")));
+		this.NETTED_DOTEN = paramMap.get("nettedDoten") == Boolean.TRUE;
 		this.LOGIC_PARAM = (Map<String, Double>) settings.get("logic");
 		// パラメータ出力
 		StringBuilder sb = new StringBuilder();
@@ -48,6 +64,8 @@ public class ProfitTrailDealingLogic extends DealingLogicBase {
 		this.LOGIC_PARAM.forEach((k, v) -> sb.append(" " + k + ":" + v));
 		LOGGER.info(sb.toString());
 		this.TRAIL_PERCENTAGE = this.LOGIC_PARAM.get("trailPercentage");
+		this.ATR_TRAIL_MULTIPLIER = logicParam(this.LOGIC_PARAM, "atrTrailMultiplier", 0);
+		this.ATR_LOSS_CUT_MULTIPLIER = logicParam(this.LOGIC_PARAM, "atrLossCutMultiplier", 0);
 		this.SPREAD = this.LOGIC_PARAM.get("spread");
 		this.INTERVAL = this.LOGIC_PARAM.get("notifyInterval").intValue();
 	}
@@ -56,26 +74,21 @@ public class ProfitTrailDealingLogic extends DealingLogicBase {
 	public void execute() {
 		super.execute();
 		// 初期化
-		init();
-		// 分足作成スレッドの開始(1分毎の処理も執行判断もこの中で行う)
-		startOhlcvThread();
-		// 定期通知スレッドの開始(定期的にSlack通知)
-		startPeriodicalNotifyThread(INTERVAL);
+		initialize();
+		// 毎秒Midを取得し、足の確定を進めるパイプラインとタイマーの開始(分足確定時の執行判断は執行判断の段で行う)
+		startSecondTimer("ohlcvThread");
+		// 定期通知タイマーの開始(定期的にSlack通知)
+		startPeriodicalNotifyTimer(INTERVAL);
 	}
 
-	private void init() {
+	@Override
+	public void initialize() {
 		// 証拠金評価額取得
 		resetCollateral();
 		LOGGER.info("証拠金評価額:" + this.collateral);
-		// ポジションクリア
+		// ポジションクリア(約定まで待つ)
 		if (POSITION_CLEAR) {
 			positionClear();
-			// 処理反映まで少し待つ
-			try {
-				Thread.sleep(3000);
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
 			// 最初の取引
 			if (FIRST_TRADE == BuySellEnum.BUY) {
 				buy();
@@ -87,6 +100,18 @@ public class ProfitTrailDealingLogic extends DealingLogicBase {
 		loadLastData();
 		outputCurrentStatus();
 		outputCurrentStatusSlack();
+		// 分足の確定で執行判断する(確定の通知は約定を受信したスレッドから来るので、判断自体はjudgeSecondで行う)
+		OHLCV.addListener(TimeframeEnum.M1, (timeframe, bar) -> {
+			OHLCV_LOGGER.debug("{},{},{},{},{},{}", (bar.getOpenTime() + timeframe.getMillis()) / 1000, bar.getOpen(),
+					bar.getHigh(), bar.getLow(), bar.getClose(), bar.getVolume());
+			judgePending = true;
+		});
+		// オーバーヘッド減らすため、最初一回リクエストしておく
+		this.lastMid = getMidPrice();
+		if (this.lastMid == -1) {
+			// 初回で板情報が取れなければ処理停止
+			throw new IllegalStateException("板情報取得に失敗したので分足作成処理の開始に失敗しました。");
+		}
 	}
 
 	private void loadLastData() {
@@ -104,64 +129,35 @@ public class ProfitTrailDealingLogic extends DealingLogicBase {
 		}
 	}
 
-	private void startOhlcvThread() {
-		// 毎秒Midを取得し、分足を作成するスレッド
-		Thread t = new Thread(() -> {
-			int lastSecond = -1;
-			int count = 0;
-			int[] ohlcv = new int[4];
-			// オーバーヘッド減らすため、最初一回リクエストしておく
-			int lastMid = getMidPrice();
-			if (lastMid == -1) {
-				// 初回で板情報が取れなければ処理停止
-				throw new IllegalStateException("板情報取得に失敗したので分足作成処理の開始に失敗しました。");
-			}
-			while (true) {
-				LocalDateTime now = LocalDateTime.now();
-				int second = now.getSecond();
-				if (second != lastSecond) {
-					// 秒が変わったらMid取得
-					int mid = getMidPrice();
-					if (mid == -1) {
-						// 板情報が取れなければ処理しない
-						LOGGER.debug("板情報取得に失敗したので前回Midを利用します。");
-						mid = lastMid;
-					}
-					LOGGER.debug("Mid取得結果：" + mid + " 時刻:" + now);
-					this.mid = mid;
-					// High,Lowの更新チェック
-					ohlcv = OHLCVUtil.replaceHighAndLow(ohlcv, mid);
-					if (count % 60 == 0) {
-						// 1分毎の処理
-						if (count != 0) {
-							// 初回は除く
-							// 前の分足にcloseを設定
-							ohlcv = OHLCVUtil.setClose(ohlcv, mid);
-							// 執行判断
-							judge();
-							OHLCV_LOGGER.debug("{},{},{},{},{},0", System.currentTimeMillis() / 1000,
-									OHLCVUtil.getOpen(ohlcv), OHLCVUtil.getHigh(ohlcv), OHLCVUtil.getLow(ohlcv),
-									OHLCVUtil.getClose(ohlcv));
-						}
-						// OHLCVの初期化とopen,high,lowの設定
-						ohlcv = new int[4];
-						ohlcv = OHLCVUtil.setOpen(ohlcv, mid);
-						ohlcv = OHLCVUtil.setHigh(ohlcv, mid);
-						ohlcv = OHLCVUtil.setLow(ohlcv, mid);
-					}
-					lastSecond = second;
-					lastMid = mid;
-					count++;
-				}
-				try {
-					// だんだんズレていかないように50ms単位とする
-					Thread.sleep(50);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
-			}
-		}, "ohlcvThread");
-		t.start();
+	@Override
+	protected long sampleMarket(LocalDateTime now) {
+		// 秒が変わったらMid取得
+		long mid = getMidPrice();
+		if (mid == -1) {
+			// 板情報が取れなければ処理しない
+			LOGGER.debug("板情報取得に失敗したので前回Midを利用します。");
+			mid = lastMid;
+		}
+		LOGGER.debug("Mid取得結果：" + mid + " 時刻:" + now);
+		long nowMillis = CLOCK.millis();
+		if (!isRealtimeActive()) {
+			// 約定を受信できない場合はMidを出来高0の約定として足を作る
+			OHLCV.onTrade(nowMillis, mid, 0);
+		}
+		// 期間の終わった足を確定させる
+		OHLCV.onTime(nowMillis);
+		lastMid = mid;
+		return mid;
+	}
+
+	@Override
+	protected void judgeSecond(LocalDateTime now, long mid) {
+		this.mid = mid;
+		if (judgePending) {
+			judgePending = false;
+			// 執行判断
+			judge();
+		}
 	}
 
 	private void judge() {
@@ -172,7 +168,7 @@ public class ProfitTrailDealingLogic extends DealingLogicBase {
 			LOGGER.debug("メンテナンス時間中なので執行判断をスキップします。");
 			return;
 		}
-		int mid = getMidPrice();
+		long mid = getMidPrice();
 		if (mid == -1) {
 			// 板情報が取れなければ処理しない
 			LOGGER.debug("板情報取得に失敗したので執行判断をスキップします。");
@@ -181,7 +177,7 @@ public class ProfitTrailDealingLogic extends DealingLogicBase {
 		if (side == BuySellEnum.BUY) {
 			// ロングポジション
 			// Midにスプレッド片側分を減算
-			int bid = (int) (mid - mid * SPREAD / 200);
+			long bid = (long) (mid - mid * SPREAD / 200);
 			if (bid < lossCutLine || (trailing && bid <= trailLine)) {
 				// ロスカットラインを下回った、またはトレール中にトレールラインを下回った
 				// ポジションクローズしてドテンさせる
@@ -209,7 +205,7 @@ public class ProfitTrailDealingLogic extends DealingLogicBase {
 		} else {
 			// ショートポジション
 			// Midにスプレッド片側分を加算
-			int ask = (int) (mid + mid * SPREAD / 200);
+			long ask = (long) (mid + mid * SPREAD / 200);
 			if (ask > lossCutLine || (trailing && ask >= trailLine)) {
 				// ロスカットラインを上回った、またはトレール中にトレールラインを上回った
 				// ポジションクローズしてドテンさせる
@@ -242,58 +238,83 @@ public class ProfitTrailDealingLogic extends DealingLogicBase {
 		if (this.side == BuySellEnum.BUY) {
 			throw new IllegalStateException("sideがBUYの時に買注文を出そうとしています。");
 		}
-		double longPositionSize = getPositionTotalSize(BuySellEnum.BUY);
+		// 建玉、取引所の状態、Mid、証拠金を並列で取得し、揃ったら執行判断の段で発注する(段では待たない)
+		beginOrder();
+		continueOnStrategy(fetchPreTradeSnapshotAsync(), this::buy);
+	}
+
+	private void buy(PreTradeSnapshot snapshot) {
+		if (!snapshot.isComplete()) {
+			LOGGER.info("建玉または証拠金の取得に失敗したので買発注をスキップします。");
+			NOTIFIER.sendMessage("建玉または証拠金の取得に失敗したので買発注をスキップします。");
+			endOrder();
+			return;
+		}
+		long longPositionSize = snapshot.getPositionTotalSize(BuySellEnum.BUY);
 		if (longPositionSize != 0) {
 			throw new IllegalStateException(
-					"ロングポジションがある状態で買注文を出そうとしています。数量：" + String.format("%.3f", longPositionSize));
+					"ロングポジションがある状態で買注文を出そうとしています。数量：" + FixedPoint.formatSize(longPositionSize));
 		}
-		if (!isHealthy()) {
-			String status = getHealthStatus();
+		if (!isHealthy(snapshot)) {
+			String status = snapshot.getHealthStatus();
 			LOGGER.info("取引所の状態が通常ではない、、またはメンテナンス時間のため、買発注をスキップします。ステータス：" + status);
 			NOTIFIER.sendMessage("取引所の状態が通常ではない、またはメンテナンス時間のため、買発注をスキップします。ステータス：" + status);
+			endOrder();
 			return;
 		}
 		// 価格計算
-		int mid = getMidPrice();
+		long mid = snapshot.getMid();
 		if (mid == -1) {
 			// 板情報が取れなければ処理しない
 			LOGGER.debug("板情報取得に失敗したので買発注をスキップします。");
+			endOrder();
 			return;
 		}
 		this.mid = mid;
 		// Midにスプレッド片側分を加算
-		int ask = (int) (mid + mid * SPREAD / 200);
-		resetCollateral();
+		long ask = (long) (mid + mid * SPREAD / 200);
 
-		// 今の証拠金から発注数量を計算
-		// (誤差排除するため1000倍にする)
-		int qtyX1000 = this.collateral * 1000 / ask;
-		// レバレッジ倍率を加味
-		double qty = qtyX1000 * this.LEVERAGE / 1000.000;
+		// 今の証拠金とレバレッジ倍率から発注数量を計算(0.001 BTC刻み)
+		long qty = FixedPoint.orderSize(this.collateral, this.LEVERAGE, ask);
 		// 広めに価格を決定(Midに1%乗せる)
-		int orderPrice = (int) (mid + mid * 0.01);
+		long orderPrice = (long) (mid + mid * 0.01);
 
 		// ドテン分のショートポジションを取得
-		double positionSize = getPositionTotalSize(BuySellEnum.SELL);
-		if (positionSize >= 0.01) {
-			// 買発注(ドテン分)
-			String dotenStr = String.format("%.3f", positionSize);
-			ChildOrderResponse responseDoten = order(BuySellEnum.BUY, orderPrice, Double.valueOf(dotenStr),
-					OrderTypeEnum.MARKET);
-			if (responseDoten == null) {
-				LOGGER.info("ポジション解消の買発注失敗!");
-				NOTIFIER.sendMessage("ポジション解消の買発注失敗!");
-			}
+		long positionSize = snapshot.getPositionTotalSize(BuySellEnum.SELL);
+		if (NETTED_DOTEN) {
+			// ドテン分と新規分を合算して1回で買発注
+			sendNettedOrder(BuySellEnum.BUY, orderPrice, positionSize, qty, ask);
+			return;
 		}
+		// ドテン分と新規分は互いに依存しないので並列で発注する
+		// 買発注(ドテン分)
+		CompletableFuture<ChildOrderResponse> dotenFuture = positionSize >= MIN_DOTEN_SIZE
+				? sendOrderAsync(BuySellEnum.BUY, orderPrice, FixedPoint.roundToLot(positionSize),
+						OrderTypeEnum.MARKET)
+				: null;
 		// 買発注(新規分)
-		String qtyStr = String.format("%.3f", qty);
-		ChildOrderResponse response = order(BuySellEnum.BUY, orderPrice, Double.valueOf(qtyStr), OrderTypeEnum.MARKET);
-		if (response != null) {
-			resetPositionFields(ask, qty, BuySellEnum.BUY);
-		} else {
-			LOGGER.info("買発注失敗!");
-			NOTIFIER.sendMessage("買発注失敗!");
-		}
+		CompletableFuture<ChildOrderResponse> newFuture = sendOrderAsync(BuySellEnum.BUY, orderPrice, qty,
+				OrderTypeEnum.MARKET);
+		// 約定を待ち、約定価格と約定数量からトレールライン、ロスカットラインを決める
+		CompletableFuture<OrderFill> fillFuture = (dotenFuture != null
+				? CompletableFuture.allOf(newFuture, dotenFuture)
+				: newFuture).thenCompose(ignored -> {
+					if (dotenFuture != null && dotenFuture.join() == null) {
+						LOGGER.info("ポジション解消の買発注失敗!");
+						NOTIFIER.sendMessage("ポジション解消の買発注失敗!");
+					}
+					return awaitFillAsync(BuySellEnum.BUY, qty, newFuture.join());
+				});
+		continueOnStrategy(fillFuture, fill -> {
+			if (fill != null && (fill.isFilled() || fill.isTimedOut())) {
+				resetPositionFields(fill.isFilled() ? Math.round(fill.getAveragePrice()) : ask,
+						fill.isFilled() ? fill.getFilledSize() : qty, BuySellEnum.BUY);
+			} else {
+				LOGGER.info("買発注失敗!");
+				NOTIFIER.sendMessage("買発注失敗!");
+			}
+			endOrder();
+		});
 	}
 
 	private void sell() {
@@ -301,69 +322,125 @@ public class ProfitTrailDealingLogic extends DealingLogicBase {
 		if (this.side == BuySellEnum.SELL) {
 			throw new IllegalStateException("sideがSELLの時に売注文を出そうとしています。");
 		}
-		double shortPositionSize = getPositionTotalSize(BuySellEnum.SELL);
+		// 建玉、取引所の状態、Mid、証拠金を並列で取得し、揃ったら執行判断の段で発注する(段では待たない)
+		beginOrder();
+		continueOnStrategy(fetchPreTradeSnapshotAsync(), this::sell);
+	}
+
+	private void sell(PreTradeSnapshot snapshot) {
+		if (!snapshot.isComplete()) {
+			LOGGER.info("建玉または証拠金の取得に失敗したので売発注をスキップします。");
+			NOTIFIER.sendMessage("建玉または証拠金の取得に失敗したので売発注をスキップします。");
+			endOrder();
+			return;
+		}
+		long shortPositionSize = snapshot.getPositionTotalSize(BuySellEnum.SELL);
 		if (shortPositionSize != 0) {
 			throw new IllegalStateException(
-					"ショートポジションがある状態で売注文を出そうとしています。数量：" + String.format("%.3f", shortPositionSize));
+					"ショートポジションがある状態で売注文を出そうとしています。数量：" + FixedPoint.formatSize(shortPositionSize));
 		}
-		if (!isHealthy()) {
-			String status = getHealthStatus();
+		if (!isHealthy(snapshot)) {
+			String status = snapshot.getHealthStatus();
 			LOGGER.info("取引所の状態が通常ではない、またはメンテナンス時間のため、売発注をスキップします。ステータス：" + status);
 			NOTIFIER.sendMessage("取引所の状態が通常ではない、またはメンテナンス時間のため、売発注をスキップします。ステータス：" + status);
+			endOrder();
 			return;
 		}
 		// 価格計算
-		int mid = getMidPrice();
+		long mid = snapshot.getMid();
 		if (mid == -1) {
 			// 板情報が取れなければ処理しない
 			LOGGER.debug("板情報取得に失敗したので売発注をスキップします。");
+			endOrder();
 			return;
 		}
 		this.mid = mid;
 		// Midにスプレッド片側分を減算
-		int bid = (int) (mid - mid * SPREAD / 200);
-		resetCollateral();
+		long bid = (long) (mid - mid * SPREAD / 200);
 
-		// 今の証拠金から発注数量を計算
-		// (誤差排除するため1000倍にする)
-		int qtyX1000 = this.collateral * 1000 / bid;
-		// レバレッジ倍率を加味
-		double qty = qtyX1000 * this.LEVERAGE / 1000.000;
+		// 今の証拠金とレバレッジ倍率から発注数量を計算(0.001 BTC刻み)
+		long qty = FixedPoint.orderSize(this.collateral, this.LEVERAGE, bid);
 		// 広めに価格を決定(Midから1%引く)
-		int orderPrice = (int) (mid - mid * 0.01);
+		long orderPrice = (long) (mid - mid * 0.01);
 
 		// ドテン分のロングポジションを取得
-		double positionSize = getPositionTotalSize(BuySellEnum.BUY);
-		if (positionSize >= 0.01) {
-			// 売発注(ドテン分)
-			String dotenStr = String.format("%.3f", positionSize);
-			ChildOrderResponse responseDoten = order(BuySellEnum.SELL, orderPrice, Double.valueOf(dotenStr),
-					OrderTypeEnum.MARKET);
-			if (responseDoten == null) {
-				LOGGER.info("ポジション解消の売発注失敗!");
-				NOTIFIER.sendMessage("ポジション解消の売発注失敗!");
-			}
+		long positionSize = snapshot.getPositionTotalSize(BuySellEnum.BUY);
+		if (NETTED_DOTEN) {
+			// ドテン分と新規分を合算して1回で売発注
+			sendNettedOrder(BuySellEnum.SELL, orderPrice, positionSize, qty, bid);
+			return;
 		}
+		// ドテン分と新規分は互いに依存しないので並列で発注する
+		// 売発注(ドテン分)
+		CompletableFuture<ChildOrderResponse> dotenFuture = positionSize >= MIN_DOTEN_SIZE
+				? sendOrderAsync(BuySellEnum.SELL, orderPrice, FixedPoint.roundToLot(positionSize),
+						OrderTypeEnum.MARKET)
+				: null;
 		// 売発注(新規分)
-		String qtyStr = String.format("%.3f", qty);
-		ChildOrderResponse response = order(BuySellEnum.SELL, orderPrice, Double.valueOf(qtyStr), OrderTypeEnum.MARKET);
-		if (response != null) {
-			resetPositionFields(bid, qty, BuySellEnum.SELL);
-		} else {
-			LOGGER.info("売発注失敗!");
-			NOTIFIER.sendMessage("売発注失敗!");
-		}
+		CompletableFuture<ChildOrderResponse> newFuture = sendOrderAsync(BuySellEnum.SELL, orderPrice, qty,
+				OrderTypeEnum.MARKET);
+		// 約定を待ち、約定価格と約定数量からトレールライン、ロスカットラインを決める
+		CompletableFuture<OrderFill> fillFuture = (dotenFuture != null
+				? CompletableFuture.allOf(newFuture, dotenFuture)
+				: newFuture).thenCompose(ignored -> {
+					if (dotenFuture != null && dotenFuture.join() == null) {
+						LOGGER.info("ポジション解消の売発注失敗!");
+						NOTIFIER.sendMessage("ポジション解消の売発注失敗!");
+					}
+					return awaitFillAsync(BuySellEnum.SELL, qty, newFuture.join());
+				});
+		continueOnStrategy(fillFuture, fill -> {
+			if (fill != null && (fill.isFilled() || fill.isTimedOut())) {
+				resetPositionFields(fill.isFilled() ? Math.round(fill.getAveragePrice()) : bid,
+						fill.isFilled() ? fill.getFilledSize() : qty, BuySellEnum.SELL);
+			} else {
+				LOGGER.info("売発注失敗!");
+				NOTIFIER.sendMessage("売発注失敗!");
+			}
+			endOrder();
+		});
+	}
+
+	/**
+	 * ドテン分と新規分を合算した1つの成行注文を出し、約定からポジション情報を更新する(beginOrder済みで呼ぶ)
+	 *
+	 * @param positionSize  ドテン分(反対側の建玉数量)
+	 * @param qty           新規分の数量
+	 * @param estimateEntry 約定が確認できなかった場合のエントリー価格
+	 */
+	private void sendNettedOrder(BuySellEnum side, long orderPrice, long positionSize, long qty,
+			long estimateEntry) {
+		String sideStr = side == BuySellEnum.BUY ? "買" : "売";
+		// ドテン分は従来どおり0.01未満なら発注しない
+		long dotenSize = positionSize >= MIN_DOTEN_SIZE ? FixedPoint.roundToLot(positionSize) : 0;
+		long totalSize = dotenSize + qty;
+		CompletableFuture<OrderFill> fillFuture = sendOrderAsync(side, orderPrice, totalSize, OrderTypeEnum.MARKET)
+				.thenCompose(response -> awaitFillAsync(side, totalSize, response));
+		continueOnStrategy(fillFuture, fill -> {
+			if (fill != null && (fill.isFilled() || fill.isTimedOut())) {
+				// 約定数量からドテン分を差し引いた分が新規の建玉
+				long filledNewSize = fill.isFilled() ? Math.max(0, fill.getFilledSize() - dotenSize) : qty;
+				resetPositionFields(fill.isFilled() ? Math.round(fill.getAveragePrice()) : estimateEntry,
+						filledNewSize, side);
+			} else {
+				LOGGER.info("ドテン" + sideStr + "発注失敗!");
+				NOTIFIER.sendMessage("ドテン" + sideStr + "発注失敗!");
+			}
+			endOrder();
+		});
 	}
 
-	private void resetPositionFields(int entry, double size, BuySellEnum side) {
+	private void resetPositionFields(long entry, long size, BuySellEnum side) {
+		long trailRange = priceRange(entry, TRAIL_PERCENTAGE, ATR_TRAIL_MULTIPLIER);
+		long lossCutRange = priceRange(entry, LOSS_CUT_PERCENTAGE, ATR_LOSS_CUT_MULTIPLIER);
 		if (side == BuySellEnum.BUY) {
 			// 買の場合、トレールラインが高く、ロスカットラインが安く
-			this.trailLine = entry + (int) (entry * TRAIL_PERCENTAGE / 100);
-			this.lossCutLine = entry - (int) (entry * LOSS_CUT_PERCENTAGE / 100);
+			this.trailLine = entry + trailRange;
+			this.lossCutLine = entry - lossCutRange;
 		} else {
 			// 売の場合、トレールラインが安く、ロスカットラインが高く
-			this.trailLine = entry - (int) (entry * TRAIL_PERCENTAGE / 100);
-			this.lossCutLine = entry + (int) (entry * LOSS_CUT_PERCENTAGE / 100);
+			this.trailLine = entry - trailRange;
+			this.lossCutLine = entry + lossCutRange;
 		}
 		this.trailing = false;
 		this.entry = entry;
@@ -376,18 +453,18 @@ public class ProfitTrailDealingLogic extends DealingLogicBase {
 
 	private void outputCurrentStatus() {
 		LOGGER.info("[current status] collateral:" + this.collateral + " OpenPL:" + this.openPl + " side:"
-				+ (this.side == BuySellEnum.BUY ? "買" : "売") + " size:" + this.size + " entry:" + this.entry
-				+ " trailLine:" + this.trailLine + " lossCutLine:" + this.lossCutLine + " trailing:" + this.trailing
-				+ " mid:" + this.mid);
+				+ (this.side == BuySellEnum.BUY ? "買" : "売") + " size:" + FixedPoint.formatSize(this.size) + " entry:"
+				+ this.entry + " trailLine:" + this.trailLine + " lossCutLine:" + this.lossCutLine + " trailing:"
+				+ this.trailing + " mid:" + this.mid);
 	}
 
 	@Override
 	protected void outputCurrentStatusSlack() {
 		super.outputCurrentStatusSlack();
 		NOTIFIER.sendMessage("[current status] collateral:" + this.collateral + " OpenPL:" + this.openPl + " side:"
-				+ (this.side == BuySellEnum.BUY ? "買" : "売") + " size:" + this.size + " entry:" + this.entry
-				+ " trailLine:" + this.trailLine + " lossCutLine:" + this.lossCutLine + " trailing:" + this.trailing
-				+ " mid:" + this.mid);
+				+ (this.side == BuySellEnum.BUY ? "買" : "売") + " size:" + FixedPoint.formatSize(this.size) + " entry:"
+				+ this.entry + " trailLine:" + this.trailLine + " lossCutLine:" + this.lossCutLine + " trailing:"
+				+ this.trailing + " mid:" + this.mid);
 	}
 
 }
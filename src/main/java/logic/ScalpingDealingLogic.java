@@ -2,18 +2,22 @@ package logic;
 
 import java.time.LocalDateTime;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
-import org.apache.commons.collections4.queue.CircularFifoQueue;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import exchange.BitFlyerAPIWrapper;
+import core.HashedTimingWheel.Timeout;
+import exchange.ExchangeAPI;
 import model.BuySellEnum;
-import model.ChildOrderResponse;
 import model.DirectionEnum;
 import model.ExecutionResponse;
+import model.FixedPoint;
+import model.OrderFill;
 import model.OrderTypeEnum;
-import model.PriceDirectionPair;
+import model.ParentOrderMethodEnum;
+import model.ParentOrderParameter;
+import model.ParentOrderResponse;
 import notification.SlackNotifier;
 
 public class ScalpingDealingLogic extends DealingLogicBase {
@@ -21,6 +25,9 @@ public class ScalpingDealingLogic extends DealingLogicBase {
 	private final double LEVERAGE;
 	private final double LOSS_CUT_PERCENTAGE;
 	private final double PROFIT_TAKE_PERCENTAGE;
+	// 0より大きければ利確幅、ロスカット幅を分足ATRの倍率で決める
+	private final double ATR_PROFIT_TAKE_MULTIPLIER;
+	private final double ATR_LOSS_CUT_MULTIPLIER;
 	private final Map<String, Double> LOGIC_PARAM;
 	private final double SPREAD_PERCENTAGE;
 	private final int INTERVAL;
@@ -28,25 +35,41 @@ public class ScalpingDealingLogic extends DealingLogicBase {
 	private final double COUNT_JUDGE_RATIO;
 	private final int JUDGE_SECOND;
 	private final int CLOSE_SECOND;
-	private final CircularFifoQueue<PriceDirectionPair> QUEUE;
+	// 直近JUDGE_SECOND秒の約定価格と変動方向
+	private final PriceDirectionWindow WINDOW;
+	// trueならエントリー時にIFDOCOで利確、損切の注文も出す(決済は取引所側で執行される)
+	private final boolean USE_PARENT_ORDER;
 
-	private volatile int entry = -1;
+	private volatile long entry = -1;
 	private volatile BuySellEnum side;
-	private volatile double size;
-	private volatile int price = -1;
+	// 1e-8 BTC単位
+	private volatile long size;
+	private volatile long price = -1;
+	// 前の秒の約定価格
+	private long lastPrice = -1;
+	// 前の秒に取得した約定価格(市場データの段だけが使う)
+	private long lastSampledPrice = -1;
 	private volatile boolean hasPosition;
-	private volatile int profitTakePrice;
-	private volatile int lossCutPrice;
+	private volatile long profitTakePrice;
+	private volatile long lossCutPrice;
 	private volatile LocalDateTime closeTime;
+	// closeTimeに予約したクローズ判断(バックテストでは予約せず、毎秒の判断でクローズする)
+	private volatile Timeout closeTimeout;
+	private volatile String parentOrderAcceptanceId;
+	// 親注文のエントリー分が建玉に反映されたことを確認したらtrue
+	private volatile boolean parentEntryConfirmed;
+	// 親注文の取消、建玉の確認の応答待ちならtrue(応答までは次のクローズ判断をしない)
+	private volatile boolean parentClosing;
 
 	private static Logger PRICE_DIRECTION_LOGGER = LogManager.getLogger("price_direction_logger");
 
 	@SuppressWarnings("unchecked")
-	public ScalpingDealingLogic(BitFlyerAPIWrapper wrapper, SlackNotifier notifier, Map<String, Object> paramMap,
+	public ScalpingDealingLogic(ExchangeAPI wrapper, SlackNotifier notifier, Map<String, Object> paramMap,
 			Map<String, Object> settings) {
 		super(wrapper, notifier, paramMap, settings);
 		this.LEVERAGE = (Double) (paramMap.get("leverage"));
 		this.LOSS_CUT_PERCENTAGE = (Double) (paramMap.get("lossCutPercentage"));
+		this.USE_PARENT_ORDER = paramMap.get("useParentOrder") == Boolean.TRUE;
 		this.LOGIC_PARAM = (Map<String, Double>) settings.get("logic");
 		// パラメータ出力
 		StringBuilder sb = new StringBuilder();
@@ -54,102 +77,95 @@ public class ScalpingDealingLogic extends DealingLogicBase {
 		this.LOGIC_PARAM.forEach((k, v) -> sb.append(" " + k + ":" + v));
 		LOGGER.info(sb.toString());
 		this.PROFIT_TAKE_PERCENTAGE = this.LOGIC_PARAM.get("profitTakePercentage");
+		this.ATR_PROFIT_TAKE_MULTIPLIER = logicParam(this.LOGIC_PARAM, "atrProfitTakeMultiplier", 0);
+		this.ATR_LOSS_CUT_MULTIPLIER = logicParam(this.LOGIC_PARAM, "atrLossCutMultiplier", 0);
 		this.SPREAD_PERCENTAGE = this.LOGIC_PARAM.get("spread");
 		this.INTERVAL = this.LOGIC_PARAM.get("notifyInterval").intValue();
 		this.DIRECTION_JUDGE_PERCENTAGE = this.LOGIC_PARAM.get("directionJudgePercentage");
 		this.COUNT_JUDGE_RATIO = this.LOGIC_PARAM.get("countJudgeRatio");
 		this.JUDGE_SECOND = this.LOGIC_PARAM.get("judgeSecond").intValue();
 		this.CLOSE_SECOND = this.LOGIC_PARAM.get("closeSecond").intValue();
-		this.QUEUE = new CircularFifoQueue<>(this.JUDGE_SECOND);
+		this.WINDOW = new PriceDirectionWindow(this.JUDGE_SECOND);
 	}
 
 	@Override
 	public void execute() {
 		super.execute();
 		// 初期化
-		init();
-		// 約定価格取得スレッドの開始(執行判断もこの中で行う)
-		startJudgeThread();
-		// 定期通知スレッドの開始(定期的にSlack通知)
-		startPeriodicalNotifyThread(INTERVAL);
+		initialize();
+		// 毎秒約定価格を取得し、執行判断するパイプラインとタイマーの開始
+		startSecondTimer("judgeThread");
+		// 定期通知タイマーの開始(定期的にSlack通知)
+		startPeriodicalNotifyTimer(INTERVAL);
 	}
 
-	private void init() {
+	@Override
+	public void initialize() {
 		// 証拠金評価額取得
 		resetCollateral();
 		LOGGER.info("証拠金評価額:" + this.collateral);
-		// ポジションクリア
+		// ポジションクリア(約定まで待つ)
 		positionClear();
-		// 処理反映まで少し待つ
-		try {
-			Thread.sleep(3000);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		}
 		outputCurrentStatus();
 		outputCurrentStatusSlack();
 	}
 
-	private void startJudgeThread() {
-		// 毎秒約定価格を取得し、執行判断するスレッド
-		Thread t = new Thread(() -> {
-			int lastSecond = -1;
-			int lastPrice = -1;
-			while (true) {
-				LocalDateTime now = LocalDateTime.now();
-				int second = now.getSecond();
-				if (second != lastSecond) {
-					// 秒が変わったら約定価格取得
-					int price = getExecutionPrice();
-					if (price == -1) {
-						// 板情報が取れなければ処理しない
-						LOGGER.debug("約定価格取得に失敗したので前回約定価格を利用します。");
-						price = lastPrice;
-					}
-					this.price = price;
-					DirectionEnum direction;
-					if (lastPrice == -1) {
-						direction = DirectionEnum.STAY;
-					} else if (lastPrice < price) {
-						direction = DirectionEnum.UP;
-					} else if (lastPrice > price) {
-						direction = DirectionEnum.DOWN;
-					} else {
-						direction = DirectionEnum.STAY;
-					}
-					LOGGER.debug("約定価格取得結果：" + price + " 前回約定価格:" + lastPrice + " 変動方向:" + direction + " 時刻:" + now);
-					PRICE_DIRECTION_LOGGER.debug("{},{},{}", System.currentTimeMillis() / 1000, price, direction);
-
-					if (!this.hasPosition) {
-						// ポジションがない場合
-						// 約定価格と変動方向をキューに詰める
-						PriceDirectionPair pair = new PriceDirectionPair(price, direction);
-						this.QUEUE.add(pair);
-						if (this.QUEUE.isAtFullCapacity()) {
-							// キューが全て埋まっている場合
-							// ポジションオープン判断
-							openJudge();
-						}
-					} else {
-						// ポジションがある場合、ポジションクローズ判断
-						closeJudge();
-					}
+	@Override
+	protected long sampleMarket(LocalDateTime now) {
+		// 秒が変わったら約定価格取得
+		long price = getExecutionPrice();
+		if (price == -1) {
+			// 板情報が取れなければ処理しない
+			LOGGER.debug("約定価格取得に失敗したので前回約定価格を利用します。");
+			price = lastSampledPrice;
+		}
+		long nowMillis = CLOCK.millis();
+		if (price != -1 && !isRealtimeActive()) {
+			// 約定を受信できない場合は取得した約定価格を出来高0の約定として足を作る
+			OHLCV.onTrade(nowMillis, price, 0);
+		}
+		// 期間の終わった足を確定させる(ATRの更新)
+		OHLCV.onTime(nowMillis);
+		lastSampledPrice = price;
+		return price;
+	}
 
-				}
-				lastSecond = second;
-				lastPrice = price;
-				try {
-					// だんだんズレていかないように50ms単位とする
-					Thread.sleep(50);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
+	@Override
+	protected void judgeSecond(LocalDateTime now, long price) {
+		this.price = price;
+		DirectionEnum direction;
+		if (lastPrice == -1) {
+			direction = DirectionEnum.STAY;
+		} else if (lastPrice < price) {
+			direction = DirectionEnum.UP;
+		} else if (lastPrice > price) {
+			direction = DirectionEnum.DOWN;
+		} else {
+			direction = DirectionEnum.STAY;
+		}
+		LOGGER.debug("約定価格取得結果：" + price + " 前回約定価格:" + lastPrice + " 変動方向:" + direction + " 時刻:" + now);
+		PRICE_DIRECTION_LOGGER.debug("{},{},{}", CLOCK.millis() / 1000, price, direction);
+
+		if (!this.hasPosition) {
+			// ポジションがない場合
+			// 約定価格と変動方向をウィンドウに詰める
+			this.WINDOW.add(price, direction);
+			if (this.WINDOW.isFull()) {
+				// ウィンドウが全て埋まっている場合
+				// ポジションオープン判断
+				openJudge();
 			}
-		}, "judgeThread");
-		t.start();
+		} else {
+			// ポジションがある場合、ポジションクローズ判断
+			closeJudge();
+		}
+		lastPrice = price;
 	}
 
-	private int getExecutionPrice() {
+	private long getExecutionPrice() {
+		if (isRealtimeActive() && realtimeExecutionPrice != -1) {
+			return realtimeExecutionPrice;
+		}
 		ExecutionResponse[] executions = WRAPPER.getExecutions();
 		if (executions == null || executions.length == 0) {
 			LOGGER.info("Execution Response is null.");
@@ -161,10 +177,9 @@ public class ScalpingDealingLogic extends DealingLogicBase {
 
 	private void openJudge() {
 		LOGGER.debug("open judge!");
-		PriceDirectionPair first = this.QUEUE.peek();
-		PriceDirectionPair last = this.QUEUE.get(JUDGE_SECOND - 1);
-		int diff = last.getPrice() - first.getPrice();
-		int judgeRangePrice = (int) (last.getPrice() * DIRECTION_JUDGE_PERCENTAGE / 100);
+		long lastPrice = this.WINDOW.getLastPrice();
+		long diff = lastPrice - this.WINDOW.getFirstPrice();
+		long judgeRangePrice = (long) (lastPrice * DIRECTION_JUDGE_PERCENTAGE / 100);
 		BuySellEnum side = null;
 		// 方向判定割合で値動き幅を確認
 		if (diff > judgeRangePrice) {
@@ -177,57 +192,80 @@ public class ScalpingDealingLogic extends DealingLogicBase {
 			// 値動き幅が条件を満たさなければ処理終了
 			return;
 		}
-		// 回数判定割合で回数を確認
-		int upCount = 0;
-		int downCount = 0;
-		for (int i = 0; i < JUDGE_SECOND; i++) {
-			PriceDirectionPair p = this.QUEUE.get(i);
-			switch (p.getDirection()) {
-			case UP:
-				upCount++;
-				break;
-			case DOWN:
-				downCount++;
-				break;
-			default:
-				break;
-			}
-		}
+		// 回数判定割合で回数を確認(回数は追加時に集計済み)
+		int upCount = this.WINDOW.getUpCount();
+		int downCount = this.WINDOW.getDownCount();
 		LOGGER.debug("回数判定 up:" + upCount + " down:" + downCount);
 		// 上昇(下降)回数割合満たしたら発注
-		if (side == BuySellEnum.BUY) {
+		if (USE_PARENT_ORDER) {
+			if ((side == BuySellEnum.BUY && (double) upCount / JUDGE_SECOND >= COUNT_JUDGE_RATIO)
+					|| (side == BuySellEnum.SELL && (double) downCount / JUDGE_SECOND >= COUNT_JUDGE_RATIO)) {
+				openWithParentOrder(side, lastPrice);
+				this.WINDOW.clear();
+			}
+		} else if (side == BuySellEnum.BUY) {
 			if ((double) upCount / JUDGE_SECOND >= COUNT_JUDGE_RATIO) {
-				buy();
-				// スプレッド分高く
-				int priceWithSpread = (int) (last.getPrice() * (1 + SPREAD_PERCENTAGE / 100));
-				this.profitTakePrice = (int) (priceWithSpread * (1 + (double) PROFIT_TAKE_PERCENTAGE / 100));
-				this.lossCutPrice = (int) (priceWithSpread * (1 - (double) LOSS_CUT_PERCENTAGE / 100));
-				this.closeTime = LocalDateTime.now().plusSeconds(CLOSE_SECOND);
-				this.QUEUE.clear();
+				buy(lastPrice);
+				this.WINDOW.clear();
 			}
 		} else if (side == BuySellEnum.SELL) {
 			if ((double) downCount / JUDGE_SECOND >= COUNT_JUDGE_RATIO) {
-				sell();
-				// スプレッド分安く
-				int priceWithSpread = (int) (last.getPrice() * (1 - SPREAD_PERCENTAGE / 100));
-				this.profitTakePrice = (int) (priceWithSpread * (1 - (double) PROFIT_TAKE_PERCENTAGE / 100));
-				this.lossCutPrice = (int) (priceWithSpread * (1 + (double) LOSS_CUT_PERCENTAGE / 100));
-				this.closeTime = LocalDateTime.now().plusSeconds(CLOSE_SECOND);
-				this.QUEUE.clear();
+				sell(lastPrice);
+				this.WINDOW.clear();
 			}
 		}
 	}
 
+	/**
+	 * 発注の結果が出たら利確、損切ラインとクローズ時刻を決め直し、執行判断を再開する
+	 *
+	 * @param lastPrice 発注を判断した時の約定価格(約定価格が分からない場合の基準)
+	 */
+	private void finishOpen(BuySellEnum side, long lastPrice) {
+		if (side == BuySellEnum.BUY) {
+			// 約定価格が分かればそれを基準に、分からなければスプレッド分高く
+			long priceWithSpread = this.entry > 0 ? this.entry : (long) (lastPrice * (1 + SPREAD_PERCENTAGE / 100));
+			this.profitTakePrice = priceWithSpread
+					+ priceRange(priceWithSpread, PROFIT_TAKE_PERCENTAGE, ATR_PROFIT_TAKE_MULTIPLIER);
+			this.lossCutPrice = priceWithSpread
+					- priceRange(priceWithSpread, LOSS_CUT_PERCENTAGE, ATR_LOSS_CUT_MULTIPLIER);
+		} else {
+			// 約定価格が分かればそれを基準に、分からなければスプレッド分安く
+			long priceWithSpread = this.entry > 0 ? this.entry : (long) (lastPrice * (1 - SPREAD_PERCENTAGE / 100));
+			this.profitTakePrice = priceWithSpread
+					- priceRange(priceWithSpread, PROFIT_TAKE_PERCENTAGE, ATR_PROFIT_TAKE_MULTIPLIER);
+			this.lossCutPrice = priceWithSpread
+					+ priceRange(priceWithSpread, LOSS_CUT_PERCENTAGE, ATR_LOSS_CUT_MULTIPLIER);
+		}
+		resetCloseTime();
+		endOrder();
+	}
+
+	/**
+	 * 建玉をクローズし、約定したらポジション情報を消す(執行判断の段では約定を待たない)
+	 */
+	private void closePosition() {
+		beginOrder();
+		continueOnStrategy(positionClearAsync(), ignored -> {
+			clearPositionFields();
+			endOrder();
+		});
+	}
+
 	private void closeJudge() {
 		LOGGER.debug("close judge!");
 		LOGGER.debug("price:" + price + " profitTake:" + profitTakePrice + " lossCutPrice:" + lossCutPrice
 				+ " closeTime:" + closeTime);
+		if (this.parentOrderAcceptanceId != null) {
+			closeJudgeWithParentOrder();
+			return;
+		}
 		if (side == BuySellEnum.BUY) {
 			// ロングポジション
 			// スプレッド分安く
-			int priceWithSpread = (int) (this.price * (1 - SPREAD_PERCENTAGE / 100));
+			long priceWithSpread = (long) (this.price * (1 - SPREAD_PERCENTAGE / 100));
 			if (priceWithSpread > this.profitTakePrice || priceWithSpread < this.lossCutPrice
-					|| LocalDateTime.now().isAfter(this.closeTime)) {
+					|| now().isAfter(this.closeTime)) {
 				if (priceWithSpread > this.profitTakePrice) {
 					LOGGER.info("利確します。");
 					NOTIFIER.sendMessage("利確します。");
@@ -238,22 +276,13 @@ public class ScalpingDealingLogic extends DealingLogicBase {
 					LOGGER.info("時間経過のためクローズします。");
 					NOTIFIER.sendMessage("時間経過のためクローズします。");
 				}
-				positionClear();
-				this.hasPosition = false;
-				this.side = null;
-				this.size = 0;
-				this.entry = -1;
-				this.profitTakePrice = -1;
-				this.lossCutPrice = -1;
-				this.closeTime = null;
-				outputCurrentStatus();
-				outputCurrentStatusSlack();
+				closePosition();
 			}
 		} else {
 			// ショートポジション
-			int priceWithSpread = (int) (price * (1 + SPREAD_PERCENTAGE / 100));
+			long priceWithSpread = (long) (price * (1 + SPREAD_PERCENTAGE / 100));
 			if (priceWithSpread < this.profitTakePrice || priceWithSpread > this.lossCutPrice
-					|| LocalDateTime.now().isAfter(this.closeTime)) {
+					|| now().isAfter(this.closeTime)) {
 				if (priceWithSpread < this.profitTakePrice) {
 					LOGGER.info("利確します。");
 					NOTIFIER.sendMessage("利確します。");
@@ -264,141 +293,348 @@ public class ScalpingDealingLogic extends DealingLogicBase {
 					LOGGER.info("時間経過のためクローズします。");
 					NOTIFIER.sendMessage("時間経過のためクローズします。");
 				}
-				positionClear();
-				this.hasPosition = false;
-				this.side = null;
-				this.size = 0;
-				this.entry = -1;
-				this.profitTakePrice = -1;
-				this.lossCutPrice = -1;
-				this.closeTime = null;
-				outputCurrentStatus();
-				outputCurrentStatusSlack();
+				closePosition();
 			}
 		}
 	}
 
-	private void buy() {
+	/**
+	 * 親注文で執行した場合のクローズ判断。
+	 * 利確、損切は取引所側で執行されるので、ラインを越えたら建玉を確認するだけ。時間経過の場合は親注文を取り消してクローズする。
+	 */
+	private void closeJudgeWithParentOrder() {
+		if (this.parentClosing) {
+			return;
+		}
+		String id = this.parentOrderAcceptanceId;
+		if (now().isAfter(this.closeTime)) {
+			LOGGER.info("時間経過のため親注文を取り消してクローズします。");
+			NOTIFIER.sendMessage("時間経過のため親注文を取り消してクローズします。");
+			this.parentClosing = true;
+			WRAPPER.cancelParentOrderAsync(id).thenCompose(canceled -> {
+				if (!canceled) {
+					// 既に約定済みの場合も取り消せないので、建玉を確認して残っていればクローズする
+					LOGGER.info("親注文の取消に失敗しました。id:" + id);
+				}
+				// 親注文の約定は追跡していないので、建玉を取引所と突き合わせてからクローズする
+				return WRAPPER.getPositionBook().refresh();
+			}).whenComplete((ok, e) -> runOnStrategy(() -> {
+				this.parentClosing = false;
+				if (id.equals(this.parentOrderAcceptanceId)) {
+					closePosition();
+				}
+			}));
+			return;
+		}
+		if (!this.parentEntryConfirmed) {
+			// エントリー分が建玉に反映されるまでは決済されたかどうか判断できない
+			this.parentEntryConfirmed = WRAPPER.getPositionBook().getPositionTotalSize(this.side) > 0;
+			if (!this.parentEntryConfirmed) {
+				return;
+			}
+		}
+		boolean crossed = this.side == BuySellEnum.BUY
+				? this.price >= this.profitTakePrice || this.price <= this.lossCutPrice
+				: this.price <= this.profitTakePrice || this.price >= this.lossCutPrice;
+		if (crossed) {
+			// 取引所側で決済されているはずなので建玉を確認する
+			this.parentClosing = true;
+			WRAPPER.getPositionBook().refresh().whenComplete((ok, e) -> runOnStrategy(() -> {
+				this.parentClosing = false;
+				if (id.equals(this.parentOrderAcceptanceId)
+						&& WRAPPER.getPositionBook().getPositionTotalSize(this.side) == 0) {
+					LOGGER.info("取引所側で決済されました。price:" + this.price);
+					NOTIFIER.sendMessage("取引所側で決済されました。price:" + this.price);
+					clearPositionFields();
+				}
+			}));
+		}
+	}
+
+	/**
+	 * 時間経過でクローズする時刻を設定し、その時刻のクローズ判断を予約する(次の秒を待たずにクローズする)
+	 */
+	private void resetCloseTime() {
+		this.closeTime = now().plusSeconds(CLOSE_SECOND);
+		Timeout timeout = this.closeTimeout;
+		if (timeout != null) {
+			timeout.cancel();
+		}
+		// 期限ちょうどではisAfterにならないので1ミリ秒後に判断する
+		this.closeTimeout = scheduleDeadline(this.closeTime.plusNanos(1_000_000), this::onCloseTime);
+	}
+
+	/**
+	 * closeTimeになった時のクローズ判断(本番ではjudgeSecondと同じ執行判断の段で実行される)
+	 */
+	private void onCloseTime() {
+		if (this.hasPosition && this.closeTime != null) {
+			closeJudge();
+		}
+	}
+
+	private void clearPositionFields() {
+		this.hasPosition = false;
+		this.side = null;
+		this.size = 0;
+		this.entry = -1;
+		this.profitTakePrice = -1;
+		this.lossCutPrice = -1;
+		this.closeTime = null;
+		Timeout timeout = this.closeTimeout;
+		if (timeout != null) {
+			timeout.cancel();
+			this.closeTimeout = null;
+		}
+		this.parentOrderAcceptanceId = null;
+		this.parentEntryConfirmed = false;
+		this.parentClosing = false;
+		outputCurrentStatus();
+		outputCurrentStatusSlack();
+	}
+
+	/**
+	 * IFDOCOで成行エントリーと利確(指値)、損切(逆指値)の注文を同時に出す
+	 */
+	private void openWithParentOrder(BuySellEnum side, long lastPrice) {
+		LOGGER.debug("open with parent order! side:" + side);
+		// 建玉、取引所の状態、Mid、証拠金を並列で取得し、揃ったら執行判断の段で発注する(段では待たない)
+		beginOrder();
+		continueOnStrategy(fetchPreTradeSnapshotAsync(), snapshot -> openWithParentOrder(snapshot, side, lastPrice));
+	}
+
+	private void openWithParentOrder(PreTradeSnapshot snapshot, BuySellEnum side, long lastPrice) {
+		if (!snapshot.isComplete()) {
+			LOGGER.info("建玉または証拠金の取得に失敗したので発注をスキップします。");
+			NOTIFIER.sendMessage("建玉または証拠金の取得に失敗したので発注をスキップします。");
+			endOrder();
+			return;
+		}
+		if (snapshot.getPositionTotalSize(side) != 0) {
+			throw new IllegalStateException("同じ方向のポジションがある状態で発注しようとしています。side:" + side + " 数量："
+					+ FixedPoint.formatSize(snapshot.getPositionTotalSize(side)));
+		}
+		if (!isHealthy(snapshot)) {
+			String status = snapshot.getHealthStatus();
+			LOGGER.info("取引所の状態が通常ではない、またはメンテナンス時間のため、発注をスキップします。ステータス：" + status);
+			NOTIFIER.sendMessage("取引所の状態が通常ではない、またはメンテナンス時間のため、発注をスキップします。ステータス：" + status);
+			endOrder();
+			return;
+		}
+		long mid = snapshot.getMid();
+		if (mid == -1) {
+			// 板情報が取れなければ処理しない
+			LOGGER.debug("板情報取得に失敗したので発注をスキップします。");
+			endOrder();
+			return;
+		}
+		this.price = mid;
+		BuySellEnum closeSide = side == BuySellEnum.BUY ? BuySellEnum.SELL : BuySellEnum.BUY;
+		// 約定価格はスプレッド分不利になる想定
+		long priceWithSpread = side == BuySellEnum.BUY ? (long) (lastPrice * (1 + SPREAD_PERCENTAGE / 100))
+				: (long) (lastPrice * (1 - SPREAD_PERCENTAGE / 100));
+		long profitTakePrice;
+		long lossCutPrice;
+		if (side == BuySellEnum.BUY) {
+			profitTakePrice = priceWithSpread
+					+ priceRange(priceWithSpread, PROFIT_TAKE_PERCENTAGE, ATR_PROFIT_TAKE_MULTIPLIER);
+			lossCutPrice = priceWithSpread
+					- priceRange(priceWithSpread, LOSS_CUT_PERCENTAGE, ATR_LOSS_CUT_MULTIPLIER);
+		} else {
+			profitTakePrice = priceWithSpread
+					- priceRange(priceWithSpread, PROFIT_TAKE_PERCENTAGE, ATR_PROFIT_TAKE_MULTIPLIER);
+			lossCutPrice = priceWithSpread
+					+ priceRange(priceWithSpread, LOSS_CUT_PERCENTAGE, ATR_LOSS_CUT_MULTIPLIER);
+		}
+
+		// 今の証拠金とレバレッジ倍率から発注数量を計算(0.001 BTC刻み)
+		long qty = FixedPoint.orderSize(this.collateral, this.LEVERAGE, priceWithSpread);
+		// 時間経過でのクローズより少し長めに有効期限を設定(時間経過の場合は取り消す)
+		int minuteToExpire = CLOSE_SECOND / 60 + 2;
+		CompletableFuture<ParentOrderResponse> future = WRAPPER.sendParentOrderAsync(ParentOrderMethodEnum.IFDOCO,
+				minuteToExpire, ParentOrderParameter.market(side, qty),
+				ParentOrderParameter.limit(closeSide, profitTakePrice, qty),
+				ParentOrderParameter.stop(closeSide, lossCutPrice, qty));
+		continueOnStrategy(future, response -> {
+			onParentOrderSent(response, side, qty, priceWithSpread, profitTakePrice, lossCutPrice);
+			endOrder();
+		});
+	}
+
+	private void onParentOrderSent(ParentOrderResponse response, BuySellEnum side, long qty, long priceWithSpread,
+			long profitTakePrice, long lossCutPrice) {
+		String message = "[parent order] side:" + side + " size:" + FixedPoint.formatSize(qty) + " profitTake:"
+				+ profitTakePrice + " lossCut:" + lossCutPrice + " id:"
+				+ (response != null ? response.getParentOrderAcceptanceId() : "null");
+		LOGGER.info(message);
+		NOTIFIER.sendMessage(message);
+		if (response == null || response.getParentOrderAcceptanceId() == null) {
+			LOGGER.info("親注文発注失敗!");
+			NOTIFIER.sendMessage("親注文発注失敗!");
+			return;
+		}
+		this.parentOrderAcceptanceId = response.getParentOrderAcceptanceId();
+		this.parentEntryConfirmed = false;
+		this.hasPosition = true;
+		this.entry = priceWithSpread;
+		this.side = side;
+		this.size = qty;
+		this.profitTakePrice = profitTakePrice;
+		this.lossCutPrice = lossCutPrice;
+		resetCloseTime();
+		outputCurrentStatus();
+		outputCurrentStatusSlack();
+	}
+
+	private void buy(long lastPrice) {
 		LOGGER.debug("buy!");
 		if (this.side == BuySellEnum.BUY) {
 			throw new IllegalStateException("sideがBUYの時に買注文を出そうとしています。");
 		}
-		double longPositionSize = getPositionTotalSize(BuySellEnum.BUY);
+		// 建玉、取引所の状態、Mid、証拠金を並列で取得し、揃ったら執行判断の段で発注する(段では待たない)
+		beginOrder();
+		continueOnStrategy(fetchPreTradeSnapshotAsync(), snapshot -> buy(snapshot, lastPrice));
+	}
+
+	private void buy(PreTradeSnapshot snapshot, long lastPrice) {
+		if (!snapshot.isComplete()) {
+			LOGGER.info("建玉または証拠金の取得に失敗したので買発注をスキップします。");
+			NOTIFIER.sendMessage("建玉または証拠金の取得に失敗したので買発注をスキップします。");
+			finishOpen(BuySellEnum.BUY, lastPrice);
+			return;
+		}
+		long longPositionSize = snapshot.getPositionTotalSize(BuySellEnum.BUY);
 		if (longPositionSize != 0) {
 			throw new IllegalStateException(
-					"ロングポジションがある状態で買注文を出そうとしています。数量：" + String.format("%.3f", longPositionSize));
+					"ロングポジションがある状態で買注文を出そうとしています。数量：" + FixedPoint.formatSize(longPositionSize));
 		}
-		if (!isHealthy()) {
-			String status = getHealthStatus();
+		if (!isHealthy(snapshot)) {
+			String status = snapshot.getHealthStatus();
 			LOGGER.info("取引所の状態が通常ではない、、またはメンテナンス時間のため、買発注をスキップします。ステータス：" + status);
 			NOTIFIER.sendMessage("取引所の状態が通常ではない、またはメンテナンス時間のため、買発注をスキップします。ステータス：" + status);
+			finishOpen(BuySellEnum.BUY, lastPrice);
 			return;
 		}
 		// 価格計算
-		int mid = getMidPrice();
+		long mid = snapshot.getMid();
 		if (mid == -1) {
 			// 板情報が取れなければ処理しない
 			LOGGER.debug("板情報取得に失敗したので買発注をスキップします。");
+			finishOpen(BuySellEnum.BUY, lastPrice);
 			return;
 		}
 		this.price = mid;
 		// Midにスプレッド片側分を加算
-		int ask = (int) (mid + mid * SPREAD_PERCENTAGE / 200);
-		resetCollateral();
+		long ask = (long) (mid + mid * SPREAD_PERCENTAGE / 200);
 
-		// 今の証拠金から発注数量を計算
-		// (誤差排除するため1000倍にする)
-		int qtyX1000 = this.collateral * 1000 / ask;
-		// レバレッジ倍率を加味
-		double qty = qtyX1000 * this.LEVERAGE / 1000.000;
+		// 今の証拠金とレバレッジ倍率から発注数量を計算(0.001 BTC刻み)
+		long qty = FixedPoint.orderSize(this.collateral, this.LEVERAGE, ask);
 		// 広めに価格を決定(Midに1%乗せる)
-		int orderPrice = (int) (mid + mid * 0.01);
-
-		// 買発注
-		String qtyStr = String.format("%.3f", qty);
-		ChildOrderResponse response = order(BuySellEnum.BUY, orderPrice, Double.valueOf(qtyStr), OrderTypeEnum.MARKET);
-		if (response != null) {
-			this.hasPosition = true;
-			this.entry = orderPrice;
-			this.side = BuySellEnum.BUY;
-			this.size = qty;
-			LOGGER.info("買発注成功!");
-			NOTIFIER.sendMessage("買発注成功!");
-			outputCurrentStatus();
-			outputCurrentStatusSlack();
-		} else {
-			LOGGER.info("買発注失敗!");
-			NOTIFIER.sendMessage("買発注失敗!");
-		}
+		long orderPrice = (long) (mid + mid * 0.01);
+
+		// 買発注し、約定を待つ
+		CompletableFuture<OrderFill> fillFuture = sendOrderAsync(BuySellEnum.BUY, orderPrice, qty,
+				OrderTypeEnum.MARKET).thenCompose(response -> awaitFillAsync(BuySellEnum.BUY, qty, response));
+		continueOnStrategy(fillFuture, fill -> {
+			if (fill != null && (fill.isFilled() || fill.isTimedOut())) {
+				this.hasPosition = true;
+				// 約定が確認できなければ約定価格は不明として扱う
+				this.entry = fill.isFilled() ? Math.round(fill.getAveragePrice()) : -1;
+				this.side = BuySellEnum.BUY;
+				this.size = fill.isFilled() ? fill.getFilledSize() : qty;
+				LOGGER.info("買発注成功!");
+				NOTIFIER.sendMessage("買発注成功!");
+				outputCurrentStatus();
+				outputCurrentStatusSlack();
+			} else {
+				LOGGER.info("買発注失敗!");
+				NOTIFIER.sendMessage("買発注失敗!");
+			}
+			finishOpen(BuySellEnum.BUY, lastPrice);
+		});
 	}
 
-	private void sell() {
+	private void sell(long lastPrice) {
 		LOGGER.debug("sell!");
 		if (this.side == BuySellEnum.SELL) {
 			throw new IllegalStateException("sideがSELLの時に売注文を出そうとしています。");
 		}
-		double shortPositionSize = getPositionTotalSize(BuySellEnum.SELL);
+		// 建玉、取引所の状態、Mid、証拠金を並列で取得し、揃ったら執行判断の段で発注する(段では待たない)
+		beginOrder();
+		continueOnStrategy(fetchPreTradeSnapshotAsync(), snapshot -> sell(snapshot, lastPrice));
+	}
+
+	private void sell(PreTradeSnapshot snapshot, long lastPrice) {
+		if (!snapshot.isComplete()) {
+			LOGGER.info("建玉または証拠金の取得に失敗したので売発注をスキップします。");
+			NOTIFIER.sendMessage("建玉または証拠金の取得に失敗したので売発注をスキップします。");
+			finishOpen(BuySellEnum.SELL, lastPrice);
+			return;
+		}
+		long shortPositionSize = snapshot.getPositionTotalSize(BuySellEnum.SELL);
 		if (shortPositionSize != 0) {
 			throw new IllegalStateException(
-					"ショートポジションがある状態で売注文を出そうとしています。数量：" + String.format("%.3f", shortPositionSize));
+					"ショートポジションがある状態で売注文を出そうとしています。数量：" + FixedPoint.formatSize(shortPositionSize));
 		}
-		if (!isHealthy()) {
-			String status = getHealthStatus();
+		if (!isHealthy(snapshot)) {
+			String status = snapshot.getHealthStatus();
 			LOGGER.info("取引所の状態が通常ではない、またはメンテナンス時間のため、売発注をスキップします。ステータス：" + status);
 			NOTIFIER.sendMessage("取引所の状態が通常ではない、またはメンテナンス時間のため、売発注をスキップします。ステータス：" + status);
+			finishOpen(BuySellEnum.SELL, lastPrice);
 			return;
 		}
 		// 価格計算
-		int mid = getMidPrice();
+		long mid = snapshot.getMid();
 		if (mid == -1) {
 			// 板情報が取れなければ処理しない
 			LOGGER.debug("板情報取得に失敗したので売発注をスキップします。");
+			finishOpen(BuySellEnum.SELL, lastPrice);
 			return;
 		}
 		this.price = mid;
 		// Midにスプレッド片側分を減算
-		int bid = (int) (mid - mid * SPREAD_PERCENTAGE / 200);
-		resetCollateral();
+		long bid = (long) (mid - mid * SPREAD_PERCENTAGE / 200);
 
-		// 今の証拠金から発注数量を計算
-		// (誤差排除するため1000倍にする)
-		int qtyX1000 = this.collateral * 1000 / bid;
-		// レバレッジ倍率を加味
-		double qty = qtyX1000 * this.LEVERAGE / 1000.000;
+		// 今の証拠金とレバレッジ倍率から発注数量を計算(0.001 BTC刻み)
+		long qty = FixedPoint.orderSize(this.collateral, this.LEVERAGE, bid);
 		// 広めに価格を決定(Midから1%引く)
-		int orderPrice = (int) (mid - mid * 0.01);
-
-		// 売発注
-		String qtyStr = String.format("%.3f", qty);
-		ChildOrderResponse response = order(BuySellEnum.SELL, orderPrice, Double.valueOf(qtyStr), OrderTypeEnum.MARKET);
-		if (response != null) {
-			this.hasPosition = true;
-			this.entry = orderPrice;
-			this.side = BuySellEnum.SELL;
-			this.size = qty;
-			LOGGER.info("売発注成功!");
-			NOTIFIER.sendMessage("売発注成功!");
-			outputCurrentStatus();
-			outputCurrentStatusSlack();
-		} else {
-			LOGGER.info("売発注失敗!");
-			NOTIFIER.sendMessage("売発注失敗!");
-		}
+		long orderPrice = (long) (mid - mid * 0.01);
+
+		// 売発注し、約定を待つ
+		CompletableFuture<OrderFill> fillFuture = sendOrderAsync(BuySellEnum.SELL, orderPrice, qty,
+				OrderTypeEnum.MARKET).thenCompose(response -> awaitFillAsync(BuySellEnum.SELL, qty, response));
+		continueOnStrategy(fillFuture, fill -> {
+			if (fill != null && (fill.isFilled() || fill.isTimedOut())) {
+				this.hasPosition = true;
+				// 約定が確認できなければ約定価格は不明として扱う
+				this.entry = fill.isFilled() ? Math.round(fill.getAveragePrice()) : -1;
+				this.side = BuySellEnum.SELL;
+				this.size = fill.isFilled() ? fill.getFilledSize() : qty;
+				LOGGER.info("売発注成功!");
+				NOTIFIER.sendMessage("売発注成功!");
+				outputCurrentStatus();
+				outputCurrentStatusSlack();
+			} else {
+				LOGGER.info("売発注失敗!");
+				NOTIFIER.sendMessage("売発注失敗!");
+			}
+			finishOpen(BuySellEnum.SELL, lastPrice);
+		});
 	}
 
 	private void outputCurrentStatus() {
 		LOGGER.info("[current status] collateral:" + this.collateral + " OpenPL:" + this.openPl + " side:"
-				+ (this.side == BuySellEnum.BUY ? "買" : "売") + " size:" + this.size + " entry:" + this.entry
-				+ " profitTakePrice:" + this.profitTakePrice + " lossCutPrice:" + this.lossCutPrice + " closeTime:"
-				+ this.closeTime + " price:" + this.price);
+				+ (this.side == BuySellEnum.BUY ? "買" : "売") + " size:" + FixedPoint.formatSize(this.size) + " entry:"
+				+ this.entry + " profitTakePrice:" + this.profitTakePrice + " lossCutPrice:" + this.lossCutPrice
+				+ " closeTime:" + this.closeTime + " price:" + this.price);
 	}
 
 	@Override
 	protected void outputCurrentStatusSlack() {
 		NOTIFIER.sendMessage("[current status] collateral:" + this.collateral + " OpenPL:" + this.openPl + " side:"
-				+ (this.side == BuySellEnum.BUY ? "買" : "売") + " size:" + this.size + " entry:" + this.entry
-				+ " profitTakePrice:" + this.profitTakePrice + " lossCutPrice:" + this.lossCutPrice + " closeTime:"
-				+ this.closeTime + " price:" + this.price);
+				+ (this.side == BuySellEnum.BUY ? "買" : "売") + " size:" + FixedPoint.formatSize(this.size) + " entry:"
+				+ this.entry + " profitTakePrice:" + this.profitTakePrice + " lossCutPrice:" + this.lossCutPrice
+				+ " closeTime:" + this.closeTime + " price:" + this.price);
 	}
 
 }
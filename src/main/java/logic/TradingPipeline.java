@@ -0,0 +1,283 @@
+package logic;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import core.PipelineStage;
+import exchange.HealthMonitor;
+import model.BuySellEnum;
+import model.ChildOrderResponse;
+import model.FixedPoint;
+import model.OrderTypeEnum;
+
+/**
+ * 本番でロジックの処理を4つの段に分けて、それぞれ別のスレッドで実行する。
+ * <ol>
+ * <li>市場データ: 毎秒の価格取得と足の更新(sampleMarket)。発注を待たないので、発注中も秒を取りこぼさない</li>
+ * <li>執行判断: 取得した価格での判断(judgeSecond)と、期限の処理。
+ * 発注や約定待ちで遅れている間の秒はまとめ、最新の秒だけを判断する(古い価格で発注しない)</li>
+ * <li>発注前チェック: 数量、価格、取引所の状態を確認する(通信しない)</li>
+ * <li>発注: 取引所に子注文を送る(応答は待たずに次の注文を処理する)</li>
+ * </ol>
+ * 各段に書き込むスレッドは1つだけ(市場データはスケジューラ、以降は前の段)。
+ * スケジューラのスレッドは全ロジックで共有しているので、市場データの段が詰まっていても待たずに秒を捨てる。
+ */
+class TradingPipeline {
+
+	private final DealingLogicBase LOGIC;
+
+	private final PipelineStage<MarketEvent> MARKET_DATA;
+
+	private final PipelineStage<MarketEvent> STRATEGY;
+
+	private final PipelineStage<OrderRequest> RISK;
+
+	private final PipelineStage<OrderRequest> GATEWAY;
+
+	// 1注文の数量の上限(1e-8 BTC単位、0なら上限なし)
+	private final long MAX_ORDER_SIZE;
+
+	// 執行判断の段がまだ受け取っていない最新の秒(受け取ったらnull)
+	private final AtomicReference<Sample> LATEST = new AtomicReference<>();
+
+	// 執行判断の段が受け取る前に新しい秒で差し替えた回数(市場データの段だけが更新する)
+	private volatile long coalesced;
+
+	// 発注の完了を待っている間で判断しなかった秒の数(執行判断の段だけが更新する)
+	private volatile long skippedWhileOrdering;
+
+	TradingPipeline(DealingLogicBase logic, String strategyName, Map<String, Object> pipelineParam) {
+		this.LOGIC = logic;
+		int capacity = (int) DealingLogicBase.logicParam(pipelineParam, "capacity", 1024);
+		this.MAX_ORDER_SIZE = FixedPoint.toSize(DealingLogicBase.logicParam(pipelineParam, "maxOrderSize", 0));
+		this.GATEWAY = new PipelineStage<>("orderGatewayThread", capacity, OrderRequest::new, this::onSend,
+				TradingPipeline::onAbandon);
+		this.RISK = new PipelineStage<>("riskThread", capacity, OrderRequest::new, this::onCheck,
+				TradingPipeline::onAbandon);
+		this.STRATEGY = new PipelineStage<>(strategyName, capacity, MarketEvent::new, this::onJudge);
+		this.MARKET_DATA = new PipelineStage<>("marketDataThread", capacity, MarketEvent::new, this::onMarketData);
+	}
+
+	void start() {
+		GATEWAY.start();
+		RISK.start();
+		STRATEGY.start();
+		MARKET_DATA.start();
+	}
+
+	/**
+	 * 毎秒の処理を始める(スケジューラのスレッドから呼ぶ)
+	 */
+	void publishSecond(LocalDateTime now) {
+		MarketEvent event = MARKET_DATA.tryClaim();
+		if (event == null) {
+			// 市場データの段が詰まっているので、この秒は捨てる(捨てた数はgetDroppedで分かる)
+			return;
+		}
+		event.set(now, null);
+		MARKET_DATA.publish();
+	}
+
+	/**
+	 * taskを執行判断の段で実行する(スケジューラのスレッドから呼ぶ)。
+	 * 市場データの段を通すので、それまでに始めた秒の処理の後に実行される。
+	 */
+	void publishTask(Runnable task) {
+		MarketEvent event = MARKET_DATA.tryClaim();
+		if (event == null) {
+			// 期限の処理は毎秒の判断でも行うので、ここでは捨てて知らせるだけにする
+			LOGIC.LOGGER.info("市場データの段が詰まっているので期限の処理を渡せませんでした。");
+			return;
+		}
+		event.set(null, task);
+		MARKET_DATA.publish();
+	}
+
+	/**
+	 * 発注前チェックと発注の段に注文を渡す。
+	 * 執行判断の段以外のスレッド(初期化など)からはnullを返すので、呼び出し側で直接発注する。
+	 */
+	CompletableFuture<ChildOrderResponse> submitOrder(BuySellEnum side, long price, long size,
+			OrderTypeEnum orderType) {
+		if (!STRATEGY.isCurrentThread()) {
+			return null;
+		}
+		CompletableFuture<ChildOrderResponse> result = new CompletableFuture<>();
+		OrderRequest request;
+		try {
+			request = RISK.claim();
+		} catch (IllegalStateException e) {
+			// 発注前チェックの段が止まっているので、応答を待たせずに失敗させる
+			result.completeExceptionally(e);
+			return result;
+		}
+		request.set(side, price, size, orderType, result);
+		RISK.publish();
+		return result;
+	}
+
+	/**
+	 * 段が止まって処理されなかった注文の応答待ちを例外で完了させる
+	 */
+	private static void onAbandon(OrderRequest request, Exception cause) {
+		CompletableFuture<ChildOrderResponse> result = request.result;
+		request.result = null;
+		if (result != null) {
+			result.completeExceptionally(cause);
+		}
+	}
+
+	private void onMarketData(MarketEvent event) {
+		if (event.task == null) {
+			Sample sample = new Sample(event.time, LOGIC.sampleMarket(event.time));
+			if (LATEST.getAndSet(sample) != null) {
+				// 執行判断の段が前の秒をまだ受け取っていないので、最新の秒に差し替えるだけにする
+				coalesced++;
+				return;
+			}
+		}
+		// taskがなければ、LATESTの秒を判断する合図になる
+		MarketEvent next = STRATEGY.claim();
+		next.set(null, event.task);
+		STRATEGY.publish();
+	}
+
+	private void onJudge(MarketEvent event) {
+		if (event.task != null) {
+			event.task.run();
+			return;
+		}
+		Sample sample = LATEST.getAndSet(null);
+		if (sample != null && LOGIC.isOrderInFlight()) {
+			// 発注の完了を待っている間の秒は判断しない(発注中に次の発注判断をしない)
+			skippedWhileOrdering++;
+			return;
+		}
+		if (sample != null) {
+			LOGIC.judgeSecond(sample.TIME, sample.PRICE);
+		}
+	}
+
+	private void onCheck(OrderRequest request) {
+		String reason = check(request);
+		if (reason != null) {
+			String message = "[risk] 発注前チェックで注文を止めました。" + reason + " side:" + request.side + " price:"
+					+ request.price + " size:" + FixedPoint.formatSize(request.size);
+			LOGIC.LOGGER.info(message);
+			LOGIC.NOTIFIER.sendMessage(message);
+			request.result.complete(null);
+		} else {
+			OrderRequest next;
+			try {
+				next = GATEWAY.claim();
+			} catch (IllegalStateException e) {
+				// 発注の段が止まっているので、この注文は送れない
+				request.result.completeExceptionally(e);
+				request.result = null;
+				return;
+			}
+			next.set(request.side, request.price, request.size, request.orderType, request.result);
+			GATEWAY.publish();
+		}
+		request.result = null;
+	}
+
+	/**
+	 * @return 注文を止める理由(問題なければnull)
+	 */
+	private String check(OrderRequest request) {
+		if (request.size <= 0) {
+			return "数量が0以下です。";
+		}
+		if (MAX_ORDER_SIZE > 0 && request.size > MAX_ORDER_SIZE) {
+			return "数量が上限(" + FixedPoint.formatSize(MAX_ORDER_SIZE) + ")を超えています。";
+		}
+		if (request.orderType == OrderTypeEnum.LIMIT && request.price <= 0) {
+			return "指値が0以下です。";
+		}
+		// 保持している値だけで確認する(古すぎて分からなければ止める)
+		String status = LOGIC.WRAPPER.getHealthMonitor().getStatus(false);
+		if (!HealthMonitor.isHealthyStatus(status) || LOGIC.isMaintenanceTime()) {
+			return "取引所の状態が通常ではない、またはメンテナンス時間です。ステータス：" + status;
+		}
+		return null;
+	}
+
+	private void onSend(OrderRequest request) {
+		// スロットは使い回されるので、応答を待つ間に参照する値は取り出しておく
+		CompletableFuture<ChildOrderResponse> result = request.result;
+		LOGIC.sendChildOrder(request.side, request.price, request.size, request.orderType)
+				.whenComplete((response, e) -> {
+					if (e != null) {
+						result.completeExceptionally(e);
+					} else {
+						result.complete(response);
+					}
+				});
+		request.result = null;
+	}
+
+	@Override
+	public String toString() {
+		return MARKET_DATA + " " + STRATEGY + " coalesced:" + coalesced + " skippedWhileOrdering:"
+				+ skippedWhileOrdering + " " + RISK + " " + GATEWAY;
+	}
+
+	/**
+	 * 市場データ、執行判断の段のイベント(taskがあれば期限の処理)
+	 */
+	private static class MarketEvent {
+
+		private LocalDateTime time;
+
+		private Runnable task;
+
+		private void set(LocalDateTime time, Runnable task) {
+			this.time = time;
+			this.task = task;
+		}
+	}
+
+	/**
+	 * 市場データの段で取得した秒と価格
+	 */
+	private static class Sample {
+
+		private final LocalDateTime TIME;
+
+		private final long PRICE;
+
+		private Sample(LocalDateTime time, long price) {
+			this.TIME = time;
+			this.PRICE = price;
+		}
+	}
+
+	/**
+	 * 発注前チェック、発注の段のイベント
+	 */
+	private static class OrderRequest {
+
+		private BuySellEnum side;
+
+		private long price;
+
+		// 1e-8 BTC単位
+		private long size;
+
+		private OrderTypeEnum orderType;
+
+		private CompletableFuture<ChildOrderResponse> result;
+
+		private void set(BuySellEnum side, long price, long size, OrderTypeEnum orderType,
+				CompletableFuture<ChildOrderResponse> result) {
+			this.side = side;
+			this.price = price;
+			this.size = size;
+			this.orderType = orderType;
+			this.result = result;
+		}
+	}
+}
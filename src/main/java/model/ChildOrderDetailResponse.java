@@ -0,0 +1,153 @@
+package model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+public class ChildOrderDetailResponse {
+
+	@JsonProperty("child_order_id")
+	private String childOrderId;
+
+	@JsonProperty("child_order_acceptance_id")
+	private String childOrderAcceptanceId;
+
+	@JsonProperty("product_code")
+	private String productCode;
+
+	private String side;
+
+	@JsonProperty("child_order_type")
+	private String childOrderType;
+
+	@JsonDeserialize(using = PriceDeserializer.class)
+	private long price;
+
+	@JsonProperty("average_price")
+	@JsonDeserialize(using = PriceDeserializer.class)
+	private long averagePrice;
+
+	@JsonDeserialize(using = SizeDeserializer.class)
+	private long size;
+
+	@JsonProperty("child_order_state")
+	private String childOrderState;
+
+	@JsonProperty("outstanding_size")
+	@JsonDeserialize(using = SizeDeserializer.class)
+	private long outstandingSize;
+
+	@JsonProperty("cancel_size")
+	@JsonDeserialize(using = SizeDeserializer.class)
+	private long cancelSize;
+
+	@JsonProperty("executed_size")
+	@JsonDeserialize(using = SizeDeserializer.class)
+	private long executedSize;
+
+	@JsonProperty("child_order_date")
+	private String childOrderDate;
+
+	public String getChildOrderId() {
+		return childOrderId;
+	}
+
+	public void setChildOrderId(String childOrderId) {
+		this.childOrderId = childOrderId;
+	}
+
+	public String getChildOrderAcceptanceId() {
+		return childOrderAcceptanceId;
+	}
+
+	public void setChildOrderAcceptanceId(String childOrderAcceptanceId) {
+		this.childOrderAcceptanceId = childOrderAcceptanceId;
+	}
+
+	public String getProductCode() {
+		return productCode;
+	}
+
+	public void setProductCode(String productCode) {
+		this.productCode = productCode;
+	}
+
+	public String getSide() {
+		return side;
+	}
+
+	public void setSide(String side) {
+		this.side = side;
+	}
+
+	public String getChildOrderType() {
+		return childOrderType;
+	}
+
+	public void setChildOrderType(String childOrderType) {
+		this.childOrderType = childOrderType;
+	}
+
+	public long getPrice() {
+		return price;
+	}
+
+	public void setPrice(long price) {
+		this.price = price;
+	}
+
+	public long getAveragePrice() {
+		return averagePrice;
+	}
+
+	public void setAveragePrice(long averagePrice) {
+		this.averagePrice = averagePrice;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public void setSize(long size) {
+		this.size = size;
+	}
+
+	public String getChildOrderState() {
+		return childOrderState;
+	}
+
+	public void setChildOrderState(String childOrderState) {
+		this.childOrderState = childOrderState;
+	}
+
+	public long getOutstandingSize() {
+		return outstandingSize;
+	}
+
+	public void setOutstandingSize(long outstandingSize) {
+		this.outstandingSize = outstandingSize;
+	}
+
+	public long getCancelSize() {
+		return cancelSize;
+	}
+
+	public void setCancelSize(long cancelSize) {
+		this.cancelSize = cancelSize;
+	}
+
+	public long getExecutedSize() {
+		return executedSize;
+	}
+
+	public void setExecutedSize(long executedSize) {
+		this.executedSize = executedSize;
+	}
+
+	public String getChildOrderDate() {
+		return childOrderDate;
+	}
+
+	public void setChildOrderDate(String childOrderDate) {
+		this.childOrderDate = childOrderDate;
+	}
+}
@@ -1,16 +1,21 @@
 package model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
 public class CollateralResponse {
 
-	private int collateral;
+	// 円(小数部は四捨五入)
+	@JsonDeserialize(using = PriceDeserializer.class)
+	private long collateral;
 
 	@JsonProperty("open_position_pnl")
-	private int openPositionPnl;
+	@JsonDeserialize(using = PriceDeserializer.class)
+	private long openPositionPnl;
 
 	@JsonProperty("require_collateral")
-	private String requireCollateral;
+	@JsonDeserialize(using = PriceDeserializer.class)
+	private long requireCollateral;
 
 	@JsonProperty("keep_rate")
 	private String keepRate;
@@ -18,33 +23,33 @@ public class CollateralResponse {
 	/**
 	 * @return 預け入れた証拠金の評価額(円)
 	 */
-	public int getCollateral() {
+	public long getCollateral() {
 		return collateral;
 	}
 
-	public void setCollateral(int collateral) {
+	public void setCollateral(long collateral) {
 		this.collateral = collateral;
 	}
 
 	/**
 	 * @return 建玉の評価損益(円)
 	 */
-	public int getOpenPositionPnl() {
+	public long getOpenPositionPnl() {
 		return openPositionPnl;
 	}
 
-	public void setOpenPositionPnl(int openPositionPnl) {
+	public void setOpenPositionPnl(long openPositionPnl) {
 		this.openPositionPnl = openPositionPnl;
 	}
 
 	/**
 	 * @return 現在の必要証拠金(円)
 	 */
-	public String getRequireCollateral() {
+	public long getRequireCollateral() {
 		return requireCollateral;
 	}
 
-	public void setRequireCollateral(String requireCollateral) {
+	public void setRequireCollateral(long requireCollateral) {
 		this.requireCollateral = requireCollateral;
 	}
 
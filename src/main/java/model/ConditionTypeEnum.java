@@ -0,0 +1,8 @@
+package model;
+
+/**
+ * 親注文の各注文の執行条件
+ */
+public enum ConditionTypeEnum {
+	LIMIT, MARKET, STOP, STOP_LIMIT, TRAIL
+}
@@ -1,6 +1,7 @@
 package model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
 public class ExecutionResponse {
 
@@ -8,9 +9,13 @@ public class ExecutionResponse {
 
 	private String side;
 
-	private int price;
+	// 円
+	@JsonDeserialize(using = PriceDeserializer.class)
+	private long price;
 
-	private String size;
+	// 1e-8 BTC単位
+	@JsonDeserialize(using = SizeDeserializer.class)
+	private long size;
 
 	@JsonProperty("exec_date")
 	private String execDate;
@@ -37,19 +42,19 @@ public class ExecutionResponse {
 		this.side = side;
 	}
 
-	public int getPrice() {
+	public long getPrice() {
 		return price;
 	}
 
-	public void setPrice(int price) {
+	public void setPrice(long price) {
 		this.price = price;
 	}
 
-	public String getSize() {
+	public long getSize() {
 		return size;
 	}
 
-	public void setSize(String size) {
+	public void setSize(long size) {
 		this.size = size;
 	}
 
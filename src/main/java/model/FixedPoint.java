@@ -0,0 +1,182 @@
+package model;
+
+/**
+ * 価格と数量の固定小数点表現。
+ * 価格は円単位のlong、数量は1e-8 BTC(1 satoshi)単位のlongで扱い、
+ * JSONの数値の文字列から直接変換する(doubleやBigDecimalを経由しないので誤差が出ない)。
+ */
+public class FixedPoint {
+
+	// 数量1 BTCあたりの単位数
+	public static final long SIZE_SCALE = 100_000_000L;
+
+	private static final int SIZE_DECIMALS = 8;
+
+	// 発注数量の刻み(0.001 BTC)
+	public static final long ORDER_LOT = 100_000L;
+
+	// 発注数量の刻みあたりの1 BTCの数(qtyX1000の1000)
+	private static final long LOTS_PER_BTC = SIZE_SCALE / ORDER_LOT;
+
+	private static final long[] POWERS_OF_TEN = { 1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L,
+			100_000_000L, 1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L,
+			10_000_000_000_000L, 100_000_000_000_000L, 1_000_000_000_000_000L, 1_000_000_000_000_000_000L };
+
+	private FixedPoint() {
+	}
+
+	public static long toSize(double size) {
+		return Math.round(size * SIZE_SCALE);
+	}
+
+	public static double toDouble(long size) {
+		return (double) size / SIZE_SCALE;
+	}
+
+	public static long parseSize(String text) {
+		return parse(text.toCharArray(), 0, text.length(), SIZE_DECIMALS);
+	}
+
+	public static long parseSize(char[] chars, int offset, int length) {
+		return parse(chars, offset, offset + length, SIZE_DECIMALS);
+	}
+
+	/**
+	 * @return 円単位の価格(小数部は四捨五入)
+	 */
+	public static long parsePrice(String text) {
+		return parse(text.toCharArray(), 0, text.length(), 0);
+	}
+
+	public static long parsePrice(char[] chars, int offset, int length) {
+		return parse(chars, offset, offset + length, 0);
+	}
+
+	/**
+	 * 10進数の文字列(指数表記を含む)を10^decimals倍した整数にする(それより下の桁は四捨五入)
+	 */
+	static long parse(char[] chars, int start, int end, int decimals) {
+		int i = start;
+		boolean negative = false;
+		if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+			negative = chars[i] == '-';
+			i++;
+		}
+		long mantissa = 0;
+		int scale = 0;
+		boolean fraction = false;
+		boolean digits = false;
+		for (; i < end; i++) {
+			char ch = chars[i];
+			if (ch >= '0' && ch <= '9') {
+				if (mantissa >= 100_000_000_000_000_000L) {
+					throw new NumberFormatException("桁数が多すぎます:" + new String(chars, start, end - start));
+				}
+				digits = true;
+				mantissa = mantissa * 10 + (ch - '0');
+				if (fraction) {
+					scale++;
+				}
+			} else if (ch == '.' && !fraction) {
+				fraction = true;
+			} else if ((ch == 'e' || ch == 'E') && digits) {
+				break;
+			} else {
+				throw new NumberFormatException("数値ではありません:" + new String(chars, start, end - start));
+			}
+		}
+		if (!digits) {
+			throw new NumberFormatException("数値ではありません:" + new String(chars, start, end - start));
+		}
+		int exponent = 0;
+		if (i < end) {
+			// 指数部(doubleを文字列にした1.0E-4のような値)
+			i++;
+			boolean negativeExponent = false;
+			if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+				negativeExponent = chars[i] == '-';
+				i++;
+			}
+			if (i >= end) {
+				throw new NumberFormatException("数値ではありません:" + new String(chars, start, end - start));
+			}
+			for (; i < end; i++) {
+				char ch = chars[i];
+				if (ch < '0' || ch > '9') {
+					throw new NumberFormatException("数値ではありません:" + new String(chars, start, end - start));
+				}
+				exponent = Math.min(exponent * 10 + (ch - '0'), 1000);
+			}
+			if (negativeExponent) {
+				exponent = -exponent;
+			}
+		}
+		// mantissa × 10^(exponent - scale + decimals)
+		int shift = exponent - scale + decimals;
+		long value;
+		if (shift >= 0) {
+			if (shift >= POWERS_OF_TEN.length) {
+				throw new ArithmeticException("桁あふれ:" + new String(chars, start, end - start));
+			}
+			value = Math.multiplyExact(mantissa, POWERS_OF_TEN[shift]);
+		} else if (-shift >= POWERS_OF_TEN.length) {
+			value = 0;
+		} else {
+			long divisor = POWERS_OF_TEN[-shift];
+			value = mantissa / divisor;
+			// 四捨五入
+			if (mantissa % divisor >= (divisor + 1) / 2) {
+				value++;
+			}
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * 数量を末尾の0を省いた10進数で追記する(文字列を作らない)
+	 */
+	public static StringBuilder appendSize(StringBuilder sb, long size) {
+		if (size < 0) {
+			sb.append('-');
+			size = -size;
+		}
+		sb.append(size / SIZE_SCALE);
+		long fraction = size % SIZE_SCALE;
+		if (fraction != 0) {
+			sb.append('.');
+			int digits = SIZE_DECIMALS;
+			while (fraction % 10 == 0) {
+				fraction /= 10;
+				digits--;
+			}
+			for (int d = digits - 1; d >= 0; d--) {
+				sb.append((char) ('0' + fraction / POWERS_OF_TEN[d] % 10));
+			}
+		}
+		return sb;
+	}
+
+	public static String formatSize(long size) {
+		return appendSize(new StringBuilder(24), size).toString();
+	}
+
+	/**
+	 * @return 発注数量の刻み(0.001 BTC)に四捨五入した数量(String.format("%.3f")と同じ丸め)
+	 */
+	public static long roundToLot(long size) {
+		long lots = (Math.abs(size) + ORDER_LOT / 2) / ORDER_LOT * ORDER_LOT;
+		return size < 0 ? -lots : lots;
+	}
+
+	/**
+	 * 証拠金とレバレッジから発注数量を求める。
+	 * 証拠金で買える数量を刻みに切り捨て、レバレッジを掛けて刻みに四捨五入する(全てlongで計算するので桁あふれしない)。
+	 *
+	 * @param collateral 証拠金[円]
+	 * @param price 価格[円]
+	 */
+	public static long orderSize(long collateral, double leverage, long price) {
+		long lots = Math.multiplyExact(collateral, LOTS_PER_BTC) / price;
+		return Math.round(lots * leverage) * ORDER_LOT;
+	}
+}
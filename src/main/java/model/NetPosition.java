@@ -0,0 +1,85 @@
+package model;
+
+/**
+ * FX_BTC_JPYのネットの建玉と平均価格(売買で相殺され、超えた分はドテンになる)。
+ * バックテストの取引所、ストラテジーの台帳、手元の建玉で同じ計算を使う。同期は呼び出し側で行う。
+ */
+public class NetPosition {
+
+	// 買いが正、売りが負(1e-8 BTC単位)
+	private long units = 0;
+
+	private double averagePrice = 0;
+
+	/**
+	 * 約定を反映する
+	 *
+	 * @param size 約定数量(1e-8 BTC単位)
+	 * @return 決済した分の実現損益(新規、積み増しなら0)
+	 */
+	public double apply(BuySellEnum side, long size, double price) {
+		long delta = side == BuySellEnum.BUY ? size : -size;
+		if (units == 0 || Long.signum(units) == Long.signum(delta)) {
+			// 新規または買い増し(売り増し)
+			averagePrice = (averagePrice * Math.abs(units) + price * Math.abs(delta))
+					/ (Math.abs(units) + Math.abs(delta));
+			units += delta;
+			return 0;
+		}
+		// 決済(超えた分はドテン)
+		long closing = Math.min(Math.abs(delta), Math.abs(units));
+		double realized = (price - averagePrice) * closing / FixedPoint.SIZE_SCALE * Long.signum(units);
+		long before = units;
+		units += delta;
+		if (units == 0) {
+			averagePrice = 0;
+		} else if (Long.signum(units) != Long.signum(before)) {
+			averagePrice = price;
+		}
+		return realized;
+	}
+
+	public long getUnits() {
+		return units;
+	}
+
+	public double getAveragePrice() {
+		return averagePrice;
+	}
+
+	/**
+	 * @return 評価損益(priceが不明なら0)
+	 */
+	public double getOpenPnl(double price) {
+		return units == 0 || price <= 0 ? 0 : (price - averagePrice) * units / FixedPoint.SIZE_SCALE;
+	}
+
+	/**
+	 * @return getpositionsと同じ形の建玉
+	 */
+	public static PositionResponse[] toPositions(long units, double averagePrice) {
+		if (units == 0) {
+			return new PositionResponse[0];
+		}
+		PositionResponse response = new PositionResponse();
+		response.setProductCode("FX_BTC_JPY");
+		response.setSide(units > 0 ? "BUY" : "SELL");
+		response.setPrice(Math.round(averagePrice));
+		response.setSize(Math.abs(units));
+		return new PositionResponse[] { response };
+	}
+
+	/**
+	 * @return getpositionsの建玉のネットの数量(1e-8 BTC単位、買いが正)
+	 */
+	public static long sumUnits(PositionResponse[] positions) {
+		long units = 0;
+		for (PositionResponse position : positions) {
+			if (!"FX_BTC_JPY".equals(position.getProductCode())) {
+				continue;
+			}
+			units += "BUY".equals(position.getSide()) ? position.getSize() : -position.getSize();
+		}
+		return units;
+	}
+}
@@ -0,0 +1,102 @@
+package model;
+
+/**
+ * 注文の約定結果
+ */
+public class OrderFill {
+
+	private final String childOrderAcceptanceId;
+
+	private final BuySellEnum side;
+
+	// 1e-8 BTC単位
+	private final long orderedSize;
+
+	private final long filledSize;
+
+	private final double averagePrice;
+
+	// 注文の状態(ACTIVE, COMPLETED, CANCELED, EXPIRED, REJECTED。確認できなかった場合はnull)
+	private final String state;
+
+	// 確認を打ち切った場合はtrue
+	private final boolean timedOut;
+
+	private final long elapsedMsec;
+
+	public OrderFill(String childOrderAcceptanceId, BuySellEnum side, long orderedSize, long filledSize,
+			double averagePrice, String state, boolean timedOut, long elapsedMsec) {
+		this.childOrderAcceptanceId = childOrderAcceptanceId;
+		this.side = side;
+		this.orderedSize = orderedSize;
+		this.filledSize = filledSize;
+		this.averagePrice = averagePrice;
+		this.state = state;
+		this.timedOut = timedOut;
+		this.elapsedMsec = elapsedMsec;
+	}
+
+	public String getChildOrderAcceptanceId() {
+		return childOrderAcceptanceId;
+	}
+
+	public BuySellEnum getSide() {
+		return side;
+	}
+
+	public long getOrderedSize() {
+		return orderedSize;
+	}
+
+	public long getFilledSize() {
+		return filledSize;
+	}
+
+	/**
+	 * @return 平均約定価格(約定していなければ0)
+	 */
+	public double getAveragePrice() {
+		return averagePrice;
+	}
+
+	public String getState() {
+		return state;
+	}
+
+	public boolean isTimedOut() {
+		return timedOut;
+	}
+
+	public long getElapsedMsec() {
+		return elapsedMsec;
+	}
+
+	/**
+	 * @return 一部でも約定していればtrue
+	 */
+	public boolean isFilled() {
+		return filledSize > 0;
+	}
+
+	/**
+	 * @return 注文の状態を確認できて約定数量が確定していればtrue(打ち切った、または注文一覧に出てこなかった場合はfalse)
+	 */
+	public boolean isConfirmed() {
+		return !timedOut && state != null;
+	}
+
+	/**
+	 * @return 全量約定していればtrue
+	 */
+	public boolean isFullyFilled() {
+		return "COMPLETED".equals(state) && filledSize > 0;
+	}
+
+	@Override
+	public String toString() {
+		return "id:" + childOrderAcceptanceId + " side:" + side + " ordered:" + FixedPoint.formatSize(orderedSize)
+				+ " filled:" + FixedPoint.formatSize(filledSize)
+				+ " averagePrice:" + averagePrice + " state:" + state + " timedOut:" + timedOut + " elapsed:"
+				+ elapsedMsec + "ms";
+	}
+}
@@ -0,0 +1,8 @@
+package model;
+
+/**
+ * 親注文の注文方法
+ */
+public enum ParentOrderMethodEnum {
+	SIMPLE, IFD, OCO, IFDOCO
+}
@@ -0,0 +1,61 @@
+package model;
+
+/**
+ * 親注文を構成する注文の1つ
+ */
+public class ParentOrderParameter {
+
+	private final ConditionTypeEnum conditionType;
+
+	private final BuySellEnum side;
+
+	// LIMIT, STOP_LIMITの場合の価格
+	private final long price;
+
+	// STOP, STOP_LIMITの場合のトリガー価格
+	private final long triggerPrice;
+
+	// 1e-8 BTC単位
+	private final long size;
+
+	private ParentOrderParameter(ConditionTypeEnum conditionType, BuySellEnum side, long price, long triggerPrice,
+			long size) {
+		this.conditionType = conditionType;
+		this.side = side;
+		this.price = price;
+		this.triggerPrice = triggerPrice;
+		this.size = size;
+	}
+
+	public static ParentOrderParameter market(BuySellEnum side, long size) {
+		return new ParentOrderParameter(ConditionTypeEnum.MARKET, side, 0, 0, size);
+	}
+
+	public static ParentOrderParameter limit(BuySellEnum side, long price, long size) {
+		return new ParentOrderParameter(ConditionTypeEnum.LIMIT, side, price, 0, size);
+	}
+
+	public static ParentOrderParameter stop(BuySellEnum side, long triggerPrice, long size) {
+		return new ParentOrderParameter(ConditionTypeEnum.STOP, side, 0, triggerPrice, size);
+	}
+
+	public ConditionTypeEnum getConditionType() {
+		return conditionType;
+	}
+
+	public BuySellEnum getSide() {
+		return side;
+	}
+
+	public long getPrice() {
+		return price;
+	}
+
+	public long getTriggerPrice() {
+		return triggerPrice;
+	}
+
+	public long getSize() {
+		return size;
+	}
+}
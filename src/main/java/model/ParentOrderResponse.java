@@ -0,0 +1,16 @@
+package model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class ParentOrderResponse {
+	@JsonProperty("parent_order_acceptance_id")
+	private String parentOrderAcceptanceId;
+
+	public String getParentOrderAcceptanceId() {
+		return parentOrderAcceptanceId;
+	}
+
+	public void setParentOrderAcceptanceId(String parentOrderAcceptanceId) {
+		this.parentOrderAcceptanceId = parentOrderAcceptanceId;
+	}
+}
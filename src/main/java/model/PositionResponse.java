@@ -1,6 +1,7 @@
 package model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
 public class PositionResponse {
 
@@ -9,9 +10,13 @@ public class PositionResponse {
 
 	private String side;
 
-	private String price;
+	// 円(小数部は四捨五入)
+	@JsonDeserialize(using = PriceDeserializer.class)
+	private long price;
 
-	private String size;
+	// 1e-8 BTC単位
+	@JsonDeserialize(using = SizeDeserializer.class)
+	private long size;
 
 	private String commission;
 
@@ -26,7 +31,9 @@ public class PositionResponse {
 
 	private String leverage;
 
-	private String pnl;
+	// 円(小数部は四捨五入)
+	@JsonDeserialize(using = PriceDeserializer.class)
+	private long pnl;
 
 	private String sfd;
 
@@ -46,19 +53,19 @@ public class PositionResponse {
 		this.side = side;
 	}
 
-	public String getPrice() {
+	public long getPrice() {
 		return price;
 	}
 
-	public void setPrice(String price) {
+	public void setPrice(long price) {
 		this.price = price;
 	}
 
-	public String getSize() {
+	public long getSize() {
 		return size;
 	}
 
-	public void setSize(String size) {
+	public void setSize(long size) {
 		this.size = size;
 	}
 
@@ -102,11 +109,11 @@ public class PositionResponse {
 		this.leverage = leverage;
 	}
 
-	public String getPnl() {
+	public long getPnl() {
 		return pnl;
 	}
 
-	public void setPnl(String pnl) {
+	public void setPnl(long pnl) {
 		this.pnl = pnl;
 	}
 
@@ -0,0 +1,40 @@
+package model;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+/**
+ * 価格、損益(JSONの数値または文字列の円)を円単位のlongにする(小数部は四捨五入)
+ */
+public class PriceDeserializer extends StdDeserializer<Long> {
+
+	private static final long serialVersionUID = 1L;
+
+	public PriceDeserializer() {
+		super(Long.class);
+	}
+
+	@Override
+	public Long deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+		JsonToken token = p.currentToken();
+		if (token == JsonToken.VALUE_NUMBER_INT) {
+			return p.getLongValue();
+		}
+		if (token == JsonToken.VALUE_NUMBER_FLOAT || token == JsonToken.VALUE_STRING) {
+			if (p.getTextLength() == 0) {
+				return 0L;
+			}
+			return FixedPoint.parsePrice(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+		}
+		return (Long) ctxt.handleUnexpectedToken(Long.class, p);
+	}
+
+	@Override
+	public Long getNullValue(DeserializationContext ctxt) {
+		return 0L;
+	}
+}
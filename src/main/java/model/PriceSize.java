@@ -1,22 +1,28 @@
 package model;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
 public class PriceSize {
-	private double price;
-	private double size;
+	// 円
+	@JsonDeserialize(using = PriceDeserializer.class)
+	private long price;
+	// 1e-8 BTC単位
+	@JsonDeserialize(using = SizeDeserializer.class)
+	private long size;
 
-	public double getPrice() {
+	public long getPrice() {
 		return price;
 	}
 
-	public void setPrice(double price) {
+	public void setPrice(long price) {
 		this.price = price;
 	}
 
-	public double getSize() {
+	public long getSize() {
 		return size;
 	}
 
-	public void setSize(double size) {
+	public void setSize(long size) {
 		this.size = size;
 	}
 }
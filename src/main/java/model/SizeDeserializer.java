@@ -0,0 +1,41 @@
+package model;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+/**
+ * 数量(JSONの数値または文字列のBTC)を1e-8 BTC単位のlongにする。
+ * パーサが保持している数値の文字をそのまま読むので、doubleやStringを経由しない。
+ */
+public class SizeDeserializer extends StdDeserializer<Long> {
+
+	private static final long serialVersionUID = 1L;
+
+	public SizeDeserializer() {
+		super(Long.class);
+	}
+
+	@Override
+	public Long deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+		JsonToken token = p.currentToken();
+		if (token == JsonToken.VALUE_NUMBER_INT) {
+			return Math.multiplyExact(p.getLongValue(), FixedPoint.SIZE_SCALE);
+		}
+		if (token == JsonToken.VALUE_NUMBER_FLOAT || token == JsonToken.VALUE_STRING) {
+			if (p.getTextLength() == 0) {
+				return 0L;
+			}
+			return FixedPoint.parseSize(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+		}
+		return (Long) ctxt.handleUnexpectedToken(Long.class, p);
+	}
+
+	@Override
+	public Long getNullValue(DeserializationContext ctxt) {
+		return 0L;
+	}
+}
@@ -0,0 +1,96 @@
+package model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class TickerResponse {
+
+	@JsonProperty("product_code")
+	private String productCode;
+
+	private String timestamp;
+
+	@JsonProperty("best_bid")
+	private double bestBid;
+
+	@JsonProperty("best_ask")
+	private double bestAsk;
+
+	@JsonProperty("best_bid_size")
+	private double bestBidSize;
+
+	@JsonProperty("best_ask_size")
+	private double bestAskSize;
+
+	private double ltp;
+
+	private double volume;
+
+	public String getProductCode() {
+		return productCode;
+	}
+
+	public void setProductCode(String productCode) {
+		this.productCode = productCode;
+	}
+
+	public String getTimestamp() {
+		return timestamp;
+	}
+
+	public void setTimestamp(String timestamp) {
+		this.timestamp = timestamp;
+	}
+
+	public double getBestBid() {
+		return bestBid;
+	}
+
+	public void setBestBid(double bestBid) {
+		this.bestBid = bestBid;
+	}
+
+	public double getBestAsk() {
+		return bestAsk;
+	}
+
+	public void setBestAsk(double bestAsk) {
+		this.bestAsk = bestAsk;
+	}
+
+	public double getBestBidSize() {
+		return bestBidSize;
+	}
+
+	public void setBestBidSize(double bestBidSize) {
+		this.bestBidSize = bestBidSize;
+	}
+
+	public double getBestAskSize() {
+		return bestAskSize;
+	}
+
+	public void setBestAskSize(double bestAskSize) {
+		this.bestAskSize = bestAskSize;
+	}
+
+	/**
+	 * @return 最終取引価格
+	 */
+	public double getLtp() {
+		return ltp;
+	}
+
+	public void setLtp(double ltp) {
+		this.ltp = ltp;
+	}
+
+	public double getVolume() {
+		return volume;
+	}
+
+	public void setVolume(double volume) {
+		this.volume = volume;
+	}
+}
@@ -6,19 +6,56 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpResponse;
-import java.net.http.HttpResponse.BodyHandler;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+/**
+ * Slack通知。
+ * sendMessageはキューに詰めるだけで、送信はバックグラウンドのスレッドで行う。
+ * 送信スレッドは送信間隔を空けつつ、その間に溜まったメッセージを1つにまとめて送る。
+ * キューが一杯の場合は待たずに破棄し、破棄した件数を次の送信に添える。
+ */
 public class SlackNotifier {
 
 	private final String INCOMING_WEBHOOK;
 
+	// Webhookが未設定なら通知しない
+	private final boolean ENABLED;
+
+	private final BlockingQueue<String> QUEUE;
+
+	// Slackの制限(1秒に1回程度)に合わせた送信間隔
+	private final long MIN_INTERVAL_MSEC;
+
+	// 1回の送信にまとめるメッセージ数の上限
+	private final int MAX_BATCH;
+
+	private final AtomicLong DROPPED = new AtomicLong();
+
+	private final AtomicLong SENT = new AtomicLong();
+
+	private final AtomicLong BATCHES = new AtomicLong();
+
+	// 破棄したが、まだ通知していない件数
+	private final AtomicLong UNREPORTED_DROPS = new AtomicLong();
+
+	// キューに詰めてから送信し終わる(または送信に失敗する)までのメッセージ数(flushはこれが0になるのを待つ)
+	private final AtomicInteger PENDING = new AtomicInteger();
+
 	private static SlackNotifier INSTANCE;
 
+	private static SlackNotifier DISABLED_INSTANCE;
+
 	private final HttpClient CLIENT = HttpClient.newBuilder().build();
 
 	private static Logger LOGGER = LogManager.getLogger(SlackNotifier.class);
@@ -30,33 +67,166 @@ public class SlackNotifier {
 		return INSTANCE;
 	}
 
+	/**
+	 * 送信しないインスタンスを取得する(バックテスト用。状態を持たないので全てのバックテストで共有する)
+	 */
+	public static synchronized SlackNotifier getDisabledInstance() {
+		if (DISABLED_INSTANCE == null) {
+			Map<String, Object> slackParam = new HashMap<>();
+			slackParam.put("incomingWebhook", "");
+			Map<String, Object> settings = new HashMap<>();
+			settings.put("slack", slackParam);
+			DISABLED_INSTANCE = new SlackNotifier(settings);
+		}
+		return DISABLED_INSTANCE;
+	}
+
 	private SlackNotifier(Map<String, Object> settings) {
 		@SuppressWarnings("unchecked")
-		Map<String, String> slackParam = (Map<String, String>) settings.get("slack");
+		Map<String, Object> slackParam = (Map<String, Object>) settings.get("slack");
 		// パラメータ出力
 		StringBuilder sb = new StringBuilder();
 		sb.append("SlackParams");
 		slackParam.forEach((k, v) -> sb.append(" " + k + ":" + v));
 		LOGGER.info(sb.toString());
-		this.INCOMING_WEBHOOK = slackParam.get("incomingWebhook");
+		this.INCOMING_WEBHOOK = (String) slackParam.get("incomingWebhook");
+		this.ENABLED = INCOMING_WEBHOOK != null && !INCOMING_WEBHOOK.isEmpty();
+		this.QUEUE = new ArrayBlockingQueue<>(intParam(slackParam, "queueCapacity", 1000));
+		this.MIN_INTERVAL_MSEC = intParam(slackParam, "minIntervalMsec", 1000);
+		this.MAX_BATCH = intParam(slackParam, "maxBatch", 50);
+		if (ENABLED) {
+			Thread t = new Thread(this::sendLoop, "slackSenderThread");
+			t.setDaemon(true);
+			t.start();
+		} else {
+			LOGGER.info("incomingWebhookが未設定のためSlack通知は行いません。");
+		}
+	}
+
+	private static int intParam(Map<String, Object> param, String key, int defaultValue) {
+		Object value = param.get(key);
+		return value instanceof Number ? ((Number) value).intValue() : defaultValue;
 	}
 
+	/**
+	 * メッセージをキューに詰める(送信は待たない)
+	 */
 	public void sendMessage(String message) {
+		if (!ENABLED) {
+			return;
+		}
+		// 送信スレッドが取り出す前に数える(flushがキューと送信中の間を取りこぼさないように)
+		PENDING.incrementAndGet();
+		if (!QUEUE.offer(message)) {
+			PENDING.decrementAndGet();
+			DROPPED.incrementAndGet();
+			UNREPORTED_DROPS.incrementAndGet();
+		}
+	}
+
+	/**
+	 * キューに残っているメッセージの送信が終わるまで待つ(終了前に使う)
+	 *
+	 * @return 時間内に送信し終わればtrue
+	 */
+	public boolean flush(long timeoutMsec) {
+		long deadline = System.currentTimeMillis() + timeoutMsec;
+		while (ENABLED && PENDING.get() > 0) {
+			if (System.currentTimeMillis() >= deadline) {
+				return false;
+			}
+			try {
+				Thread.sleep(10);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public int getQueueDepth() {
+		return QUEUE.size();
+	}
+
+	/**
+	 * @return キューが一杯で破棄したメッセージ数
+	 */
+	public long getDroppedCount() {
+		return DROPPED.get();
+	}
+
+	public long getSentCount() {
+		return SENT.get();
+	}
+
+	/**
+	 * @return Slackに送信した回数(まとめて送った場合は1回)
+	 */
+	public long getBatchCount() {
+		return BATCHES.get();
+	}
+
+	private void sendLoop() {
+		long lastSentMillis = 0;
+		List<String> batch = new ArrayList<>(MAX_BATCH);
+		while (true) {
+			try {
+				batch.add(QUEUE.take());
+				// 前回の送信から間隔を空ける(その間に溜まったメッセージもまとめて送る)
+				long wait = lastSentMillis + MIN_INTERVAL_MSEC - System.currentTimeMillis();
+				if (wait > 0) {
+					Thread.sleep(wait);
+				}
+				QUEUE.drainTo(batch, MAX_BATCH - 1);
+				long drops = UNREPORTED_DROPS.getAndSet(0);
+				StringBuilder sb = new StringBuilder();
+				for (String message : batch) {
+					if (sb.length() > 0) {
+						sb.append("\n");
+					}
+					sb.append(message);
+				}
+				if (drops > 0) {
+					sb.append("\n(通知が多すぎるため" + drops + "件を破棄しました)");
+				}
+				post(sb.toString());
+				SENT.addAndGet(batch.size());
+				BATCHES.incrementAndGet();
+				lastSentMillis = System.currentTimeMillis();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (Exception e) {
+				e.printStackTrace();
+			} finally {
+				// 送信し終わったか失敗したものは待たない
+				PENDING.addAndGet(-batch.size());
+				batch.clear();
+			}
+		}
+	}
+
+	private void post(String message) throws InterruptedException {
 		String body = "{" //
-				+ "\"text\": \"" + message + "\"" //
+				+ "\"text\": \"" + escape(message) + "\"" //
 				+ "}";
 		HttpRequest request = HttpRequest.newBuilder(URI.create(INCOMING_WEBHOOK))
 				.headers("Content-type", "application/json").POST(BodyPublishers.ofString(body)).build();
-
-		BodyHandler<String> bodyHandler = HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8);
 		try {
-			CLIENT.send(request, bodyHandler);
-		} catch (IOException | InterruptedException e) {
-			if (e.getMessage().contains("GOAWAY")) {
+			HttpResponse<Void> response = CLIENT.send(request, HttpResponse.BodyHandlers.discarding());
+			if (response.statusCode() == 429) {
+				// 制限超過なら指定された時間待って1回だけリトライ
+				long retryAfter = response.headers().firstValueAsLong("Retry-After").orElse(1);
+				Thread.sleep(TimeUnit.SECONDS.toMillis(retryAfter));
+				CLIENT.send(request, HttpResponse.BodyHandlers.discarding());
+			}
+		} catch (IOException e) {
+			if (e.getMessage() != null && e.getMessage().contains("GOAWAY")) {
 				try {
 					// GOAWAY含まれていたらリトライ
 					CLIENT.send(request, HttpResponse.BodyHandlers.discarding());
-				} catch (IOException | InterruptedException e1) {
+				} catch (IOException e1) {
 					e1.printStackTrace();
 				}
 			} else {
@@ -64,4 +234,35 @@ public class SlackNotifier {
 			}
 		}
 	}
+
+	private static String escape(String message) {
+		StringBuilder sb = new StringBuilder(message.length() + 16);
+		for (int i = 0; i < message.length(); i++) {
+			char c = message.charAt(i);
+			switch (c) {
+			case '"':
+				sb.append("\\\"");
+				break;
+			case '\\':
+				sb.append("\\\\");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			case '\t':
+				sb.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					sb.append(String.format("\\u%04x", (int) c));
+				} else {
+					sb.append(c);
+				}
+			}
+		}
+		return sb.toString();
+	}
 }
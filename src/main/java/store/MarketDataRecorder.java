@@ -0,0 +1,194 @@
+package store;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import exchange.BitFlyerRealtimeClient;
+import exchange.LocalOrderBook;
+import exchange.RealtimeListener;
+import model.BoardResponse;
+import model.BuySellEnum;
+import model.ExecutionResponse;
+
+/**
+ * Realtime APIで受信した約定と最良気配をTickStoreWriterで記録する。
+ * 約定は取引所の約定時刻、最良気配は受信時刻で記録する(最良気配は変化したときだけ記録する)。
+ */
+public class MarketDataRecorder implements RealtimeListener {
+
+	private final TickStoreWriter WRITER;
+
+	private final LocalOrderBook BOOK;
+
+	private final Clock CLOCK;
+
+	private final long FLUSH_INTERVAL_MSEC;
+
+	private ScheduledExecutorService scheduler;
+
+	private long lastBid = -1;
+
+	private long lastAsk = -1;
+
+	private long lastBidSize = -1;
+
+	private long lastAskSize = -1;
+
+	private long recordCount = 0;
+
+	private static Logger LOGGER = LogManager.getLogger(MarketDataRecorder.class);
+
+	public MarketDataRecorder(TickStoreWriter writer, LocalOrderBook book, Clock clock,
+			Map<String, Object> recorderParam) {
+		this.WRITER = writer;
+		this.BOOK = book;
+		this.CLOCK = clock;
+		Object flushInterval = recorderParam != null ? recorderParam.get("flushIntervalSec") : null;
+		this.FLUSH_INTERVAL_MSEC = flushInterval != null ? ((Number) flushInterval).longValue() * 1000 : 5000;
+	}
+
+	/**
+	 * 設定で記録が有効になっていれば、Realtime APIの受信内容の記録を開始する
+	 *
+	 * @return 開始した場合はそのインスタンス(無効な場合はnull)
+	 */
+	public static MarketDataRecorder startIfEnabled(Map<String, Object> settings) throws IOException {
+		@SuppressWarnings("unchecked")
+		Map<String, Object> recorderParam = (Map<String, Object>) settings.get("recorder");
+		if (recorderParam == null || recorderParam.get("enabled") != Boolean.TRUE) {
+			return null;
+		}
+		if (!BitFlyerRealtimeClient.isEnabled(settings)) {
+			LOGGER.info("Realtime APIが無効なので市場データは記録しません。");
+			return null;
+		}
+		// パラメータ出力
+		StringBuilder sb = new StringBuilder();
+		sb.append("RecorderParams");
+		recorderParam.forEach((k, v) -> sb.append(" " + k + ":" + v));
+		LOGGER.info(sb.toString());
+		Object directory = recorderParam.get("directory");
+		TickStoreWriter writer = new TickStoreWriter(Paths.get(directory != null ? (String) directory : "market-data"),
+				recorderParam);
+		BitFlyerRealtimeClient realtime = BitFlyerRealtimeClient.getInstance(settings);
+		MarketDataRecorder recorder = new MarketDataRecorder(writer, realtime.getOrderBook(),
+				Clock.systemDefaultZone(), recorderParam);
+		recorder.start();
+		realtime.addListener(recorder);
+		realtime.start();
+		// 終了時に溜めている分を書く
+		Runtime.getRuntime().addShutdownHook(new Thread(recorder::stop, "recorderShutdownThread"));
+		return recorder;
+	}
+
+	/**
+	 * 溜めている値の定期的な書き出しを開始する(受信が少ない時間帯でも最新の値がファイルに出るように)
+	 */
+	public synchronized void start() {
+		if (scheduler != null) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "recorderFlushThread");
+			t.setDaemon(true);
+			return t;
+		});
+		scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				WRITER.flush();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}, FLUSH_INTERVAL_MSEC, FLUSH_INTERVAL_MSEC, TimeUnit.MILLISECONDS);
+	}
+
+	public synchronized void stop() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+		try {
+			WRITER.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		LOGGER.info("市場データの記録を終了しました。件数:" + recordCount);
+	}
+
+	@Override
+	public void onExecutions(ExecutionResponse[] executions) {
+		try {
+			for (ExecutionResponse execution : executions) {
+				int side = "BUY".equals(execution.getSide()) ? 1 : "SELL".equals(execution.getSide()) ? -1 : 0;
+				WRITER.appendExecution(parseExecDate(execution.getExecDate()), execution.getPrice(),
+						execution.getSize(), side);
+				recordCount++;
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	@Override
+	public void onBoardSnapshot(BoardResponse snapshot) {
+		recordQuote();
+	}
+
+	@Override
+	public void onBoardDiff(BoardResponse diff) {
+		recordQuote();
+	}
+
+	private void recordQuote() {
+		if (!BOOK.isReady()) {
+			return;
+		}
+		long bid = BOOK.getBestBid();
+		long ask = BOOK.getBestAsk();
+		long bidSize = BOOK.getSizeAt(BuySellEnum.BUY, 0);
+		long askSize = BOOK.getSizeAt(BuySellEnum.SELL, 0);
+		if (bid == lastBid && ask == lastAsk && bidSize == lastBidSize && askSize == lastAskSize) {
+			return;
+		}
+		lastBid = bid;
+		lastAsk = ask;
+		lastBidSize = bidSize;
+		lastAskSize = askSize;
+		try {
+			WRITER.appendQuote(CLOCK.millis(), bid, ask, bidSize, askSize);
+			recordCount++;
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * @return 約定時刻(UTC、例:2020-05-01T03:00:00.1234567Z)のエポックミリ秒(読めなければ現在時刻)
+	 */
+	long parseExecDate(String execDate) {
+		if (execDate == null) {
+			return CLOCK.millis();
+		}
+		try {
+			String text = execDate.endsWith("Z") ? execDate.substring(0, execDate.length() - 1) : execDate;
+			return LocalDateTime.parse(text).toInstant(ZoneOffset.UTC).toEpochMilli();
+		} catch (DateTimeParseException e) {
+			return CLOCK.millis();
+		}
+	}
+
+	public long getRecordCount() {
+		return recordCount;
+	}
+}
@@ -0,0 +1,82 @@
+package store;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * セグメントファイルの形式
+ *
+ * <pre>
+ * xxx.seg: ヘッダ(MAGIC, 系列, 列数, 予備 各int) + ブロックの並び
+ *   ブロック: 件数(int), 本体のバイト数(int), 本体
+ *   本体: 各列の開始位置(int×列数) + 列ごとに先頭の値(long)と2件目以降の差分(zigzag可変長)
+ * xxx.idx: ブロックごとに先頭時刻, 末尾時刻, ブロックの位置(各long)
+ * </pre>
+ *
+ * 列は時刻が先頭で、以降は系列ごとの列。ブロック内は列ごとにまとめて格納するので、必要な列だけを読める。
+ * インデックスはブロックを書き終えた後に追記するので、インデックスにあるブロックは常に完全に書かれている。
+ */
+class Segment {
+
+	static final int MAGIC = 0x544B5331;
+
+	static final int HEADER_BYTES = 16;
+
+	static final int BLOCK_HEADER_BYTES = 8;
+
+	static final int INDEX_ENTRY_BYTES = 24;
+
+	static final String DATA_SUFFIX = ".seg";
+
+	static final String INDEX_SUFFIX = ".idx";
+
+	private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmm");
+
+	private Segment() {
+	}
+
+	/**
+	 * @return 系列とセグメントの開始時刻(UTC)から作るファイル名(名前順が時刻順になる)
+	 */
+	static String fileName(SeriesEnum series, long startMillis) {
+		return series.getPrefix() + "-"
+				+ LocalDateTime.ofInstant(Instant.ofEpochMilli(startMillis), ZoneOffset.UTC).format(NAME_FORMAT)
+				+ DATA_SUFFIX;
+	}
+
+	/**
+	 * @return ファイル名から求めたセグメントの開始時刻(この系列のセグメントでなければ-1)
+	 */
+	static long startMillis(SeriesEnum series, Path dataPath) {
+		String name = dataPath.getFileName().toString();
+		String head = series.getPrefix() + "-";
+		if (!name.startsWith(head) || !name.endsWith(DATA_SUFFIX)) {
+			return -1;
+		}
+		try {
+			return LocalDateTime.parse(name.substring(head.length(), name.length() - DATA_SUFFIX.length()),
+					NAME_FORMAT).toInstant(ZoneOffset.UTC).toEpochMilli();
+		} catch (DateTimeParseException e) {
+			return -1;
+		}
+	}
+
+	static Path indexPath(Path dataPath) {
+		String name = dataPath.getFileName().toString();
+		return dataPath.resolveSibling(name.substring(0, name.length() - DATA_SUFFIX.length()) + INDEX_SUFFIX);
+	}
+
+	static void putVarLong(ByteBuffer buffer, long value) {
+		long zigzag = (value << 1) ^ (value >> 63);
+		while ((zigzag & ~0x7FL) != 0) {
+			buffer.put((byte) ((zigzag & 0x7F) | 0x80));
+			zigzag >>>= 7;
+		}
+		buffer.put((byte) zigzag);
+	}
+}
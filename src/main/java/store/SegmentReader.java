@@ -0,0 +1,113 @@
+package store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 1つのセグメントをメモリマップして読む(ファイルの内容をヒープに読み込まず、マップした領域から直接復号する)
+ */
+class SegmentReader {
+
+	private final ByteBuffer DATA;
+
+	private final ByteBuffer INDEX;
+
+	private final int BLOCK_COUNT;
+
+	private final int COLUMN_COUNT;
+
+	SegmentReader(Path path, SeriesEnum series) throws IOException {
+		// 書き込み中のセグメントでも、インデックスを先にマップすればその時点で書き終えたブロックだけが見える
+		this.INDEX = map(Segment.indexPath(path));
+		this.DATA = map(path);
+		this.BLOCK_COUNT = INDEX.capacity() / Segment.INDEX_ENTRY_BYTES;
+		this.COLUMN_COUNT = series.getColumnCount() + 1;
+		if (DATA.capacity() < Segment.HEADER_BYTES || DATA.getInt(0) != Segment.MAGIC
+				|| DATA.getInt(4) != series.ordinal() || DATA.getInt(8) != series.getColumnCount()) {
+			throw new IOException("セグメントの形式が不正です。" + path);
+		}
+	}
+
+	private static MappedByteBuffer map(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("セグメントが大きすぎます。segmentMinutesを短くしてください。" + path);
+			}
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	int getBlockCount() {
+		return BLOCK_COUNT;
+	}
+
+	long getFirstTime(int block) {
+		return INDEX.getLong(block * Segment.INDEX_ENTRY_BYTES);
+	}
+
+	long getLastTime(int block) {
+		return INDEX.getLong(block * Segment.INDEX_ENTRY_BYTES + 8);
+	}
+
+	/**
+	 * @return 末尾の時刻がtimeMillis以降の最初のブロック(なければブロック数)
+	 */
+	int findBlock(long timeMillis) {
+		int low = 0;
+		int high = BLOCK_COUNT;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (getLastTime(mid) < timeMillis) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	int getCount(int block) {
+		return DATA.getInt(blockOffset(block));
+	}
+
+	/**
+	 * ブロックの1列を復号する
+	 *
+	 * @param column 0は時刻、1以降は系列の列
+	 * @return 件数
+	 */
+	int decode(int block, int column, long[] out) {
+		int offset = blockOffset(block);
+		int count = DATA.getInt(offset);
+		int payload = offset + Segment.BLOCK_HEADER_BYTES;
+		int position = payload + DATA.getInt(payload + 4 * column);
+		long value = DATA.getLong(position);
+		position += 8;
+		out[0] = value;
+		for (int i = 1; i < count; i++) {
+			long zigzag = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = DATA.get(position++);
+				zigzag |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			value += (zigzag >>> 1) ^ -(zigzag & 1);
+			out[i] = value;
+		}
+		return count;
+	}
+
+	int getColumnCount() {
+		return COLUMN_COUNT;
+	}
+
+	private int blockOffset(int block) {
+		return (int) INDEX.getLong(block * Segment.INDEX_ENTRY_BYTES + 16);
+	}
+}
@@ -0,0 +1,156 @@
+package store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 1つのセグメントへの追記。1ブロック分を列ごとのプリミティブ配列に溜めてから、まとめて符号化して書く。
+ */
+class SegmentWriter implements Closeable {
+
+	private final SeriesEnum SERIES;
+
+	private final long END_MILLIS;
+
+	private final FileChannel DATA;
+
+	private final FileChannel INDEX;
+
+	// [列][件] 列0は時刻
+	private final long[][] COLUMNS;
+
+	private ByteBuffer buffer;
+
+	private final ByteBuffer INDEX_ENTRY = ByteBuffer.allocate(Segment.INDEX_ENTRY_BYTES);
+
+	private long dataEnd;
+
+	// 書き終えたブロックの末尾の時刻
+	private long lastTime = Long.MIN_VALUE;
+
+	private int count = 0;
+
+	/**
+	 * @param endMillis この時刻以降の値は次のセグメントに書く
+	 */
+	SegmentWriter(Path path, SeriesEnum series, long endMillis, int blockSize) throws IOException {
+		this.SERIES = series;
+		this.END_MILLIS = endMillis;
+		this.COLUMNS = new long[series.getColumnCount() + 1][blockSize];
+		this.buffer = ByteBuffer.allocate(blockBytes(blockSize));
+		this.DATA = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		this.INDEX = FileChannel.open(Segment.indexPath(path), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		recover();
+	}
+
+	private int blockBytes(int blockSize) {
+		// 先頭の値8バイト + 差分は最大10バイト
+		return Segment.BLOCK_HEADER_BYTES + COLUMNS.length * (4 + 8 + 10 * blockSize);
+	}
+
+	/**
+	 * 既存のセグメントに続けて書く場合は、インデックスにない書きかけのブロックを捨てる
+	 */
+	private void recover() throws IOException {
+		long entries = INDEX.size() / Segment.INDEX_ENTRY_BYTES;
+		INDEX.truncate(entries * Segment.INDEX_ENTRY_BYTES);
+		if (entries == 0) {
+			ByteBuffer header = ByteBuffer.allocate(Segment.HEADER_BYTES);
+			header.putInt(Segment.MAGIC).putInt(SERIES.ordinal()).putInt(SERIES.getColumnCount()).putInt(0).flip();
+			DATA.truncate(0);
+			writeFully(DATA, header, 0);
+			dataEnd = Segment.HEADER_BYTES;
+			return;
+		}
+		ByteBuffer entry = ByteBuffer.allocate(Segment.INDEX_ENTRY_BYTES);
+		readFully(INDEX, entry, (entries - 1) * Segment.INDEX_ENTRY_BYTES);
+		lastTime = entry.getLong(8);
+		long lastBlock = entry.getLong(16);
+		ByteBuffer blockHeader = ByteBuffer.allocate(Segment.BLOCK_HEADER_BYTES);
+		readFully(DATA, blockHeader, lastBlock);
+		dataEnd = lastBlock + Segment.BLOCK_HEADER_BYTES + blockHeader.getInt(4);
+		DATA.truncate(dataEnd);
+	}
+
+	long getEndMillis() {
+		return END_MILLIS;
+	}
+
+	long getLastTime() {
+		return count > 0 ? COLUMNS[0][count - 1] : lastTime;
+	}
+
+	/**
+	 * @return ブロックが一杯になったらtrue(呼び出し側でflushする)
+	 */
+	boolean append(long timeMillis, long[] values) {
+		COLUMNS[0][count] = timeMillis;
+		for (int i = 0; i < SERIES.getColumnCount(); i++) {
+			COLUMNS[i + 1][count] = values[i];
+		}
+		count++;
+		return count == COLUMNS[0].length;
+	}
+
+	/**
+	 * 溜めている値を1ブロックとして書く
+	 */
+	void flush() throws IOException {
+		if (count == 0) {
+			return;
+		}
+		buffer.clear();
+		buffer.position(Segment.BLOCK_HEADER_BYTES + 4 * COLUMNS.length);
+		for (int c = 0; c < COLUMNS.length; c++) {
+			buffer.putInt(Segment.BLOCK_HEADER_BYTES + 4 * c, buffer.position() - Segment.BLOCK_HEADER_BYTES);
+			long[] column = COLUMNS[c];
+			buffer.putLong(column[0]);
+			for (int i = 1; i < count; i++) {
+				Segment.putVarLong(buffer, column[i] - column[i - 1]);
+			}
+		}
+		buffer.putInt(0, count);
+		buffer.putInt(4, buffer.position() - Segment.BLOCK_HEADER_BYTES);
+		buffer.flip();
+		long blockOffset = dataEnd;
+		dataEnd += buffer.remaining();
+		writeFully(DATA, buffer, blockOffset);
+
+		INDEX_ENTRY.clear();
+		INDEX_ENTRY.putLong(COLUMNS[0][0]).putLong(COLUMNS[0][count - 1]).putLong(blockOffset).flip();
+		writeFully(INDEX, INDEX_ENTRY, INDEX.size());
+		count = 0;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			DATA.close();
+			INDEX.close();
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				throw new IOException("セグメントが途中で終わっています。");
+			}
+			position += read;
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package store;
+
+/**
+ * 記録する系列。時刻[ミリ秒]に加えて系列ごとの列を持つ(値は全て固定小数点のlong)。
+ */
+public enum SeriesEnum {
+	// 約定: 価格[円], 数量[1e-8 BTC], 売買(BUY=1, SELL=-1, 板寄せ等=0)
+	EXECUTION("execution", 3),
+	// 最良気配: 買い価格[円], 売り価格[円], 買い数量[1e-8 BTC], 売り数量[1e-8 BTC]
+	QUOTE("quote", 4);
+
+	private final String prefix;
+
+	private final int columnCount;
+
+	private SeriesEnum(String prefix, int columnCount) {
+		this.prefix = prefix;
+		this.columnCount = columnCount;
+	}
+
+	/**
+	 * @return セグメントファイル名の接頭辞
+	 */
+	public String getPrefix() {
+		return prefix;
+	}
+
+	/**
+	 * @return 時刻以外の列の数
+	 */
+	public int getColumnCount() {
+		return columnCount;
+	}
+}
@@ -0,0 +1,109 @@
+package store;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 期間内の値を時刻順に1件ずつ読む。
+ *
+ * <pre>
+ * TickCursor cursor = reader.cursor(SeriesEnum.EXECUTION, from, to);
+ * while (cursor.next()) {
+ *     cursor.getTime(); cursor.getValue(0); ...
+ * }
+ * </pre>
+ */
+public class TickCursor {
+
+	private final SeriesEnum SERIES;
+
+	private final List<Path> SEGMENTS;
+
+	private final long FROM_MILLIS;
+
+	private final long TO_MILLIS;
+
+	// [列][件] 列0は時刻
+	private long[][] columns;
+
+	private SegmentReader segment;
+
+	private int segmentIndex = -1;
+
+	private int block;
+
+	private int count = 0;
+
+	private int position = 0;
+
+	private boolean finished = false;
+
+	TickCursor(SeriesEnum series, List<Path> segments, long fromMillis, long toMillis) {
+		this.SERIES = series;
+		this.SEGMENTS = segments;
+		this.FROM_MILLIS = fromMillis;
+		this.TO_MILLIS = toMillis;
+		this.columns = new long[series.getColumnCount() + 1][0];
+	}
+
+	/**
+	 * @return 次の値があればtrue
+	 */
+	public boolean next() throws IOException {
+		while (!finished) {
+			if (++position < count) {
+				long time = columns[0][position];
+				if (time >= TO_MILLIS) {
+					finished = true;
+					return false;
+				}
+				if (time >= FROM_MILLIS) {
+					return true;
+				}
+				continue;
+			}
+			loadNextBlock();
+		}
+		return false;
+	}
+
+	private void loadNextBlock() throws IOException {
+		while (segment == null || ++block >= segment.getBlockCount()) {
+			if (++segmentIndex >= SEGMENTS.size()) {
+				finished = true;
+				return;
+			}
+			segment = new SegmentReader(SEGMENTS.get(segmentIndex), SERIES);
+			// 開始時刻を含むブロックまで飛ばす(-1しておき、ループ先頭で+1する)
+			block = segment.findBlock(FROM_MILLIS) - 1;
+		}
+		if (segment.getFirstTime(block) >= TO_MILLIS) {
+			finished = true;
+			return;
+		}
+		int blockCount = segment.getCount(block);
+		if (columns[0].length < blockCount) {
+			columns = new long[columns.length][blockCount];
+		}
+		for (int c = 0; c < columns.length; c++) {
+			count = segment.decode(block, c, columns[c]);
+		}
+		position = -1;
+	}
+
+	public SeriesEnum getSeries() {
+		return SERIES;
+	}
+
+	public long getTime() {
+		return columns[0][position];
+	}
+
+	/**
+	 * @param column 系列の列(EXECUTIONなら0:価格, 1:数量, 2:売買)
+	 */
+	public long getValue(int column) {
+		return columns[column + 1][position];
+	}
+}
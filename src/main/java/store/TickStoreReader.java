@@ -0,0 +1,66 @@
+package store;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * TickStoreWriterで記録したセグメントを読む。
+ * セグメントのインデックスから開始時刻を含むブロックを二分探索するので、長期間の記録の途中からでもすぐに読み始められる。
+ */
+public class TickStoreReader {
+
+	private final Path DIRECTORY;
+
+	public TickStoreReader(Path directory) {
+		this.DIRECTORY = directory;
+	}
+
+	/**
+	 * @return fromMillis以上toMillis未満の値を時刻順に読むカーソル
+	 */
+	public TickCursor cursor(SeriesEnum series, long fromMillis, long toMillis) throws IOException {
+		List<Path> all = segments(series);
+		List<Path> segments = new ArrayList<>();
+		for (int i = 0; i < all.size(); i++) {
+			long start = Segment.startMillis(series, all.get(i));
+			if (start >= toMillis) {
+				break;
+			}
+			// 次のセグメントが開始時刻より前に始まっていれば、このセグメントは全て開始時刻より前
+			if (i + 1 < all.size() && Segment.startMillis(series, all.get(i + 1)) <= fromMillis) {
+				continue;
+			}
+			segments.add(all.get(i));
+		}
+		return new TickCursor(series, segments, fromMillis, toMillis);
+	}
+
+	public TickCursor cursor(SeriesEnum series) throws IOException {
+		return cursor(series, Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+
+	/**
+	 * @return 系列のセグメント(時刻順)
+	 */
+	public List<Path> segments(SeriesEnum series) throws IOException {
+		List<Path> segments = new ArrayList<>();
+		if (!Files.isDirectory(DIRECTORY)) {
+			return segments;
+		}
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(DIRECTORY,
+				series.getPrefix() + "-*" + Segment.DATA_SUFFIX)) {
+			for (Path path : stream) {
+				if (Segment.startMillis(series, path) >= 0 && Files.exists(Segment.indexPath(path))) {
+					segments.add(path);
+				}
+			}
+		}
+		Collections.sort(segments);
+		return segments;
+	}
+}
@@ -0,0 +1,121 @@
+package store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * 約定と最良気配をセグメントファイルに追記する。
+ * セグメントはsegmentMinutesごとに分け、各セグメントはblockSize件ごとのブロックで書く。
+ * 再起動後に同じ期間のセグメントに書く場合は、最後に書き終えたブロックの後ろから続ける。
+ */
+public class TickStoreWriter implements Closeable {
+
+	private final Path DIRECTORY;
+
+	private final long SEGMENT_MSEC;
+
+	private final int BLOCK_SIZE;
+
+	private final SegmentWriter[] WRITERS = new SegmentWriter[SeriesEnum.values().length];
+
+	private final long[] ROW = new long[4];
+
+	private boolean closed = false;
+
+	public TickStoreWriter(Path directory, Map<String, Object> storeParam) throws IOException {
+		this.DIRECTORY = directory;
+		this.SEGMENT_MSEC = (long) param(storeParam, "segmentMinutes", 60) * 60000;
+		this.BLOCK_SIZE = param(storeParam, "blockSize", 4096);
+		Files.createDirectories(directory);
+	}
+
+	private static int param(Map<String, Object> param, String key, int defaultValue) {
+		if (param == null || param.get(key) == null) {
+			return defaultValue;
+		}
+		return ((Number) param.get(key)).intValue();
+	}
+
+	/**
+	 * @param price 価格[円]
+	 * @param size 数量[1e-8 BTC]
+	 * @param side BUY=1, SELL=-1, それ以外=0
+	 */
+	public synchronized void appendExecution(long timeMillis, long price, long size, int side) throws IOException {
+		ROW[0] = price;
+		ROW[1] = size;
+		ROW[2] = side;
+		append(SeriesEnum.EXECUTION, timeMillis, ROW);
+	}
+
+	/**
+	 * @param bidSize 最良買い気配の数量[1e-8 BTC]
+	 * @param askSize 最良売り気配の数量[1e-8 BTC]
+	 */
+	public synchronized void appendQuote(long timeMillis, long bid, long ask, long bidSize, long askSize)
+			throws IOException {
+		ROW[0] = bid;
+		ROW[1] = ask;
+		ROW[2] = bidSize;
+		ROW[3] = askSize;
+		append(SeriesEnum.QUOTE, timeMillis, ROW);
+	}
+
+	private void append(SeriesEnum series, long timeMillis, long[] values) throws IOException {
+		if (closed) {
+			throw new IOException("既に閉じています。");
+		}
+		SegmentWriter writer = WRITERS[series.ordinal()];
+		long time = timeMillis;
+		if (writer == null || time >= writer.getEndMillis()) {
+			if (writer != null) {
+				writer.close();
+			}
+			long start = Math.floorDiv(time, SEGMENT_MSEC) * SEGMENT_MSEC;
+			writer = new SegmentWriter(DIRECTORY.resolve(Segment.fileName(series, start)), series,
+					start + SEGMENT_MSEC, BLOCK_SIZE);
+			WRITERS[series.ordinal()] = writer;
+		}
+		// 時刻で検索できるよう、系列内では時刻を戻さない(受信順が前後した場合は直前の時刻にそろえる)
+		time = Math.max(time, writer.getLastTime());
+		if (writer.append(time, values)) {
+			writer.flush();
+		}
+	}
+
+	/**
+	 * 溜めている値を書く(ブロックが一杯になる前でも書くので、読む側から最新の値が見える)
+	 */
+	public synchronized void flush() throws IOException {
+		for (SegmentWriter writer : WRITERS) {
+			if (writer != null) {
+				writer.flush();
+			}
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		IOException error = null;
+		for (int i = 0; i < WRITERS.length; i++) {
+			if (WRITERS[i] != null) {
+				try {
+					WRITERS[i].close();
+				} catch (IOException e) {
+					error = e;
+				}
+				WRITERS[i] = null;
+			}
+		}
+		if (error != null) {
+			throw error;
+		}
+	}
+}
@@ -0,0 +1,294 @@
+package strategy;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import exchange.ExchangeAPI;
+import exchange.HealthMonitor;
+import exchange.OrderTracker;
+import exchange.PositionBook;
+import exchange.RateLimiter;
+import exchange.RequestMetrics;
+import model.BalanceResponse;
+import model.BoardResponse;
+import model.BuySellEnum;
+import model.ChildOrderDetailResponse;
+import model.ChildOrderResponse;
+import model.CollateralResponse;
+import model.ExecutionResponse;
+import model.HealthResponse;
+import model.NetPosition;
+import model.OrderFill;
+import model.OrderTypeEnum;
+import model.ParentOrderMethodEnum;
+import model.ParentOrderParameter;
+import model.ParentOrderResponse;
+import model.PositionResponse;
+
+/**
+ * 共有の取引所APIを1つのストラテジー用に見せる。
+ * 板、約定、取引所の状態、レート制限は共有し、建玉は自分の注文の約定だけで数える。
+ *
+ * 親注文の約定は注文ごとに追跡できないので、親注文を使うストラテジーの建玉は
+ * 取引所の建玉から他のストラテジーの建玉を引いた残りとする(StrategyHostでは1つまでに制限する)。
+ * それ以外のストラテジーの建玉は台帳だけから求める。
+ * 注文の約定は共有の取引所APIが追跡している結果を使う(ストラテジーごとにgetchildordersをポーリングしない)。
+ */
+public class LiveStrategyExchange implements ExchangeAPI {
+
+	private final String NAME;
+
+	private final ExchangeAPI SHARED;
+
+	private final double ALLOCATION;
+
+	private final StrategyLedger LEDGER = new StrategyLedger();
+
+	private final PositionBook POSITION_BOOK;
+
+	private final OrderTracker ORDER_TRACKER;
+
+	// 親注文を使い、建玉を取引所の建玉の残りとする場合はtrue
+	private final boolean RESIDUAL;
+
+	/**
+	 * @param residualOf 親注文を使う場合、取引所の建玉から引く他のストラテジー(使わない場合はnull)
+	 */
+	@SuppressWarnings("unchecked")
+	public LiveStrategyExchange(String name, ExchangeAPI shared, double allocation, Map<String, Object> settings,
+			List<StrategyLedger> residualOf) {
+		this.NAME = name;
+		this.SHARED = shared;
+		this.ALLOCATION = allocation;
+		this.RESIDUAL = residualOf != null;
+		this.POSITION_BOOK = new PositionBook(RESIDUAL ? () -> residualPositions(residualOf)
+				: () -> CompletableFuture.completedFuture(
+						NetPosition.toPositions(LEDGER.getNetUnits(), LEDGER.getAveragePrice())),
+				(Map<String, Object>) settings.get("position"));
+		this.ORDER_TRACKER = new OrderTracker(shared.getOrderTracker());
+		this.ORDER_TRACKER.setFillListener(this::onFill);
+	}
+
+	private void onFill(OrderFill fill) {
+		if (!fill.isFilled()) {
+			if (RESIDUAL) {
+				POSITION_BOOK.orderFinished(fill.getChildOrderAcceptanceId());
+			}
+			return;
+		}
+		if (RESIDUAL) {
+			LEDGER.apply(fill.getSide(), fill.getFilledSize(), fill.getAveragePrice());
+			POSITION_BOOK.applyFill(fill.getChildOrderAcceptanceId(), fill.getSide(), fill.getFilledSize());
+			return;
+		}
+		// 建玉は台帳から求める(台帳の更新と建玉の置き換えの間に突き合わせが割り込まないように、台帳をロックしたまま置き換える)
+		synchronized (LEDGER) {
+			LEDGER.apply(fill.getSide(), fill.getFilledSize(), fill.getAveragePrice());
+			POSITION_BOOK.replace(LEDGER.getNetUnits());
+		}
+	}
+
+	private CompletableFuture<PositionResponse[]> residualPositions(List<StrategyLedger> others) {
+		return SHARED.getPositionsAsync().thenApply(positions -> {
+			if (positions == null) {
+				return null;
+			}
+			long units = NetPosition.sumUnits(positions);
+			for (StrategyLedger other : others) {
+				units -= other.getNetUnits();
+			}
+			return NetPosition.toPositions(units, LEDGER.getAveragePrice());
+		});
+	}
+
+	public String getName() {
+		return NAME;
+	}
+
+	public StrategyLedger getLedger() {
+		return LEDGER;
+	}
+
+	/**
+	 * 注文の追跡を停止する(追跡元の共有の取引所APIの追跡は続く)
+	 */
+	public void close() {
+		ORDER_TRACKER.close();
+		POSITION_BOOK.stop();
+	}
+
+	private ChildOrderResponse track(BuySellEnum side, long size, ChildOrderResponse response) {
+		// ロジックが約定を待たない場合も、自分の建玉に反映するため追跡する(追跡中なら同じFuture)
+		if (response != null && response.getChildOrderAcceptanceId() != null) {
+			if (RESIDUAL) {
+				POSITION_BOOK.orderAccepted(response.getChildOrderAcceptanceId());
+			}
+			ORDER_TRACKER.track(response.getChildOrderAcceptanceId(), side, size);
+		}
+		return response;
+	}
+
+	@Override
+	public BoardResponse getBoard() {
+		return SHARED.getBoard();
+	}
+
+	@Override
+	public BalanceResponse[] getBalance() {
+		return SHARED.getBalance();
+	}
+
+	@Override
+	public ChildOrderResponse sendChildOrder(BuySellEnum side, long price, long size, OrderTypeEnum orderType) {
+		return track(side, size, SHARED.sendChildOrder(side, price, size, orderType));
+	}
+
+	@Override
+	public ParentOrderResponse sendParentOrder(ParentOrderMethodEnum orderMethod, int minuteToExpire,
+			ParentOrderParameter... parameters) {
+		return sendParentOrderAsync(orderMethod, minuteToExpire, parameters).join();
+	}
+
+	@Override
+	public CompletableFuture<ParentOrderResponse> sendParentOrderAsync(ParentOrderMethodEnum orderMethod,
+			int minuteToExpire, ParentOrderParameter... parameters) {
+		return SHARED.sendParentOrderAsync(orderMethod, minuteToExpire, parameters).thenApply(response -> {
+			if (RESIDUAL && response != null && response.getParentOrderAcceptanceId() != null) {
+				// 親注文の約定は追跡できないので、取引所の建玉の残りと突き合わせて反映する
+				POSITION_BOOK.scheduleReconcile();
+			}
+			return response;
+		});
+	}
+
+	@Override
+	public boolean cancelParentOrder(String parentOrderAcceptanceId) {
+		return cancelParentOrderAsync(parentOrderAcceptanceId).join();
+	}
+
+	@Override
+	public CompletableFuture<Boolean> cancelParentOrderAsync(String parentOrderAcceptanceId) {
+		return SHARED.cancelParentOrderAsync(parentOrderAcceptanceId).thenApply(canceled -> {
+			if (RESIDUAL && canceled) {
+				POSITION_BOOK.scheduleReconcile();
+			}
+			return canceled;
+		});
+	}
+
+	@Override
+	public PositionResponse[] getPositions() {
+		return getPositionsAsync().join();
+	}
+
+	@Override
+	public CompletableFuture<PositionResponse[]> getPositionsAsync() {
+		// 手元の建玉を返す(取引所の建玉は他のストラテジーの分を含むので使わない)
+		return POSITION_BOOK.refresh().thenApply(ok -> {
+			long units = POSITION_BOOK.getPositionTotalSize(BuySellEnum.BUY)
+					- POSITION_BOOK.getPositionTotalSize(BuySellEnum.SELL);
+			return NetPosition.toPositions(units, LEDGER.getAveragePrice());
+		});
+	}
+
+	@Override
+	public CollateralResponse getCollateral() {
+		return getCollateralAsync().join();
+	}
+
+	/**
+	 * 口座の証拠金をallocationで割り当てた値(評価損益も同じ割合で按分する)
+	 */
+	@Override
+	public CompletableFuture<CollateralResponse> getCollateralAsync() {
+		return SHARED.getCollateralAsync().thenApply(collateral -> {
+			if (collateral == null) {
+				return null;
+			}
+			CollateralResponse response = new CollateralResponse();
+			response.setCollateral((long) (collateral.getCollateral() * ALLOCATION));
+			response.setOpenPositionPnl((long) (collateral.getOpenPositionPnl() * ALLOCATION));
+			return response;
+		});
+	}
+
+	@Override
+	public HealthResponse getHealth() {
+		return SHARED.getHealth();
+	}
+
+	@Override
+	public ExecutionResponse[] getExecutions() {
+		return SHARED.getExecutions();
+	}
+
+	@Override
+	public CompletableFuture<BoardResponse> getBoardAsync() {
+		return SHARED.getBoardAsync();
+	}
+
+	@Override
+	public CompletableFuture<ChildOrderResponse> sendChildOrderAsync(BuySellEnum side, long price, long size,
+			OrderTypeEnum orderType) {
+		return SHARED.sendChildOrderAsync(side, price, size, orderType)
+				.thenApply(response -> track(side, size, response));
+	}
+
+	@Override
+	public CompletableFuture<ChildOrderDetailResponse[]> getChildOrdersAsync(String acceptanceId) {
+		return SHARED.getChildOrdersAsync(acceptanceId);
+	}
+
+	@Override
+	public CompletableFuture<HealthResponse> getHealthAsync() {
+		return SHARED.getHealthAsync();
+	}
+
+	@Override
+	public RequestMetrics getRequestMetrics() {
+		return SHARED.getRequestMetrics();
+	}
+
+	@Override
+	public RateLimiter getRateLimiter() {
+		return SHARED.getRateLimiter();
+	}
+
+	@Override
+	public HealthMonitor getHealthMonitor() {
+		return SHARED.getHealthMonitor();
+	}
+
+	@Override
+	public PositionBook getPositionBook() {
+		return POSITION_BOOK;
+	}
+
+	@Override
+	public OrderTracker getOrderTracker() {
+		return ORDER_TRACKER;
+	}
+
+	@Override
+	public boolean isHealthy() {
+		return SHARED.isHealthy();
+	}
+
+	@Override
+	public boolean isMaintenanceTime(LocalDateTime now) {
+		return SHARED.isMaintenanceTime(now);
+	}
+
+	@Override
+	public Clock getClock() {
+		return SHARED.getClock();
+	}
+
+	@Override
+	public boolean isRealTimeClock() {
+		return SHARED.isRealTimeClock();
+	}
+}
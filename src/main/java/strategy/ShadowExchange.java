@@ -0,0 +1,115 @@
+package strategy;
+
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import backtest.BacktestReport;
+import backtest.SimulatedExchange;
+import exchange.RealtimeListener;
+import model.BuySellEnum;
+import model.ChildOrderResponse;
+import model.ExecutionResponse;
+import model.FixedPoint;
+import model.OrderTypeEnum;
+import model.ParentOrderMethodEnum;
+import model.ParentOrderParameter;
+import model.ParentOrderResponse;
+
+/**
+ * SHADOWモードの取引所。発注は取引所に送らずに記録し、受信した実際の約定に対してバックテストと同じ方法で約定を模擬する。
+ * 時計は受信時刻(StrategyHostが定期的に現在時刻に進める)。
+ */
+public class ShadowExchange extends SimulatedExchange implements RealtimeListener {
+
+	private final String NAME;
+
+	private final BacktestReport REPORT;
+
+	private static Logger LOGGER = LogManager.getLogger(ShadowExchange.class);
+
+	public ShadowExchange(String name, Map<String, Object> shadowParam, Map<String, Object> settings) {
+		this(name, withSystemZone(shadowParam), settings, new BacktestReport(initialCollateral(shadowParam)));
+	}
+
+	private ShadowExchange(String name, Map<String, Object> shadowParam, Map<String, Object> settings,
+			BacktestReport report) {
+		super(shadowParam, settings, report, System.currentTimeMillis());
+		this.NAME = name;
+		this.REPORT = report;
+	}
+
+	private static Map<String, Object> withSystemZone(Map<String, Object> shadowParam) {
+		Map<String, Object> param = new HashMap<>();
+		if (shadowParam != null) {
+			param.putAll(shadowParam);
+		}
+		param.put("zone", ZoneId.systemDefault().getId());
+		return param;
+	}
+
+	private static double initialCollateral(Map<String, Object> shadowParam) {
+		Object value = shadowParam != null ? shadowParam.get("initialCollateral") : null;
+		return value != null ? ((Number) value).doubleValue() : 1000000;
+	}
+
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public boolean isRealTimeClock() {
+		// 時計は記録データではなく現在時刻に進められるので、待てば進む
+		return true;
+	}
+
+	/**
+	 * @return 模擬約定の結果(損益曲線はStrategyHostが記録する)
+	 */
+	public BacktestReport getReport() {
+		return REPORT;
+	}
+
+	@Override
+	public void onExecutions(ExecutionResponse[] executions) {
+		long now = System.currentTimeMillis();
+		for (ExecutionResponse execution : executions) {
+			onTick(now, execution.getPrice(), execution.getSize());
+		}
+	}
+
+	@Override
+	public synchronized ChildOrderResponse sendChildOrder(BuySellEnum side, long price, long size,
+			OrderTypeEnum orderType) {
+		ChildOrderResponse response = super.sendChildOrder(side, price, size, orderType);
+		LOGGER.info("[shadow:" + NAME + "] child side:" + side + " price:" + price + " size:"
+				+ FixedPoint.formatSize(size) + " orderType:" + orderType + " id:"
+				+ (response != null ? response.getChildOrderAcceptanceId() : "null"));
+		return response;
+	}
+
+	@Override
+	public synchronized ParentOrderResponse sendParentOrder(ParentOrderMethodEnum orderMethod, int minuteToExpire,
+			ParentOrderParameter... parameters) {
+		ParentOrderResponse response = super.sendParentOrder(orderMethod, minuteToExpire, parameters);
+		StringBuilder sb = new StringBuilder("[shadow:" + NAME + "] parent method:" + orderMethod);
+		for (ParentOrderParameter parameter : parameters) {
+			sb.append(" ").append(parameter.getSide()).append("/").append(parameter.getConditionType()).append("/")
+					.append(parameter.getPrice()).append("/").append(parameter.getTriggerPrice()).append("/")
+					.append(FixedPoint.formatSize(parameter.getSize()));
+		}
+		sb.append(" id:").append(response != null ? response.getParentOrderAcceptanceId() : "null");
+		LOGGER.info(sb.toString());
+		return response;
+	}
+
+	@Override
+	public synchronized boolean cancelParentOrder(String parentOrderAcceptanceId) {
+		boolean canceled = super.cancelParentOrder(parentOrderAcceptanceId);
+		LOGGER.info("[shadow:" + NAME + "] cancel id:" + parentOrderAcceptanceId + " result:" + canceled);
+		return canceled;
+	}
+}
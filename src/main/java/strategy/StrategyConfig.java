@@ -0,0 +1,128 @@
+package strategy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * strategiesセクションの1件分の設定。
+ * common、logicはbot_settings.ymlの同名セクションに上書きする値だけを書く。
+ *
+ * <pre>
+ * strategies:
+ *   - name: "scalping"
+ *     logicClass: "logic.ScalpingDealingLogic"
+ *     mode: "LIVE"
+ *     allocation: 0.5
+ *     common: {leverage: 1.0}
+ *     logic: {judgeSecond: 30.0}
+ * </pre>
+ */
+public class StrategyConfig {
+
+	private final String NAME;
+
+	private final StrategyModeEnum MODE;
+
+	// 証拠金のうちこのストラテジーに割り当てる割合
+	private final double ALLOCATION;
+
+	private final Map<String, Object> SETTINGS;
+
+	private final Map<String, Object> STRATEGY_PARAM;
+
+	@SuppressWarnings("unchecked")
+	public StrategyConfig(Map<String, Object> strategyParam, Map<String, Object> settings) {
+		this.STRATEGY_PARAM = strategyParam;
+		this.NAME = String.valueOf(strategyParam.get("name"));
+		Object mode = strategyParam.get("mode");
+		this.MODE = mode != null ? StrategyModeEnum.valueOf((String) mode) : StrategyModeEnum.LIVE;
+		Object allocation = strategyParam.get("allocation");
+		this.ALLOCATION = allocation != null ? ((Number) allocation).doubleValue() : 1.0;
+		Map<String, Object> copy = new HashMap<>(settings);
+		copy.put("common", merge((Map<String, Object>) settings.get("common"),
+				(Map<String, Object>) strategyParam.get("common")));
+		copy.put("logic", merge((Map<String, Object>) settings.get("logic"),
+				(Map<String, Object>) strategyParam.get("logic")));
+		if (strategyParam.get("logicClass") != null) {
+			((Map<String, Object>) copy.get("common")).put("logicClass", strategyParam.get("logicClass"));
+		}
+		this.SETTINGS = copy;
+	}
+
+	private static Map<String, Object> merge(Map<String, Object> base, Map<String, Object> override) {
+		Map<String, Object> merged = new HashMap<>();
+		if (base != null) {
+			merged.putAll(base);
+		}
+		if (override != null) {
+			merged.putAll(override);
+		}
+		return merged;
+	}
+
+	/**
+	 * @return strategiesセクションの設定(なければ空)
+	 */
+	@SuppressWarnings("unchecked")
+	public static List<StrategyConfig> load(Map<String, Object> settings) {
+		List<StrategyConfig> configs = new ArrayList<>();
+		List<Map<String, Object>> strategies = (List<Map<String, Object>>) settings.get("strategies");
+		if (strategies != null) {
+			for (Map<String, Object> strategyParam : strategies) {
+				configs.add(new StrategyConfig(strategyParam, settings));
+			}
+		}
+		return configs;
+	}
+
+	public String getName() {
+		return NAME;
+	}
+
+	public StrategyModeEnum getMode() {
+		return MODE;
+	}
+
+	public double getAllocation() {
+		return ALLOCATION;
+	}
+
+	/**
+	 * @return 上書きを反映した設定全体
+	 */
+	public Map<String, Object> getSettings() {
+		return SETTINGS;
+	}
+
+	@SuppressWarnings("unchecked")
+	public Map<String, Object> getCommon() {
+		return (Map<String, Object>) SETTINGS.get("common");
+	}
+
+	public String getLogicClass() {
+		return (String) getCommon().get("logicClass");
+	}
+
+	/**
+	 * @return 親注文を使う(約定をchild_order_acceptance_idで追跡できない)ストラテジーならtrue
+	 */
+	public boolean isUseParentOrder() {
+		return getCommon().get("useParentOrder") == Boolean.TRUE;
+	}
+
+	/**
+	 * @return SHADOWの模擬約定の設定(backtestセクションにストラテジーごとの値を上書きしたもの)
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<String, Object> getShadowParam() {
+		Map<String, Object> shadowParam = merge((Map<String, Object>) SETTINGS.get("backtest"), null);
+		for (String key : new String[] { "initialCollateral", "spreadPercentage", "feeRate" }) {
+			if (STRATEGY_PARAM.get(key) != null) {
+				shadowParam.put(key, STRATEGY_PARAM.get(key));
+			}
+		}
+		return shadowParam;
+	}
+}
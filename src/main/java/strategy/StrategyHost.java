@@ -0,0 +1,227 @@
+package strategy;
+
+import java.lang.reflect.Constructor;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import exchange.BitFlyerRealtimeClient;
+import exchange.ExchangeAPI;
+import logic.DealingLogicBase;
+import model.ExecutionResponse;
+import notification.SlackNotifier;
+
+/**
+ * strategiesセクションの複数のロジックを1つのプロセスで動かす。
+ * 市場データ(Realtime API)、発注経路、レート制限は共有の取引所APIのものを全てのロジックで使う。
+ * LIVEのロジックはLiveStrategyExchange経由で発注し、建玉はロジックごとに数える。
+ * SHADOWのロジックはShadowExchangeで発注を記録し、約定を模擬する。
+ */
+public class StrategyHost {
+
+	// SHADOWの時計を進める間隔
+	private static final long CLOCK_INTERVAL_MSEC = 50;
+
+	private final ExchangeAPI SHARED;
+
+	private final SlackNotifier NOTIFIER;
+
+	private final Map<String, Object> SETTINGS;
+
+	private final List<StrategyConfig> CONFIGS;
+
+	private final List<DealingLogicBase> LOGICS = new ArrayList<>();
+
+	private final List<LiveStrategyExchange> LIVE_EXCHANGES = new ArrayList<>();
+
+	private final List<ShadowExchange> SHADOW_EXCHANGES = new ArrayList<>();
+
+	private ScheduledExecutorService scheduler;
+
+	private static Logger LOGGER = LogManager.getLogger(StrategyHost.class);
+
+	public StrategyHost(ExchangeAPI shared, SlackNotifier notifier, Map<String, Object> settings) {
+		this.SHARED = shared;
+		this.NOTIFIER = notifier;
+		this.SETTINGS = settings;
+		this.CONFIGS = StrategyConfig.load(settings);
+		validate(CONFIGS);
+	}
+
+	/**
+	 * @return strategiesセクションが設定されていればtrue(なければcommon.logicClassの1つだけを動かす)
+	 */
+	public static boolean isEnabled(Map<String, Object> settings) {
+		return !StrategyConfig.load(settings).isEmpty();
+	}
+
+	static void validate(List<StrategyConfig> configs) {
+		Set<String> names = new HashSet<>();
+		int residual = 0;
+		for (StrategyConfig config : configs) {
+			if (!names.add(config.getName())) {
+				throw new IllegalArgumentException("ストラテジー名が重複しています。name:" + config.getName());
+			}
+			if (config.getLogicClass() == null) {
+				throw new IllegalArgumentException("logicClassがありません。name:" + config.getName());
+			}
+			if (config.getMode() == StrategyModeEnum.LIVE && config.isUseParentOrder()) {
+				residual++;
+			}
+		}
+		// 親注文の約定は注文ごとに数えられないので、取引所の建玉の残りを割り当てられるのは1つだけ
+		if (residual > 1) {
+			throw new IllegalArgumentException("親注文を使うLIVEのストラテジーは1つまでです。");
+		}
+	}
+
+	/**
+	 * 全てのロジックを生成して開始する
+	 */
+	public synchronized void start() throws Exception {
+		List<StrategyLedger> childOrderLedgers = new ArrayList<>();
+		StrategyConfig residual = null;
+		// 子注文だけのストラテジーを先に作り、親注文を使うストラテジーはその残りを建玉とする
+		for (StrategyConfig config : CONFIGS) {
+			if (config.getMode() == StrategyModeEnum.LIVE && config.isUseParentOrder()) {
+				residual = config;
+			} else if (config.getMode() == StrategyModeEnum.LIVE) {
+				LiveStrategyExchange exchange = new LiveStrategyExchange(config.getName(), SHARED,
+						config.getAllocation(), config.getSettings(), null);
+				childOrderLedgers.add(exchange.getLedger());
+				LIVE_EXCHANGES.add(exchange);
+				LOGICS.add(createLogic(config, exchange));
+			} else {
+				ShadowExchange exchange = new ShadowExchange(config.getName(), config.getShadowParam(),
+						config.getSettings());
+				SHADOW_EXCHANGES.add(exchange);
+				LOGICS.add(createLogic(config, exchange));
+			}
+		}
+		if (residual != null) {
+			LiveStrategyExchange exchange = new LiveStrategyExchange(residual.getName(), SHARED,
+					residual.getAllocation(), residual.getSettings(), childOrderLedgers);
+			LIVE_EXCHANGES.add(exchange);
+			LOGICS.add(createLogic(residual, exchange));
+		}
+		startShadowFeed();
+		for (DealingLogicBase logic : LOGICS) {
+			LOGGER.info("ロジック開始します…:" + logic.getClass().getSimpleName());
+			logic.execute();
+		}
+		NOTIFIER.sendMessage("STRATEGIES START! " + CONFIGS.size() + "件");
+		// 終了時にストラテジーごとの成績を出力する
+		Runtime.getRuntime().addShutdownHook(new Thread(this::stop, "strategyHostShutdownThread"));
+	}
+
+	private DealingLogicBase createLogic(StrategyConfig config, ExchangeAPI exchange) throws Exception {
+		// パラメータ出力
+		StringBuilder sb = new StringBuilder();
+		sb.append("StrategyParams name:" + config.getName() + " mode:" + config.getMode() + " allocation:"
+				+ config.getAllocation());
+		config.getCommon().forEach((k, v) -> sb.append(" " + k + ":" + v));
+		LOGGER.info(sb.toString());
+		@SuppressWarnings("unchecked")
+		Class<? extends DealingLogicBase> clazz = (Class<? extends DealingLogicBase>) Class
+				.forName(config.getLogicClass());
+		Constructor<? extends DealingLogicBase> constructor = clazz.getDeclaredConstructor(ExchangeAPI.class,
+				SlackNotifier.class, Map.class, Map.class);
+		return constructor.newInstance(exchange, NOTIFIER, config.getCommon(), config.getSettings());
+	}
+
+	/**
+	 * SHADOWの取引所に実際の約定を流し、時計を進める。
+	 * Realtime APIが有効なら受信した約定を使い、無効なら1秒ごとに1回だけ取得して全てのSHADOWで共有する。
+	 */
+	private void startShadowFeed() {
+		if (SHADOW_EXCHANGES.isEmpty()) {
+			return;
+		}
+		boolean realtime = BitFlyerRealtimeClient.isEnabled(SETTINGS);
+		if (realtime) {
+			BitFlyerRealtimeClient client = BitFlyerRealtimeClient.getInstance(SETTINGS);
+			for (ShadowExchange exchange : SHADOW_EXCHANGES) {
+				client.addListener(exchange);
+			}
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "shadowFeedThread");
+			t.setDaemon(true);
+			return t;
+		});
+		long pollEvery = 1000 / CLOCK_INTERVAL_MSEC;
+		long recordEvery = 60000 / CLOCK_INTERVAL_MSEC;
+		long[] count = new long[1];
+		scheduler.scheduleAtFixedRate(() -> {
+			try {
+				long now = System.currentTimeMillis();
+				long n = count[0]++;
+				ExecutionResponse[] executions = null;
+				if (!realtime && n % pollEvery == 0) {
+					executions = SHARED.getExecutions();
+				}
+				for (ShadowExchange exchange : SHADOW_EXCHANGES) {
+					if (executions != null) {
+						exchange.onExecutions(executions);
+					}
+					exchange.setTime(now);
+					// 損益曲線は1秒ごとに更新し、1分ごとに記録する
+					if (n % pollEvery == 0) {
+						exchange.getReport().updateEquity(now, exchange.getEquity(), n % recordEvery == 0);
+					}
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}, 0, CLOCK_INTERVAL_MSEC, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * ストラテジーごとの成績を出力し、SHADOWの模擬約定の結果を書き出す
+	 */
+	public synchronized void stop() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+		for (LiveStrategyExchange exchange : LIVE_EXCHANGES) {
+			LOGGER.info("[" + exchange.getName() + "] LIVE " + exchange.getLedger());
+			exchange.close();
+		}
+		@SuppressWarnings("unchecked")
+		Map<String, Object> hostParam = (Map<String, Object>) SETTINGS.get("strategyHost");
+		Object shadowOutput = hostParam != null ? hostParam.get("shadowOutput") : null;
+		for (ShadowExchange exchange : SHADOW_EXCHANGES) {
+			exchange.getReport().updateEquity(System.currentTimeMillis(), exchange.getEquity(), true);
+			LOGGER.info("[" + exchange.getName() + "] SHADOW " + exchange.getReport());
+			try {
+				exchange.getReport().writeCsv(
+						Paths.get(shadowOutput != null ? (String) shadowOutput : "shadow-result", exchange.getName()));
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+			exchange.close();
+		}
+	}
+
+	public List<DealingLogicBase> getLogics() {
+		return LOGICS;
+	}
+
+	public List<LiveStrategyExchange> getLiveExchanges() {
+		return LIVE_EXCHANGES;
+	}
+
+	public List<ShadowExchange> getShadowExchanges() {
+		return SHADOW_EXCHANGES;
+	}
+}
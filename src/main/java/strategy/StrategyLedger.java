@@ -0,0 +1,58 @@
+package strategy;
+
+import model.BuySellEnum;
+import model.FixedPoint;
+import model.NetPosition;
+
+/**
+ * 1つのストラテジーの建玉と実現損益(自分の注文の約定だけで更新する)
+ */
+public class StrategyLedger {
+
+	// 買いが正、売りが負(1e-8 BTC単位)
+	private final NetPosition POSITION = new NetPosition();
+
+	private double realizedPnl = 0;
+
+	private long fillCount = 0;
+
+	/**
+	 * @param size 約定数量(1e-8 BTC単位)
+	 */
+	public synchronized void apply(BuySellEnum side, long size, double price) {
+		if (size == 0) {
+			return;
+		}
+		fillCount++;
+		realizedPnl += POSITION.apply(side, size, price);
+	}
+
+	public synchronized long getNetUnits() {
+		return POSITION.getUnits();
+	}
+
+	public synchronized double getAveragePrice() {
+		return POSITION.getAveragePrice();
+	}
+
+	public synchronized double getRealizedPnl() {
+		return realizedPnl;
+	}
+
+	public synchronized long getFillCount() {
+		return fillCount;
+	}
+
+	/**
+	 * @return 評価損益(priceが不明なら0)
+	 */
+	public synchronized double getOpenPnl(double price) {
+		return POSITION.getOpenPnl(price);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "建玉:" + FixedPoint.formatSize(POSITION.getUnits()) + " 平均価格:" + Math.round(POSITION.getAveragePrice())
+				+ " 実現損益:" + Math.round(realizedPnl) + " 約定数:" + fillCount;
+	}
+}
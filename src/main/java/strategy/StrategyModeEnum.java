@@ -0,0 +1,8 @@
+package strategy;
+
+public enum StrategyModeEnum {
+	// 実際に発注する
+	LIVE,
+	// 発注せず、執行判断を記録して実際の約定に対して約定を模擬する
+	SHADOW
+}
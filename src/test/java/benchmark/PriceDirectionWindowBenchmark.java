@@ -0,0 +1,119 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.queue.CircularFifoQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import logic.PriceDirectionWindow;
+import model.DirectionEnum;
+
+/**
+ * 1秒分の処理(追加+開始判定の集計)の比較(変更前:CircularFifoQueueを毎回全件走査、変更後:PriceDirectionWindowで差分集計)
+ *
+ * 実行方法:
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) benchmark.PriceDirectionWindowBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PriceDirectionWindowBenchmark {
+
+	@Param({ "10", "60", "300", "1800" })
+	private int judgeSecond;
+
+	// 変更前の保持方法(1秒ごとに組を作ってキューに詰め、古い順に全件走査する)
+	private CircularFifoQueue<PriceDirectionPair> queue;
+
+	private PriceDirectionWindow window;
+
+	private long[] prices;
+
+	private DirectionEnum[] directions;
+
+	private int cursor;
+
+	@Setup
+	public void setUp() {
+		queue = new CircularFifoQueue<>(judgeSecond);
+		window = new PriceDirectionWindow(judgeSecond);
+		prices = new long[4096];
+		directions = new DirectionEnum[prices.length];
+		long price = 1000000;
+		for (int i = 0; i < prices.length; i++) {
+			int move = (i * 7919) % 3 - 1;
+			price += move * 100;
+			prices[i] = price;
+			directions[i] = move > 0 ? DirectionEnum.UP : move < 0 ? DirectionEnum.DOWN : DirectionEnum.STAY;
+		}
+		for (int i = 0; i < judgeSecond; i++) {
+			queue.add(new PriceDirectionPair(prices[i % prices.length], directions[i % prices.length]));
+			window.add(prices[i % prices.length], directions[i % prices.length]);
+		}
+	}
+
+	@Benchmark
+	public long legacy() {
+		int i = cursor++ & (prices.length - 1);
+		queue.add(new PriceDirectionPair(prices[i], directions[i]));
+		long diff = queue.get(judgeSecond - 1).price - queue.peek().price;
+		int upCount = 0;
+		int downCount = 0;
+		for (int j = 0; j < judgeSecond; j++) {
+			switch (queue.get(j).direction) {
+			case UP:
+				upCount++;
+				break;
+			case DOWN:
+				downCount++;
+				break;
+			default:
+				break;
+			}
+		}
+		return diff + upCount - downCount;
+	}
+
+	@Benchmark
+	public long window() {
+		int i = cursor++ & (prices.length - 1);
+		window.add(prices[i], directions[i]);
+		long diff = window.getLastPrice() - window.getFirstPrice();
+		return diff + window.getUpCount() - window.getDownCount();
+	}
+
+	/**
+	 * 変更前に使っていた約定価格と変動方向の組(本体からは削除済みなのでここに残す)
+	 */
+	private static class PriceDirectionPair {
+
+		private final long price;
+
+		private final DirectionEnum direction;
+
+		private PriceDirectionPair(long price, DirectionEnum direction) {
+			this.price = price;
+			this.direction = direction;
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		new Runner(new OptionsBuilder().include(PriceDirectionWindowBenchmark.class.getSimpleName()).build()).run();
+	}
+}
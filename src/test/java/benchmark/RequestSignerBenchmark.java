@@ -0,0 +1,80 @@
+package benchmark;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import exchange.RequestSigner;
+
+/**
+ * 署名の比較(変更前:毎回Mac生成+String.format、変更後:スレッドごとのMac+変換表)
+ *
+ * 実行方法:
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) benchmark.RequestSignerBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestSignerBenchmark {
+
+	private final String secret = "0123456789abcdef0123456789abcdef0123456789a=";
+
+	private final String timestamp = "1588291200000";
+
+	private final String path = "/v1/me/sendchildorder";
+
+	private final String body = "{\"product_code\": \"FX_BTC_JPY\", \"child_order_type\": \"LIMIT\", \"side\": \"BUY\", "
+			+ "\"price\": 1000000, \"size\": 0.01}";
+
+	private final RequestSigner signer = new RequestSigner(secret);
+
+	@Benchmark
+	public String signLegacy() {
+		String plaintext = timestamp + "POST" + path + body;
+		SecretKeySpec sk = new SecretKeySpec(secret.getBytes(), "HmacSHA256");
+		Mac mac;
+		try {
+			mac = Mac.getInstance("HmacSHA256");
+			mac.init(sk);
+			byte[] mac_bytes = mac.doFinal(plaintext.getBytes());
+			StringBuilder sb = new StringBuilder(2 * mac_bytes.length);
+			for (byte b : mac_bytes) {
+				sb.append(String.format("%02x", b & 0xff));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			e.printStackTrace();
+		} catch (InvalidKeyException e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	@Benchmark
+	public String signCached() {
+		return signer.sign(timestamp, "POST", path, body);
+	}
+
+	public static void main(String[] args) throws Exception {
+		new Runner(new OptionsBuilder().include(RequestSignerBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,117 @@
+package benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import exchange.ResponseDecoder;
+import model.BoardResponse;
+import model.ExecutionResponse;
+import model.PositionResponse;
+
+/**
+ * レスポンスデコードの比較(変更前:毎回ObjectMapper生成+String経由、変更後:共有ObjectReader+バイト列から直接)
+ *
+ * 実行方法:
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) benchmark.ResponseDecodeBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseDecodeBenchmark {
+
+	private byte[] board;
+
+	private byte[] executions;
+
+	private byte[] positions;
+
+	@Setup
+	public void setUp() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"mid_price\":1000000.0,\"bids\":[");
+		for (int i = 0; i < 500; i++) {
+			sb.append(i == 0 ? "" : ",").append("{\"price\":").append(999999 - i).append(".0,\"size\":0.0")
+					.append(i % 90 + 10).append("}");
+		}
+		sb.append("],\"asks\":[");
+		for (int i = 0; i < 500; i++) {
+			sb.append(i == 0 ? "" : ",").append("{\"price\":").append(1000001 + i).append(".0,\"size\":0.0")
+					.append(i % 90 + 10).append("}");
+		}
+		sb.append("]}");
+		board = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+		sb.setLength(0);
+		sb.append("[");
+		for (int i = 0; i < 100; i++) {
+			sb.append(i == 0 ? "" : ",").append("{\"id\":").append(1000 + i)
+					.append(",\"side\":\"BUY\",\"price\":1000000.0,\"size\":0.01,")
+					.append("\"exec_date\":\"2020-05-01T00:00:00.000\",")
+					.append("\"buy_child_order_acceptance_id\":\"JRF20200501-000000-000001\",")
+					.append("\"sell_child_order_acceptance_id\":\"JRF20200501-000000-000002\"}");
+		}
+		sb.append("]");
+		executions = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+		positions = ("[{\"product_code\":\"FX_BTC_JPY\",\"side\":\"BUY\",\"price\":1000000,\"size\":0.01,"
+				+ "\"commission\":0,\"swap_point_accumulate\":0,\"require_collateral\":10000,"
+				+ "\"open_date\":\"2020-05-01T00:00:00.000\",\"leverage\":1,\"pnl\":10,\"sfd\":0}]")
+						.getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public BoardResponse boardLegacy() throws Exception {
+		ObjectMapper mapper = new ObjectMapper();
+		return mapper.readValue(new String(board, StandardCharsets.UTF_8), BoardResponse.class);
+	}
+
+	@Benchmark
+	public BoardResponse boardShared() throws Exception {
+		return ResponseDecoder.decode(ResponseDecoder.BOARD, board);
+	}
+
+	@Benchmark
+	public ExecutionResponse[] executionsLegacy() throws Exception {
+		ObjectMapper mapper = new ObjectMapper();
+		return mapper.readValue(new String(executions, StandardCharsets.UTF_8), ExecutionResponse[].class);
+	}
+
+	@Benchmark
+	public ExecutionResponse[] executionsShared() throws Exception {
+		return ResponseDecoder.decode(ResponseDecoder.EXECUTIONS, executions);
+	}
+
+	@Benchmark
+	public PositionResponse[] positionsLegacy() throws Exception {
+		ObjectMapper mapper = new ObjectMapper();
+		return mapper.readValue(new String(positions, StandardCharsets.UTF_8), PositionResponse[].class);
+	}
+
+	@Benchmark
+	public PositionResponse[] positionsShared() throws Exception {
+		return ResponseDecoder.decode(ResponseDecoder.POSITIONS, positions);
+	}
+
+	public static void main(String[] args) throws Exception {
+		new Runner(new OptionsBuilder().include(ResponseDecodeBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,164 @@
+package core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import backtest.BacktestEngine;
+import backtest.BacktestReport;
+import backtest.RecordedDataReader;
+import backtest.SimulatedExchange;
+import backtest.TickData;
+import model.BuySellEnum;
+import model.FixedPoint;
+import model.OrderTypeEnum;
+import model.ParentOrderMethodEnum;
+import model.ParentOrderParameter;
+
+class BacktestEngineTest {
+
+	// 2020-05-01T12:00:00+09:00
+	private static final long BASE = 1588302000000L;
+
+	// 0.1 BTC
+	private static final long SIZE = 10_000_000L;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception {
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception {
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+	}
+
+	private static Map<String, Object> settings() {
+		Map<String, Object> common = new HashMap<>();
+		common.put("logicClass", "logic.ScalpingDealingLogic");
+		common.put("leverage", 1.0);
+		common.put("lossCutPercentage", 0.5);
+		Map<String, Object> logic = new HashMap<>();
+		logic.put("profitTakePercentage", 0.3);
+		logic.put("spread", 0.0);
+		logic.put("notifyInterval", 60.0);
+		logic.put("directionJudgePercentage", 0.1);
+		logic.put("countJudgeRatio", 0.5);
+		logic.put("judgeSecond", 10.0);
+		logic.put("closeSecond", 120.0);
+		Map<String, Object> backtest = new HashMap<>();
+		backtest.put("initialCollateral", 1000000);
+		backtest.put("spreadPercentage", 0.0);
+		backtest.put("feeRate", 0.0);
+		Map<String, Object> settings = new HashMap<>();
+		settings.put("common", common);
+		settings.put("logic", logic);
+		settings.put("backtest", backtest);
+		return settings;
+	}
+
+	@Test
+	void simulatedExchangeTest() {
+		Map<String, Object> backtest = new HashMap<>();
+		backtest.put("spreadPercentage", 0.0);
+		backtest.put("feeRate", 0.001);
+		BacktestReport report = new BacktestReport(1000000);
+		SimulatedExchange exchange = new SimulatedExchange(backtest, new HashMap<>(), report, BASE);
+		exchange.onTick(BASE, 1000000, SIZE);
+		exchange.sendChildOrder(BuySellEnum.BUY, 0, SIZE, OrderTypeEnum.MARKET);
+		exchange.onTick(BASE + 1000, 1010000, SIZE);
+		assertEquals(SIZE, exchange.getPositionSize());
+		// 評価益1000円、手数料100円
+		assertEquals(1000000 + 1000 - 100, exchange.getEquity(), 1e-6);
+		// ドテン(0.1決済して0.1新規)
+		exchange.sendChildOrder(BuySellEnum.SELL, 0, 2 * SIZE, OrderTypeEnum.MARKET);
+		assertEquals(-SIZE, exchange.getPositionSize());
+		assertEquals(1000.0, report.getTradeRealizedPnl(1), 1e-6);
+		assertEquals(2, report.getTradeCount());
+	}
+
+	@Test
+	void parentOrderTest() {
+		Map<String, Object> backtest = new HashMap<>();
+		backtest.put("spreadPercentage", 0.0);
+		BacktestReport report = new BacktestReport(1000000);
+		SimulatedExchange exchange = new SimulatedExchange(backtest, new HashMap<>(), report, BASE);
+		exchange.onTick(BASE, 1000000, SIZE);
+		String id = exchange.sendParentOrder(ParentOrderMethodEnum.IFDOCO, 10,
+				ParentOrderParameter.market(BuySellEnum.BUY, SIZE),
+				ParentOrderParameter.limit(BuySellEnum.SELL, 1010000, SIZE),
+				ParentOrderParameter.stop(BuySellEnum.SELL, 990000, SIZE)).getParentOrderAcceptanceId();
+		assertEquals(SIZE, exchange.getPositionSize());
+		exchange.onTick(BASE + 1000, 1005000, SIZE);
+		assertEquals(SIZE, exchange.getPositionSize());
+		// 利確の指値で約定し、逆指値は取り消される
+		exchange.onTick(BASE + 2000, 1011000, SIZE);
+		assertEquals(0, exchange.getPositionSize());
+		assertEquals(1000.0, report.getTradeRealizedPnl(1), 1e-6);
+		exchange.onTick(BASE + 3000, 980000, SIZE);
+		assertEquals(2, report.getTradeCount());
+		assertTrue(!exchange.cancelParentOrder(id));
+	}
+
+	@Test
+	void readerTest() throws Exception {
+		Path ohlcv = Files.createTempFile("ohlcv", ".log");
+		Path priceDirection = Files.createTempFile("price_direction", ".log");
+		try {
+			Files.write(ohlcv, Arrays.asList("1588302060,100,120,90,110,2.0"));
+			TickData ticks = RecordedDataReader.read(ohlcv, RecordedDataReader.FormatEnum.OHLCV);
+			assertEquals(4, ticks.size());
+			assertEquals(1588302000000L, ticks.getTime(0));
+			// 陽線は安値が先
+			assertEquals(90, ticks.getPrice(1));
+			assertEquals(120, ticks.getPrice(2));
+			assertEquals(110, ticks.getPrice(3));
+			assertEquals(FixedPoint.toSize(0.5), ticks.getSize(3));
+			Files.write(priceDirection, Arrays.asList("1588302000,1000000,STAY", "1588302001,1000100,UP"));
+			ticks = RecordedDataReader.read(priceDirection, RecordedDataReader.FormatEnum.PRICE_DIRECTION);
+			assertEquals(2, ticks.size());
+			assertEquals(1588302001000L, ticks.getTime(1));
+			assertEquals(1000100, ticks.getPrice(1));
+		} finally {
+			Files.delete(ohlcv);
+			Files.delete(priceDirection);
+		}
+	}
+
+	@Test
+	void runTest() throws Exception {
+		// 上昇した後に下落する約定(1秒に4件、30分)
+		TickData ticks = new TickData(0);
+		int price = 1000000;
+		for (int i = 0; i < 30 * 60 * 4; i++) {
+			price += i < 15 * 60 * 4 ? 50 : -50;
+			ticks.add(BASE + i * 250L, price, FixedPoint.toSize(0.01));
+		}
+		BacktestReport report = new BacktestEngine(settings()).run(ticks);
+		assertEquals(ticks.size(), report.getTickCount());
+		assertTrue(report.getTradeCount() > 0);
+		assertTrue(report.getEquityCount() > 0);
+		assertTrue(report.getMaxDrawdown() >= 0);
+		// 同じデータなら同じ結果になる
+		BacktestReport again = new BacktestEngine(settings()).run(ticks);
+		assertEquals(report.getTradeCount(), again.getTradeCount());
+		assertEquals(report.getTotalPnl(), again.getTotalPnl(), 1e-6);
+	}
+}
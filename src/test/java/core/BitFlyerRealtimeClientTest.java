@@ -0,0 +1,277 @@
+package core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import exchange.BitFlyerRealtimeClient;
+import exchange.RealtimeListener;
+import model.BoardResponse;
+import model.ExecutionResponse;
+import model.TickerResponse;
+
+class BitFlyerRealtimeClientTest {
+
+	static LocalWebSocketServer SERVER;
+
+	static BitFlyerRealtimeClient CLIENT;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception {
+		SERVER = new LocalWebSocketServer();
+		SERVER.start();
+		Map<String, Object> settings = new HashMap<>();
+		Map<String, Object> realtimeParam = new HashMap<>();
+		realtimeParam.put("enabled", true);
+		realtimeParam.put("endpoint", "ws://localhost:" + SERVER.getPort() + "/json-rpc");
+		realtimeParam.put("reconnectIntervalMsec", 100);
+		realtimeParam.put("staleMsec", 60000);
+		settings.put("realtime", realtimeParam);
+		CLIENT = BitFlyerRealtimeClient.getInstance(settings);
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception {
+		CLIENT.stop();
+		SERVER.close();
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+	}
+
+	@Test
+	void subscribeDispatchAndReconnectTest() throws Exception {
+		CountDownLatch executionLatch = new CountDownLatch(1);
+		CountDownLatch tickerLatch = new CountDownLatch(1);
+		CountDownLatch boardLatch = new CountDownLatch(1);
+		CountDownLatch connectedLatch = new CountDownLatch(2);
+		long[] executionPrice = new long[1];
+		double[] bestBid = new double[1];
+		double[] mid = new double[1];
+		CLIENT.addListener(new RealtimeListener() {
+			@Override
+			public void onExecutions(ExecutionResponse[] executions) {
+				executionPrice[0] = executions[0].getPrice();
+				executionLatch.countDown();
+			}
+
+			@Override
+			public void onTicker(TickerResponse ticker) {
+				bestBid[0] = ticker.getBestBid();
+				tickerLatch.countDown();
+			}
+
+			@Override
+			public void onBoardDiff(BoardResponse diff) {
+				mid[0] = diff.getMidPrice();
+				boardLatch.countDown();
+			}
+
+			@Override
+			public void onConnected() {
+				connectedLatch.countDown();
+			}
+		});
+		CLIENT.start();
+
+		// 接続直後に4チャンネル購読される
+		for (int i = 0; i < 4; i++) {
+			String subscribe = SERVER.received.poll(5, TimeUnit.SECONDS);
+			assertTrue(subscribe.contains("\"method\":\"subscribe\""));
+		}
+
+		SERVER.send("{\"jsonrpc\":\"2.0\",\"method\":\"channelMessage\",\"params\":{\"channel\":\""
+				+ BitFlyerRealtimeClient.EXECUTIONS_CHANNEL + "\",\"message\":[{\"id\":1,\"side\":\"BUY\","
+				+ "\"price\":1000000.0,\"size\":0.01,\"exec_date\":\"2020-05-01T00:00:00.0Z\","
+				+ "\"buy_child_order_acceptance_id\":\"a\",\"sell_child_order_acceptance_id\":\"b\"}]}}");
+		SERVER.send("{\"jsonrpc\":\"2.0\",\"method\":\"channelMessage\",\"params\":{\"channel\":\""
+				+ BitFlyerRealtimeClient.TICKER_CHANNEL + "\",\"message\":{\"product_code\":\"FX_BTC_JPY\","
+				+ "\"best_bid\":999000.0,\"best_ask\":1001000.0,\"ltp\":1000000.0,\"tick_id\":1}}}");
+		SERVER.send("{\"jsonrpc\":\"2.0\",\"method\":\"channelMessage\",\"params\":{\"channel\":\""
+				+ BitFlyerRealtimeClient.BOARD_CHANNEL + "\",\"message\":{\"mid_price\":1000500.0,"
+				+ "\"bids\":[{\"price\":1000000.0,\"size\":0.5}],\"asks\":[]}}}");
+		assertTrue(executionLatch.await(5, TimeUnit.SECONDS));
+		assertTrue(tickerLatch.await(5, TimeUnit.SECONDS));
+		assertTrue(boardLatch.await(5, TimeUnit.SECONDS));
+		assertEquals(1000000, executionPrice[0]);
+		assertEquals(999000.0, bestBid[0], 0.0);
+		assertEquals(1000500.0, mid[0], 0.0);
+
+		// サーバから切断されたら再接続して購読し直す
+		SERVER.dropConnection();
+		assertTrue(connectedLatch.await(5, TimeUnit.SECONDS));
+		for (int i = 0; i < 4; i++) {
+			String subscribe = SERVER.received.poll(5, TimeUnit.SECONDS);
+			assertTrue(subscribe.contains("\"method\":\"subscribe\""));
+		}
+		assertEquals(1, CLIENT.getReconnectCount());
+
+		// stopした後に再びstartできる
+		CLIENT.stop();
+		CLIENT.start();
+		for (int i = 0; i < 4; i++) {
+			String subscribe = SERVER.received.poll(5, TimeUnit.SECONDS);
+			assertTrue(subscribe.contains("\"method\":\"subscribe\""));
+		}
+	}
+
+	/**
+	 * テキストフレームの送受信だけに対応したWebSocketサーバのスタンドイン
+	 */
+	static class LocalWebSocketServer {
+
+		final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+
+		private final ServerSocket serverSocket;
+
+		private volatile Socket socket;
+
+		LocalWebSocketServer() throws IOException {
+			this.serverSocket = new ServerSocket(0);
+		}
+
+		int getPort() {
+			return serverSocket.getLocalPort();
+		}
+
+		void start() {
+			Thread t = new Thread(() -> {
+				while (!serverSocket.isClosed()) {
+					try {
+						Socket s = serverSocket.accept();
+						handshake(s);
+						this.socket = s;
+						readLoop(s);
+					} catch (Exception e) {
+						// 切断
+					}
+				}
+			}, "localWebSocketServer");
+			t.setDaemon(true);
+			t.start();
+		}
+
+		void send(String text) throws IOException {
+			byte[] payload = text.getBytes(StandardCharsets.UTF_8);
+			OutputStream out = socket.getOutputStream();
+			synchronized (this) {
+				out.write(0x81);
+				if (payload.length < 126) {
+					out.write(payload.length);
+				} else {
+					out.write(126);
+					out.write(payload.length >>> 8);
+					out.write(payload.length & 0xff);
+				}
+				out.write(payload);
+				out.flush();
+			}
+		}
+
+		void dropConnection() throws IOException {
+			// サーバ再起動を想定し、Going Away(1001)のCloseフレームを送って切断する
+			OutputStream out = socket.getOutputStream();
+			synchronized (this) {
+				out.write(new byte[] { (byte) 0x88, 2, 0x03, (byte) 0xe9 });
+				out.flush();
+			}
+			socket.close();
+		}
+
+		void close() throws IOException {
+			serverSocket.close();
+		}
+
+		private void handshake(Socket s) throws Exception {
+			InputStream in = s.getInputStream();
+			StringBuilder header = new StringBuilder();
+			while (!header.toString().endsWith("\r\n\r\n")) {
+				header.append((char) in.read());
+			}
+			String key = null;
+			for (String line : header.toString().split("\r\n")) {
+				if (line.toLowerCase().startsWith("sec-websocket-key:")) {
+					key = line.substring(line.indexOf(':') + 1).trim();
+				}
+			}
+			MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+			String accept = Base64.getEncoder().encodeToString(sha1.digest(
+					(key + "258EAFA5-E914-47DA-95CA-C5AB0DC85B11").getBytes(StandardCharsets.US_ASCII)));
+			OutputStream out = s.getOutputStream();
+			out.write(("HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+					+ "Sec-WebSocket-Accept: " + accept + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+			out.flush();
+		}
+
+		private void readLoop(Socket s) throws IOException {
+			InputStream in = s.getInputStream();
+			while (true) {
+				int b0 = in.read();
+				int b1 = in.read();
+				if (b0 < 0 || b1 < 0) {
+					return;
+				}
+				long length = b1 & 0x7f;
+				if (length == 126) {
+					length = (in.read() << 8) | in.read();
+				} else if (length == 127) {
+					length = 0;
+					for (int i = 0; i < 8; i++) {
+						length = (length << 8) | in.read();
+					}
+				}
+				byte[] mask = new byte[4];
+				if ((b1 & 0x80) != 0) {
+					readFully(in, mask);
+				}
+				byte[] payload = new byte[(int) length];
+				readFully(in, payload);
+				for (int i = 0; i < payload.length; i++) {
+					payload[i] ^= mask[i % 4];
+				}
+				if ((b0 & 0x0f) == 0x1) {
+					received.add(new String(payload, StandardCharsets.UTF_8));
+				} else if ((b0 & 0x0f) == 0x8) {
+					s.close();
+					return;
+				}
+			}
+		}
+
+		private void readFully(InputStream in, byte[] buf) throws IOException {
+			int read = 0;
+			while (read < buf.length) {
+				int n = in.read(buf, read, buf.length - read);
+				if (n < 0) {
+					throw new IOException("EOF");
+				}
+				read += n;
+			}
+		}
+	}
+}
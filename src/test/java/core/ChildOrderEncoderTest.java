@@ -0,0 +1,85 @@
+package core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import exchange.ChildOrderEncoder;
+import exchange.RequestSigner;
+import model.BuySellEnum;
+import model.OrderTypeEnum;
+
+class ChildOrderEncoderTest {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper()
+			.enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception {
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception {
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+	}
+
+	@Test
+	void testRoundTrip() throws Exception {
+		long[] sizes = { 1L, 100_000L, 1_000_000L, 12_345_678L, 100_000_000L, 150_000_000L, 12_300_000_001L };
+		for (OrderTypeEnum orderType : OrderTypeEnum.values()) {
+			for (BuySellEnum side : BuySellEnum.values()) {
+				for (long size : sizes) {
+					byte[] body = ChildOrderEncoder.encode(side, 1234567, size, orderType);
+					JsonNode node = MAPPER.readTree(body);
+					assertEquals("FX_BTC_JPY", node.get("product_code").asText());
+					assertEquals(orderType.name(), node.get("child_order_type").asText());
+					assertEquals(side.name(), node.get("side").asText());
+					if (orderType == OrderTypeEnum.LIMIT) {
+						assertEquals(1234567, node.get("price").asInt());
+					} else {
+						assertFalse(node.has("price"));
+					}
+					assertEquals(0, BigDecimal.valueOf(size, 8).compareTo(node.get("size").decimalValue()));
+					assertEquals(orderType == OrderTypeEnum.LIMIT ? 5 : 4, node.size());
+				}
+			}
+		}
+	}
+
+	@Test
+	void testEncodeIntoBuffer() {
+		byte[] buffer = new byte[ChildOrderEncoder.MAX_LENGTH + 4];
+		int end = ChildOrderEncoder.encode(buffer, 4, BuySellEnum.SELL, 1000000, 1_000_000L, OrderTypeEnum.LIMIT);
+		assertEquals("{\"product_code\":\"FX_BTC_JPY\",\"child_order_type\":\"LIMIT\",\"side\":\"SELL\","
+				+ "\"price\":1000000,\"size\":0.01}", new String(buffer, 4, end - 4, StandardCharsets.US_ASCII));
+	}
+
+	@Test
+	void testSignBytes() {
+		// エンコード済みのバイト列とStringで同じ署名になること
+		RequestSigner signer = new RequestSigner("secret");
+		byte[] body = ChildOrderEncoder.encode(BuySellEnum.BUY, 0, 100_000L, OrderTypeEnum.MARKET);
+		assertEquals(signer.sign("1588302000000", "POST", "/v1/me/sendchildorder",
+				new String(body, StandardCharsets.US_ASCII)),
+				signer.sign("1588302000000", "POST", "/v1/me/sendchildorder", body, 0, body.length));
+	}
+}
@@ -0,0 +1,126 @@
+package core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import exchange.CoalescingCache;
+import exchange.EndpointEnum;
+import exchange.RequestMetrics;
+
+class CoalescingCacheTest {
+
+	private final RequestMetrics METRICS = new RequestMetrics();
+
+	private final AtomicInteger FETCHES = new AtomicInteger();
+
+	// 取得中のリクエスト(テストから完了させる)
+	private final AtomicReference<CompletableFuture<String>> PENDING = new AtomicReference<>();
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception {
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception {
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+	}
+
+	private CoalescingCache<String> create(long maxAgeMsec) {
+		return new CoalescingCache<>(EndpointEnum.GETBOARD, () -> {
+			FETCHES.incrementAndGet();
+			CompletableFuture<String> future = new CompletableFuture<>();
+			PENDING.set(future);
+			return future;
+		}, METRICS, maxAgeMsec);
+	}
+
+	@Test
+	void testCoalesce() {
+		CoalescingCache<String> cache = create(60000);
+		CompletableFuture<String> first = cache.get();
+		CompletableFuture<String> second = cache.get();
+		// 取得中の要求は同じFutureにまとめる
+		assertSame(first, second);
+		assertEquals(1, FETCHES.get());
+		assertEquals(1, METRICS.getCoalesced(EndpointEnum.GETBOARD));
+		PENDING.get().complete("board");
+		assertEquals("board", second.join());
+		// 鮮度の期間内は取得しない
+		assertEquals("board", cache.get().join());
+		assertEquals(1, FETCHES.get());
+		assertEquals(1, METRICS.getCacheHits(EndpointEnum.GETBOARD));
+	}
+
+	@Test
+	void testExpireAndInvalidate() throws Exception {
+		CoalescingCache<String> cache = create(0);
+		cache.get();
+		PENDING.get().complete("old");
+		Thread.sleep(1);
+		// 期間が過ぎたら取り直す
+		CompletableFuture<String> refetched = cache.get();
+		assertEquals(2, FETCHES.get());
+		PENDING.get().complete("new");
+		assertEquals("new", refetched.join());
+
+		cache = create(60000);
+		cache.get();
+		PENDING.get().complete("before");
+		cache.invalidate();
+		cache.get();
+		assertEquals(4, FETCHES.get());
+	}
+
+	@Test
+	void testInvalidateDuringFetch() {
+		CoalescingCache<String> cache = create(60000);
+		CompletableFuture<String> before = cache.get();
+		CompletableFuture<String> stale = PENDING.get();
+		cache.invalidate();
+		// invalidate後の要求は取得中のものに相乗りせず取り直す
+		CompletableFuture<String> after = cache.get();
+		assertNotSame(before, after);
+		assertEquals(2, FETCHES.get());
+		CompletableFuture<String> fresh = PENDING.get();
+		// 古い取得が後から完了しても保持せず、新しい取得も外さない
+		stale.complete("stale");
+		assertEquals("stale", before.join());
+		assertSame(after, cache.get());
+		assertEquals(2, FETCHES.get());
+		fresh.complete("fresh");
+		assertEquals("fresh", after.join());
+		assertEquals("fresh", cache.get().join());
+		assertEquals(2, FETCHES.get());
+	}
+
+	@Test
+	void testFailureNotCached() {
+		CoalescingCache<String> cache = create(60000);
+		CompletableFuture<String> failed = cache.get();
+		PENDING.get().complete(null);
+		assertNull(failed.join());
+		// 失敗(null)は保持せず、次の要求で取り直す
+		cache.get();
+		assertEquals(2, FETCHES.get());
+		assertEquals(0, METRICS.getCacheHits(EndpointEnum.GETBOARD));
+	}
+}
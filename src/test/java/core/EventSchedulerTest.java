@@ -0,0 +1,104 @@
+package core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import core.HashedTimingWheel.Timeout;
+
+class EventSchedulerTest {
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception {
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception {
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+	}
+
+	@Test
+	void testWheelDeadline() {
+		HashedTimingWheel wheel = new HashedTimingWheel(10, 8, 0);
+		List<Long> fired = new ArrayList<>();
+		wheel.schedule(25, fired::add);
+		// 1周(80ms)より先の期限
+		wheel.schedule(205, fired::add);
+		Timeout cancelled = wheel.schedule(30, fired::add);
+		cancelled.cancel();
+		assertEquals(2, wheel.size());
+		// 期限を含む刻みの終わり(30ms)で実行する
+		assertEquals(0, wheel.advance(29));
+		assertEquals(1, wheel.advance(30));
+		// 同じバケットを2周分通り過ぎても実行しない
+		assertEquals(0, wheel.advance(204));
+		assertEquals(1, wheel.advance(210));
+		assertEquals(2, fired.size());
+		assertEquals(205L, (long) fired.get(1));
+		assertEquals(0, wheel.size());
+		// 過ぎた期限は次の刻みで実行する
+		wheel.schedule(100, fired::add);
+		assertEquals(1, wheel.advance(220));
+	}
+
+	@Test
+	void testWheelFixedRate() {
+		HashedTimingWheel wheel = new HashedTimingWheel(10, 8, 0);
+		List<Long> fired = new ArrayList<>();
+		Timeout timeout = wheel.scheduleAtFixedRate(1000, 1000, fired::add);
+		wheel.advance(1005);
+		// 2秒分遅れても期限は1000ミリ秒刻みのまま(飛ばした秒は追いついた時に実行する)
+		wheel.advance(3500);
+		wheel.advance(3510);
+		assertEquals(3, fired.size());
+		assertEquals(3000L, (long) fired.get(2));
+		assertEquals(4000L, timeout.getDeadlineMillis());
+		timeout.cancel();
+		wheel.advance(10000);
+		assertEquals(3, fired.size());
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	void testAlignedFixedRate() throws Exception {
+		Clock clock = Clock.system(ZoneId.of("Asia/Tokyo"));
+		EventScheduler scheduler = new EventScheduler(clock, null);
+		ExecutorService lane = EventScheduler.newLane("testLane");
+		List<LocalDateTime> ticks = new CopyOnWriteArrayList<>();
+		CountDownLatch latch = new CountDownLatch(3);
+		Timeout timeout = scheduler.scheduleAtFixedRate(100, now -> {
+			ticks.add(now);
+			latch.countDown();
+		}, lane);
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		timeout.cancel();
+		lane.shutdown();
+		// 時計の100ミリ秒の区切りに揃い、間隔はずれない
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, ticks.get(i).getNano() % 100_000_000);
+		}
+		assertEquals(ticks.get(0).plusNanos(200_000_000), ticks.get(2));
+	}
+}
@@ -0,0 +1,100 @@
+package core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import exchange.ResponseDecoder;
+import model.BoardResponse;
+import model.ExecutionResponse;
+import model.FixedPoint;
+import model.PositionResponse;
+
+class FixedPointTest {
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception {
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception {
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+	}
+
+	@Test
+	void testParse() {
+		assertEquals(1_000_000L, FixedPoint.parseSize("0.01"));
+		assertEquals(123_456_789L, FixedPoint.parseSize("1.23456789"));
+		// 1e-8より下の桁は四捨五入
+		assertEquals(1L, FixedPoint.parseSize("0.000000005"));
+		assertEquals(0L, FixedPoint.parseSize("0.000000004"));
+		// doubleを文字列にした指数表記
+		assertEquals(10_000L, FixedPoint.parseSize("1.0E-4"));
+		assertEquals(-150_000_000L, FixedPoint.parseSize("-1.5"));
+		assertEquals(1000051L, FixedPoint.parsePrice("1000050.5"));
+		assertEquals(1000050L, FixedPoint.parsePrice("1000050"));
+		try {
+			FixedPoint.parseSize("0.0.1");
+			fail();
+		} catch (NumberFormatException e) {
+			// 数値ではない
+		}
+	}
+
+	@Test
+	void testFormat() {
+		assertEquals("0.01", FixedPoint.formatSize(1_000_000L));
+		assertEquals("1.23456789", FixedPoint.formatSize(123_456_789L));
+		assertEquals("2", FixedPoint.formatSize(200_000_000L));
+		assertEquals("-0.005", FixedPoint.formatSize(-500_000L));
+		assertEquals("0", FixedPoint.formatSize(0));
+	}
+
+	@Test
+	void testOrderSize() {
+		// 100万円、レバレッジ2倍、100万円なら2 BTC
+		assertEquals(200_000_000L, FixedPoint.orderSize(1_000_000, 2.0, 1_000_000));
+		// 証拠金で買える数量は0.001刻みに切り捨て、レバレッジを掛けて四捨五入(0.333 × 1.5 = 0.4995)
+		assertEquals(50_000_000L, FixedPoint.orderSize(333_999, 1.5, 1_000_000));
+		// 証拠金が約214万円を超えるとint(証拠金×1000)が桁あふれしていた
+		assertEquals(300_000_000L, FixedPoint.orderSize(3_000_000, 1.0, 1_000_000));
+		assertEquals(50_000_000L, FixedPoint.roundToLot(49_950_000L));
+		assertEquals(1_200_000L, FixedPoint.roundToLot(1_234_567L));
+	}
+
+	@Test
+	void testDecode() throws Exception {
+		ExecutionResponse[] executions = ResponseDecoder.decode(ResponseDecoder.EXECUTIONS,
+				"[{\"id\":1,\"side\":\"BUY\",\"price\":1000000,\"size\":0.1},{\"id\":2,\"price\":1000001,\"size\":2}]"
+						.getBytes(StandardCharsets.UTF_8));
+		assertEquals(10_000_000L, executions[0].getSize());
+		assertEquals(200_000_000L, executions[1].getSize());
+		// 0.1 + 0.2のような誤差が出ないこと
+		String body = "[{\"product_code\":\"FX_BTC_JPY\",\"side\":\"BUY\",\"price\":1000000.4,\"size\":0.1,\"pnl\":-12.5},"
+				+ "{\"product_code\":\"FX_BTC_JPY\",\"side\":\"BUY\",\"price\":1000000,\"size\":0.2}]";
+		PositionResponse[] positions = ResponseDecoder.decode(ResponseDecoder.POSITIONS,
+				body.getBytes(StandardCharsets.UTF_8));
+		assertEquals(30_000_000L, positions[0].getSize() + positions[1].getSize());
+		assertEquals(1000000L, positions[0].getPrice());
+		assertEquals(-13L, positions[0].getPnl());
+		// Realtime APIはJsonNodeからデコードする(数値はdoubleになっている)
+		BoardResponse board = ResponseDecoder.decode(ResponseDecoder.BOARD, ResponseDecoder
+				.decodeTree("{\"mid_price\":1000000,\"bids\":[{\"price\":999999,\"size\":0.00012345}],\"asks\":[]}"));
+		assertEquals(12_345L, board.getBids()[0].getSize());
+		assertEquals(999999L, board.getBids()[0].getPrice());
+	}
+}
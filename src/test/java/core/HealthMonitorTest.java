@@ -0,0 +1,94 @@
+package core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import exchange.HealthMonitor;
+import model.HealthResponse;
+
+class HealthMonitorTest {
+
+	AtomicInteger calls;
+
+	volatile String status;
+
+	HealthMonitor monitor;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception {
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception {
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+		calls = new AtomicInteger();
+		status = "NORMAL";
+		Map<String, Object> param = new HashMap<>();
+		param.put("refreshIntervalMsec", 10);
+		param.put("maxAgeMsec", 50);
+		monitor = new HealthMonitor(() -> {
+			calls.incrementAndGet();
+			HealthResponse response = new HealthResponse();
+			response.setStatus(status);
+			return CompletableFuture.completedFuture(response);
+		}, param);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		monitor.stop();
+	}
+
+	@Test
+	void testCached() throws Exception {
+		// 未取得なら保持している値はない
+		assertNull(monitor.getStatus(false));
+		assertEquals(0, calls.get());
+		// 古ければ同期で取得する
+		assertEquals("NORMAL", monitor.getStatus(true));
+		assertEquals(1, calls.get());
+		// 新しければ取得しない
+		assertEquals("NORMAL", monitor.getStatus(true));
+		assertEquals(1, calls.get());
+		Thread.sleep(80);
+		assertNull(monitor.getStatus(false));
+		status = "STOP";
+		assertEquals("STOP", monitor.getStatus(true));
+		assertEquals(2, calls.get());
+	}
+
+	@Test
+	void testBackgroundRefresh() throws Exception {
+		monitor.start();
+		Thread.sleep(100);
+		assertTrue(calls.get() >= 2);
+		status = "SUPER BUSY";
+		Thread.sleep(100);
+		assertEquals("SUPER BUSY", monitor.getStatus(false));
+		assertFalse(HealthMonitor.isHealthyStatus(monitor.getStatus(false)));
+	}
+
+	@Test
+	void testMaintenanceTime() {
+		assertFalse(monitor.isMaintenanceTime(LocalDateTime.of(2020, 5, 1, 3, 57, 29)));
+		assertTrue(monitor.isMaintenanceTime(LocalDateTime.of(2020, 5, 1, 4, 0, 0)));
+		assertFalse(monitor.isMaintenanceTime(LocalDateTime.of(2020, 5, 1, 4, 12, 31)));
+	}
+}
@@ -0,0 +1,242 @@
+package core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import indicator.ATR;
+import indicator.BarBinder;
+import indicator.BollingerBands;
+import indicator.ChainedIndicator;
+import indicator.EMA;
+import indicator.RSI;
+import indicator.SMA;
+import indicator.VWAP;
+
+/**
+ * 逐次計算の結果を、履歴全体から計算し直した結果と比較する
+ */
+class IndicatorTest {
+
+	private static final double DELTA = 1e-6;
+
+	private static double[] prices;
+
+	private static double[] highs;
+
+	private static double[] lows;
+
+	private static double[] sizes;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception {
+		Random random = new Random(1);
+		int n = 500;
+		prices = new double[n];
+		highs = new double[n];
+		lows = new double[n];
+		sizes = new double[n];
+		double price = 1000000;
+		for (int i = 0; i < n; i++) {
+			price += random.nextGaussian() * 1000;
+			prices[i] = price;
+			highs[i] = price + random.nextDouble() * 1500;
+			lows[i] = price - random.nextDouble() * 1500;
+			sizes[i] = random.nextDouble();
+		}
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception {
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+	}
+
+	private static double batchSma(double[] values, int end, int period) {
+		double sum = 0;
+		for (int i = end - period + 1; i <= end; i++) {
+			sum += values[i];
+		}
+		return sum / period;
+	}
+
+	private static double batchEma(double[] values, int end, int period) {
+		double ema = batchSma(values, period - 1, period);
+		double alpha = 2.0 / (period + 1);
+		for (int i = period; i <= end; i++) {
+			ema = alpha * values[i] + (1 - alpha) * ema;
+		}
+		return ema;
+	}
+
+	private static double batchStdDev(double[] values, int end, int period) {
+		double mean = batchSma(values, end, period);
+		double sum = 0;
+		for (int i = end - period + 1; i <= end; i++) {
+			sum += (values[i] - mean) * (values[i] - mean);
+		}
+		return Math.sqrt(sum / period);
+	}
+
+	private static double batchRsi(double[] values, int end, int period) {
+		double gain = 0;
+		double loss = 0;
+		for (int i = 1; i <= period; i++) {
+			double change = values[i] - values[i - 1];
+			gain += Math.max(change, 0);
+			loss += Math.max(-change, 0);
+		}
+		gain /= period;
+		loss /= period;
+		for (int i = period + 1; i <= end; i++) {
+			double change = values[i] - values[i - 1];
+			gain = (gain * (period - 1) + Math.max(change, 0)) / period;
+			loss = (loss * (period - 1) + Math.max(-change, 0)) / period;
+		}
+		return 100 - 100 / (1 + gain / loss);
+	}
+
+	private static double batchAtr(int end, int period) {
+		double[] trueRanges = new double[end + 1];
+		for (int i = 0; i <= end; i++) {
+			trueRanges[i] = highs[i] - lows[i];
+			if (i > 0) {
+				trueRanges[i] = Math.max(trueRanges[i],
+						Math.max(Math.abs(highs[i] - prices[i - 1]), Math.abs(lows[i] - prices[i - 1])));
+			}
+		}
+		double atr = batchSma(trueRanges, period - 1, period);
+		for (int i = period; i <= end; i++) {
+			atr = (atr * (period - 1) + trueRanges[i]) / period;
+		}
+		return atr;
+	}
+
+	@Test
+	void smaTest() {
+		SMA sma = new SMA(20);
+		for (int i = 0; i < prices.length; i++) {
+			sma.update(prices[i]);
+			assertEquals(i >= 19, sma.isReady());
+			if (sma.isReady()) {
+				assertEquals(batchSma(prices, i, 20), sma.getValue(), DELTA);
+			}
+		}
+	}
+
+	@Test
+	void emaTest() {
+		EMA ema = new EMA(12);
+		for (int i = 0; i < prices.length; i++) {
+			ema.update(prices[i]);
+			if (ema.isReady()) {
+				assertEquals(batchEma(prices, i, 12), ema.getValue(), DELTA);
+			}
+		}
+		assertTrue(ema.isReady());
+		ema.reset();
+		assertFalse(ema.isReady());
+	}
+
+	@Test
+	void bollingerBandsTest() {
+		BollingerBands bands = new BollingerBands(20, 2);
+		for (int i = 0; i < prices.length; i++) {
+			bands.update(prices[i]);
+			if (bands.isReady()) {
+				double mean = batchSma(prices, i, 20);
+				double stdDev = batchStdDev(prices, i, 20);
+				assertEquals(mean, bands.getValue(), DELTA);
+				assertEquals(stdDev, bands.getStdDev(), 1e-3);
+				assertEquals(mean + 2 * stdDev, bands.getUpper(), 1e-3);
+				assertEquals(mean - 2 * stdDev, bands.getLower(), 1e-3);
+			}
+		}
+	}
+
+	@Test
+	void rsiTest() {
+		RSI rsi = new RSI(14);
+		for (int i = 0; i < prices.length; i++) {
+			rsi.update(prices[i]);
+			assertEquals(i >= 14, rsi.isReady());
+			if (rsi.isReady()) {
+				assertEquals(batchRsi(prices, i, 14), rsi.getValue(), DELTA);
+			}
+		}
+	}
+
+	@Test
+	void atrTest() {
+		ATR atr = new ATR(14);
+		for (int i = 0; i < prices.length; i++) {
+			atr.update(highs[i], lows[i], prices[i]);
+			if (atr.isReady()) {
+				assertEquals(batchAtr(i, 14), atr.getValue(), DELTA);
+			}
+		}
+	}
+
+	@Test
+	void vwapTest() {
+		VWAP vwap = new VWAP();
+		double notional = 0;
+		double volume = 0;
+		for (int i = 0; i < prices.length; i++) {
+			vwap.update(prices[i], sizes[i]);
+			notional += prices[i] * sizes[i];
+			volume += sizes[i];
+			assertEquals(notional / volume, vwap.getValue(), DELTA);
+		}
+	}
+
+	@Test
+	void chainedTest() {
+		// RSIのEMA
+		ChainedIndicator chained = new ChainedIndicator(new RSI(14), new EMA(5));
+		RSI rsi = new RSI(14);
+		EMA ema = new EMA(5);
+		for (int i = 0; i < prices.length; i++) {
+			chained.update(prices[i]);
+			rsi.update(prices[i]);
+			if (rsi.isReady()) {
+				ema.update(rsi.getValue());
+			}
+		}
+		assertEquals(ema.getValue(), chained.getValue(), DELTA);
+	}
+
+	@Test
+	void barBinderTest() {
+		// 2020-05-01T00:00:00Z
+		long base = 1588291200000L;
+		OHLCVAggregator aggregator = new OHLCVAggregator(10);
+		ATR atr = new ATR(3);
+		BarBinder.bindBar(aggregator, TimeframeEnum.M1, atr);
+		ATR reference = new ATR(3);
+		for (int i = 0; i < 5; i++) {
+			long open = base + i * 60000L;
+			aggregator.onTrade(open, 100 + i, 1.0);
+			aggregator.onTrade(open + 10000, 110 + i * 2, 1.0);
+			aggregator.onTrade(open + 20000, 95 - i, 1.0);
+			reference.update(110 + i * 2, 95 - i, 95 - i);
+		}
+		aggregator.onTime(base + 5 * 60000L);
+		assertTrue(atr.isReady());
+		assertEquals(reference.getValue(), atr.getValue(), DELTA);
+	}
+}
@@ -0,0 +1,143 @@
+package core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import exchange.LocalOrderBook;
+import model.BoardResponse;
+import model.BuySellEnum;
+import model.FixedPoint;
+import model.PriceSize;
+
+class LocalOrderBookTest {
+
+	LocalOrderBook book;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception {
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception {
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+		book = new LocalOrderBook();
+		book.applySnapshot(board(new double[][] { { 1000, 1.0 }, { 998, 2.0 }, { 999, 0.5 } },
+				new double[][] { { 1002, 1.5 }, { 1001, 0.1 }, { 1005, 3.0 } }));
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+	}
+
+	@Test
+	void snapshotTest() {
+		assertTrue(book.isReady());
+		assertEquals(1000, book.getBestBid());
+		assertEquals(1001, book.getBestAsk());
+		assertEquals(1000.5, book.getMidPrice(), 0.0);
+		assertEquals(3, book.getDepth(BuySellEnum.BUY));
+		// Bidは降順、Askは昇順
+		assertEquals(999, book.getPriceAt(BuySellEnum.BUY, 1));
+		assertEquals(998, book.getPriceAt(BuySellEnum.BUY, 2));
+		assertEquals(1002, book.getPriceAt(BuySellEnum.SELL, 1));
+		assertEquals(-1, book.getPriceAt(BuySellEnum.SELL, 3));
+		assertEquals(FixedPoint.toSize(0.5), book.getSizeAt(BuySellEnum.BUY, 1));
+		assertEquals(FixedPoint.toSize(3.0), book.getSizeOfPrice(BuySellEnum.SELL, 1005));
+		assertEquals(0, book.getSizeOfPrice(BuySellEnum.SELL, 1003));
+	}
+
+	@Test
+	void diffTest() {
+		// 最良Askの削除、Bidの追加と更新
+		book.applyDiff(board(new double[][] { { 1000, 0.2 }, { 997, 1.0 }, { 998, 4.0 } },
+				new double[][] { { 1001, 0 } }));
+		assertEquals(1000, book.getBestBid());
+		assertEquals(FixedPoint.toSize(0.2), book.getSizeAt(BuySellEnum.BUY, 0));
+		assertEquals(997, book.getPriceAt(BuySellEnum.BUY, 3));
+		assertEquals(1002, book.getBestAsk());
+		assertEquals(1001.0, book.getMidPrice(), 0.0);
+		assertEquals(4, book.getDepth(BuySellEnum.BUY));
+		assertEquals(2, book.getDepth(BuySellEnum.SELL));
+		assertEquals(FixedPoint.toSize(4.0), book.getSizeOfPrice(BuySellEnum.BUY, 998));
+
+		// 存在しない価格の削除は無視
+		book.update(BuySellEnum.SELL, 1003, 0);
+		assertEquals(2, book.getDepth(BuySellEnum.SELL));
+	}
+
+	@Test
+	void cumulativeSizeTest() {
+		assertEquals(FixedPoint.toSize(1.0), book.getCumulativeSize(BuySellEnum.BUY, 1));
+		assertEquals(FixedPoint.toSize(3.5), book.getCumulativeSize(BuySellEnum.BUY, 3));
+		assertEquals(FixedPoint.toSize(3.5), book.getCumulativeSize(BuySellEnum.BUY, 10));
+		assertEquals(FixedPoint.toSize(1.6), book.getCumulativeSize(BuySellEnum.SELL, 2));
+		// 更新後は変更位置以降が再計算される
+		book.update(BuySellEnum.BUY, 999, FixedPoint.toSize(1.5));
+		assertEquals(FixedPoint.toSize(2.5), book.getCumulativeSize(BuySellEnum.BUY, 2));
+		book.update(BuySellEnum.BUY, 1001, FixedPoint.toSize(1.0));
+		assertEquals(FixedPoint.toSize(5.5), book.getCumulativeSize(BuySellEnum.BUY, 4));
+	}
+
+	@Test
+	void reconcileTest() {
+		BoardResponse same = board(new double[][] { { 1000, 1.0 }, { 999, 0.5 }, { 998, 2.0 } },
+				new double[][] { { 1001, 0.1 }, { 1002, 1.5 }, { 1005, 3.0 } });
+		assertEquals(0, book.reconcile(same));
+		assertEquals(0, book.getDriftCount());
+
+		// 差分の取りこぼしを想定
+		book.update(BuySellEnum.BUY, 997, FixedPoint.toSize(1.0));
+		book.update(BuySellEnum.SELL, 1001, FixedPoint.toSize(0.3));
+		assertEquals(2, book.reconcile(same));
+		assertEquals(1, book.getDriftCount());
+		assertEquals(3, book.getDepth(BuySellEnum.BUY));
+		assertEquals(FixedPoint.toSize(0.1), book.getSizeOfPrice(BuySellEnum.SELL, 1001));
+	}
+
+	@Test
+	void clearTest() {
+		book.clear();
+		assertFalse(book.isReady());
+		assertEquals(-1, book.getMidPrice(), 0.0);
+		// スナップショットが来るまで差分は無視する
+		book.applyDiff(board(new double[][] { { 1000, 1.0 } }, new double[][] { { 1001, 1.0 } }));
+		assertFalse(book.isReady());
+	}
+
+	@Test
+	void growTest() {
+		for (int i = 0; i < 20000; i++) {
+			book.update(BuySellEnum.BUY, 990 - i, FixedPoint.toSize(0.01));
+		}
+		assertEquals(20003, book.getDepth(BuySellEnum.BUY));
+		assertEquals(1000, book.getBestBid());
+		assertEquals(-19009, book.getPriceAt(BuySellEnum.BUY, 20002));
+	}
+
+	private static BoardResponse board(double[][] bids, double[][] asks) {
+		BoardResponse board = new BoardResponse();
+		board.setBids(levels(bids));
+		board.setAsks(levels(asks));
+		return board;
+	}
+
+	private static PriceSize[] levels(double[][] values) {
+		PriceSize[] levels = new PriceSize[values.length];
+		for (int i = 0; i < values.length; i++) {
+			levels[i] = new PriceSize();
+			levels[i].setPrice((long) values[i][0]);
+			levels[i].setSize(FixedPoint.toSize(values[i][1]));
+		}
+		return levels;
+	}
+}
@@ -0,0 +1,154 @@
+package core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class OHLCVAggregatorTest {
+
+	// 2020-05-01T00:00:00Z
+	private static final long BASE = 1588291200000L;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception {
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception {
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+	}
+
+	@Test
+	void minuteBarTest() {
+		OHLCVAggregator aggregator = new OHLCVAggregator(10);
+		aggregator.onTrade(BASE + 1000, 100, 1.0);
+		aggregator.onTrade(BASE + 20000, 120, 0.5);
+		aggregator.onTrade(BASE + 30000, 90, 0.5);
+		aggregator.onTrade(BASE + 59999, 110, 2.0);
+		assertEquals(0, aggregator.getBarCount(TimeframeEnum.M1));
+		aggregator.onTime(BASE + 60000);
+		assertEquals(1, aggregator.getBarCount(TimeframeEnum.M1));
+		assertEquals(BASE, aggregator.getOpenTime(TimeframeEnum.M1, 0));
+		assertEquals(100, aggregator.getOpen(TimeframeEnum.M1, 0));
+		assertEquals(120, aggregator.getHigh(TimeframeEnum.M1, 0));
+		assertEquals(90, aggregator.getLow(TimeframeEnum.M1, 0));
+		assertEquals(110, aggregator.getClose(TimeframeEnum.M1, 0));
+		assertEquals(4.0, aggregator.getVolume(TimeframeEnum.M1, 0), 1e-9);
+		assertEquals((100 * 1.0 + 120 * 0.5 + 90 * 0.5 + 110 * 2.0) / 4.0, aggregator.getVwap(TimeframeEnum.M1, 0),
+				1e-9);
+		assertEquals(4, aggregator.getTradeCount(TimeframeEnum.M1, 0));
+		// 5分足はまだ確定しない
+		assertEquals(0, aggregator.getBarCount(TimeframeEnum.M5));
+		assertEquals(110, aggregator.getCurrentClose(TimeframeEnum.M5));
+	}
+
+	@Test
+	void gapTest() {
+		OHLCVAggregator aggregator = new OHLCVAggregator(10);
+		aggregator.onTrade(BASE, 100, 1.0);
+		// 2分間約定なし
+		aggregator.onTrade(BASE + 3 * 60000 + 500, 105, 1.0);
+		assertEquals(3, aggregator.getBarCount(TimeframeEnum.M1));
+		assertEquals(BASE + 2 * 60000, aggregator.getOpenTime(TimeframeEnum.M1, 0));
+		assertEquals(100, aggregator.getOpen(TimeframeEnum.M1, 0));
+		assertEquals(100, aggregator.getClose(TimeframeEnum.M1, 0));
+		assertEquals(0.0, aggregator.getVolume(TimeframeEnum.M1, 0), 1e-9);
+		assertEquals(0, aggregator.getTradeCount(TimeframeEnum.M1, 0));
+		aggregator.onTime(BASE + 4 * 60000);
+		// 約定のあった足は最初の約定が始値
+		assertEquals(105, aggregator.getOpen(TimeframeEnum.M1, 0));
+		assertEquals(105, aggregator.getLow(TimeframeEnum.M1, 0));
+	}
+
+	@Test
+	void ringBufferTest() {
+		OHLCVAggregator aggregator = new OHLCVAggregator(3);
+		for (int i = 0; i < 5; i++) {
+			aggregator.onTrade(BASE + i * 1000, 100 + i, 1.0);
+		}
+		aggregator.onTime(BASE + 5000);
+		assertEquals(3, aggregator.getBarCount(TimeframeEnum.S1));
+		assertEquals(104, aggregator.getClose(TimeframeEnum.S1, 0));
+		assertEquals(102, aggregator.getClose(TimeframeEnum.S1, 2));
+	}
+
+	@Test
+	void listenerTest() {
+		OHLCVAggregator aggregator = new OHLCVAggregator(10);
+		AtomicInteger closed = new AtomicInteger();
+		AtomicLong lastClose = new AtomicLong();
+		List<Long> openTimes = new CopyOnWriteArrayList<>();
+		aggregator.addListener(TimeframeEnum.M5, (timeframe, bar) -> {
+			closed.incrementAndGet();
+			lastClose.set(bar.getClose());
+			openTimes.add(bar.getOpenTime());
+		});
+		aggregator.onTrade(BASE, 100, 1.0);
+		aggregator.onTrade(BASE + 4 * 60000, 130, 1.0);
+		aggregator.onTime(BASE + 4 * 60000 + 59999);
+		assertEquals(0, closed.get());
+		aggregator.onTime(BASE + 5 * 60000);
+		assertEquals(1, closed.get());
+		assertEquals(130, lastClose.get());
+		// 約定のなかった期間を埋めた足も1本ずつ古い順に通知する
+		aggregator.onTime(BASE + 20 * 60000);
+		assertEquals(4, closed.get());
+		assertEquals(130, lastClose.get());
+		for (int i = 0; i < 4; i++) {
+			assertEquals(BASE + i * 5 * 60000, (long) openTimes.get(i));
+		}
+	}
+
+	@Test
+	void listenerConcurrentTest() throws Exception {
+		OHLCVAggregator aggregator = new OHLCVAggregator(4);
+		List<String> errors = new CopyOnWriteArrayList<>();
+		AtomicLong lastOpenTime = new AtomicLong(Long.MIN_VALUE);
+		aggregator.addListener(TimeframeEnum.S1, (timeframe, bar) -> {
+			// 通知中に別のスレッドが足を確定させても、渡された足の値は変わらず古い順に届く
+			long openTime = bar.getOpenTime();
+			long close = bar.getClose();
+			Thread.yield();
+			if (bar.getOpenTime() != openTime || bar.getClose() != close) {
+				errors.add("changed:" + openTime);
+			}
+			if (openTime <= lastOpenTime.getAndSet(openTime)) {
+				errors.add("order:" + openTime);
+			}
+		});
+		int seconds = 5000;
+		Thread trader = new Thread(() -> {
+			for (int i = 0; i < seconds; i++) {
+				long time = BASE + i * 1000L;
+				aggregator.onTrade(time, time / 1000 % 1000 + 1000, 1.0);
+			}
+		});
+		Thread timer = new Thread(() -> {
+			for (int i = 0; i < seconds; i++) {
+				aggregator.onTime(BASE + i * 1000L);
+			}
+		});
+		trader.start();
+		timer.start();
+		trader.join();
+		timer.join();
+		assertTrue(errors.toString(), errors.isEmpty());
+	}
+}
@@ -28,36 +28,36 @@ class OHLCVUtilTest {
 
 	@Test
 	void getOpenTest() {
-		int[] ohlcv = new int[] { 100000, 150000, 80000, 120000 };
-		int result = OHLCVUtil.getOpen(ohlcv);
+		long[] ohlcv = new long[] { 100000, 150000, 80000, 120000 };
+		long result = OHLCVUtil.getOpen(ohlcv);
 		assertEquals(100000, result);
 	}
 
 	@Test
 	void getHighTest() {
-		int[] ohlcv = new int[] { 100000, 150000, 80000, 120000 };
-		int result = OHLCVUtil.getHigh(ohlcv);
+		long[] ohlcv = new long[] { 100000, 150000, 80000, 120000 };
+		long result = OHLCVUtil.getHigh(ohlcv);
 		assertEquals(150000, result);
 	}
 
 	@Test
 	void getLowTest() {
-		int[] ohlcv = new int[] { 100000, 150000, 80000, 120000 };
-		int result = OHLCVUtil.getLow(ohlcv);
+		long[] ohlcv = new long[] { 100000, 150000, 80000, 120000 };
+		long result = OHLCVUtil.getLow(ohlcv);
 		assertEquals(80000, result);
 	}
 
 	@Test
 	void getCloseTest() {
-		int[] ohlcv = new int[] { 100000, 150000, 80000, 120000 };
-		int result = OHLCVUtil.getClose(ohlcv);
+		long[] ohlcv = new long[] { 100000, 150000, 80000, 120000 };
+		long result = OHLCVUtil.getClose(ohlcv);
 		assertEquals(120000, result);
 	}
 
 	@Test
 	void setTest() {
-		int[] ohlcv = new int[4];
-		int[] result = OHLCVUtil.setOpen(ohlcv, 100000);
+		long[] ohlcv = new long[4];
+		long[] result = OHLCVUtil.setOpen(ohlcv, 100000);
 		result = OHLCVUtil.setHigh(ohlcv, 150000);
 		result = OHLCVUtil.setLow(ohlcv, 80000);
 		result = OHLCVUtil.setClose(ohlcv, 120000);
@@ -69,8 +69,8 @@ class OHLCVUtilTest {
 
 	@Test
 	void replaceTest() {
-		int[] ohlcv = new int[] { 100000, 150000, 80000, 120000 };
-		int[] result = OHLCVUtil.replaceHigh(ohlcv, 160000);
+		long[] ohlcv = new long[] { 100000, 150000, 80000, 120000 };
+		long[] result = OHLCVUtil.replaceHigh(ohlcv, 160000);
 		assertEquals(160000, result[1]);
 		result = OHLCVUtil.replaceHigh(ohlcv, 155000);
 		assertEquals(160000, result[1]);
@@ -91,7 +91,7 @@ class OHLCVUtilTest {
 
 	@Test
 	void toStringTest() {
-		int[] ohlcv = new int[] { 100000, 150000, 80000, 120000 };
+		long[] ohlcv = new long[] { 100000, 150000, 80000, 120000 };
 		String result = OHLCVUtil.toString(ohlcv);
 		assertEquals("open:100000 high:150000 low:80000 close:120000", result);
 	}
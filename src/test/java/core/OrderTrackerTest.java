@@ -0,0 +1,112 @@
+package core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import exchange.OrderTracker;
+import model.BuySellEnum;
+import model.ChildOrderDetailResponse;
+import model.FixedPoint;
+import model.OrderFill;
+
+class OrderTrackerTest {
+
+	AtomicInteger polls;
+
+	// 何回目のポーリングで約定させるか
+	int completeAt;
+
+	OrderTracker tracker;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception {
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception {
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+		polls = new AtomicInteger();
+		completeAt = 3;
+		Map<String, Object> param = new HashMap<>();
+		param.put("initialPollMsec", 1);
+		param.put("maxPollMsec", 5);
+		param.put("timeoutMsec", 300);
+		tracker = new OrderTracker(id -> {
+			int poll = polls.incrementAndGet();
+			if (poll == 1) {
+				// 受付直後は注文一覧に出てこない
+				return CompletableFuture.completedFuture(new ChildOrderDetailResponse[0]);
+			}
+			ChildOrderDetailResponse order = new ChildOrderDetailResponse();
+			order.setChildOrderAcceptanceId(id);
+			order.setSize(FixedPoint.toSize(0.02));
+			if (poll < completeAt) {
+				order.setChildOrderState("ACTIVE");
+				order.setExecutedSize(FixedPoint.toSize(0.01));
+				order.setAveragePrice(1000000);
+			} else {
+				order.setChildOrderState("COMPLETED");
+				order.setExecutedSize(FixedPoint.toSize(0.02));
+				order.setAveragePrice(1000050);
+			}
+			return CompletableFuture.completedFuture(new ChildOrderDetailResponse[] { order });
+		}, param);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+	}
+
+	@Test
+	void testFill() {
+		AtomicReference<OrderFill> notified = new AtomicReference<>();
+		tracker.setFillListener(notified::set);
+		CompletableFuture<OrderFill> future = tracker.track("JRF20200501-000000-000001", BuySellEnum.BUY, FixedPoint.toSize(0.02));
+		// 追跡中は同じFutureを返す
+		assertSame(future, tracker.track("JRF20200501-000000-000001", BuySellEnum.BUY, FixedPoint.toSize(0.02)));
+		OrderFill fill = future.join();
+		assertEquals("COMPLETED", fill.getState());
+		assertEquals(FixedPoint.toSize(0.02), fill.getFilledSize());
+		assertEquals(1000050, fill.getAveragePrice(), 0.00000001);
+		assertTrue(fill.isFullyFilled());
+		assertFalse(fill.isTimedOut());
+		assertTrue(fill.isConfirmed());
+		assertEquals(3, polls.get());
+		// リスナーにはFuture完了前に通知されている
+		assertSame(fill, notified.get());
+		assertSame(future, tracker.get("JRF20200501-000000-000001"));
+	}
+
+	@Test
+	void testTimeout() {
+		completeAt = Integer.MAX_VALUE;
+		OrderFill fill = tracker.track("JRF20200501-000000-000002", BuySellEnum.SELL, FixedPoint.toSize(0.02)).join();
+		// 打ち切った時点で分かっている約定数量を返す
+		assertTrue(fill.isTimedOut());
+		assertEquals("ACTIVE", fill.getState());
+		assertEquals(FixedPoint.toSize(0.01), fill.getFilledSize());
+		assertTrue(fill.isFilled());
+		assertFalse(fill.isFullyFilled());
+		// 打ち切った約定は確定していない(建玉を突き合わせる)
+		assertFalse(fill.isConfirmed());
+		assertNull(tracker.get("JRF20200501-000000-000003"));
+	}
+}
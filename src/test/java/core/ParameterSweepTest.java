@@ -0,0 +1,135 @@
+package core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import backtest.ParameterSweep;
+import backtest.TickData;
+import model.FixedPoint;
+
+class ParameterSweepTest {
+
+	// 2020-05-01T12:00:00+09:00
+	private static final long BASE = 1588302000000L;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception {
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception {
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+	}
+
+	private static Map<String, Object> settings(String mode) {
+		Map<String, Object> common = new HashMap<>();
+		common.put("logicClass", "logic.ScalpingDealingLogic");
+		common.put("leverage", 1.0);
+		common.put("lossCutPercentage", 0.5);
+		Map<String, Object> logic = new HashMap<>();
+		logic.put("profitTakePercentage", 0.3);
+		logic.put("spread", 0.0);
+		logic.put("notifyInterval", 60.0);
+		logic.put("directionJudgePercentage", 0.1);
+		logic.put("countJudgeRatio", 0.5);
+		logic.put("judgeSecond", 10.0);
+		logic.put("closeSecond", 120.0);
+		Map<String, Object> backtest = new HashMap<>();
+		backtest.put("spreadPercentage", 0.0);
+		Map<String, Object> lossCut = new HashMap<>();
+		lossCut.put("values", Arrays.asList(0.5, 1.0));
+		Map<String, Object> judgeSecond = new HashMap<>();
+		judgeSecond.put("min", 10.0);
+		judgeSecond.put("max", 20.0);
+		judgeSecond.put("step", 10.0);
+		Map<String, Object> parameters = new HashMap<>();
+		parameters.put("lossCutPercentage", lossCut);
+		parameters.put("judgeSecond", judgeSecond);
+		Map<String, Object> sweep = new HashMap<>();
+		sweep.put("mode", mode);
+		sweep.put("parallelism", 2);
+		sweep.put("folds", 2);
+		sweep.put("trainSegments", 2);
+		sweep.put("parameters", parameters);
+		Map<String, Object> settings = new HashMap<>();
+		settings.put("common", common);
+		settings.put("logic", logic);
+		settings.put("backtest", backtest);
+		settings.put("sweep", sweep);
+		return settings;
+	}
+
+	private static TickData ticks() {
+		// 上昇と下落を繰り返す約定(1秒に4件、40分)
+		TickData ticks = new TickData(0);
+		int price = 1000000;
+		for (int i = 0; i < 40 * 60 * 4; i++) {
+			price += (i / (10 * 60 * 4)) % 2 == 0 ? 50 : -50;
+			ticks.add(BASE + i * 250L, price, FixedPoint.toSize(0.01));
+		}
+		return ticks;
+	}
+
+	@Test
+	void sliceTest() {
+		TickData ticks = ticks();
+		int from = ticks.indexOf(BASE + 60000);
+		assertEquals(240, from);
+		TickData slice = ticks.slice(from, ticks.indexOf(BASE + 120000));
+		assertEquals(240, slice.size());
+		assertEquals(BASE + 60000, slice.getTime(0));
+		assertEquals(ticks.getPrice(from), slice.getPrice(0));
+		assertEquals(1, slice.indexOf(BASE + 60001));
+	}
+
+	@Test
+	void gridAndResumeTest() throws Exception {
+		Path output = Files.createTempDirectory("sweep");
+		TickData ticks = ticks();
+		List<ParameterSweep.Result> ranked = new ParameterSweep(settings("GRID")).run(ticks, output);
+		assertEquals(4, ranked.size());
+		for (int i = 1; i < ranked.size(); i++) {
+			assertTrue(ranked.get(i - 1).getPnl() >= ranked.get(i).getPnl());
+		}
+		Path results = output.resolve("sweep_results.csv");
+		assertEquals(5, Files.readAllLines(results).size());
+		assertEquals(5, Files.readAllLines(output.resolve("sweep_ranking.csv")).size());
+
+		// 同じ出力先で再実行すると済んだ試行は実行せず、同じ順位になる
+		List<ParameterSweep.Result> resumed = new ParameterSweep(settings("GRID")).run(ticks, output);
+		assertEquals(5, Files.readAllLines(results).size());
+		assertEquals(ranked.get(0).getPnl(), resumed.get(0).getPnl(), 1e-6);
+	}
+
+	@Test
+	void walkForwardTest() throws Exception {
+		Path output = Files.createTempDirectory("sweep");
+		List<ParameterSweep.Result> tests = new ParameterSweep(settings("WALK_FORWARD")).run(ticks(), output);
+		assertEquals(2, tests.size());
+		for (ParameterSweep.Result result : tests) {
+			assertEquals("TEST", result.getPhase());
+		}
+		// 学習期間4件×2fold + 検証期間1件×2fold
+		assertEquals(1 + 10, Files.readAllLines(output.resolve("sweep_results.csv")).size());
+	}
+}
@@ -0,0 +1,97 @@
+package core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import exchange.ParentOrderEncoder;
+import model.BuySellEnum;
+import model.ParentOrderMethodEnum;
+import model.ParentOrderParameter;
+
+class ParentOrderEncoderTest {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper()
+			.enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception {
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception {
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+	}
+
+	@Test
+	void testIfdoco() throws Exception {
+		byte[] body = ParentOrderEncoder.encode(ParentOrderMethodEnum.IFDOCO, 7,
+				ParentOrderParameter.market(BuySellEnum.BUY, 1_000_000L),
+				ParentOrderParameter.limit(BuySellEnum.SELL, 12_345_678_901L, 1_000_000L),
+				ParentOrderParameter.stop(BuySellEnum.SELL, 9_876_543L, 1_000_000L));
+		JsonNode node = MAPPER.readTree(body);
+		assertEquals("IFDOCO", node.get("order_method").asText());
+		assertEquals(7, node.get("minute_to_expire").asInt());
+		assertEquals("GTC", node.get("time_in_force").asText());
+		JsonNode parameters = node.get("parameters");
+		assertEquals(3, parameters.size());
+		for (JsonNode parameter : parameters) {
+			assertEquals("FX_BTC_JPY", parameter.get("product_code").asText());
+			assertEquals(0, new BigDecimal("0.01").compareTo(parameter.get("size").decimalValue()));
+		}
+		assertEquals("MARKET", parameters.get(0).get("condition_type").asText());
+		assertEquals("BUY", parameters.get(0).get("side").asText());
+		assertFalse(parameters.get(0).has("price"));
+		assertFalse(parameters.get(0).has("trigger_price"));
+		assertEquals("LIMIT", parameters.get(1).get("condition_type").asText());
+		assertEquals(12_345_678_901L, parameters.get(1).get("price").asLong());
+		assertFalse(parameters.get(1).has("trigger_price"));
+		assertEquals("STOP", parameters.get(2).get("condition_type").asText());
+		assertEquals("SELL", parameters.get(2).get("side").asText());
+		assertEquals(9_876_543L, parameters.get(2).get("trigger_price").asLong());
+		assertFalse(parameters.get(2).has("price"));
+	}
+
+	@Test
+	void testEncodeIntoBuffer() {
+		byte[] buffer = new byte[ParentOrderEncoder.MAX_LENGTH + 4];
+		int end = ParentOrderEncoder.encode(buffer, 4, ParentOrderMethodEnum.SIMPLE, 1,
+				ParentOrderParameter.limit(BuySellEnum.BUY, 1000000, 100_000L));
+		assertEquals("{\"order_method\":\"SIMPLE\",\"minute_to_expire\":1,\"time_in_force\":\"GTC\",\"parameters\":["
+				+ "{\"product_code\":\"FX_BTC_JPY\",\"condition_type\":\"LIMIT\",\"side\":\"BUY\",\"price\":1000000,"
+				+ "\"size\":0.001}]}", new String(buffer, 4, end - 4, StandardCharsets.US_ASCII));
+	}
+
+	@Test
+	void testCancel() throws Exception {
+		JsonNode node = MAPPER.readTree(ParentOrderEncoder.encodeCancel("JRF20150707-033333-099999"));
+		assertEquals("FX_BTC_JPY", node.get("product_code").asText());
+		assertEquals("JRF20150707-033333-099999", node.get("parent_order_acceptance_id").asText());
+		try {
+			// JSONを壊す受付IDは受け付けない
+			ParentOrderEncoder.encodeCancel("JRF\",\"product_code\":\"BTC_JPY");
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+}
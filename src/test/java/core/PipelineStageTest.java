@@ -0,0 +1,156 @@
+package core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PipelineStageTest {
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception {
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception {
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+	}
+
+	/**
+	 * 使い回すイベント
+	 */
+	private static class LongEvent {
+		private long value;
+	}
+
+	@Test
+	void testChainedStages() throws Exception {
+		int count = 10000;
+		List<Long> received = new CopyOnWriteArrayList<>();
+		CountDownLatch latch = new CountDownLatch(count);
+		PipelineStage<LongEvent> second = new PipelineStage<>("secondStage", 8, LongEvent::new, event -> {
+			received.add(event.value);
+			latch.countDown();
+		});
+		// 前の段が次の段の唯一の書き込み元になる
+		PipelineStage<LongEvent> first = new PipelineStage<>("firstStage", 8, LongEvent::new, event -> {
+			LongEvent next = second.claim();
+			next.value = event.value * 2;
+			second.publish();
+		});
+		second.start();
+		first.start();
+		// リングより多く書き込んでも、空くのを待つので取りこぼさない
+		for (long i = 0; i < count; i++) {
+			LongEvent event = first.claim();
+			event.value = i;
+			first.publish();
+		}
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+		for (int i = 0; i < count; i++) {
+			assertEquals(i * 2L, (long) received.get(i));
+		}
+		assertEquals(count, first.getProcessed());
+		assertEquals(count, second.getProcessed());
+		assertEquals(0, second.getDepth());
+		assertTrue(first.getMaxDepth() <= 8);
+		first.stop();
+		second.stop();
+	}
+
+	@Test
+	void testStopOnError() throws Exception {
+		CountDownLatch latch = new CountDownLatch(1);
+		PipelineStage<LongEvent> stage = new PipelineStage<>("failingStage", 4, LongEvent::new, event -> {
+			latch.countDown();
+			throw new IllegalStateException("処理停止");
+		});
+		stage.start();
+		stage.claim().value = 1;
+		stage.publish();
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		for (int i = 0; i < 100 && stage.isRunning(); i++) {
+			Thread.sleep(10);
+		}
+		assertFalse(stage.isRunning());
+		assertEquals(0, stage.getProcessed());
+		// 止まった段への書き込みは待たずに失敗させる(スロットを上書きしない)
+		for (int i = 0; i < 10; i++) {
+			try {
+				stage.claim();
+				fail();
+			} catch (IllegalStateException e) {
+			}
+			assertNull(stage.tryClaim());
+		}
+	}
+
+	@Test
+	void testAbandonOnError() throws Exception {
+		CountDownLatch entered = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		List<Long> abandoned = new CopyOnWriteArrayList<>();
+		PipelineStage<LongEvent> stage = new PipelineStage<>("abandoningStage", 8, LongEvent::new, event -> {
+			entered.countDown();
+			release.await();
+			throw new IllegalStateException("処理停止");
+		}, (event, cause) -> abandoned.add(event.value));
+		stage.start();
+		for (long i = 0; i < 4; i++) {
+			stage.claim().value = i;
+			stage.publish();
+		}
+		assertTrue(entered.await(5, TimeUnit.SECONDS));
+		release.countDown();
+		for (int i = 0; i < 100 && abandoned.size() < 4; i++) {
+			Thread.sleep(10);
+		}
+		// 例外が出たイベントと、その後に残っていたイベントを1度ずつ破棄のハンドラに渡す
+		assertEquals(Arrays.asList(0L, 1L, 2L, 3L), abandoned);
+	}
+
+	@Test
+	void testClaimBeforeStart() throws Exception {
+		List<Long> received = new CopyOnWriteArrayList<>();
+		CountDownLatch latch = new CountDownLatch(4);
+		PipelineStage<LongEvent> stage = new PipelineStage<>("notStartedStage", 4, LongEvent::new, event -> {
+			received.add(event.value);
+			latch.countDown();
+		});
+		// 開始前はリングの大きさまで書き込める
+		for (long i = 0; i < 4; i++) {
+			stage.claim().value = i;
+			stage.publish();
+		}
+		assertNull(stage.tryClaim());
+		try {
+			stage.claim();
+			fail();
+		} catch (IllegalStateException e) {
+		}
+		stage.start();
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList(0L, 1L, 2L, 3L), received);
+		stage.stop();
+	}
+}
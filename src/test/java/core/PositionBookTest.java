@@ -0,0 +1,117 @@
+package core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import exchange.PositionBook;
+import model.BuySellEnum;
+import model.FixedPoint;
+import model.PositionResponse;
+
+class PositionBookTest {
+
+	PositionResponse[] positions;
+
+	PositionBook book;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception {
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception {
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+		positions = new PositionResponse[] { position("BUY", "0.01"), position("BUY", "0.02") };
+		book = new PositionBook(() -> CompletableFuture.completedFuture(positions), null);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		book.stop();
+	}
+
+	private static PositionResponse position(String side, String size) {
+		PositionResponse position = new PositionResponse();
+		position.setProductCode("FX_BTC_JPY");
+		position.setSide(side);
+		position.setSize(FixedPoint.parseSize(size));
+		return position;
+	}
+
+	@Test
+	void testReconcile() {
+		assertFalse(book.isReady());
+		assertTrue(book.refresh().join());
+		assertTrue(book.isReady());
+		assertEquals(FixedPoint.parseSize("0.03"), book.getPositionTotalSize(BuySellEnum.BUY));
+		assertEquals(0, book.getPositionTotalSize(BuySellEnum.SELL));
+		assertEquals(0, book.getDriftCount());
+
+		// 取引所側の建玉が変わっていればズレとして取得した値に合わせる
+		positions = new PositionResponse[] { position("SELL", "0.005") };
+		assertTrue(book.refresh().join());
+		assertEquals(0, book.getPositionTotalSize(BuySellEnum.BUY));
+		assertEquals(FixedPoint.parseSize("0.005"), book.getPositionTotalSize(BuySellEnum.SELL));
+		assertEquals(1, book.getDriftCount());
+	}
+
+	@Test
+	void testApplyFill() {
+		book.refresh().join();
+		// ドテン:ロング0.03に対して0.05売るとショート0.02
+		book.applyFill(BuySellEnum.SELL, FixedPoint.parseSize("0.05"));
+		assertEquals(0, book.getPositionTotalSize(BuySellEnum.BUY));
+		assertEquals(FixedPoint.parseSize("0.02"), book.getPositionTotalSize(BuySellEnum.SELL));
+		// 0.1 + 0.2のような誤差が出ないこと
+		book.applyFill(BuySellEnum.BUY, FixedPoint.parseSize("0.1"));
+		book.applyFill(BuySellEnum.BUY, FixedPoint.parseSize("0.2"));
+		assertEquals(FixedPoint.parseSize("0.28"), book.getPositionTotalSize(BuySellEnum.BUY));
+	}
+
+	@Test
+	void testIgnoreOlderSnapshot() {
+		book.refresh().join();
+		long requested = System.nanoTime();
+		book.applyFill(BuySellEnum.BUY, FixedPoint.parseSize("0.01"));
+		// 約定反映前に取得を開始した建玉では上書きしない
+		assertFalse(book.reconcile(positions, requested));
+		assertEquals(FixedPoint.parseSize("0.04"), book.getPositionTotalSize(BuySellEnum.BUY));
+		assertTrue(book.reconcile(positions, System.nanoTime()));
+		assertEquals(FixedPoint.parseSize("0.03"), book.getPositionTotalSize(BuySellEnum.BUY));
+	}
+
+	@Test
+	void testFillReflectedBeforeConfirm() {
+		book.refresh().join();
+		book.orderAccepted("JRF20200501-000000-000001");
+		book.orderAccepted("JRF20200501-000000-000002");
+		assertEquals(2, book.getUnconfirmedCount());
+		// 1件目は約定確認より前に取引所で約定し、受付後に取得を開始した建玉に含まれている
+		positions = new PositionResponse[] { position("BUY", "0.03"), position("BUY", "0.01") };
+		assertTrue(book.refresh().join());
+		assertEquals(FixedPoint.parseSize("0.04"), book.getPositionTotalSize(BuySellEnum.BUY));
+		// 後から約定が確定しても二重に加算しない
+		book.applyFill("JRF20200501-000000-000001", BuySellEnum.BUY, FixedPoint.parseSize("0.01"));
+		assertEquals(FixedPoint.parseSize("0.04"), book.getPositionTotalSize(BuySellEnum.BUY));
+		assertEquals(1, book.getSkippedFillCount());
+		// 受付前に取得を開始した建玉には含まれないので加算する
+		book.orderAccepted("JRF20200501-000000-000003");
+		book.applyFill("JRF20200501-000000-000003", BuySellEnum.SELL, FixedPoint.parseSize("0.02"));
+		assertEquals(FixedPoint.parseSize("0.02"), book.getPositionTotalSize(BuySellEnum.BUY));
+		// 約定しなかった注文は記録を消す
+		book.orderFinished("JRF20200501-000000-000002");
+		assertEquals(0, book.getUnconfirmedCount());
+	}
+}
@@ -0,0 +1,90 @@
+package core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import logic.PriceDirectionWindow;
+import model.DirectionEnum;
+
+class PriceDirectionWindowTest {
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception {
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception {
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+	}
+
+	@Test
+	void addTest() {
+		PriceDirectionWindow window = new PriceDirectionWindow(3);
+		window.add(100, DirectionEnum.STAY);
+		window.add(110, DirectionEnum.UP);
+		assertFalse(window.isFull());
+		window.add(105, DirectionEnum.DOWN);
+		assertTrue(window.isFull());
+		assertEquals(100, window.getFirstPrice());
+		assertEquals(105, window.getLastPrice());
+		// 押し出し
+		window.add(120, DirectionEnum.UP);
+		assertEquals(110, window.getFirstPrice());
+		assertEquals(120, window.getLastPrice());
+		assertEquals(2, window.getUpCount());
+		assertEquals(1, window.getDownCount());
+		assertEquals(0, window.getStayCount());
+		window.clear();
+		assertEquals(0, window.size());
+		assertEquals(-1, window.getFirstPrice());
+		assertEquals(0, window.getUpCount());
+	}
+
+	@Test
+	void compareWithScanTest() {
+		// 全件走査した結果と一致すること
+		int capacity = 17;
+		PriceDirectionWindow window = new PriceDirectionWindow(capacity);
+		Deque<int[]> reference = new ArrayDeque<>();
+		Random random = new Random(1);
+		DirectionEnum[] values = DirectionEnum.values();
+		for (int i = 0; i < 1000; i++) {
+			int price = random.nextInt(1000);
+			DirectionEnum direction = values[random.nextInt(values.length)];
+			window.add(price, direction);
+			reference.addLast(new int[] { price, direction.ordinal() });
+			if (reference.size() > capacity) {
+				reference.removeFirst();
+			}
+			int up = 0;
+			int down = 0;
+			for (int[] e : reference) {
+				up += e[1] == DirectionEnum.UP.ordinal() ? 1 : 0;
+				down += e[1] == DirectionEnum.DOWN.ordinal() ? 1 : 0;
+			}
+			assertEquals(reference.peekFirst()[0], window.getFirstPrice());
+			assertEquals(reference.peekLast()[0], window.getLastPrice());
+			assertEquals(up, window.getUpCount());
+			assertEquals(down, window.getDownCount());
+			assertEquals(reference.size() - up - down, window.getStayCount());
+		}
+	}
+}
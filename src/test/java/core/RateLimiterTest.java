@@ -0,0 +1,81 @@
+package core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import exchange.RateLimiter;
+import exchange.RequestPriorityEnum;
+
+class RateLimiterTest {
+
+	RateLimiter limiter;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception {
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception {
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+		// 10秒で10回、HIGH用に2回分予約、LOWは残り5回を切ったら使えない
+		Map<String, Object> param = new HashMap<>();
+		param.put("capacity", 10);
+		param.put("periodSec", 10);
+		param.put("highReserve", 2);
+		param.put("lowThresholdRatio", 0.5);
+		param.put("maxDeferMsec", 100);
+		limiter = new RateLimiter(param);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+	}
+
+	@Test
+	void testPriorityLanes() {
+		for (int i = 0; i < 5; i++) {
+			assertEquals(0, limiter.tryAcquire(RequestPriorityEnum.LOW));
+		}
+		// LOWは回復を待つ時間が長すぎるので見送り
+		assertEquals(-1, limiter.tryAcquire(RequestPriorityEnum.LOW));
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, limiter.tryAcquire(RequestPriorityEnum.NORMAL));
+		}
+		// NORMALは予約分を使えないので待たされる
+		assertTrue(limiter.tryAcquire(RequestPriorityEnum.NORMAL) > 0);
+		// HIGHは予約分を使える
+		assertEquals(0, limiter.tryAcquire(RequestPriorityEnum.HIGH));
+		assertEquals(0, limiter.tryAcquire(RequestPriorityEnum.HIGH));
+		assertTrue(limiter.tryAcquire(RequestPriorityEnum.HIGH) > 0);
+
+		assertEquals(5, limiter.getGranted(RequestPriorityEnum.LOW));
+		assertEquals(1, limiter.getShed(RequestPriorityEnum.LOW));
+		assertEquals(1, limiter.getDeferred(RequestPriorityEnum.NORMAL));
+		assertTrue(limiter.getUtilization() > 0.9);
+	}
+
+	@Test
+	void testObserveRemaining() {
+		// 取引所の残り回数が手元の見積もりより少なければそちらに合わせる
+		limiter.observeRemaining(3);
+		assertEquals(3, limiter.getExchangeRemaining());
+		assertTrue(limiter.getAvailableTokens() < 3.1);
+		assertTrue(limiter.tryAcquire(RequestPriorityEnum.NORMAL) == 0);
+		assertTrue(limiter.tryAcquire(RequestPriorityEnum.NORMAL) > 0);
+
+		limiter.observeLimited();
+		assertTrue(limiter.tryAcquire(RequestPriorityEnum.HIGH) > 0);
+	}
+}
@@ -0,0 +1,149 @@
+package core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import exchange.EndpointEnum;
+import exchange.RequestExecutor;
+import exchange.ResponseDecoder;
+import model.HealthResponse;
+
+class RequestExecutorTest {
+
+	HttpServer server;
+
+	AtomicInteger calls;
+
+	// 先頭から順に返すステータス(使い切ったら200)
+	int[] statuses;
+
+	RequestExecutor executor;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception {
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception {
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+		calls = new AtomicInteger();
+		statuses = new int[0];
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", exchange -> {
+			int call = calls.getAndIncrement();
+			int status = call < statuses.length ? statuses[call] : 200;
+			byte[] body = (status == 200 ? "{\"status\":\"NORMAL\"}" : "{\"status\":-1}")
+					.getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(status, body.length);
+			exchange.getResponseBody().write(body);
+			exchange.close();
+		});
+		server.start();
+		Map<String, Object> param = new HashMap<>();
+		param.put("maxAttempts", 4);
+		param.put("baseBackoffMsec", 1);
+		param.put("maxBackoffMsec", 5);
+		param.put("retryBudget", 10);
+		// 予約なしで共通の予算を確認する(予約はtestRetryBudgetHighReserveで確認する)
+		param.put("retryBudgetHighReserve", 0);
+		executor = new RequestExecutor(HttpClient.newHttpClient(), param);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		server.stop(0);
+	}
+
+	private HttpRequest request() {
+		return HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/")).build();
+	}
+
+	@Test
+	void testRetryServerError() {
+		statuses = new int[] { 500, 503 };
+		HealthResponse response = executor.execute(EndpointEnum.GETHEALTH, this::request, ResponseDecoder.HEALTH);
+		assertNotNull(response);
+		assertEquals("NORMAL", response.getStatus());
+		assertEquals(3, calls.get());
+		assertEquals(2, executor.getMetrics().getRetries(EndpointEnum.GETHEALTH));
+		assertEquals(1, executor.getMetrics().getSuccesses(EndpointEnum.GETHEALTH));
+	}
+
+	@Test
+	void testNoRetryClientError() {
+		statuses = new int[] { 400 };
+		assertNull(executor.execute(EndpointEnum.GETHEALTH, this::request, ResponseDecoder.HEALTH));
+		assertEquals(1, calls.get());
+		assertEquals(1, executor.getMetrics().getFailures(EndpointEnum.GETHEALTH));
+	}
+
+	@Test
+	void testRetryRateLimited() {
+		// 429は冪等でないAPIでもリトライする
+		statuses = new int[] { 429 };
+		assertNotNull(executor.execute(EndpointEnum.SENDCHILDORDER, this::request, ResponseDecoder.HEALTH));
+		assertEquals(2, calls.get());
+	}
+
+	@Test
+	void testNoRetryNonIdempotentServerError() {
+		// 発注は処理された可能性があるのでリトライしない
+		statuses = new int[] { 500 };
+		assertNull(executor.execute(EndpointEnum.SENDCHILDORDER, this::request, ResponseDecoder.HEALTH));
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	void testRetryBudget() {
+		statuses = new int[] { 500, 500, 500, 500, 500, 500, 500, 500, 500, 500, 500, 500, 500, 500, 500, 500 };
+		for (int i = 0; i < 4; i++) {
+			assertNull(executor.execute(EndpointEnum.GETHEALTH, this::request, ResponseDecoder.HEALTH));
+		}
+		// 1回あたり最大3リトライ、予算10なので4回目の途中で予算切れ
+		assertEquals(14, calls.get());
+		assertEquals(1, executor.getMetrics().getBudgetExhausted(EndpointEnum.GETHEALTH));
+	}
+
+	@Test
+	void testRetryBudgetHighReserve() {
+		Map<String, Object> param = new HashMap<>();
+		param.put("maxAttempts", 4);
+		param.put("baseBackoffMsec", 1);
+		param.put("maxBackoffMsec", 5);
+		param.put("retryBudget", 10);
+		param.put("retryBudgetHighReserve", 4);
+		executor = new RequestExecutor(HttpClient.newHttpClient(), param);
+		statuses = new int[] { 500, 500, 500, 500, 500, 500, 500, 500, 500, 500, 500, 500 };
+		for (int i = 0; i < 3; i++) {
+			assertNull(executor.execute(EndpointEnum.GETHEALTH, this::request, ResponseDecoder.HEALTH));
+		}
+		// NORMALは予約分の4を残して6リトライで予算切れ
+		assertEquals(9, calls.get());
+		assertEquals(1, executor.getMetrics().getBudgetExhausted(EndpointEnum.GETHEALTH));
+		// HIGHは予約分でリトライできる
+		assertNotNull(executor.execute(EndpointEnum.CANCELPARENTORDER, this::request, ResponseDecoder.HEALTH));
+		assertEquals(13, calls.get());
+		assertEquals(0, executor.getMetrics().getBudgetExhausted(EndpointEnum.CANCELPARENTORDER));
+	}
+}
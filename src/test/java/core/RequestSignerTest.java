@@ -0,0 +1,69 @@
+package core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import exchange.RequestSigner;
+
+class RequestSignerTest {
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception {
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception {
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+	}
+
+	@Test
+	void testRfc4231() {
+		// RFC 4231 Test Case 2
+		RequestSigner signer = new RequestSigner("Jefe");
+		assertEquals("5bdcc146bf60754e6a042426089575c75a003f089d2739839dec58b964ec3843",
+				signer.sign("what do ya ", "want ", "for ", "nothing?"));
+		// 2回目以降も同じMacを使い回して同じ結果になること
+		assertEquals("5bdcc146bf60754e6a042426089575c75a003f089d2739839dec58b964ec3843",
+				signer.sign("what do ya want ", "", "for nothing?", null));
+	}
+
+	@Test
+	void testSameAsMac() throws Exception {
+		String secret = "secret-key";
+		RequestSigner signer = new RequestSigner(secret);
+		StringBuilder body = new StringBuilder("{\"product_code\":\"FX_BTC_JPY\",\"memo\":\"テスト\"");
+		// バッファの初期サイズを超える長さも確認する
+		for (int i = 0; i < 200; i++) {
+			body.append(",\"k").append(i).append("\":").append(i);
+		}
+		body.append("}");
+		String[] bodies = { "", "{\"size\":0.01}", body.toString() };
+		for (String b : bodies) {
+			String plaintext = "1588291200000POST/v1/me/sendchildorder" + b;
+			Mac mac = Mac.getInstance("HmacSHA256");
+			mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+			StringBuilder expected = new StringBuilder();
+			for (byte d : mac.doFinal(plaintext.getBytes(StandardCharsets.UTF_8))) {
+				expected.append(String.format("%02x", d & 0xff));
+			}
+			assertEquals(expected.toString(), signer.sign("1588291200000", "POST", "/v1/me/sendchildorder", b));
+		}
+	}
+}
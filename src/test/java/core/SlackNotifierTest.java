@@ -0,0 +1,85 @@
+package core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import notification.SlackNotifier;
+
+class SlackNotifierTest {
+
+	static HttpServer server;
+
+	static List<String> bodies = new CopyOnWriteArrayList<>();
+
+	static SlackNotifier notifier;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception {
+		// Webhookの代わり
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", exchange -> {
+			try (InputStream in = exchange.getRequestBody()) {
+				bodies.add(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+			}
+			exchange.sendResponseHeaders(200, -1);
+			exchange.close();
+		});
+		server.start();
+		Map<String, Object> slackParam = new HashMap<>();
+		slackParam.put("incomingWebhook", "http://127.0.0.1:" + server.getAddress().getPort() + "/");
+		slackParam.put("queueCapacity", 3);
+		slackParam.put("minIntervalMsec", 50);
+		slackParam.put("maxBatch", 10);
+		Map<String, Object> settings = new HashMap<>();
+		settings.put("slack", slackParam);
+		notifier = SlackNotifier.getInstance(settings);
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception {
+		server.stop(0);
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+	}
+
+	@Test
+	void testBatchAndDrop() {
+		for (int i = 0; i < 100; i++) {
+			notifier.sendMessage("message\"" + i);
+		}
+		assertTrue(notifier.flush(5000));
+		assertEquals(0, notifier.getQueueDepth());
+		// 一杯の時は待たずに破棄し、送信数と破棄数の合計は詰めた数と一致する
+		assertTrue(notifier.getDroppedCount() > 0);
+		assertEquals(100, notifier.getSentCount() + notifier.getDroppedCount());
+		// まとめて送るので送信回数はメッセージ数より少ない
+		assertTrue(notifier.getBatchCount() < notifier.getSentCount());
+		assertEquals(notifier.getBatchCount(), bodies.size());
+		// 破棄した件数は後続の送信に添える(最後の送信に含まれるとは限らないので全体で確認)
+		assertTrue(bodies.stream().anyMatch(body -> body.contains("件を破棄しました")));
+		// 引用符はエスケープされる
+		assertTrue(bodies.get(0).startsWith("{\"text\": \"message\\\"0"));
+	}
+}
@@ -0,0 +1,174 @@
+package core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import backtest.BacktestReport;
+import backtest.SimulatedExchange;
+import model.BuySellEnum;
+import model.ChildOrderResponse;
+import model.ExecutionResponse;
+import model.FixedPoint;
+import model.OrderTypeEnum;
+import strategy.LiveStrategyExchange;
+import strategy.ShadowExchange;
+import strategy.StrategyConfig;
+import strategy.StrategyHost;
+import strategy.StrategyModeEnum;
+
+class StrategyHostTest {
+
+	// 2020-05-01T12:00:00+09:00
+	private static final long BASE = 1588302000000L;
+
+	// 0.1 BTC
+	private static final long SIZE = 10_000_000L;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception {
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception {
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+	}
+
+	private static Map<String, Object> strategy(String name, String mode, boolean useParentOrder) {
+		Map<String, Object> common = new HashMap<>();
+		common.put("useParentOrder", useParentOrder);
+		Map<String, Object> logic = new HashMap<>();
+		logic.put("judgeSecond", 30.0);
+		Map<String, Object> strategy = new HashMap<>();
+		strategy.put("name", name);
+		strategy.put("logicClass", "logic.ScalpingDealingLogic");
+		strategy.put("mode", mode);
+		strategy.put("allocation", 0.5);
+		strategy.put("common", common);
+		strategy.put("logic", logic);
+		return strategy;
+	}
+
+	private static Map<String, Object> settings(List<Map<String, Object>> strategies) {
+		Map<String, Object> common = new HashMap<>();
+		common.put("logicClass", "logic.ProfitTrailDealingLogic");
+		common.put("leverage", 1.0);
+		Map<String, Object> logic = new HashMap<>();
+		logic.put("judgeSecond", 10.0);
+		logic.put("closeSecond", 120.0);
+		Map<String, Object> settings = new HashMap<>();
+		settings.put("common", common);
+		settings.put("logic", logic);
+		settings.put("strategies", strategies);
+		return settings;
+	}
+
+	@Test
+	void configTest() {
+		Map<String, Object> settings = settings(Arrays.asList(strategy("a", "LIVE", false), strategy("b", "SHADOW", false)));
+		List<StrategyConfig> configs = StrategyConfig.load(settings);
+		assertEquals(2, configs.size());
+		StrategyConfig config = configs.get(0);
+		assertEquals(StrategyModeEnum.LIVE, config.getMode());
+		assertEquals("logic.ScalpingDealingLogic", config.getLogicClass());
+		// 上書きしていない値は元の設定のまま
+		assertEquals(1.0, config.getCommon().get("leverage"));
+		assertEquals(120.0, ((Map<?, ?>) config.getSettings().get("logic")).get("closeSecond"));
+		assertEquals(30.0, ((Map<?, ?>) config.getSettings().get("logic")).get("judgeSecond"));
+		// 元の設定は変えない
+		assertEquals(10.0, ((Map<?, ?>) settings.get("logic")).get("judgeSecond"));
+		assertEquals(StrategyModeEnum.SHADOW, configs.get(1).getMode());
+
+		try {
+			new StrategyHost(null, null,
+					settings(Arrays.asList(strategy("a", "LIVE", true), strategy("b", "LIVE", true))));
+			fail();
+		} catch (IllegalArgumentException e) {
+			// 親注文を使うLIVEは1つまで
+		}
+		try {
+			new StrategyHost(null, null, settings(Arrays.asList(strategy("a", "LIVE", false), strategy("a", "SHADOW", false))));
+			fail();
+		} catch (IllegalArgumentException e) {
+			// 名前の重複
+		}
+	}
+
+	@Test
+	void liveAccountingTest() {
+		// 共有の取引所の代わりにSimulatedExchangeを使う
+		Map<String, Object> backtest = new HashMap<>();
+		backtest.put("spreadPercentage", 0.0);
+		SimulatedExchange shared = new SimulatedExchange(backtest, new HashMap<>(), new BacktestReport(1000000), BASE);
+		shared.onTick(BASE, 1000000, SIZE);
+		Map<String, Object> settings = new HashMap<>();
+		Map<String, Object> trackerParam = new HashMap<>();
+		trackerParam.put("initialPollMsec", 0);
+		settings.put("orderTracker", trackerParam);
+		LiveStrategyExchange a = new LiveStrategyExchange("a", shared, 0.5, settings, null);
+		LiveStrategyExchange b = new LiveStrategyExchange("b", shared, 0.5, settings,
+				Collections.singletonList(a.getLedger()));
+		try {
+			ChildOrderResponse response = a.sendChildOrder(BuySellEnum.BUY, 0, SIZE, OrderTypeEnum.MARKET);
+			assertNotNull(response);
+			a.getOrderTracker().track(response.getChildOrderAcceptanceId(), BuySellEnum.BUY, SIZE).join();
+			// 約定は共有の取引所の追跡結果を使う(ストラテジーごとにポーリングしない)
+			assertNotNull(shared.getOrderTracker().get(response.getChildOrderAcceptanceId()));
+			assertEquals(SIZE, a.getPositionBook().getPositionTotalSize(BuySellEnum.BUY));
+			assertEquals(0, a.getPositionBook().getDriftCount());
+			assertEquals(1000000, a.getLedger().getAveragePrice(), 1e-6);
+			// 取引所の建玉はaの分だけなので、bの建玉は0
+			assertEquals(0, b.getPositions().length);
+			assertEquals(500000, a.getCollateral().getCollateral());
+
+			shared.onTick(BASE + 1000, 1001000, SIZE);
+			response = a.sendChildOrder(BuySellEnum.SELL, 0, SIZE, OrderTypeEnum.MARKET);
+			a.getOrderTracker().track(response.getChildOrderAcceptanceId(), BuySellEnum.SELL, SIZE).join();
+			assertEquals(0, a.getPositionBook().getPositionTotalSize(BuySellEnum.BUY));
+			assertEquals(100, a.getLedger().getRealizedPnl(), 1e-6);
+		} finally {
+			a.close();
+			b.close();
+			shared.close();
+		}
+	}
+
+	@Test
+	void shadowTest() {
+		Map<String, Object> shadowParam = new HashMap<>();
+		shadowParam.put("spreadPercentage", 0.0);
+		ShadowExchange shadow = new ShadowExchange("s", shadowParam, new HashMap<>());
+		try {
+			ExecutionResponse execution = new ExecutionResponse();
+			execution.setPrice(1000000);
+			execution.setSize(FixedPoint.parseSize("0.01"));
+			shadow.onExecutions(new ExecutionResponse[] { execution });
+			ChildOrderResponse response = shadow.sendChildOrder(BuySellEnum.BUY, 0, FixedPoint.parseSize("0.01"),
+					OrderTypeEnum.MARKET);
+			assertNotNull(response);
+			assertEquals(FixedPoint.parseSize("0.01"), shadow.getPositionSize());
+			assertEquals(1, shadow.getReport().getTradeCount());
+		} finally {
+			shadow.close();
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import backtest.RecordedDataReader;
+import backtest.TickData;
+import model.FixedPoint;
+import store.SeriesEnum;
+import store.TickCursor;
+import store.TickStoreReader;
+import store.TickStoreWriter;
+
+class TickStoreTest {
+
+	// 2020-05-01T12:00:00+09:00
+	private static final long BASE = 1588302000000L;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception {
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception {
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+	}
+
+	private static Map<String, Object> storeParam() {
+		Map<String, Object> param = new HashMap<>();
+		param.put("segmentMinutes", 10);
+		param.put("blockSize", 100);
+		return param;
+	}
+
+	private static long price(int i) {
+		return 1000000 + (i % 37) * 13 - (i % 11) * 7;
+	}
+
+	@Test
+	void writeAndReadTest() throws Exception {
+		Path dir = Files.createTempDirectory("store");
+		// 30分(3セグメント)、0.5秒ごとの約定
+		int n = 30 * 60 * 2;
+		try (TickStoreWriter writer = new TickStoreWriter(dir, storeParam())) {
+			for (int i = 0; i < n; i++) {
+				writer.appendExecution(BASE + i * 500L, price(i), FixedPoint.toSize(0.01 * (i % 5 + 1)), i % 2 == 0 ? 1 : -1);
+			}
+		}
+		TickStoreReader reader = new TickStoreReader(dir);
+		assertEquals(3, reader.segments(SeriesEnum.EXECUTION).size());
+		TickCursor cursor = reader.cursor(SeriesEnum.EXECUTION);
+		int i = 0;
+		while (cursor.next()) {
+			assertEquals(BASE + i * 500L, cursor.getTime());
+			assertEquals(price(i), cursor.getValue(0));
+			assertEquals(0.01 * (i % 5 + 1), FixedPoint.toDouble(cursor.getValue(1)), 1e-12);
+			assertEquals(i % 2 == 0 ? 1 : -1, cursor.getValue(2));
+			i++;
+		}
+		assertEquals(n, i);
+
+		// 途中の時刻から読む
+		cursor = reader.cursor(SeriesEnum.EXECUTION, BASE + 15 * 60000 + 250, BASE + 15 * 60000 + 2000);
+		assertTrue(cursor.next());
+		assertEquals(BASE + 15 * 60000 + 500, cursor.getTime());
+		assertEquals(price(1801), cursor.getValue(0));
+		int count = 1;
+		while (cursor.next()) {
+			count++;
+		}
+		assertEquals(3, count);
+		assertFalse(reader.cursor(SeriesEnum.QUOTE).next());
+
+		// バックテスト用に読む
+		TickData ticks = RecordedDataReader.read(dir, RecordedDataReader.FormatEnum.STORE);
+		assertEquals(n, ticks.size());
+		assertEquals(price(n - 1), ticks.getPrice(n - 1));
+	}
+
+	@Test
+	void reopenTest() throws Exception {
+		Path dir = Files.createTempDirectory("store");
+		try (TickStoreWriter writer = new TickStoreWriter(dir, storeParam())) {
+			for (int i = 0; i < 150; i++) {
+				writer.appendQuote(BASE + i * 1000L, 999990, 1000010, 100000000L, 200000000L);
+			}
+		}
+		// 再起動後は同じセグメントに続けて書く(時刻が戻った値は直前の時刻にそろえる)
+		try (TickStoreWriter writer = new TickStoreWriter(dir, storeParam())) {
+			writer.appendQuote(BASE, 999980, 1000020, 1, 2);
+			writer.appendQuote(BASE + 200000, 999970, 1000030, 3, 4);
+		}
+		TickCursor cursor = new TickStoreReader(dir).cursor(SeriesEnum.QUOTE);
+		long last = Long.MIN_VALUE;
+		long lastBid = 0;
+		long lastAskSize = 0;
+		int count = 0;
+		while (cursor.next()) {
+			assertTrue(cursor.getTime() >= last);
+			last = cursor.getTime();
+			lastBid = cursor.getValue(0);
+			lastAskSize = cursor.getValue(3);
+			count++;
+		}
+		assertEquals(152, count);
+		assertEquals(BASE + 200000, last);
+		assertEquals(999970, lastBid);
+		assertEquals(4, lastAskSize);
+	}
+}